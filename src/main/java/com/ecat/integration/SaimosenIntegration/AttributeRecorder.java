@@ -0,0 +1,178 @@
+package com.ecat.integration.SaimosenIntegration;
+
+import java.io.IOException;
+import java.nio.file.Paths;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import com.ecat.core.EcatCore;
+import com.ecat.core.State.AttributeBase;
+
+/**
+ * 把设备的存储属性逐次发布记录到本地时序存储和上行存储转发缓冲
+ *
+ * <p>存储属性由设备的 {@link SmsDeviceBase#getStoredAttributeIds()} 给出。两路目标按设备配置
+ * （`storage`、`outbound`）各自打开，未配置的一路不启用；采样数组复用，每次发布不分配对象。
+ * 某一路写入失败时调用方停止该路（{@link #closeStore()}、{@link #stopForwarding()}），另一路不受影响。</p>
+ *
+ * @version V1.0
+ */
+public class AttributeRecorder {
+
+    public static final long DEFAULT_STORAGE_SEGMENT_HOURS = 24;
+    public static final long DEFAULT_STORAGE_RETENTION_DAYS = 30;
+
+    private final String[] columns;
+    private final float[] values;
+    private final byte[] statuses;
+    private volatile TimeSeriesStore store;
+    private volatile OutboundBuffer outbound;
+
+    /**
+     * @param columns 存储属性ID
+     */
+    public AttributeRecorder(String[] columns) {
+        this.columns = columns;
+        this.values = new float[columns.length];
+        this.statuses = new byte[columns.length];
+    }
+
+    public String[] getColumns() {
+        return columns;
+    }
+
+    /**
+     * 按 `storage` 配置在 `dir/设备ID` 下打开本地时序存储；未配置或已打开时返回null
+     * @param precisions 各列的显示精度，见 {@link SmsDeviceBase#getStoredAttributePrecisions()}
+     */
+    public TimeSeriesStore openStore(Map<String, Object> storage, String deviceId, int[] precisions)
+            throws IOException {
+        Object dir = storage.get("dir");
+        if (store != null || !(dir instanceof String) || ((String) dir).isEmpty() || columns.length == 0) {
+            return null;
+        }
+        Object segmentHours = storage.get("segment_hours");
+        Object retentionDays = storage.get("retention_days");
+        long segmentMillis = TimeUnit.HOURS.toMillis(
+                segmentHours instanceof Number ? ((Number) segmentHours).longValue() : DEFAULT_STORAGE_SEGMENT_HOURS);
+        long retentionMillis = TimeUnit.DAYS.toMillis(
+                retentionDays instanceof Number ? ((Number) retentionDays).longValue() : DEFAULT_STORAGE_RETENTION_DAYS);
+        store = TimeSeriesStore.open(Paths.get((String) dir, deviceId), columns, precisions, segmentMillis,
+                retentionMillis);
+        return store;
+    }
+
+    /**
+     * 按 `outbound` 配置获取目录共享的上行缓冲；缓冲还没有消费方时登记经平台总线交付、等待上行方确认的
+     * {@link OutboundBusSink}，确认到达后在平台线程池上继续交付。未配置或已打开时返回null
+     */
+    public OutboundBuffer openOutbound(Map<String, Object> outboundConfig, EcatCore core) throws IOException {
+        Object dir = outboundConfig.get("dir");
+        if (outbound != null || !(dir instanceof String) || ((String) dir).isEmpty() || columns.length == 0) {
+            return null;
+        }
+        Object memoryKb = outboundConfig.get("memory_kb");
+        Object segmentMb = outboundConfig.get("segment_mb");
+        Object maxDiskMb = outboundConfig.get("max_disk_mb");
+        Object catchupRate = outboundConfig.get("catchup_records_per_second");
+        Object topic = outboundConfig.get("topic");
+        Object ackTimeout = outboundConfig.get("ack_timeout_seconds");
+        OutboundBuffer buffer = OutboundBuffer.forDirectory((String) dir,
+                memoryKb instanceof Number ? ((Number) memoryKb).intValue() * 1024 : OutboundBuffer.DEFAULT_MEMORY_BYTES,
+                segmentMb instanceof Number ? ((Number) segmentMb).longValue() << 20 : OutboundBuffer.DEFAULT_SEGMENT_BYTES,
+                maxDiskMb instanceof Number ? ((Number) maxDiskMb).longValue() << 20 : OutboundBuffer.DEFAULT_MAX_DISK_BYTES,
+                catchupRate instanceof Number ? ((Number) catchupRate).doubleValue()
+                        : OutboundBuffer.DEFAULT_CATCHUP_RECORDS_PER_SECOND);
+        OutboundBusSink sink = new OutboundBusSink(core,
+                topic instanceof String && !((String) topic).isEmpty() ? (String) topic : OutboundBusSink.DEFAULT_TOPIC,
+                ackTimeout instanceof Number ? TimeUnit.SECONDS.toMillis(((Number) ackTimeout).longValue())
+                        : OutboundBusSink.DEFAULT_ACK_TIMEOUT_MILLIS);
+        sink.setOnAcknowledged(() -> pumpLater(buffer, core));
+        // 上行模块已注册消费方时不替换
+        buffer.setSinkIfAbsent(sink);
+        outbound = buffer;
+        return buffer;
+    }
+
+    private static void pumpLater(OutboundBuffer buffer, EcatCore core) {
+        ExecutorService executor = core == null || core.getTaskManager() == null ? null
+                : core.getTaskManager().getExecutorService();
+        if (executor == null) {
+            // 下一次发布时继续交付
+            return;
+        }
+        executor.execute(() -> {
+            try {
+                buffer.pump();
+            } catch (IOException e) {
+                // 下一次发布时重试
+            }
+        });
+    }
+
+    public TimeSeriesStore getStore() {
+        return store;
+    }
+
+    public OutboundBuffer getOutbound() {
+        return outbound;
+    }
+
+    /**
+     * 是否有启用的目标
+     */
+    public boolean isRecording() {
+        return store != null || outbound != null;
+    }
+
+    /**
+     * 采样存储属性的当前值和状态，供随后的 {@link #append} 和 {@link #forward} 使用
+     */
+    public void sample(Map<String, AttributeBase<?>> attrs) {
+        for (int i = 0; i < columns.length; i++) {
+            AttributeBase<?> attr = attrs.get(columns[i]);
+            Object value = attr == null ? null : attr.getValue();
+            values[i] = value instanceof Number ? ((Number) value).floatValue() : Float.NaN;
+            statuses[i] = TimeSeriesStore.statusCode(attr == null ? null : attr.getStatus());
+        }
+    }
+
+    /**
+     * 把采样追加到本地时序存储，未启用时不做任何事
+     */
+    public void append(long timestamp) throws IOException {
+        TimeSeriesStore current = store;
+        if (current != null) {
+            current.append(timestamp, values, statuses);
+        }
+    }
+
+    /**
+     * 把采样写入上行缓冲，未启用时不做任何事
+     */
+    public void forward(String deviceId, long timestamp) throws IOException {
+        OutboundBuffer current = outbound;
+        if (current != null) {
+            current.offer(deviceId, timestamp, columns, values, statuses);
+        }
+    }
+
+    /**
+     * 关闭本地时序存储
+     */
+    public void closeStore() {
+        TimeSeriesStore current = store;
+        if (current != null) {
+            store = null;
+            current.close();
+        }
+    }
+
+    /**
+     * 停止转发；缓冲由同一目录的设备共享，不在这里关闭
+     */
+    public void stopForwarding() {
+        outbound = null;
+    }
+}
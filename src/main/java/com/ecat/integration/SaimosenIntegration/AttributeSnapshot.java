@@ -0,0 +1,220 @@
+package com.ecat.integration.SaimosenIntegration;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import com.ecat.core.State.AttributeStatus;
+
+/**
+ * 设备属性快照文件（热启动用）
+ *
+ * <p>保存每个属性最后的值和状态，格式：</p>
+ * <pre>
+ * 魔数 "SMSN"、版本、保存时间（毫秒）、条目数
+ * 条目：属性ID（UTF）、状态码（{@link TimeSeriesStore#statusCode}）、类型标记、值
+ * </pre>
+ *
+ * <p>值只支持数值、字符串和布尔类型，其余类型或null不保存。写入先到临时文件再原子替换，
+ * 进程在写入中途退出时保留上一次的快照。</p>
+ *
+ * @version V1.0
+ */
+public final class AttributeSnapshot {
+
+    private static final int MAGIC = 0x534D534E; // "SMSN"
+    private static final int VERSION = 1;
+    private static final byte TYPE_DOUBLE = 'D';
+    private static final byte TYPE_FLOAT = 'F';
+    private static final byte TYPE_SHORT = 'S';
+    private static final byte TYPE_INTEGER = 'I';
+    private static final byte TYPE_LONG = 'J';
+    private static final byte TYPE_STRING = 'T';
+    private static final byte TYPE_BOOLEAN = 'Z';
+
+    private final long savedAt;
+    private final List<Entry> entries;
+
+    public AttributeSnapshot(long savedAt, List<Entry> entries) {
+        this.savedAt = savedAt;
+        this.entries = Collections.unmodifiableList(new ArrayList<>(entries));
+    }
+
+    /**
+     * 保存时间（毫秒）
+     */
+    public long getSavedAt() {
+        return savedAt;
+    }
+
+    public List<Entry> getEntries() {
+        return entries;
+    }
+
+    /**
+     * 是否支持保存该值
+     */
+    public static boolean isSupported(Object value) {
+        return typeOf(value) != 0;
+    }
+
+    /**
+     * 写入快照文件（先写临时文件再原子替换）
+     */
+    public void write(Path file) throws IOException {
+        Path parent = file.toAbsolutePath().getParent();
+        if (parent != null) {
+            Files.createDirectories(parent);
+        }
+        Path temp = file.resolveSibling(file.getFileName() + ".tmp");
+        List<Entry> supported = new ArrayList<>();
+        for (Entry entry : entries) {
+            if (isSupported(entry.value)) {
+                supported.add(entry);
+            }
+        }
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temp)))) {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeLong(savedAt);
+            out.writeInt(supported.size());
+            for (Entry entry : supported) {
+                out.writeUTF(entry.attributeId);
+                out.writeByte(TimeSeriesStore.statusCode(entry.status));
+                byte type = typeOf(entry.value);
+                out.writeByte(type);
+                switch (type) {
+                    case TYPE_DOUBLE:
+                        out.writeDouble((Double) entry.value);
+                        break;
+                    case TYPE_FLOAT:
+                        out.writeFloat((Float) entry.value);
+                        break;
+                    case TYPE_SHORT:
+                        out.writeShort((Short) entry.value);
+                        break;
+                    case TYPE_INTEGER:
+                        out.writeInt((Integer) entry.value);
+                        break;
+                    case TYPE_LONG:
+                        out.writeLong((Long) entry.value);
+                        break;
+                    case TYPE_STRING:
+                        out.writeUTF((String) entry.value);
+                        break;
+                    default:
+                        out.writeBoolean((Boolean) entry.value);
+                        break;
+                }
+            }
+        }
+        Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * 读取快照文件
+     */
+    public static AttributeSnapshot read(Path file) throws IOException {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file)))) {
+            if (in.readInt() != MAGIC) {
+                throw new IOException("not an attribute snapshot: " + file);
+            }
+            if (in.readInt() != VERSION) {
+                throw new IOException("unsupported attribute snapshot version: " + file);
+            }
+            long savedAt = in.readLong();
+            int count = in.readInt();
+            List<Entry> entries = new ArrayList<>(count);
+            for (int i = 0; i < count; i++) {
+                String attributeId = in.readUTF();
+                AttributeStatus status = TimeSeriesStore.statusOf(in.readByte());
+                byte type = in.readByte();
+                Object value;
+                switch (type) {
+                    case TYPE_DOUBLE:
+                        value = in.readDouble();
+                        break;
+                    case TYPE_FLOAT:
+                        value = in.readFloat();
+                        break;
+                    case TYPE_SHORT:
+                        value = in.readShort();
+                        break;
+                    case TYPE_INTEGER:
+                        value = in.readInt();
+                        break;
+                    case TYPE_LONG:
+                        value = in.readLong();
+                        break;
+                    case TYPE_STRING:
+                        value = in.readUTF();
+                        break;
+                    case TYPE_BOOLEAN:
+                        value = in.readBoolean();
+                        break;
+                    default:
+                        throw new IOException("unknown value type " + type + " in attribute snapshot: " + file);
+                }
+                entries.add(new Entry(attributeId, value, status));
+            }
+            return new AttributeSnapshot(savedAt, entries);
+        }
+    }
+
+    private static byte typeOf(Object value) {
+        if (value instanceof Double) {
+            return TYPE_DOUBLE;
+        } else if (value instanceof Float) {
+            return TYPE_FLOAT;
+        } else if (value instanceof Short) {
+            return TYPE_SHORT;
+        } else if (value instanceof Integer) {
+            return TYPE_INTEGER;
+        } else if (value instanceof Long) {
+            return TYPE_LONG;
+        } else if (value instanceof String) {
+            return TYPE_STRING;
+        } else if (value instanceof Boolean) {
+            return TYPE_BOOLEAN;
+        }
+        return 0;
+    }
+
+    /**
+     * 一个属性的值和状态
+     */
+    public static final class Entry {
+        private final String attributeId;
+        private final Object value;
+        private final AttributeStatus status;
+
+        public Entry(String attributeId, Object value, AttributeStatus status) {
+            this.attributeId = attributeId;
+            this.value = value;
+            this.status = status;
+        }
+
+        public String getAttributeId() {
+            return attributeId;
+        }
+
+        public Object getValue() {
+            return value;
+        }
+
+        /**
+         * 保存时的状态，未知时为null
+         */
+        public AttributeStatus getStatus() {
+            return status;
+        }
+    }
+}
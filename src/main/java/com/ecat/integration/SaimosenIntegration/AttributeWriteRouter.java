@@ -0,0 +1,108 @@
+package com.ecat.integration.SaimosenIntegration;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Supplier;
+
+import com.ecat.core.State.UnitInfo;
+
+/**
+ * 可写属性的设备写入路径
+ *
+ * <p>平台和界面直接调用属性的 setDisplayValue 写入设备，不经过设备的方法。设备用
+ * {@link SmsDeviceBase#setRoutedAttribute} 登记自己的可写属性后，属性把实际写入交给设备执行，
+ * 设备在写入前后维护写入覆盖等状态；属性原有的写入逻辑作为 {@code write} 传入，由设备决定何时调用。</p>
+ *
+ * @version V1.0
+ */
+public interface AttributeWriteRouter {
+
+    /**
+     * 执行一次属性写入
+     * @param attributeId 属性ID
+     * @param write 属性原有的写入逻辑
+     * @return 写入结果
+     */
+    CompletableFuture<Boolean> route(String attributeId, Supplier<CompletableFuture<Boolean>> write);
+
+    /**
+     * 执行一次属性写入，同时给出写入的寄存器内容；默认忽略寄存器内容
+     * @param registers 写入的寄存器内容，供帧跟踪重建请求帧，无法编码时为null
+     */
+    default CompletableFuture<Boolean> route(String attributeId, short[] registers,
+            Supplier<CompletableFuture<Boolean>> write) {
+        return route(attributeId, write);
+    }
+
+    /**
+     * 按原始单位解析写入的显示值，供 {@link Routable#encodeRegisters} 使用
+     * @return 数值；指定了其他单位或无法解析时返回null
+     */
+    static Float parseNativeValue(String displayValue, UnitInfo fromUnit, UnitInfo nativeUnit) {
+        if (displayValue == null || (fromUnit != null && !fromUnit.equals(nativeUnit))) {
+            return null;
+        }
+        try {
+            return Float.valueOf(displayValue.trim());
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    /**
+     * 可以登记写入路径的属性
+     */
+    interface Routable {
+        void setWriteRouter(AttributeWriteRouter router);
+
+        /**
+         * 写入的寄存器起始地址
+         */
+        int getRegisterAddress();
+
+        /**
+         * 把写入的显示值编码为寄存器内容，供帧跟踪重建请求帧。
+         * 各设备可写属性的原始单位与显示单位相同，按原始单位编码；指定了其他单位或无法解析时返回null
+         * @param displayValue 显示值
+         * @param fromUnit 显示值的单位，null为属性的显示单位
+         */
+        short[] encodeRegisters(String displayValue, UnitInfo fromUnit);
+    }
+
+    /**
+     * 属性持有的写入入口：登记了写入路径时交给设备执行；
+     * 属性原有的写入逻辑在执行中再次调用 setDisplayValue（单参数版本转调带单位版本）时直接执行，不重复进入写入路径
+     */
+    final class Binding {
+        private final ThreadLocal<Boolean> executing = new ThreadLocal<>();
+        private volatile AttributeWriteRouter router;
+
+        public void setRouter(AttributeWriteRouter router) {
+            this.router = router;
+        }
+
+        public CompletableFuture<Boolean> write(String attributeId, Supplier<CompletableFuture<Boolean>> write) {
+            return write(attributeId, null, write);
+        }
+
+        public CompletableFuture<Boolean> write(String attributeId, short[] registers,
+                Supplier<CompletableFuture<Boolean>> write) {
+            AttributeWriteRouter current = router;
+            if (current == null || Boolean.TRUE.equals(executing.get())) {
+                return write.get();
+            }
+            return current.route(attributeId, registers, () -> execute(write));
+        }
+
+        private CompletableFuture<Boolean> execute(Supplier<CompletableFuture<Boolean>> write) {
+            boolean nested = Boolean.TRUE.equals(executing.get());
+            executing.set(Boolean.TRUE);
+            try {
+                return write.get();
+            } finally {
+                if (!nested) {
+                    executing.remove();
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,119 @@
+package com.ecat.integration.SaimosenIntegration;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.ecat.core.Device.DeviceStatus;
+import com.ecat.core.State.AttributeBase;
+import com.ecat.core.State.AttributeClass;
+import com.ecat.core.State.AttributeStatus;
+import com.ecat.core.State.NumericAttribute;
+import com.ecat.core.State.UnitInfo;
+
+/**
+ * 浓度属性的1分钟、5分钟和小时均值属性
+ *
+ * <p>设备用 {@link #add} 登记浓度属性并挂上返回的均值属性；每次发布前 {@link #update} 把浓度属性的当前读数
+ * 送入 {@link ConcentrationAverager}，窗口结束时更新 `<属性>_avg_<窗口>` 的值和有效性标记，
+ * 窗口之间均值属性不变。</p>
+ *
+ * <p>非线程安全，由设备的轮询线程调用。</p>
+ *
+ * @version V1.0
+ */
+public class AverageAttributes {
+
+    private final double minValidFraction;
+    private final long samplePeriodMillis;
+    private final List<String> sourceIds = new ArrayList<>();
+    // 均值属性ID -> 均值属性
+    private final Map<String, NumericAttribute> averages = new LinkedHashMap<>();
+    private ConcentrationAverager averager;
+    private double[] values;
+    private AttributeStatus[] statuses;
+
+    /**
+     * @param minValidFraction 有效样本数占窗口应有样本数的最低比例，见 {@link ConcentrationAverager}
+     * @param samplePeriodMillis 采样周期（设备轮询周期）
+     */
+    public AverageAttributes(double minValidFraction, long samplePeriodMillis) {
+        this.minValidFraction = minValidFraction;
+        this.samplePeriodMillis = samplePeriodMillis;
+    }
+
+    /**
+     * 均值属性ID，如 no_avg_1h
+     */
+    public static String attributeId(String sourceId, ConcentrationAverager.Window window) {
+        return sourceId + "_avg_" + window.getSuffix();
+    }
+
+    /**
+     * 登记浓度属性，为每个窗口创建均值属性（第一个窗口结束前状态为 EMPTY）
+     * @param sourceId 浓度属性ID
+     * @return 新建的均值属性，已登记过时为空
+     */
+    public List<NumericAttribute> add(String sourceId, AttributeClass attrClass, UnitInfo unit, int precision) {
+        if (sourceIds.contains(sourceId)) {
+            return Collections.emptyList();
+        }
+        List<NumericAttribute> created = new ArrayList<>();
+        for (ConcentrationAverager.Window window : ConcentrationAverager.Window.values()) {
+            String id = attributeId(sourceId, window);
+            NumericAttribute average = new NumericAttribute(id, attrClass, unit, unit, precision, false, false);
+            average.setStatus(AttributeStatus.EMPTY);
+            averages.put(id, average);
+            created.add(average);
+        }
+        sourceIds.add(sourceId);
+        averager = null;
+        return created;
+    }
+
+    /**
+     * 是否为均值属性
+     */
+    public boolean contains(String attributeId) {
+        return averages.containsKey(attributeId);
+    }
+
+    /**
+     * 送入一次采样
+     * @param attrs 设备的属性
+     * @param now 采样时间（毫秒）
+     * @param deviceStatus 当前设备状态，没有时为null
+     */
+    public void update(Map<String, AttributeBase<?>> attrs, long now, DeviceStatus deviceStatus) {
+        if (sourceIds.isEmpty()) {
+            return;
+        }
+        if (averager == null) {
+            averager = new ConcentrationAverager(sourceIds.size(), samplePeriodMillis, minValidFraction,
+                    this::onWindowClosed);
+            values = new double[sourceIds.size()];
+            statuses = new AttributeStatus[sourceIds.size()];
+        }
+        for (int i = 0; i < values.length; i++) {
+            AttributeBase<?> attr = attrs.get(sourceIds.get(i));
+            Object value = attr == null ? null : attr.getValue();
+            values[i] = value instanceof Number ? ((Number) value).doubleValue() : Double.NaN;
+            statuses[i] = attr == null ? null : attr.getStatus();
+        }
+        averager.add(now, values, statuses, deviceStatus);
+    }
+
+    private void onWindowClosed(int column, ConcentrationAverager.Average average) {
+        NumericAttribute attr = averages.get(attributeId(sourceIds.get(column), average.getWindow()));
+        if (attr == null) {
+            return;
+        }
+        if (Double.isNaN(average.getMean())) {
+            attr.setStatus(average.getFlag());
+        } else {
+            attr.updateValue(average.getMean(), average.getFlag());
+        }
+    }
+}
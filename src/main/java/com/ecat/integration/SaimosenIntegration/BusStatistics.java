@@ -0,0 +1,135 @@
+package com.ecat.integration.SaimosenIntegration;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 串口总线统计
+ *
+ * <p>同一个串口上的所有设备共享一个实例（通过 {@link #forPort(String)} 获取），
+ * 由设备在读写路径上累加事务数、字节数、超时与错误次数、往返耗时和排队深度，
+ * 读数据段、命令/参数写入和属性写入都计入，往返耗时从请求下发开始计时，
+ * 再由 {@link SerialBusDevice} 周期性地换算为速率发布。</p>
+ *
+ * <p>网络方式的设备以 tcp://ip:port 作为线路标识，同一线路共享一个实例。</p>
+ *
+ * <p>字节数按所用通信方式的帧长估算（RTU：地址 + 功能码 + 数据 + CRC；TCP：MBAP + 功能码 + 数据），
+ * 不含帧间静默时间，见 {@link ModbusTransport}。</p>
+ *
+ * @version V1.0
+ */
+public class BusStatistics {
+
+    private static final Map<String, BusStatistics> REGISTRY = new ConcurrentHashMap<>();
+
+    private final String port;
+    private final LongAdder transactions = new LongAdder();
+    private final LongAdder bytes = new LongAdder();
+    private final LongAdder timeouts = new LongAdder();
+    private final LongAdder errors = new LongAdder();
+    private final LongAdder turnaroundNanos = new LongAdder();
+    private final AtomicInteger queueDepth = new AtomicInteger();
+
+    BusStatistics(String port) {
+        this.port = port;
+    }
+
+    /**
+     * 获取指定串口的统计实例，不存在时创建
+     */
+    public static BusStatistics forPort(String port) {
+        return REGISTRY.computeIfAbsent(port, BusStatistics::new);
+    }
+
+    /**
+     * 清空所有串口的统计实例（集成释放时调用）
+     */
+    public static void clearAll() {
+        REGISTRY.clear();
+    }
+
+    /**
+     * 移除指定串口的统计实例（线路上已没有设备时调用）
+     */
+    public static void remove(String port) {
+        REGISTRY.remove(port);
+    }
+
+    public String getPort() {
+        return port;
+    }
+
+    /**
+     * 记录一次成功完成的事务
+     * @param requestBytes 请求帧字节数
+     * @param responseBytes 响应帧字节数
+     * @param turnaround 往返耗时（纳秒）
+     */
+    public void recordTransaction(int requestBytes, int responseBytes, long turnaround) {
+        transactions.increment();
+        bytes.add(requestBytes + responseBytes);
+        turnaroundNanos.add(turnaround);
+    }
+
+    /**
+     * 记录一次超时（请求已发出，未收到响应）
+     */
+    public void recordTimeout(int requestBytes) {
+        transactions.increment();
+        bytes.add(requestBytes);
+        timeouts.increment();
+    }
+
+    /**
+     * 记录一次CRC错误或Modbus异常响应
+     */
+    public void recordError(int requestBytes, int responseBytes) {
+        transactions.increment();
+        bytes.add(requestBytes + responseBytes);
+        errors.increment();
+    }
+
+    public void onQueued() {
+        queueDepth.incrementAndGet();
+    }
+
+    public void onDequeued() {
+        queueDepth.decrementAndGet();
+    }
+
+    public long getTransactions() {
+        return transactions.sum();
+    }
+
+    public long getBytes() {
+        return bytes.sum();
+    }
+
+    public long getTimeouts() {
+        return timeouts.sum();
+    }
+
+    public long getErrors() {
+        return errors.sum();
+    }
+
+    /**
+     * 成功事务的累计往返耗时（纳秒）
+     */
+    public long getTurnaroundNanos() {
+        return turnaroundNanos.sum();
+    }
+
+    /**
+     * 成功事务数（用于计算平均往返耗时）
+     */
+    public long getCompletedTransactions() {
+        return transactions.sum() - timeouts.sum() - errors.sum();
+    }
+
+    public int getQueueDepth() {
+        return Math.max(0, queueDepth.get());
+    }
+}
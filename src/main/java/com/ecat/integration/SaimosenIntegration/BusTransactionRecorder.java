@@ -0,0 +1,181 @@
+package com.ecat.integration.SaimosenIntegration;
+
+import java.util.concurrent.TimeoutException;
+import java.util.function.Supplier;
+
+import com.serotonin.modbus4j.msg.ModbusResponse;
+import com.serotonin.modbus4j.msg.ReadHoldingRegistersResponse;
+
+/**
+ * 单台设备总线事务的线路统计和帧跟踪
+ *
+ * <p>设备每次下发读/写请求前调用 {@link #traceRead}/{@link #traceWrite} 记录请求帧（未开启帧跟踪时不构造帧），
+ * 事务结束后调用 {@link #recordRead}/{@link #recordWrite}：按 {@link ModbusTransport} 的报文长度累加
+ * {@link BusStatistics}（超时、通讯错误、异常响应分别计数，成功事务累计往返时间），并记录对应的响应帧。</p>
+ *
+ * <p>通信参数热更新时按新的 {@link CommSettings} 重新创建，帧跟踪缓冲沿用设备原有的实例。</p>
+ *
+ * @version V1.0
+ */
+public final class BusTransactionRecorder {
+
+    /** 未记录请求帧时的事务标识 */
+    public static final int NOT_TRACED = -1;
+
+    private final ModbusTransport transport;
+    private final int slaveId;
+    private final BusStatistics statistics;
+    private final FrameTraceBuffer frameTrace;
+
+    public BusTransactionRecorder(CommSettings settings, BusStatistics statistics, FrameTraceBuffer frameTrace) {
+        this(settings.getTransport(), settings.getSlaveId(), statistics, frameTrace);
+    }
+
+    /**
+     * @param transport 通信方式，决定报文长度和帧格式
+     * @param slaveId 从站地址
+     * @param statistics 设备所在线路的统计
+     * @param frameTrace 设备的帧跟踪缓冲
+     */
+    public BusTransactionRecorder(ModbusTransport transport, int slaveId, BusStatistics statistics,
+            FrameTraceBuffer frameTrace) {
+        this.transport = transport;
+        this.slaveId = slaveId;
+        this.statistics = statistics;
+        this.frameTrace = frameTrace;
+    }
+
+    public BusStatistics getStatistics() {
+        return statistics;
+    }
+
+    public FrameTraceBuffer getFrameTrace() {
+        return frameTrace;
+    }
+
+    /**
+     * 记录读保持寄存器请求帧
+     * @return 事务标识，未开启帧跟踪时为 {@link #NOT_TRACED}
+     */
+    public int traceRead(int startAddress, int count, String note) {
+        return frameTrace.isEnabled()
+                ? frameTrace.recordRequest(FrameTraceBuffer.readRequestFrame(slaveId, startAddress, count),
+                        transport.usesMbap(), note)
+                : NOT_TRACED;
+    }
+
+    /**
+     * 读事务结束：累加线路统计，记录响应帧
+     * @param traceId {@link #traceRead} 返回的事务标识
+     * @param count 读取的寄存器数量
+     * @param elapsedNanos 从请求下发到结束的时间
+     * @return 是否为成功事务
+     */
+    public boolean recordRead(int traceId, int count, ReadHoldingRegistersResponse response, Throwable throwable,
+            long elapsedNanos) {
+        if (traceId != NOT_TRACED && frameTrace.isEnabled()) {
+            traceResponse(traceId, 0x03, response, throwable,
+                    () -> FrameTraceBuffer.readResponseFrame(slaveId, response.getShortData()));
+        }
+        return recordResult(transport.readRequestBytes(), transport.readResponseOverhead() + count * 2,
+                elapsedNanos, throwable, response != null && response.isException());
+    }
+
+    /**
+     * 记录写寄存器请求帧
+     * @param registers 写入的寄存器内容，无法编码时为null（不记录）
+     * @return 事务标识，未开启帧跟踪或没有寄存器内容时为 {@link #NOT_TRACED}
+     */
+    public int traceWrite(int startAddress, short[] registers, String label) {
+        return registers != null && frameTrace.isEnabled()
+                ? frameTrace.recordRequest(FrameTraceBuffer.writeRequestFrame(slaveId, startAddress, registers),
+                        transport.usesMbap(), label)
+                : NOT_TRACED;
+    }
+
+    /**
+     * 写事务结束：累加线路统计，记录响应帧
+     * @param traceId {@link #traceWrite} 返回的事务标识
+     * @param registers 写入的寄存器内容，可为null
+     * @param registerCount 写入的寄存器数量
+     * @param result Modbus响应或属性写入的成败
+     * @param elapsedNanos 从请求下发到结束的时间
+     */
+    public void recordWrite(int traceId, int startAddress, short[] registers, int registerCount, Object result,
+            Throwable throwable, long elapsedNanos) {
+        boolean failed = result instanceof ModbusResponse
+                ? ((ModbusResponse) result).isException() : !Boolean.TRUE.equals(result);
+        recordResult(transport.writeRequestBytes(registerCount), transport.writeResponseBytes(), elapsedNanos,
+                throwable, failed);
+        if (traceId != NOT_TRACED && registers != null && frameTrace.isEnabled()) {
+            traceResponse(traceId, registers.length == 1 ? 0x06 : 0x10, result, throwable,
+                    () -> FrameTraceBuffer.writeResponseFrame(slaveId, startAddress, registers));
+        }
+    }
+
+    /**
+     * 按事务结果累加线路统计：超时、通讯错误、异常响应分别计数，成功事务累计往返时间
+     * @return 是否为成功事务
+     */
+    private boolean recordResult(int requestBytes, int responseBytes, long elapsedNanos, Throwable throwable,
+            boolean exceptionResponse) {
+        if (throwable != null) {
+            if (isTimeout(throwable)) {
+                statistics.recordTimeout(requestBytes);
+            } else {
+                statistics.recordError(requestBytes, 0);
+            }
+            return false;
+        }
+        if (exceptionResponse) {
+            statistics.recordError(requestBytes, transport.exceptionResponseBytes());
+            return false;
+        }
+        statistics.recordTransaction(requestBytes, responseBytes, elapsedNanos);
+        return true;
+    }
+
+    /**
+     * 记录一个响应帧：超时/通讯错误记为带说明的空帧，异常响应重建异常帧；
+     * 属性写入只有成败，失败记为带说明的空帧
+     * @param result Modbus响应或属性写入结果
+     */
+    private void traceResponse(int traceId, int functionCode, Object result, Throwable throwable,
+            Supplier<byte[]> normalFrame) {
+        boolean mbap = transport.usesMbap();
+        if (throwable != null) {
+            frameTrace.recordResponse(traceId, new byte[0], mbap,
+                    SaimosenEvents.outcomeOf(null, throwable) + ": " + throwable.getMessage());
+        } else if (result == null) {
+            frameTrace.recordResponse(traceId, new byte[0], mbap, "no response");
+        } else if (result instanceof ModbusResponse && ((ModbusResponse) result).isException()) {
+            ModbusResponse response = (ModbusResponse) result;
+            frameTrace.recordResponse(traceId,
+                    FrameTraceBuffer.exceptionFrame(slaveId, functionCode, response.getExceptionCode()), mbap,
+                    response.getExceptionMessage());
+        } else if (Boolean.FALSE.equals(result)) {
+            frameTrace.recordResponse(traceId, new byte[0], mbap, "write failed");
+        } else {
+            frameTrace.recordResponse(traceId, normalFrame.get(), mbap, null);
+        }
+    }
+
+    /**
+     * 沿异常链判断是否为超时（modbus4j 的超时异常与JDK的 TimeoutException 不是同一个类，按类名匹配）
+     */
+    static boolean isTimeout(Throwable throwable) {
+        for (Throwable t = throwable; t != null; t = t.getCause()) {
+            if (t instanceof TimeoutException || t.getClass().getSimpleName().contains("Timeout")) {
+                return true;
+            }
+            String message = t.getMessage();
+            if (message != null && message.toLowerCase().contains("timeout")) {
+                return true;
+            }
+            if (t.getCause() == t) {
+                break;
+            }
+        }
+        return false;
+    }
+}
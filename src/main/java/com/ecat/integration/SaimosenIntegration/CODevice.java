@@ -10,10 +10,12 @@ import com.ecat.integration.ModbusIntegration.ModbusSource;
 import com.ecat.integration.ModbusIntegration.ModbusTransactionStrategy;
 import com.ecat.integration.ModbusIntegration.Tools;
 
+import java.util.Arrays;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.concurrent.CompletableFuture;
-import java.util.concurrent.TimeUnit;
+import java.util.concurrent.ScheduledFuture;
 
 /**
  * SMS 8500 CO自动分析仪 - Saimosen
@@ -23,7 +25,7 @@ import java.util.concurrent.TimeUnit;
  * @version 1.0.0
  * @author caohongbo
  */
-public class CODevice extends SmsDeviceBase {
+public class CODevice extends SmsDeviceBase implements CalibrationWriteListener {
 
     // 数据段配置
     private static final Map<String, DataSegment> SEGMENT_CONFIG = new HashMap<>();
@@ -40,8 +42,17 @@ public class CODevice extends SmsDeviceBase {
         SEGMENT_CONFIG.put("calibration_status", new DataSegment(0x3EE, 1, "校准状态"));  // 1006 - 可读
     }
 
+    /**
+     * 参数区间：slope、intercept（float 5~6），各修正值（float 13~18），中间的测量值不写回
+     */
+    private static final List<ParameterBackup.Range> PARAMETER_RANGES = Arrays.asList(
+            new ParameterBackup.Range("slope_params", 10, 4),
+            new ParameterBackup.Range("corr_params", 26, 12));
+
     private DeviceStatus deviceStatus = DeviceStatus.UNKNOWN;
 
+    private ScheduledFuture<?> readFuture;
+
     public CODevice(Map<String, Object> config) {
         super(config);
     }
@@ -50,16 +61,20 @@ public class CODevice extends SmsDeviceBase {
     public void init() {
         super.init();
         createAttributes();
+        createAverageAttributes("co", AttributeClass.CO, AirVolumeUnit.PPM, 1);
+        restoreSnapshot();
     }
 
     @Override
     public void start() {
-        getScheduledExecutor().scheduleWithFixedDelay(this::readAndUpdate, 0, 5, TimeUnit.SECONDS);
+        readFuture = schedulePolling(this::readAndUpdate);
     }
 
     @Override
     public void stop() {
-        // 停止逻辑
+        if (readFuture != null) {
+            readFuture.cancel(true);
+        }
     }
 
     @Override
@@ -68,51 +83,92 @@ public class CODevice extends SmsDeviceBase {
         super.release();
     }
 
+    @Override
+    public CompletableFuture<Boolean> pollOnce() {
+        return readAndUpdate();
+    }
+
+    @Override
+    protected boolean supportsMultipleRegisterWrite() {
+        return true;
+    }
+
+    @Override
+    protected DeviceStatus getCurrentDeviceStatus() {
+        return deviceStatus;
+    }
+
+    @Override
+    protected String[] getStoredAttributeIds() {
+        return new String[] {"co"};
+    }
+
+
+    @Override
+    protected String[] getDeferredConfigAttributeIds() {
+        return new String[] {"calibration_concentration"};
+    }
+
+    @Override
+    protected List<ParameterBackup.Range> getParameterRanges() {
+        return PARAMETER_RANGES;
+    }
+
+    @Override
+    protected int[] getPollSegmentSizes() {
+        return new int[] {SEGMENT_CONFIG.get("float_params").count, SEGMENT_CONFIG.get("u16_params").count,
+            SEGMENT_CONFIG.get("span_calibration_start").count, SEGMENT_CONFIG.get("calibration_status").count};
+    }
+
     /**
      * 并行读取
      * 1. 并行读取：多个数据段同时读取，提升性能
      * 2. 统一处理：所有数据读取完成后统一处理
      */
     private CompletableFuture<Boolean> readAndUpdate() {
-        return ModbusTransactionStrategy.executeWithLambda(modbusSource, source -> {
+        return executePoll(source -> {
             
             // 并行读取所有数据段，每个段独立处理失败情况
             CompletableFuture<SegmentData> floatDataFuture = readSegment(source, "float_params")
-                    .thenApply(this::parseFloatData)
+                    .thenApply(data -> decodeSegment("float_params", data, this::parseFloatData))
                     .handle((result, throwable) -> {
                         if (throwable != null) {
-                            log.warn("CODevice " + getId() + " - Float data segment failed: " + throwable.getMessage());
+                            recordSegmentFailure("float_params", throwable);
                             return null; // 返回null表示失败
                         }
                         return result;
                     });
 
             CompletableFuture<SegmentData> u16DataFuture = readSegment(source, "u16_params")
-                    .thenApply(this::parseU16Data)
+                    .thenApply(data -> decodeSegment("u16_params", data, this::parseU16Data))
                     .handle((result, throwable) -> {
                         if (throwable != null) {
-                            log.warn("CODevice " + getId() + " - U16 data segment failed: " + throwable.getMessage());
+                            recordSegmentFailure("u16_params", throwable);
                             return null; // 返回null表示失败
                         }
                         return result;
                     });
 
             // 读取可读的校准参数
-            CompletableFuture<SegmentData> spanCalibConcentrationFuture = readSegment(source, "span_calibration_start")
-                    .thenApply(this::parseSpanCalibrationConcentration)
+            // 热启动后推迟首次读取跨度校准浓度（配置寄存器），期间保持快照中的值
+            boolean spanDeferred = isConfigReadDeferred();
+            CompletableFuture<SegmentData> spanCalibConcentrationFuture = spanDeferred
+                    ? CompletableFuture.completedFuture(null)
+                    : readSegment(source, "span_calibration_start")
+                    .thenApply(data -> decodeSegment("span_calibration_start", data, this::parseSpanCalibrationConcentration))
                     .handle((result, throwable) -> {
                         if (throwable != null) {
-                            log.warn("CODevice " + getId() + " - Span calibration data segment failed: " + throwable.getMessage());
+                            recordSegmentFailure("span_calibration_start", throwable);
                             return null; // 返回null表示失败
                         }
                         return result;
                     });
 
             CompletableFuture<SegmentData> instrumentCalibStatusFuture = readSegment(source, "calibration_status")
-                    .thenApply(this::parseInstrumentCalibrationStatus)
+                    .thenApply(data -> decodeSegment("calibration_status", data, this::parseInstrumentCalibrationStatus))
                     .handle((result, throwable) -> {
                         if (throwable != null) {
-                            log.warn("CODevice " + getId() + " - Calibration status data segment failed: " + throwable.getMessage());
+                            recordSegmentFailure("calibration_status", throwable);
                             return null; // 返回null表示失败
                         }
                         return result;
@@ -130,7 +186,7 @@ public class CODevice extends SmsDeviceBase {
                             
                             // 统计成功的数据段
                             int successCount = 0;
-                            int totalCount = 4;
+                            int totalCount = spanDeferred ? 3 : 4;
                             
                             if (floatData != null) successCount++;
                             if (u16Data != null) successCount++;
@@ -146,22 +202,23 @@ public class CODevice extends SmsDeviceBase {
                             updateAllAttributes(floatData, u16Data, spanCalibConcentration, instrumentCalibStatus);
                             
                             if (successCount == totalCount) {
-                                log.info("CODevice " + getId() + " - All segments updated successfully, device status: " + deviceStatus.getStatusName());
+                                recordPollResult(PollCycleStats.Result.OK, "{}", deviceStatus.getStatusName());
                             } else {
-                                log.warn("CODevice " + getId() + " - Partial success: " + successCount + "/" + totalCount + " segments updated, device status: " + deviceStatus.getStatusName());
+                                recordPollResult(successCount > 0 ? PollCycleStats.Result.PARTIAL : PollCycleStats.Result.FAILED,
+                                        "{}/{} segments updated, device status: {}", successCount, totalCount, deviceStatus.getStatusName());
                             }
                             
                             // 只要有任何一个数据段成功，就返回true
                             return successCount > 0;
                             
                         } catch (Exception e) {
-                            log.error("CODevice data processing failed: " + e.getMessage());
+                            recordPollResult(PollCycleStats.Result.FAILED, "data processing failed: {}", e.getMessage());
                             setAllAttributesStatus(AttributeStatus.MALFUNCTION);
                             return false;
                         }
                     });
         }).exceptionally(throwable -> {
-            log.error("CODevice communication failed: " + throwable.getMessage());
+            recordPollResult(PollCycleStats.Result.FAILED, "communication failed: {}", throwable.getMessage());
             setAllAttributesStatus(AttributeStatus.MALFUNCTION);
             return false;
         });
@@ -176,14 +233,13 @@ public class CODevice extends SmsDeviceBase {
      */
     private CompletableFuture<short[]> readSegment(ModbusSource source, String segmentName) {
         DataSegment segment = SEGMENT_CONFIG.get(segmentName);
-        return source.readHoldingRegisters(segment.startAddress, segment.count)
+        return readSegmentRegisters(source, segmentName, segment.startAddress, segment.count)
                 .thenApply(response -> {
                     short[] data = response.getShortData();
                     if (data == null) {
-                        log.warn("CODevice " + getId() + " - " + segment.description + " data is null, using default values");
+                        log.warn("CODevice {} - {} data is null, using default values", getId(), segment.description);
                         data = new short[segment.count * 2]; // 为float数据预留足够空间
                     }
-                    log.info("CODevice " + getId() + " - " + segment.description + " received: " + java.util.Arrays.toString(data));
                     return data;
                 });
     }
@@ -255,7 +311,12 @@ public class CODevice extends SmsDeviceBase {
      */
     private void processCalibrationStatus(SegmentData calibData) {
         short calibrationStatus = (short) calibData.values[0];
+        DeviceStatus previous = deviceStatus;
         deviceStatus = parseDeviceStatus(calibrationStatus);
+        if (deviceStatus != previous) {
+            log.info("CODevice {} - device status {} -> {} (calibration status {})",
+                    getId(), previous.getStatusName(), deviceStatus.getStatusName(), calibrationStatus);
+        }
     }
 
     /**
@@ -359,7 +420,14 @@ public class CODevice extends SmsDeviceBase {
     private void updateCalibrationAttributes(SegmentData spanCalibConcentration, 
                                            SegmentData instrumentCalibStatus, AttributeStatus status) {
         // 更新仪器校准状态（可读）
-        updateAttribute("calibration_status", instrumentCalibStatus.values[0], status);
+        if (instrumentCalibStatus != null && instrumentCalibStatus.values.length > 0) {
+            updateAttribute("calibration_status", instrumentCalibStatus.values[0], status);
+        }
+
+        // 读取失败或推迟读取期间保持原有的校准浓度
+        if (spanCalibConcentration == null || spanCalibConcentration.values.length == 0) {
+            return;
+        }
 
         // 更新跨度校准浓度（可读可写）
         // updateAttribute("calibration_concentration", spanCalibConcentration.values[0], status);
@@ -369,13 +437,13 @@ public class CODevice extends SmsDeviceBase {
     }
 
     /**
-     * 设置所有属性状态
+     * 设置所有读数属性的状态（均值属性的有效性标记不受影响）
      * 
      * @param status 属性状态
      */
     private void setAllAttributesStatus(AttributeStatus status) {
-        getAttrs().values().forEach(attr -> attr.setStatus(status));
-        publicAttrsState();
+        setReadingAttributesStatus(status);
+        publishAttributes();
     }
     
     /**
@@ -490,6 +558,10 @@ public class CODevice extends SmsDeviceBase {
      * @param status 属性状态
      */
     private void updateAttribute(String attrName, double value, AttributeStatus status) {
+        // 写入后尚未被新读数对账的属性保持写入值
+        if (!acceptRead(attrName)) {
+            return;
+        }
         NumericAttribute attr = (NumericAttribute) getAttrs().get(attrName);
         if (attr != null) {
             attr.updateValue(value, status);
@@ -504,16 +576,8 @@ public class CODevice extends SmsDeviceBase {
      */
     public CompletableFuture<Boolean> startZeroCalibration(double concentration) {
         return ModbusTransactionStrategy.executeWithLambda(modbusSource, source -> {
-            // 1. 设置校准模式为零点校准
-            CompletableFuture<?> setModeFuture = source.writeRegister(0x3E8, 1);
-            
-            // 2. 设置零点校准浓度
-            CompletableFuture<?> setConcentrationFuture = source.writeRegister(0x3E9, (int) concentration);
-            
-            // 3. 发送校准命令
-            CompletableFuture<?> sendCommandFuture = source.writeRegister(0x3EA, 1);
-            
-            return CompletableFuture.allOf(setModeFuture, setConcentrationFuture, sendCommandFuture)
+            // 校准模式（0x3E8）、零点校准浓度（0x3E9）、校准命令（0x3EA）地址连续，按顺序一次下发
+            return writeCommandBlock(source, "start_zero_calibration", 0x3E8, 1, (int) concentration, 1)
                     .thenApply(v -> {
                         log.info("CODevice " + getId() + " - Zero calibration started with concentration: " + concentration);
                         return true;
@@ -531,23 +595,21 @@ public class CODevice extends SmsDeviceBase {
      * @return 操作结果
      */
     public CompletableFuture<Boolean> startSpanCalibration(double concentration) {
+        // 写入结束前忽略校准浓度的读数
+        beginWrite("calibration_concentration");
         return ModbusTransactionStrategy.executeWithLambda(modbusSource, source -> {
             // 1. 设置校准模式为跨度校准
-            CompletableFuture<?> setModeFuture = source.writeRegister(0x3E8, 2);
-            
-            // 2. 设置跨度校准浓度
-            CompletableFuture<?> setConcentrationFuture = source.writeRegister(0x3EB, (int) concentration);
-            
-            // 3. 发送校准命令
-            CompletableFuture<?> sendCommandFuture = source.writeRegister(0x3EC, 1);
-            
-            return CompletableFuture.allOf(setModeFuture, setConcentrationFuture, sendCommandFuture)
+            return writeCommandRegister(source, "start_span_calibration", 0x3E8, 2)
+                    // 2. 跨度校准浓度（0x3EB）和校准命令（0x3EC）地址连续，一次下发
+                    .thenCompose(v -> writeCommandBlock(source, "start_span_calibration", 0x3EB, (int) concentration, 1))
                     .thenApply(v -> {
+                        commitWrite("calibration_concentration", concentration);
                         log.info("CODevice " + getId() + " - Span calibration started with concentration: " + concentration);
                         return true;
                     });
         }).exceptionally(throwable -> {
             log.error("CODevice " + getId() + " - Failed to start span calibration: " + throwable.getMessage());
+            cancelWrite("calibration_concentration");
             return false;
         });
     }
@@ -560,7 +622,7 @@ public class CODevice extends SmsDeviceBase {
     public CompletableFuture<Boolean> stopCalibration() {
         return ModbusTransactionStrategy.executeWithLambda(modbusSource, source -> {
             // 设置校准模式为测量模式
-            return source.writeRegister(0x3E8, 0)
+            return writeCommandRegister(source, "stop_calibration", 0x3E8, 0)
                     .thenApply(v -> {
                         log.info("CODevice " + getId() + " - Calibration stopped, back to measurement mode");
                         return true;
@@ -781,10 +843,52 @@ public class CODevice extends SmsDeviceBase {
         // 校准命令属性
         GasDeviceCommandAttribute commandAttr = new GasDeviceCommandAttribute("gas_device_command", AttributeClass.DISPATCH_COMMAND, new GasDeviceCommandAttribute.COCommandConfigFactory());
         commandAttr.setModbusSource(modbusSource);
-        commandAttr.addDependencyAttribute((NumericAttribute) getAttrs().get("calibration_concentration"));
+        commandAttr.setConcentrationAttribute((NumericAttribute) getAttrs().get("calibration_concentration"));
+        commandAttr.setDeviceInstance(this); // 设置设备引用，用于防止竞态条件
         setAttribute(commandAttr);
     }
 
+    /**
+     * 标记校准浓度写入操作（防止竞态条件）
+     * @param concentration 写入的校准浓度值
+     */
+    @Override
+    public void markCalibrationWrite(double concentration) {
+        commitWrite("calibration_concentration", concentration);
+        log.debug("CODevice " + getId() + " - Marked calibration write: " + concentration);
+    }
+
+    /**
+     * 校准命令写入后回读校准状态
+     * @param command 命令名称
+     */
+    @Override
+    public void markCommandWrite(String command) {
+        readBackCalibrationStatus();
+    }
+
+    @Override
+    protected void afterCommandWrite(String command, int startAddress, int count) {
+        readBackCalibrationStatus();
+    }
+
+    @Override
+    protected CompletableFuture<Boolean> probeObservedState() {
+        return readBackCalibrationStatus();
+    }
+
+    /**
+     * 回读校准状态（0x3EE），设备状态和校准状态属性随之更新，不等下一个轮询周期
+     */
+    private CompletableFuture<Boolean> readBackCalibrationStatus() {
+        DataSegment segment = SEGMENT_CONFIG.get("calibration_status");
+        return readBack("calibration_status", segment.startAddress, segment.count, data -> {
+            SegmentData calibData = parseInstrumentCalibrationStatus(data);
+            processCalibrationStatus(calibData);
+            updateAttribute("calibration_status", calibData.values[0], mapToAttributeStatus(deviceStatus));
+        });
+    }
+
     /**
      * 数据段配置类
      * 封装数据段的配置信息
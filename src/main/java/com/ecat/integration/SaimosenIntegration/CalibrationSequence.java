@@ -0,0 +1,336 @@
+package com.ecat.integration.SaimosenIntegration;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 声明式校准序列定义，由 {@link CalibrationSequenceRunner} 执行
+ *
+ * <p>序列由两类步骤组成：</p>
+ * <ul>
+ *   <li>写步骤：向设备属性写入一个值（命令属性发送命令，选择属性选择选项，其余属性设置显示值）；</li>
+ *   <li>等待步骤：等待设备属性的读数变为期望值之一，超时则序列失败。</li>
+ * </ul>
+ * <p>序列失败、超时或被中止时按顺序执行回滚写步骤（尽力而为），把仪器恢复到安全状态。</p>
+ *
+ * <p>配置格式（{@link #fromConfig}）：</p>
+ * <pre>
+ * name: no_span_check
+ * steps:
+ *   - device: calibrator-1
+ *     attribute: other_gas_concentration
+ *     value: "0.4"
+ *   - device: calibrator-1
+ *     attribute: calibrator_gas_select
+ *     value: NO
+ *   - device: calibrator-1
+ *     attribute: system_state
+ *     await: 标气配制中          # 单个值或列表
+ *     timeout_seconds: 120       # 默认 {@value #DEFAULT_AWAIT_TIMEOUT_SECONDS}
+ * rollback:
+ *   - device: calibrator-1
+ *     attribute: calibrator_gas_select
+ *     value: Choose
+ * </pre>
+ *
+ * @version V1.0
+ */
+public final class CalibrationSequence {
+
+    public static final int DEFAULT_AWAIT_TIMEOUT_SECONDS = 120;
+
+    /** 校准仪系统状态 */
+    public static final String STATE_STANDBY = "待机";
+    public static final String STATE_GAS_PREPARING = "标气配制中";
+    public static final String STATE_O3_PREPARING = "O₃配置中";
+
+    /** 分析仪校准状态 */
+    public static final String STATUS_MEASURE = "0";
+    public static final String STATUS_ZERO_CALIBRATION = "1";
+    public static final String STATUS_SPAN_CALIBRATION = "2";
+
+    private final String name;
+    private final List<Step> steps;
+    private final List<Step> rollback;
+
+    private CalibrationSequence(String name, List<Step> steps, List<Step> rollback) {
+        this.name = name;
+        this.steps = Collections.unmodifiableList(new ArrayList<>(steps));
+        this.rollback = Collections.unmodifiableList(new ArrayList<>(rollback));
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public List<Step> getSteps() {
+        return steps;
+    }
+
+    /**
+     * 回滚写步骤
+     */
+    public List<Step> getRollback() {
+        return rollback;
+    }
+
+    public static Builder builder(String name) {
+        return new Builder(name);
+    }
+
+    /**
+     * 仪器初始化状态序列：校准仪恢复待机
+     * @param calibratorId 校准仪设备ID
+     */
+    public static CalibrationSequence initialize(String calibratorId) {
+        return builder("initialize")
+                .write(calibratorId, "calibrator_gas_select", "Choose")
+                .await(calibratorId, "system_state", DEFAULT_AWAIT_TIMEOUT_SECONDS * 1000L, STATE_STANDBY)
+                .build();
+    }
+
+    /**
+     * 进入跨度检查状态序列：设置生成浓度、选择标气并等待校准仪开始配气；
+     * 指定分析仪时再让分析仪进入跨度校准并等待其校准状态。失败时取消分析仪校准并让校准仪恢复待机。
+     * @param calibratorId 校准仪设备ID
+     * @param gas 标气，NO、CO、SO2 或 O3
+     * @param concentrationPpm 生成浓度（ppm）
+     * @param analyzerId 分析仪设备ID，null 时只操作校准仪
+     */
+    public static CalibrationSequence spanCheck(String calibratorId, String gas, String concentrationPpm,
+            String analyzerId) {
+        boolean ozone = "O3".equals(gas);
+        if (!ozone && !"NO".equals(gas) && !"CO".equals(gas) && !"SO2".equals(gas)) {
+            throw new IllegalArgumentException("不支持的标气: " + gas);
+        }
+        Builder builder = builder(gas.toLowerCase() + "_span_check")
+                .write(calibratorId, ozone ? "o3_gas_concentration" : "other_gas_concentration", concentrationPpm)
+                .write(calibratorId, "calibrator_gas_select", gas)
+                .await(calibratorId, "system_state", DEFAULT_AWAIT_TIMEOUT_SECONDS * 1000L,
+                        ozone ? STATE_O3_PREPARING : STATE_GAS_PREPARING);
+        if (analyzerId != null) {
+            builder.write(analyzerId, "dispatch_command", "span_calibration_start")
+                    .await(analyzerId, "calibration_status", DEFAULT_AWAIT_TIMEOUT_SECONDS * 1000L,
+                            STATUS_SPAN_CALIBRATION)
+                    .rollbackWrite(analyzerId, "dispatch_command", "span_calibration_cancel");
+        }
+        return builder.rollbackWrite(calibratorId, "calibrator_gas_select", "Choose").build();
+    }
+
+    /**
+     * 零气序列：生成浓度设为0后选择标气，校准仪只输出稀释零气，所有分析仪可同时通入；失败时恢复待机
+     * @param calibratorId 校准仪设备ID
+     */
+    public static CalibrationSequence zeroAir(String calibratorId) {
+        return builder("zero_air")
+                .write(calibratorId, "other_gas_concentration", "0")
+                .write(calibratorId, "calibrator_gas_select", "NO")
+                .await(calibratorId, "system_state", DEFAULT_AWAIT_TIMEOUT_SECONDS * 1000L, STATE_GAS_PREPARING)
+                .rollbackWrite(calibratorId, "calibrator_gas_select", "Choose")
+                .build();
+    }
+
+    /**
+     * 分析仪单条校准命令序列：发送命令并等待校准状态
+     * @param analyzerId 分析仪设备ID
+     * @param command dispatch_command 命令
+     * @param expectedStatus 期望的 calibration_status
+     * @param rollbackCommand 失败时发送的命令，null 不回滚
+     */
+    public static CalibrationSequence analyzerCommand(String analyzerId, String command, String expectedStatus,
+            String rollbackCommand) {
+        Builder builder = builder(analyzerId + "_" + command)
+                .write(analyzerId, "dispatch_command", command)
+                .await(analyzerId, "calibration_status", DEFAULT_AWAIT_TIMEOUT_SECONDS * 1000L, expectedStatus);
+        if (rollbackCommand != null) {
+            builder.rollbackWrite(analyzerId, "dispatch_command", rollbackCommand);
+        }
+        return builder.build();
+    }
+
+    /**
+     * 恢复测量状态序列：指定分析仪时先取消其校准并等待回到测量状态，再让校准仪恢复待机
+     * @param calibratorId 校准仪设备ID
+     * @param analyzerId 分析仪设备ID，null 时只操作校准仪
+     */
+    public static CalibrationSequence restoreMeasurement(String calibratorId, String analyzerId) {
+        Builder builder = builder("restore_measurement");
+        if (analyzerId != null) {
+            builder.write(analyzerId, "dispatch_command", "span_calibration_cancel")
+                    .await(analyzerId, "calibration_status", DEFAULT_AWAIT_TIMEOUT_SECONDS * 1000L, STATUS_MEASURE);
+        }
+        return builder.write(calibratorId, "calibrator_gas_select", "Choose")
+                .await(calibratorId, "system_state", DEFAULT_AWAIT_TIMEOUT_SECONDS * 1000L, STATE_STANDBY)
+                .rollbackWrite(calibratorId, "calibrator_gas_select", "Choose")
+                .build();
+    }
+
+    /**
+     * 从配置解析序列，格式见类说明
+     * @throws IllegalArgumentException 配置不完整
+     */
+    @SuppressWarnings("unchecked")
+    public static CalibrationSequence fromConfig(Map<String, Object> config) {
+        Builder builder = builder(String.valueOf(config.getOrDefault("name", "sequence")));
+        Object steps = config.get("steps");
+        if (!(steps instanceof List) || ((List<?>) steps).isEmpty()) {
+            throw new IllegalArgumentException("校准序列缺少 steps");
+        }
+        for (Object item : (List<Object>) steps) {
+            Map<String, Object> step = asMap(item);
+            String device = required(step, "device");
+            String attribute = required(step, "attribute");
+            Object await = step.get("await");
+            if (await != null) {
+                List<String> expected = new ArrayList<>();
+                if (await instanceof List) {
+                    for (Object value : (List<Object>) await) {
+                        expected.add(String.valueOf(value));
+                    }
+                } else {
+                    expected.add(String.valueOf(await));
+                }
+                Object timeout = step.getOrDefault("timeout_seconds", DEFAULT_AWAIT_TIMEOUT_SECONDS);
+                long timeoutMillis = (long) (Double.parseDouble(String.valueOf(timeout)) * 1000);
+                builder.await(device, attribute, timeoutMillis, expected.toArray(new String[0]));
+            } else {
+                builder.write(device, attribute, required(step, "value"));
+            }
+        }
+        Object rollback = config.get("rollback");
+        if (rollback instanceof List) {
+            for (Object item : (List<Object>) rollback) {
+                Map<String, Object> step = asMap(item);
+                builder.rollbackWrite(required(step, "device"), required(step, "attribute"), required(step, "value"));
+            }
+        }
+        return builder.build();
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Map<String, Object> asMap(Object item) {
+        if (!(item instanceof Map)) {
+            throw new IllegalArgumentException("校准序列步骤格式错误: " + item);
+        }
+        return (Map<String, Object>) item;
+    }
+
+    private static String required(Map<String, Object> step, String key) {
+        Object value = step.get(key);
+        if (value == null) {
+            throw new IllegalArgumentException("校准序列步骤缺少 " + key + ": " + step);
+        }
+        return String.valueOf(value);
+    }
+
+    @Override
+    public String toString() {
+        return name + steps;
+    }
+
+    /**
+     * 步骤类型
+     */
+    public enum StepType {
+        WRITE,
+        AWAIT
+    }
+
+    /**
+     * 一个写步骤或等待步骤
+     */
+    public static final class Step {
+        private final StepType type;
+        private final String deviceId;
+        private final String attributeId;
+        private final String value;
+        private final List<String> expected;
+        private final long timeoutMillis;
+
+        private Step(StepType type, String deviceId, String attributeId, String value, List<String> expected,
+                long timeoutMillis) {
+            this.type = type;
+            this.deviceId = deviceId;
+            this.attributeId = attributeId;
+            this.value = value;
+            this.expected = expected;
+            this.timeoutMillis = timeoutMillis;
+        }
+
+        public StepType getType() {
+            return type;
+        }
+
+        public String getDeviceId() {
+            return deviceId;
+        }
+
+        public String getAttributeId() {
+            return attributeId;
+        }
+
+        /**
+         * 写入值（写步骤）
+         */
+        public String getValue() {
+            return value;
+        }
+
+        /**
+         * 期望值（等待步骤），任一匹配即满足
+         */
+        public List<String> getExpected() {
+            return expected;
+        }
+
+        public long getTimeoutMillis() {
+            return timeoutMillis;
+        }
+
+        @Override
+        public String toString() {
+            return type == StepType.WRITE
+                    ? deviceId + "." + attributeId + "=" + value
+                    : deviceId + "." + attributeId + " in " + expected;
+        }
+    }
+
+    /**
+     * 序列构建器
+     */
+    public static final class Builder {
+        private final String name;
+        private final List<Step> steps = new ArrayList<>();
+        private final List<Step> rollback = new ArrayList<>();
+
+        private Builder(String name) {
+            this.name = name;
+        }
+
+        public Builder write(String deviceId, String attributeId, String value) {
+            steps.add(new Step(StepType.WRITE, deviceId, attributeId, value, Collections.<String>emptyList(), 0));
+            return this;
+        }
+
+        public Builder await(String deviceId, String attributeId, long timeoutMillis, String... expected) {
+            if (expected.length == 0 || timeoutMillis <= 0) {
+                throw new IllegalArgumentException("等待步骤需要期望值和正的超时时间: " + deviceId + "." + attributeId);
+            }
+            steps.add(new Step(StepType.AWAIT, deviceId, attributeId, null,
+                    Collections.unmodifiableList(new ArrayList<>(Arrays.asList(expected))), timeoutMillis));
+            return this;
+        }
+
+        public Builder rollbackWrite(String deviceId, String attributeId, String value) {
+            rollback.add(new Step(StepType.WRITE, deviceId, attributeId, value, Collections.<String>emptyList(), 0));
+            return this;
+        }
+
+        public CalibrationSequence build() {
+            return new CalibrationSequence(name, steps, rollback);
+        }
+    }
+}
@@ -0,0 +1,295 @@
+package com.ecat.integration.SaimosenIntegration;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+import com.ecat.core.State.AttributeAbility;
+import com.ecat.core.State.AttributeBase;
+import com.ecat.core.State.StringCommandAttribute;
+import com.ecat.core.State.StringSelectAttribute;
+
+/**
+ * 校准序列执行引擎（非阻塞状态机）
+ *
+ * <p>按顺序执行 {@link CalibrationSequence} 的步骤，不占用线程：</p>
+ * <ul>
+ *   <li>写步骤在上一步完成的回调中立即下发，写成功后进入下一步；</li>
+ *   <li>紧跟写步骤的等待步骤经 {@link SmsDeviceBase#awaitObservedState} 确认写入结果：立即并按探测间隔
+ *       主动读取设备状态，不必等下一个轮询周期，写入前缓存的读数不算满足；</li>
+ *   <li>其它等待步骤登记设备的发布监听（{@link SmsDeviceBase#addPublishListener}），先检查当前读数，
+ *       之后每次发布后检查，满足即进入下一步；</li>
+ *   <li>等待超时、写失败或调用 {@link Execution#abort()} 时结束序列并执行回滚写步骤（尽力而为）。</li>
+ * </ul>
+ *
+ * @version V1.0
+ */
+public class CalibrationSequenceRunner {
+
+    /**
+     * 序列执行结果
+     */
+    public enum Outcome {
+        COMPLETED,
+        FAILED,
+        TIMED_OUT,
+        ABORTED
+    }
+
+    private final Function<String, SmsDeviceBase> devices;
+    private final ScheduledExecutorService scheduler;
+
+    /**
+     * @param devices 按设备ID查找设备，找不到返回 null
+     * @param scheduler 用于等待步骤超时的调度器
+     */
+    public CalibrationSequenceRunner(Function<String, SmsDeviceBase> devices, ScheduledExecutorService scheduler) {
+        this.devices = devices;
+        this.scheduler = scheduler;
+    }
+
+    /**
+     * 开始执行序列，立即返回
+     */
+    public Execution start(CalibrationSequence sequence) {
+        Execution execution = new Execution(sequence);
+        execution.advance(0);
+        return execution;
+    }
+
+    /**
+     * 读数是否匹配期望值之一：数值属性按数值比较，其余按字符串比较
+     */
+    static boolean matches(Object actual, List<String> expected) {
+        if (actual == null) {
+            return false;
+        }
+        for (String value : expected) {
+            if (actual instanceof Number) {
+                try {
+                    if (Math.abs(((Number) actual).doubleValue() - Double.parseDouble(value)) < 1e-6) {
+                        return true;
+                    }
+                } catch (NumberFormatException e) {
+                    // 非数值期望值不匹配数值读数
+                }
+            } else if (value.equals(String.valueOf(actual))) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private CompletableFuture<Boolean> write(SmsDeviceBase device, CalibrationSequence.Step step, AttributeAbility<?> attr) {
+        String value = step.getValue();
+        CompletableFuture<Boolean> future;
+        if (attr instanceof StringCommandAttribute) {
+            future = ((StringCommandAttribute) attr).sendCommand(value);
+        } else if (attr instanceof StringSelectAttribute) {
+            future = ((StringSelectAttribute) attr).selectOption(value);
+        } else if (attr instanceof AttributeBase) {
+            // 参数类属性经写入覆盖层写入，写入前发起的轮询不会把旧值发布出去
+            future = device.writeAttribute(step.getAttributeId(), value);
+        } else {
+            future = null;
+        }
+        return future != null ? future : CompletableFuture.completedFuture(false);
+    }
+
+    /**
+     * 一次序列执行
+     */
+    public final class Execution {
+        private final CalibrationSequence sequence;
+        private final CompletableFuture<Outcome> result = new CompletableFuture<>();
+        private volatile int currentStep = -1;
+        private volatile String failureReason;
+        private boolean finished;
+        private SmsDeviceBase awaitDevice;
+        private Runnable awaitListener;
+        private ScheduledFuture<?> awaitTimeout;
+        private CompletableFuture<Boolean> awaitObserved;
+
+        private Execution(CalibrationSequence sequence) {
+            this.sequence = sequence;
+        }
+
+        public CalibrationSequence getSequence() {
+            return sequence;
+        }
+
+        /**
+         * 执行结果，回滚结束后完成
+         */
+        public CompletableFuture<Outcome> getResult() {
+            return result;
+        }
+
+        /**
+         * 当前步骤序号（从0开始），未开始为-1
+         */
+        public int getCurrentStep() {
+            return currentStep;
+        }
+
+        /**
+         * 失败、超时或中止的原因，成功时为 null
+         */
+        public String getFailureReason() {
+            return failureReason;
+        }
+
+        /**
+         * 中止序列并执行回滚
+         * @return 序列尚未结束时返回 true
+         */
+        public boolean abort() {
+            return finish(Outcome.ABORTED, "aborted at step " + currentStep);
+        }
+
+        private void advance(int index) {
+            CalibrationSequence.Step step;
+            SmsDeviceBase device;
+            AttributeAbility<?> attr;
+            synchronized (this) {
+                // 同一等待步骤可能被连续的发布重复满足，只推进一次
+                if (finished || index <= currentStep) {
+                    return;
+                }
+                clearAwait();
+                if (index >= sequence.getSteps().size()) {
+                    finished = true;
+                    currentStep = index;
+                    result.complete(Outcome.COMPLETED);
+                    return;
+                }
+                currentStep = index;
+                step = sequence.getSteps().get(index);
+                device = devices.apply(step.getDeviceId());
+                attr = device != null ? device.getAttrs().get(step.getAttributeId()) : null;
+            }
+            if (attr == null) {
+                finish(Outcome.FAILED, "step " + index + " " + step + ": attribute not found");
+                return;
+            }
+            if (step.getType() == CalibrationSequence.StepType.WRITE) {
+                CompletableFuture<Boolean> write;
+                try {
+                    write = write(device, step, attr);
+                } catch (RuntimeException e) {
+                    finish(Outcome.FAILED, "step " + index + " " + step + ": write failed - " + e.getMessage());
+                    return;
+                }
+                write.whenComplete((ok, throwable) -> {
+                    if (throwable == null && Boolean.TRUE.equals(ok)) {
+                        advance(index + 1);
+                    } else {
+                        finish(Outcome.FAILED, "step " + index + " " + step + ": write failed"
+                                + (throwable != null ? " - " + throwable.getMessage() : ""));
+                    }
+                });
+            } else {
+                startAwait(index, step, device, attr);
+            }
+        }
+
+        private void startAwait(int index, CalibrationSequence.Step step, SmsDeviceBase device,
+                AttributeAbility<?> attr) {
+            boolean afterWrite = index > 0
+                    && sequence.getSteps().get(index - 1).getType() == CalibrationSequence.StepType.WRITE;
+            if (afterWrite) {
+                awaitWriteResult(index, step, device, attr);
+                return;
+            }
+            Runnable listener = () -> {
+                if (matches(attr.getValue(), step.getExpected())) {
+                    advance(index + 1);
+                }
+            };
+            synchronized (this) {
+                if (finished || currentStep != index) {
+                    return;
+                }
+                awaitDevice = device;
+                awaitListener = listener;
+                device.addPublishListener(listener);
+                awaitTimeout = scheduler.schedule(() -> finish(Outcome.TIMED_OUT,
+                        "step " + index + " " + step + ": timed out after " + step.getTimeoutMillis() + " ms, last value "
+                                + attr.getValue()), step.getTimeoutMillis(), TimeUnit.MILLISECONDS);
+            }
+            listener.run();
+        }
+
+        private void awaitWriteResult(int index, CalibrationSequence.Step step, SmsDeviceBase device,
+                AttributeAbility<?> attr) {
+            CompletableFuture<Boolean> observed;
+            synchronized (this) {
+                if (finished || currentStep != index) {
+                    return;
+                }
+                observed = device.awaitObservedState(() -> matches(attr.getValue(), step.getExpected()),
+                        step.getTimeoutMillis());
+                awaitObserved = observed;
+            }
+            // 进入下一步或结束时取消等待，取消不再处理
+            observed.thenAccept(confirmed -> {
+                if (confirmed) {
+                    advance(index + 1);
+                } else {
+                    finish(Outcome.TIMED_OUT, "step " + index + " " + step + ": timed out after "
+                            + step.getTimeoutMillis() + " ms, last value " + attr.getValue());
+                }
+            });
+        }
+
+        private void clearAwait() {
+            if (awaitObserved != null) {
+                awaitObserved.cancel(false);
+                awaitObserved = null;
+            }
+            if (awaitListener != null) {
+                awaitDevice.removePublishListener(awaitListener);
+                awaitListener = null;
+                awaitDevice = null;
+            }
+            if (awaitTimeout != null) {
+                awaitTimeout.cancel(false);
+                awaitTimeout = null;
+            }
+        }
+
+        private boolean finish(Outcome outcome, String reason) {
+            synchronized (this) {
+                if (finished) {
+                    return false;
+                }
+                finished = true;
+                failureReason = reason;
+                clearAwait();
+            }
+            rollback(0).whenComplete((ignored, throwable) -> result.complete(outcome));
+            return true;
+        }
+
+        private CompletableFuture<Void> rollback(int index) {
+            List<CalibrationSequence.Step> steps = sequence.getRollback();
+            if (index >= steps.size()) {
+                return CompletableFuture.completedFuture(null);
+            }
+            CalibrationSequence.Step step = steps.get(index);
+            SmsDeviceBase device = devices.apply(step.getDeviceId());
+            AttributeAbility<?> attr = device != null ? device.getAttrs().get(step.getAttributeId()) : null;
+            CompletableFuture<Boolean> write;
+            try {
+                write = attr != null ? write(device, step, attr) : CompletableFuture.completedFuture(false);
+            } catch (RuntimeException e) {
+                write = CompletableFuture.completedFuture(false);
+            }
+            // 回滚尽力而为，某一步失败仍继续后面的步骤
+            return write.handle((ok, throwable) -> null).thenCompose(ignored -> rollback(index + 1));
+        }
+    }
+}
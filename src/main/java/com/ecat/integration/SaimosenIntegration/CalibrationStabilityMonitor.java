@@ -0,0 +1,238 @@
+package com.ecat.integration.SaimosenIntegration;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+import com.ecat.core.State.AttributeAbility;
+import com.ecat.core.State.AttributeBase;
+import com.ecat.core.State.StringCommandAttribute;
+
+/**
+ * 校准时分析仪浓度读数的稳定监测
+ *
+ * <p>为分析仪的每个浓度属性（NO2 为 no/no2/nox，SO2、CO、O3 各一个，即 {@link SmsDeviceBase#getStoredAttributeIds()}）
+ * 建一个 {@link StabilityDetector}，每次发布后把有更新的读数送入检测器，全部稳定即判定就绪。</p>
+ *
+ * <p>用法：</p>
+ * <ul>
+ *   <li>{@link #confirmWhenStable}：就绪后通过 dispatch_command（{@link GasDeviceCommandAttribute}）
+ *       发送零点/跨度确认命令，并按 {@link GasDeviceCommandAttribute#sendCommandAndAwait} 等待回到测量状态；</li>
+ *   <li>{@link #readiness}：作为 {@link ZeroCheckOrchestrator} 的就绪判断，只报告就绪。</li>
+ * </ul>
+ * <p>{@link #attach} 时可打开分析仪的快速轮询（{@link SmsDeviceBase#setFastPolling}），
+ * 校准期间以亚秒周期取样，{@link #detach} 时关闭。</p>
+ *
+ * @version V1.0
+ */
+public class CalibrationStabilityMonitor {
+
+    private final SmsDeviceBase analyzer;
+    private final Map<String, StabilityDetector> detectors = new LinkedHashMap<>();
+    private final Map<String, Long> lastUpdateTimes = new ConcurrentHashMap<>();
+    private final Runnable listener = this::sample;
+    private volatile boolean stable;
+    private long fastPollMillis;
+    private long confirmTimeoutMillis = CalibrationSequence.DEFAULT_AWAIT_TIMEOUT_SECONDS * 1000L;
+    private boolean attached;
+    private boolean listening;
+    private CompletableFuture<Boolean> confirmation;
+    private String confirmCommand;
+
+    /**
+     * @param analyzer 气体分析仪
+     * @param detectorFactory 为每个浓度属性创建检测器
+     */
+    public CalibrationStabilityMonitor(SmsDeviceBase analyzer, Supplier<StabilityDetector> detectorFactory) {
+        this.analyzer = analyzer;
+        for (String id : analyzer.getStoredAttributeIds()) {
+            detectors.put(id, detectorFactory.get());
+        }
+    }
+
+    /**
+     * 监测期间的快速轮询周期（毫秒），0 不改变轮询
+     */
+    public CalibrationStabilityMonitor setFastPollMillis(long fastPollMillis) {
+        this.fastPollMillis = fastPollMillis;
+        return this;
+    }
+
+    /**
+     * 确认命令发送后等待分析仪回到测量状态的超时时间（毫秒）
+     */
+    public CalibrationStabilityMonitor setConfirmTimeoutMillis(long confirmTimeoutMillis) {
+        this.confirmTimeoutMillis = confirmTimeoutMillis;
+        return this;
+    }
+
+    /**
+     * 开始监测：清空检测器，登记发布监听
+     */
+    public void attach() {
+        attach(true);
+    }
+
+    /**
+     * @param listen 是否登记发布监听；为 false 时由调用方在每次发布后调用 {@link #sample()}
+     */
+    synchronized void attach(boolean listen) {
+        if (attached) {
+            return;
+        }
+        attached = true;
+        listening = listen;
+        stable = false;
+        lastUpdateTimes.clear();
+        for (StabilityDetector detector : detectors.values()) {
+            detector.reset();
+        }
+        if (listen) {
+            analyzer.addPublishListener(listener);
+        }
+        if (fastPollMillis > 0) {
+            analyzer.setFastPolling(fastPollMillis);
+        }
+    }
+
+    /**
+     * 停止监测，未完成的自动确认以 false 结束
+     */
+    public void detach() {
+        CompletableFuture<Boolean> pending;
+        synchronized (this) {
+            if (!attached) {
+                return;
+            }
+            attached = false;
+            removeListener();
+            if (fastPollMillis > 0) {
+                analyzer.setFastPolling(0);
+            }
+            pending = confirmation;
+            confirmation = null;
+        }
+        if (pending != null) {
+            pending.complete(false);
+        }
+    }
+
+    /**
+     * 稳定后发送确认命令（zero_calibration_confirm 或 span_calibration_confirm），发送后停止监测
+     * @return 分析仪已回到测量状态为 true；命令失败、状态未确认或停止监测时为 false
+     */
+    public CompletableFuture<Boolean> confirmWhenStable(String command) {
+        CompletableFuture<Boolean> future = new CompletableFuture<>();
+        synchronized (this) {
+            confirmation = future;
+            confirmCommand = command;
+        }
+        attach();
+        return future;
+    }
+
+    /**
+     * 所有浓度属性是否已稳定
+     */
+    public boolean isStable() {
+        return stable;
+    }
+
+    public Map<String, StabilityDetector> getDetectors() {
+        return Collections.unmodifiableMap(detectors);
+    }
+
+    /**
+     * 读取各浓度属性的当前读数，只送入有更新的读数
+     */
+    synchronized void sample() {
+        if (!attached) {
+            return;
+        }
+        boolean allStable = !detectors.isEmpty();
+        for (Map.Entry<String, StabilityDetector> entry : detectors.entrySet()) {
+            AttributeAbility<?> attr = analyzer.getAttrs().get(entry.getKey());
+            if (attr instanceof AttributeBase && attr.getValue() instanceof Number) {
+                long updateTime = ((AttributeBase<?>) attr).getUpdateTime();
+                if (updateTime <= 0) {
+                    // 没有更新时间时每次发布都取样
+                    entry.getValue().add(System.currentTimeMillis(), ((Number) attr.getValue()).doubleValue());
+                } else {
+                    Long last = lastUpdateTimes.put(entry.getKey(), updateTime);
+                    if (last == null || updateTime > last) {
+                        entry.getValue().add(updateTime, ((Number) attr.getValue()).doubleValue());
+                    }
+                }
+            }
+            allStable &= entry.getValue().isStable();
+        }
+        stable = allStable;
+        if (allStable && confirmation != null) {
+            sendConfirm();
+        }
+    }
+
+    private void sendConfirm() {
+        CompletableFuture<Boolean> future = confirmation;
+        String command = confirmCommand;
+        confirmation = null;
+        attached = false;
+        removeListener();
+        if (fastPollMillis > 0) {
+            analyzer.setFastPolling(0);
+        }
+        AttributeAbility<?> attr = analyzer.getAttrs().get("dispatch_command");
+        if (!(attr instanceof StringCommandAttribute)) {
+            future.complete(false);
+            return;
+        }
+        // 写入成功只表示从站收到命令，以校准状态回到测量确认结果
+        CompletableFuture<Boolean> sent = attr instanceof GasDeviceCommandAttribute
+                ? ((GasDeviceCommandAttribute) attr).sendCommandAndAwait(command, confirmTimeoutMillis)
+                : ((StringCommandAttribute) attr).sendCommand(command);
+        if (sent == null) {
+            future.complete(false);
+        } else {
+            sent.whenComplete((ok, throwable) -> future.complete(throwable == null && Boolean.TRUE.equals(ok)));
+        }
+    }
+
+    private void removeListener() {
+        if (listening) {
+            listening = false;
+            analyzer.removePublishListener(listener);
+        }
+    }
+
+    /**
+     * 基于读数稳定的零点检查就绪判断：每台分析仪进入零点状态后首次调用时开始监测，
+     * 编排器每次发布后调用一次即取样一次（不另登记发布监听），稳定即就绪；分析仪结束时停止监测
+     * @param detectorFactory 为每个浓度属性创建检测器
+     * @param fastPollMillis 监测期间的快速轮询周期（毫秒），0 不改变轮询
+     */
+    public static ZeroCheckOrchestrator.ReadinessCheck readiness(Supplier<StabilityDetector> detectorFactory,
+            long fastPollMillis) {
+        Map<SmsDeviceBase, CalibrationStabilityMonitor> monitors = new ConcurrentHashMap<>();
+        return new ZeroCheckOrchestrator.ReadinessCheck() {
+            @Override
+            public boolean isReady(SmsDeviceBase analyzer, long zeroMillis) {
+                CalibrationStabilityMonitor monitor = monitors.computeIfAbsent(analyzer, device ->
+                        new CalibrationStabilityMonitor(device, detectorFactory).setFastPollMillis(fastPollMillis));
+                monitor.attach(false);
+                monitor.sample();
+                return monitor.isStable();
+            }
+
+            @Override
+            public void release(SmsDeviceBase analyzer) {
+                CalibrationStabilityMonitor monitor = monitors.remove(analyzer);
+                if (monitor != null) {
+                    monitor.detach();
+                }
+            }
+        };
+    }
+}
@@ -0,0 +1,26 @@
+package com.ecat.integration.SaimosenIntegration;
+
+/**
+ * 校准命令写入通知
+ *
+ * <p>{@link GasDeviceCommandAttribute} 写入跨度校准浓度寄存器（0x3EB）成功后调用 {@link #markCalibrationWrite}，
+ * 分析仪在 {@link WriteOverlay} 中提交该属性的写入记录并立即显示写入值：提交之前发起的轮询读数一律忽略，
+ * 避免旧值覆盖刚写入的浓度，提交之后发起的第一次读取以读数为准完成对账并删除记录；
+ * 每条命令写入成功后调用 {@link #markCommandWrite}，分析仪据此立即回读校准状态。</p>
+ *
+ * @version V1.0
+ */
+public interface CalibrationWriteListener {
+
+    /**
+     * 校准浓度已写入设备
+     * @param concentration 写入的校准浓度值
+     */
+    void markCalibrationWrite(double concentration);
+
+    /**
+     * 校准命令已写入设备
+     * @param command 命令类型
+     */
+    void markCommandWrite(String command);
+}
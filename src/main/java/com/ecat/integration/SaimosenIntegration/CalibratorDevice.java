@@ -2,6 +2,7 @@ package com.ecat.integration.SaimosenIntegration;
 
 import java.util.Arrays;
 import java.util.Collection;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.concurrent.CompletableFuture;
@@ -13,7 +14,6 @@ import com.ecat.core.State.AttributeClass;
 import com.ecat.core.State.AttributeStatus;
 import com.ecat.core.State.Unit.AirVolumeUnit;
 import com.ecat.core.State.TextAttribute;
-import com.ecat.integration.ModbusIntegration.ModbusTransactionStrategy;
 import com.ecat.integration.ModbusIntegration.Tools;
 import com.ecat.integration.ModbusIntegration.Attribute.ModbusFloatAttribute;
 import com.ecat.integration.ModbusIntegration.EndianConverter.AbstractEndianConverter;
@@ -32,10 +32,23 @@ public class CalibratorDevice extends SmsDeviceBase {
     private static final int SECOND_BLOCK_START = 0x46; // 第二块起始地址（0x46-0x4A）
     private static final int SECOND_BLOCK_COUNT = 5; // 第二块读取5个寄存器（覆盖所有参数）
     private static final int GAS_SELECT_START = 0x46; // 选择气体参数
+    private static final int FLOAT_REGISTER_COUNT = 2; // float占两个寄存器
 
     private static final String GPTNO = "gptno_concentration"; // GPTNO气体
     private static final String GPTO3 = "gpto3_concentration"; // GPTO3气体
 
+    // 写入后单独回读的浓度属性地址（0x49的O3浓度随第二块回读）
+    private static final Map<String, Integer> FLOAT_ATTRIBUTE_ADDRESSES = new HashMap<>();
+
+    static {
+        FLOAT_ATTRIBUTE_ADDRESSES.put("other_gas_concentration", 0x00);
+        FLOAT_ATTRIBUTE_ADDRESSES.put("so2_std_gas_concentration", 0x02);
+        FLOAT_ATTRIBUTE_ADDRESSES.put("no_std_gas_concentration", 0x04);
+        FLOAT_ATTRIBUTE_ADDRESSES.put("co_std_gas_concentration", 0x06);
+        FLOAT_ATTRIBUTE_ADDRESSES.put(GPTNO, 0x1E);
+        FLOAT_ATTRIBUTE_ADDRESSES.put(GPTO3, 0x20);
+    }
+
     BigEndianConverter bigConverter = AbstractEndianConverter.getBigEndianConverter();
 
     private ScheduledFuture<?> readFuture;
@@ -52,17 +65,23 @@ public class CalibratorDevice extends SmsDeviceBase {
     public void init() {
         super.init();
         createAttributes();
+        restoreSnapshot();
     }
 
     @Override
     public void start() {
-        readFuture = getScheduledExecutor().scheduleWithFixedDelay(this::readRegisters, 0, 5, TimeUnit.SECONDS);
+        readFuture = schedulePolling(this::readRegisters);
 
         if (isDebug) {
             testControlFuture = getScheduledExecutor().scheduleWithFixedDelay(this::controlMode, 60, 60, TimeUnit.SECONDS);
         }
     }
 
+    @Override
+    protected int[] getPollSegmentSizes() {
+        return new int[] {FIRST_BLOCK_COUNT, SECOND_BLOCK_COUNT};
+    }
+
     @Override
     public void stop() {
         if (readFuture != null)
@@ -80,9 +99,15 @@ public class CalibratorDevice extends SmsDeviceBase {
         super.release();
     }
 
+    @Override
+    protected void onModbusSourceChanged() {
+        // ModbusFloatAttribute 没有修改 ModbusSource 的入口，按新的 ModbusSource 重建属性
+        createAttributes();
+    }
+
     private void createAttributes() {
         // 数值型属性（大端模式float）
-        setAttribute(new ModbusFloatAttribute(
+        setRoutedAttribute(new SmsModbusFloatAttribute(
                 "other_gas_concentration",
                 AttributeClass.OTHER_GAS_CONCENTRATION,
                 AirVolumeUnit.PPM, // 原始单位
@@ -95,7 +120,7 @@ public class CalibratorDevice extends SmsDeviceBase {
                 bigConverter // 大端模式转换
         ));
 
-        setAttribute(new ModbusFloatAttribute(
+        setRoutedAttribute(new SmsModbusFloatAttribute(
                 "so2_std_gas_concentration",
                 AttributeClass.SO2_STD_GAS_CONCENTRATION,
                 AirVolumeUnit.PPM,
@@ -107,7 +132,7 @@ public class CalibratorDevice extends SmsDeviceBase {
                 (short) 0x02,
                 bigConverter));
 
-        setAttribute(new ModbusFloatAttribute(
+        setRoutedAttribute(new SmsModbusFloatAttribute(
                 "no_std_gas_concentration",
                 AttributeClass.NO_STD_GAS_CONCENTRATION,
                 AirVolumeUnit.PPM,
@@ -119,7 +144,7 @@ public class CalibratorDevice extends SmsDeviceBase {
                 (short) 0x04,
                 bigConverter));
 
-        setAttribute(new ModbusFloatAttribute(
+        setRoutedAttribute(new SmsModbusFloatAttribute(
                 "co_std_gas_concentration",
                 AttributeClass.CO_STD_GAS_CONCENTRATION,
                 AirVolumeUnit.PPM,
@@ -132,7 +157,7 @@ public class CalibratorDevice extends SmsDeviceBase {
                 bigConverter));
 
         // 生成样气种类（写属性，short类型）
-        setAttribute(new CalibratorGasSelectAttribute(
+        CalibratorGasSelectAttribute gasSelect = new CalibratorGasSelectAttribute(
                 "calibrator_gas_select",
                 AttributeClass.CALIBRATOR_GAS_SELECT,
                 true,
@@ -147,9 +172,11 @@ public class CalibratorDevice extends SmsDeviceBase {
                         CalibratorGasSelectAttribute.M_GPT
                         ),
                 modbusSource,
-                (short) GAS_SELECT_START)
-
-        );
+                (short) GAS_SELECT_START);
+        // 选择标气后立即回读系统状态（0x46-0x4A）
+        gasSelect.setWriteCallback(this::readBackSecondBlock);
+        gasSelect.setDevice(this);
+        setAttribute(gasSelect);
 
         // 系统状态（读属性，short转文本）
         setAttribute(new TextAttribute(
@@ -161,7 +188,7 @@ public class CalibratorDevice extends SmsDeviceBase {
         ));
 
         // O3气体浓度（ppb→ppm转换）
-        setAttribute(new ModbusFloatAttribute(
+        setRoutedAttribute(new SmsModbusFloatAttribute(
                 "o3_gas_concentration",
                 AttributeClass.O3_GAS_CONCENTRATION,
                 AirVolumeUnit.PPB, // 原始单位
@@ -174,7 +201,7 @@ public class CalibratorDevice extends SmsDeviceBase {
                 bigConverter));
         
         // GPTNO气体浓度（ppm）
-        setAttribute(new ModbusFloatAttribute(
+        setRoutedAttribute(new SmsModbusFloatAttribute(
                 "gptno_concentration",
                 AttributeClass.NO_STD_GAS_CONCENTRATION,
                 AirVolumeUnit.PPM, // 原始单位
@@ -187,7 +214,7 @@ public class CalibratorDevice extends SmsDeviceBase {
                 bigConverter));
 
         // GPTO3气体浓度（ppb）
-        setAttribute(new ModbusFloatAttribute(
+        setRoutedAttribute(new SmsModbusFloatAttribute(
                 "gpto3_concentration",
                 AttributeClass.O3_GAS_CONCENTRATION,
                 AirVolumeUnit.PPB, // 原始单位
@@ -200,49 +227,77 @@ public class CalibratorDevice extends SmsDeviceBase {
                 bigConverter));
     }
 
-    protected void readRegisters() {
-        ModbusTransactionStrategy.executeWithLambda(modbusSource, source -> {
+    @Override
+    public CompletableFuture<Boolean> pollOnce() {
+        return readRegisters();
+    }
+
+    protected CompletableFuture<Boolean> readRegisters() {
+        return executePoll(source -> {
             // 先读取第一个地址块
-            return source.readHoldingRegisters(FIRST_BLOCK_START, FIRST_BLOCK_COUNT)
+            return readSegmentRegisters(source, "first_block", FIRST_BLOCK_START, FIRST_BLOCK_COUNT)
                     .thenCompose(firstResponse -> {
                         try {
                             // 处理第一块数据
                             AttributeStatus status = AttributeStatus.NORMAL;
                             short[] firstBlockRegisters = firstResponse.getShortData();
-                            parseFirstBlock(firstBlockRegisters, status);
+                            decodeBlock("first_block", firstBlockRegisters, data -> parseFirstBlock(data, status));
 
                             // 再读取第二个地址块
-                            return source.readHoldingRegisters(SECOND_BLOCK_START, SECOND_BLOCK_COUNT)
+                            return readSegmentRegisters(source, "second_block", SECOND_BLOCK_START, SECOND_BLOCK_COUNT)
                                     .thenApply(secondResponse -> {
                                         try {
                                             // 处理第二块数据
                                             short[] secondBlockRegisters = secondResponse.getShortData();
-                                            parseSecondBlock(secondBlockRegisters, status);
+                                            decodeBlock("second_block", secondBlockRegisters, data -> parseSecondBlock(data, status));
 
                                             // 设置所有属性状态
                                             getAttrs().values().forEach(attr -> attr.setStatus(status));
-                                            publicAttrsState();
-                                            log.info("CalibratorDevice " + getId() + " - Data updated successfully");
+                                            publishAttributes();
+                                            recordPollResult(PollCycleStats.Result.OK, "data updated");
                                             return true;
                                         } catch (Exception e) {
-                                            log.error(
-                                                    "CalibratorDevice second block parsing failed: " + e.getMessage());
+                                            recordPollResult(PollCycleStats.Result.FAILED, "second block parsing failed: {}", e.getMessage());
                                             getAttrs().values()
                                                     .forEach(attr -> attr.setStatus(AttributeStatus.MALFUNCTION));
-                                            publicAttrsState();
+                                            publishAttributes();
                                             return false;
                                         }
                                     });
                         } catch (Exception e) {
-                            log.error("CalibratorDevice first block parsing failed: " + e.getMessage());
+                            recordPollResult(PollCycleStats.Result.FAILED, "first block parsing failed: {}", e.getMessage());
                             getAttrs().values().forEach(attr -> attr.setStatus(AttributeStatus.MALFUNCTION));
-                            publicAttrsState();
+                            publishAttributes();
                             return CompletableFuture.completedFuture(false);
                         }
                     });
+        }).exceptionally(throwable -> {
+            recordPollResult(PollCycleStats.Result.FAILED, "communication failed: {}", throwable.getMessage());
+            return false;
         });
     }
 
+    @Override
+    protected void afterAttributeWrite(String attributeId) {
+        if ("o3_gas_concentration".equals(attributeId)) {
+            readBackSecondBlock();
+            return;
+        }
+        Integer address = FLOAT_ATTRIBUTE_ADDRESSES.get(attributeId);
+        if (address != null) {
+            readBack(attributeId, address, FLOAT_REGISTER_COUNT, data -> updateModbusFloatAttribute(attributeId,
+                    Tools.convertBigEndianToFloat(data[0], data[1]), AttributeStatus.NORMAL));
+        }
+    }
+
+    /**
+     * 回读第二块（0x46-0x4A）：系统状态和O3浓度
+     */
+    private CompletableFuture<Boolean> readBackSecondBlock() {
+        return readBack("second_block", SECOND_BLOCK_START, SECOND_BLOCK_COUNT,
+                data -> parseSecondBlock(data, AttributeStatus.NORMAL));
+    }
+
     /**
      * 解析第一块寄存器数据（0x00-0x07）
      * 
@@ -300,11 +355,19 @@ public class CalibratorDevice extends SmsDeviceBase {
      * 更新数值型属性值
      */
     private void updateModbusFloatAttribute(AttributeClass attrClass, float value, AttributeStatus status) {
+        // 写入后尚未被新读数对账的属性保持写入值
+        if (!acceptRead(attrClass.getName())) {
+            return;
+        }
         ModbusFloatAttribute attr = (ModbusFloatAttribute) getAttrs().get(attrClass.getName());
         attr.updateValue(value, status);
     }
 
     private void updateModbusFloatAttribute(String attrId, float value, AttributeStatus status) {
+        // 写入后尚未被新读数对账的属性保持写入值
+        if (!acceptRead(attrId)) {
+            return;
+        }
         ModbusFloatAttribute attr = (ModbusFloatAttribute) getAttrs().get(attrId);
         attr.updateValue(value, status);
     }
@@ -356,28 +419,18 @@ public class CalibratorDevice extends SmsDeviceBase {
                     ((CalibratorGasSelectAttribute) dev.getAttrs().get(AttributeClass.CALIBRATOR_GAS_SELECT.getName()))
                             .selectOption(nextOption);
                     if (testCount++ % 2 == 0) {
-                        ((ModbusFloatAttribute) dev.getAttrs().get(AttributeClass.SO2_STD_GAS_CONCENTRATION.getName()))
-                                .setDisplayValue("60.0");
-                        ((ModbusFloatAttribute) dev.getAttrs().get(AttributeClass.NO_STD_GAS_CONCENTRATION.getName()))
-                                .setDisplayValue("60.0");
-                        ((ModbusFloatAttribute) dev.getAttrs().get(AttributeClass.CO_STD_GAS_CONCENTRATION.getName()))
-                                .setDisplayValue("6000.0");
-                        ((ModbusFloatAttribute) dev.getAttrs().get(AttributeClass.O3_GAS_CONCENTRATION.getName()))
-                                .setDisplayValue("0.4");
-                        ((ModbusFloatAttribute) dev.getAttrs().get(AttributeClass.OTHER_GAS_CONCENTRATION.getName()))
-                                .setDisplayValue("20.0");
+                        ((CalibratorDevice) dev).writeAttribute(AttributeClass.SO2_STD_GAS_CONCENTRATION.getName(), "60.0");
+                        ((CalibratorDevice) dev).writeAttribute(AttributeClass.NO_STD_GAS_CONCENTRATION.getName(), "60.0");
+                        ((CalibratorDevice) dev).writeAttribute(AttributeClass.CO_STD_GAS_CONCENTRATION.getName(), "6000.0");
+                        ((CalibratorDevice) dev).writeAttribute(AttributeClass.O3_GAS_CONCENTRATION.getName(), "0.4");
+                        ((CalibratorDevice) dev).writeAttribute(AttributeClass.OTHER_GAS_CONCENTRATION.getName(), "20.0");
 
                     } else {
-                        ((ModbusFloatAttribute) dev.getAttrs().get(AttributeClass.SO2_STD_GAS_CONCENTRATION.getName()))
-                                .setDisplayValue("10.0");
-                        ((ModbusFloatAttribute) dev.getAttrs().get(AttributeClass.NO_STD_GAS_CONCENTRATION.getName()))
-                                .setDisplayValue("20.0");
-                        ((ModbusFloatAttribute) dev.getAttrs().get(AttributeClass.CO_STD_GAS_CONCENTRATION.getName()))
-                                .setDisplayValue("30.0");
-                        ((ModbusFloatAttribute) dev.getAttrs().get(AttributeClass.O3_GAS_CONCENTRATION.getName()))
-                                .setDisplayValue("0.3");
-                        ((ModbusFloatAttribute) dev.getAttrs().get(AttributeClass.OTHER_GAS_CONCENTRATION.getName()))
-                                .setDisplayValue("50.0");
+                        ((CalibratorDevice) dev).writeAttribute(AttributeClass.SO2_STD_GAS_CONCENTRATION.getName(), "10.0");
+                        ((CalibratorDevice) dev).writeAttribute(AttributeClass.NO_STD_GAS_CONCENTRATION.getName(), "20.0");
+                        ((CalibratorDevice) dev).writeAttribute(AttributeClass.CO_STD_GAS_CONCENTRATION.getName(), "30.0");
+                        ((CalibratorDevice) dev).writeAttribute(AttributeClass.O3_GAS_CONCENTRATION.getName(), "0.3");
+                        ((CalibratorDevice) dev).writeAttribute(AttributeClass.OTHER_GAS_CONCENTRATION.getName(), "50.0");
                     }
                 }
             }
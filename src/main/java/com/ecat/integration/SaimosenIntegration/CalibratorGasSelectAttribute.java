@@ -20,10 +20,12 @@ import com.ecat.integration.ModbusIntegration.ModbusTransactionStrategy;
  * 
  * @Author coffee
  */
-public class CalibratorGasSelectAttribute extends StringSelectAttribute {
+public class CalibratorGasSelectAttribute extends StringSelectAttribute implements ModbusSourceAware {
 
-    private ModbusSource modbusSource; // Modbus源
+    private volatile ModbusSource modbusSource; // Modbus源
     private Short registerAddress; // 目标寄存器地址（0x46）
+    private Runnable writeCallback; // 写入成功后回调（设备回读）
+    private SmsDeviceBase device; // 写事务计入该设备的线路统计
 
     public static final String M_GPTNO = "M_GPTNO"; // 模式
     public static final String M_GPTNO_O3 = "M_GPTNO_O3"; // 模式
@@ -38,6 +40,30 @@ public class CalibratorGasSelectAttribute extends StringSelectAttribute {
         this.value = options.get(0); // 默认值
     }
 
+    /**
+     * 设置Modbus源（通信参数变化重新登记后）
+     * @param modbusSource Modbus源
+     */
+    @Override
+    public void setModbusSource(ModbusSource modbusSource) {
+        this.modbusSource = modbusSource;
+    }
+
+    /**
+     * 设置写入成功后的回调，设备据此立即回读系统状态
+     * @param writeCallback 回调，在命令事务内调用
+     */
+    public void setWriteCallback(Runnable writeCallback) {
+        this.writeCallback = writeCallback;
+    }
+
+    /**
+     * 设置所属设备，写事务计入该设备的线路统计
+     */
+    public void setDevice(SmsDeviceBase device) {
+        this.device = device;
+    }
+
     @Override
     public String getDisplayValue(UnitInfo toUnit) {
         return value;
@@ -64,10 +90,18 @@ public class CalibratorGasSelectAttribute extends StringSelectAttribute {
         }
         return ModbusTransactionStrategy.executeWithLambda(modbusSource, source -> {
             // 写单个寄存器（0x89地址，值为registerValue）
-            return source.writeRegister(registerAddress, newValue)
+            return SaimosenEvents.traceCommandWrite("", "CalibratorDevice", "select_" + option,
+                    registerAddress, newValue, () -> device != null
+                            ? device.recordBusWrite("select_" + option, registerAddress, newValue,
+                                    () -> source.writeRegister(registerAddress, newValue))
+                            : source.writeRegister(registerAddress, newValue))
                     .thenCompose((response) -> {
                         if (response == null || response.isException()) {
-                            throw new RuntimeException("命令下发失败" + response.getExceptionMessage());
+                            throw new RuntimeException("命令下发失败: "
+                                    + (response == null ? "no response" : response.getExceptionMessage()));
+                        }
+                        if (writeCallback != null) {
+                            writeCallback.run();
                         }
                         return CompletableFuture.completedFuture(true);
                     });
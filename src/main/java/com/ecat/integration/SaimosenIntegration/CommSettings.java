@@ -0,0 +1,140 @@
+package com.ecat.integration.SaimosenIntegration;
+
+import java.util.Map;
+
+import com.ecat.integration.ModbusIntegration.ModbusInfo;
+import com.ecat.integration.ModbusIntegration.ModbusSerialInfo;
+import com.ecat.integration.ModbusIntegration.ModbusTcpInfo;
+import com.fazecast.jSerialComm.SerialPort;
+
+/**
+ * 解析后的设备通信参数（comm_settings）
+ *
+ * <p>{@link #parse} 按 `transport` 校验必需项并构建 {@link ModbusInfo}，同时给出线路标识（{@link BusStatistics} 按此分组）、
+ * 从站地址以及估算事务耗时用的串口字符位数。解析不修改设备状态，参数不完整时抛出异常，
+ * 热更新时设备据此保持原有连接。</p>
+ *
+ * @version V1.0
+ */
+public final class CommSettings {
+
+    private static final int DEFAULT_TIMEOUT_MILLIS = 2000;
+
+    private final ModbusTransport transport;
+    private final ModbusInfo modbusInfo;
+    private final String lineKey;
+    private final int slaveId;
+    private final int baudRate;
+    private final int bitsPerChar;
+
+    private CommSettings(ModbusTransport transport, ModbusInfo modbusInfo, String lineKey, int slaveId,
+            int baudRate, int bitsPerChar) {
+        this.transport = transport;
+        this.modbusInfo = modbusInfo;
+        this.lineKey = lineKey;
+        this.slaveId = slaveId;
+        this.baudRate = baudRate;
+        this.bitsPerChar = bitsPerChar;
+    }
+
+    /**
+     * @param deviceId 设备ID，用于错误信息
+     * @param commSettings 设备配置中的 comm_settings
+     * @throws IllegalArgumentException 通信方式不支持或缺少必需项
+     */
+    public static CommSettings parse(Object deviceId, Map<String, Object> commSettings) {
+        ModbusTransport transport = ModbusTransport.fromConfig(commSettings.get("transport"));
+        ModbusInfo info = transport.isNetwork()
+                ? buildTcpInfo(deviceId, transport, commSettings)
+                : buildSerialInfo(deviceId, transport, commSettings);
+        int slaveId = commSettings.get("slaveId") instanceof Integer ? (Integer) commSettings.get("slaveId") : 1;
+        int baudRate = 0;
+        int bitsPerChar = 0;
+        if (!transport.isNetwork()) {
+            baudRate = (Integer) commSettings.get("baudRate");
+            // 起始位 + 数据位 + 校验位 + 停止位
+            bitsPerChar = 1 + (Integer) commSettings.get("numDataBit") + (Integer) commSettings.get("numStopBit")
+                    + ("N".equals(commSettings.get("parity")) ? 0 : 1);
+        }
+        return new CommSettings(transport, info, transport.lineKey(commSettings), slaveId, baudRate, bitsPerChar);
+    }
+
+    private static ModbusInfo buildSerialInfo(Object deviceId, ModbusTransport transport,
+            Map<String, Object> commSettings) {
+        requireSettings(deviceId, transport, commSettings, "port", "baudRate", "numDataBit", "numStopBit", "parity",
+                "slaveId");
+        int parity;
+        switch ((String) commSettings.get("parity")) {
+            case "N":
+                parity = SerialPort.NO_PARITY;
+                break;
+            case "E":
+                parity = SerialPort.EVEN_PARITY;
+                break;
+            case "O":
+                parity = SerialPort.ODD_PARITY;
+                break;
+            default:
+                parity = SerialPort.NO_PARITY;
+        }
+        return new ModbusSerialInfo(
+            (String) commSettings.get("port"),
+            (Integer) commSettings.get("baudRate"),
+            (Integer) commSettings.get("numDataBit"),
+            (Integer) commSettings.get("numStopBit"),
+            parity,
+            (Integer) commSettings.getOrDefault("timeout", DEFAULT_TIMEOUT_MILLIS),
+            (Integer) commSettings.get("slaveId")
+        );
+    }
+
+    private static ModbusInfo buildTcpInfo(Object deviceId, ModbusTransport transport,
+            Map<String, Object> commSettings) {
+        requireSettings(deviceId, transport, commSettings, "ip", "slaveId");
+        ModbusTcpInfo tcpInfo = new ModbusTcpInfo(
+            (String) commSettings.get("ip"),
+            ModbusTransport.tcpPort(commSettings),
+            (Integer) commSettings.getOrDefault("timeout", DEFAULT_TIMEOUT_MILLIS),
+            (Integer) commSettings.get("slaveId")
+        );
+        // 透明传输的串口服务器：TCP上直接承载RTU帧（含CRC，无MBAP报文头）
+        tcpInfo.setEncapsulated(transport == ModbusTransport.RTU_OVER_TCP);
+        return tcpInfo;
+    }
+
+    private static void requireSettings(Object deviceId, ModbusTransport transport, Map<String, Object> commSettings,
+            String... keys) {
+        for (String key : keys) {
+            if (commSettings.get(key) == null) {
+                throw new IllegalArgumentException("设备" + deviceId + "的comm_settings缺少" + key
+                        + "（transport: " + transport.getConfigValue() + "）");
+            }
+        }
+    }
+
+    public ModbusTransport getTransport() {
+        return transport;
+    }
+
+    public ModbusInfo getModbusInfo() {
+        return modbusInfo;
+    }
+
+    /**
+     * 线路标识：串口名或 ip:port
+     */
+    public String getLineKey() {
+        return lineKey;
+    }
+
+    public int getSlaveId() {
+        return slaveId;
+    }
+
+    /**
+     * 读取 count 个寄存器的一次事务占用线路的时间（微秒）
+     */
+    public long readTransactionMicros(int count) {
+        return transport.readTransactionMicros(count, baudRate, bitsPerChar);
+    }
+}
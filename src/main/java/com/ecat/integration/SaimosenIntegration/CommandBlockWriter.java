@@ -0,0 +1,106 @@
+package com.ecat.integration.SaimosenIntegration;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.function.Consumer;
+
+import com.ecat.integration.ModbusIntegration.ModbusSource;
+import com.serotonin.modbus4j.msg.ModbusResponse;
+import com.serotonin.modbus4j.msg.WriteRegisterResponse;
+import com.serotonin.modbus4j.msg.WriteRegistersResponse;
+
+/**
+ * 一段连续命令/参数寄存器的写入
+ *
+ * <p>允许时合并为一次写多个寄存器事务（功能码0x10），否则按地址顺序逐个写单个寄存器（功能码0x06），
+ * 前一个写入成功后才下发下一个。从站以非法功能、非法数据地址或非法数据值拒绝写多个寄存器时，
+ * 本次改为逐个写入，之后也不再使用写多个寄存器；超时不回退，写多个寄存器可能已生效，逐个重写会重复触发命令。</p>
+ *
+ * <p>单个和多个寄存器的写事务由设备提供（计入线路统计、帧跟踪和在途事务）。</p>
+ *
+ * @version V1.0
+ */
+public class CommandBlockWriter {
+
+    /**
+     * 写单个寄存器事务
+     */
+    public interface SingleWrite {
+        CompletableFuture<WriteRegisterResponse> write(ModbusSource source, String command, int address, int value);
+    }
+
+    /**
+     * 写多个寄存器事务
+     */
+    public interface MultipleWrite {
+        CompletableFuture<WriteRegistersResponse> write(ModbusSource source, String command, int startAddress,
+                short[] registers);
+    }
+
+    private final SingleWrite single;
+    private final MultipleWrite multiple;
+    private volatile boolean multipleRejected = false;
+
+    public CommandBlockWriter(SingleWrite single, MultipleWrite multiple) {
+        this.single = single;
+        this.multiple = multiple;
+    }
+
+    /**
+     * 从站是否拒绝过写多个寄存器
+     */
+    public boolean isMultipleRejected() {
+        return multipleRejected;
+    }
+
+    /**
+     * 按地址顺序写一段连续的寄存器
+     * @param useMultiple 是否合并为一次写多个寄存器事务（少于2个寄存器时总是逐个写入）
+     * @param onRejected 从站拒绝写多个寄存器、改为逐个写入时以异常信息调用
+     * @return 全部写入成功时完成，异常响应或通讯失败时以异常结束
+     */
+    public CompletableFuture<Void> write(ModbusSource source, String command, int startAddress, int[] values,
+            boolean useMultiple, Consumer<String> onRejected) {
+        if (values.length < 2 || !useMultiple || multipleRejected) {
+            return writeSingle(source, command, startAddress, values, 0);
+        }
+        short[] registers = new short[values.length];
+        for (int i = 0; i < values.length; i++) {
+            registers[i] = (short) values[i];
+        }
+        return multiple.write(source, command, startAddress, registers).thenCompose(response -> {
+            if (response != null && !response.isException()) {
+                return CompletableFuture.completedFuture(null);
+            }
+            if (response != null && isMultipleWriteUnsupported(response.getExceptionCode())) {
+                multipleRejected = true;
+                onRejected.accept(response.getExceptionMessage());
+                return writeSingle(source, command, startAddress, values, 0);
+            }
+            throw failure(response);
+        });
+    }
+
+    private CompletableFuture<Void> writeSingle(ModbusSource source, String command, int startAddress, int[] values,
+            int index) {
+        if (index >= values.length) {
+            return CompletableFuture.completedFuture(null);
+        }
+        return single.write(source, command, startAddress + index, values[index]).thenCompose(response -> {
+            if (response == null || response.isException()) {
+                throw failure(response);
+            }
+            return writeSingle(source, command, startAddress, values, index + 1);
+        });
+    }
+
+    private static boolean isMultipleWriteUnsupported(int exceptionCode) {
+        // 非法功能、非法数据地址、非法数据值
+        return exceptionCode == 1 || exceptionCode == 2 || exceptionCode == 3;
+    }
+
+    private static CompletionException failure(ModbusResponse response) {
+        return new CompletionException(new IllegalStateException(
+                "命令下发失败: " + (response == null ? "no response" : response.getExceptionMessage())));
+    }
+}
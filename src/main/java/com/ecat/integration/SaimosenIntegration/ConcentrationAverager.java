@@ -0,0 +1,308 @@
+package com.ecat.integration.SaimosenIntegration;
+
+import com.ecat.core.Device.DeviceStatus;
+import com.ecat.core.State.AttributeStatus;
+
+/**
+ * 浓度分钟/5分钟/小时均值的增量计算
+ *
+ * <p>每个采样周期调用一次 {@link #add}，每个窗口每列只保存累加和与计数（O(1)），
+ * 采样时间跨过窗口边界时关闭上一个窗口并通过 {@link Listener} 输出均值和有效性标记。
+ * 窗口按 epoch 毫秒对齐（整分钟、整5分钟、整小时）。</p>
+ *
+ * <p>有效性：设备处于零点校准、跨度校准或维护状态，或属性状态为 ZERO_CALIBRATION、
+ * SPAN_CALIBRATION、MAINTENANCE、MALFUNCTION 时该样本无效；数值为NaN或属性状态为 EMPTY
+ * 时视为缺测，不计入样本数。有效样本数与窗口应有的样本数（窗口时长 / 采样周期）之比不低于
+ * {@code minValidFraction} 时均值有效（标记为 NORMAL），否则标记为无效样本中最多的那种状态，
+ * 没有无效样本（只是缺测或通讯中断）时标记为 MALFUNCTION；均值只由有效样本计算。
+ * 设备启动或停止所在的不完整窗口因此通常无效。</p>
+ *
+ * <p>非线程安全，由设备的轮询线程调用。</p>
+ *
+ * @version V1.0
+ */
+public class ConcentrationAverager {
+
+    public static final double DEFAULT_MIN_VALID_FRACTION = 0.75;
+    public static final long DEFAULT_SAMPLE_PERIOD_MILLIS = SmsDeviceBase.POLL_PERIOD_MILLIS;
+
+    /**
+     * 均值窗口
+     */
+    public enum Window {
+        ONE_MINUTE("1m", 60_000L),
+        FIVE_MINUTES("5m", 300_000L),
+        ONE_HOUR("1h", 3_600_000L);
+
+        private final String suffix;
+        private final long millis;
+
+        Window(String suffix, long millis) {
+            this.suffix = suffix;
+            this.millis = millis;
+        }
+
+        /**
+         * 属性ID后缀，如 1m、5m、1h
+         */
+        public String getSuffix() {
+            return suffix;
+        }
+
+        public long getMillis() {
+            return millis;
+        }
+    }
+
+    /**
+     * 窗口关闭回调
+     */
+    public interface Listener {
+        void onWindowClosed(int column, Average average);
+    }
+
+    private static final int REASON_ZERO = 0;
+    private static final int REASON_SPAN = 1;
+    private static final int REASON_MAINTENANCE = 2;
+    private static final int REASON_MALFUNCTION = 3;
+    private static final AttributeStatus[] REASON_STATUS = {
+        AttributeStatus.ZERO_CALIBRATION, AttributeStatus.SPAN_CALIBRATION,
+        AttributeStatus.MAINTENANCE, AttributeStatus.MALFUNCTION
+    };
+
+    private final int columns;
+    private final long samplePeriodMillis;
+    private final double minValidFraction;
+    private final Listener listener;
+    /** [窗口][列] */
+    private final Accumulator[][] accumulators;
+
+    /**
+     * 按默认采样周期（设备轮询周期）计算应有的样本数
+     */
+    public ConcentrationAverager(int columns, double minValidFraction, Listener listener) {
+        this(columns, DEFAULT_SAMPLE_PERIOD_MILLIS, minValidFraction, listener);
+    }
+
+    /**
+     * @param columns 列数
+     * @param samplePeriodMillis 采样周期（毫秒），用于计算窗口应有的样本数
+     * @param minValidFraction 有效样本数占应有样本数的最低比例
+     * @param listener 窗口关闭回调
+     */
+    public ConcentrationAverager(int columns, long samplePeriodMillis, double minValidFraction, Listener listener) {
+        if (samplePeriodMillis <= 0) {
+            throw new IllegalArgumentException("sample period must be positive");
+        }
+        this.columns = columns;
+        this.samplePeriodMillis = samplePeriodMillis;
+        this.minValidFraction = minValidFraction;
+        this.listener = listener;
+        Window[] windows = Window.values();
+        this.accumulators = new Accumulator[windows.length][columns];
+        for (int w = 0; w < windows.length; w++) {
+            for (int c = 0; c < columns; c++) {
+                accumulators[w][c] = new Accumulator(windows[w]);
+            }
+        }
+    }
+
+    /**
+     * 加入一个采样周期的各列数值
+     * @param timestamp 采样时间（毫秒）
+     * @param values 各列数值，调用方可复用数组
+     * @param statuses 各列属性状态，调用方可复用数组
+     * @param deviceStatus 设备状态，可为null
+     */
+    public void add(long timestamp, double[] values, AttributeStatus[] statuses, DeviceStatus deviceStatus) {
+        int deviceReason = deviceReason(deviceStatus);
+        for (Accumulator[] window : accumulators) {
+            for (int c = 0; c < columns; c++) {
+                Accumulator accumulator = window[c];
+                long windowStart = timestamp - Math.floorMod(timestamp, accumulator.window.millis);
+                if (windowStart < accumulator.windowStart) {
+                    // 时钟回退，丢弃已关闭窗口内的样本
+                    continue;
+                }
+                if (windowStart > accumulator.windowStart) {
+                    close(c, accumulator);
+                    accumulator.reset(windowStart);
+                }
+                accumulator.add(values[c], statuses[c], deviceReason);
+            }
+        }
+    }
+
+    /**
+     * 关闭所有未结束的窗口并输出（如设备停止时）
+     */
+    public void flush() {
+        for (Accumulator[] window : accumulators) {
+            for (int c = 0; c < columns; c++) {
+                close(c, window[c]);
+                window[c].reset(window[c].windowStart);
+            }
+        }
+    }
+
+    private void close(int column, Accumulator accumulator) {
+        if (accumulator.samples == 0) {
+            return;
+        }
+        int expectedSamples = (int) Math.max(1, accumulator.window.millis / samplePeriodMillis);
+        boolean valid = accumulator.validSamples > 0
+                && accumulator.validSamples >= minValidFraction * expectedSamples;
+        AttributeStatus flag = AttributeStatus.NORMAL;
+        if (!valid) {
+            int reason = REASON_MALFUNCTION;
+            for (int r = 0; r < REASON_STATUS.length; r++) {
+                if (accumulator.reasons[r] > accumulator.reasons[reason]) {
+                    reason = r;
+                }
+            }
+            flag = REASON_STATUS[reason];
+        }
+        double mean = accumulator.validSamples > 0 ? accumulator.sum / accumulator.validSamples : Double.NaN;
+        listener.onWindowClosed(column, new Average(accumulator.window, accumulator.windowStart, mean, flag,
+                accumulator.validSamples, accumulator.samples, expectedSamples));
+    }
+
+    private static int deviceReason(DeviceStatus deviceStatus) {
+        if (deviceStatus == null) {
+            return -1;
+        }
+        switch (deviceStatus) {
+            case ZERO_CALIBRATION:
+                return REASON_ZERO;
+            case SPAN_CALIBRATION:
+                return REASON_SPAN;
+            case MAINTENANCE:
+                return REASON_MAINTENANCE;
+            default:
+                return -1;
+        }
+    }
+
+    private static int attributeReason(AttributeStatus status) {
+        switch (status) {
+            case ZERO_CALIBRATION:
+                return REASON_ZERO;
+            case SPAN_CALIBRATION:
+                return REASON_SPAN;
+            case MAINTENANCE:
+                return REASON_MAINTENANCE;
+            case MALFUNCTION:
+                return REASON_MALFUNCTION;
+            default:
+                return -1;
+        }
+    }
+
+    private static final class Accumulator {
+        final Window window;
+        final int[] reasons = new int[REASON_STATUS.length];
+        long windowStart = Long.MIN_VALUE;
+        double sum;
+        int validSamples;
+        int samples;
+
+        Accumulator(Window window) {
+            this.window = window;
+        }
+
+        void reset(long start) {
+            windowStart = start;
+            sum = 0;
+            validSamples = 0;
+            samples = 0;
+            for (int r = 0; r < reasons.length; r++) {
+                reasons[r] = 0;
+            }
+        }
+
+        void add(double value, AttributeStatus status, int deviceReason) {
+            if (status == null || status == AttributeStatus.EMPTY) {
+                return;
+            }
+            int reason = deviceReason >= 0 ? deviceReason : attributeReason(status);
+            if (reason < 0 && Double.isNaN(value)) {
+                return;
+            }
+            samples++;
+            if (reason >= 0) {
+                reasons[reason]++;
+            } else {
+                sum += value;
+                validSamples++;
+            }
+        }
+    }
+
+    /**
+     * 一个已关闭窗口的均值
+     */
+    public static final class Average {
+        private final Window window;
+        private final long windowStart;
+        private final double mean;
+        private final AttributeStatus flag;
+        private final int validSamples;
+        private final int samples;
+        private final int expectedSamples;
+
+        public Average(Window window, long windowStart, double mean, AttributeStatus flag, int validSamples,
+                int samples, int expectedSamples) {
+            this.window = window;
+            this.windowStart = windowStart;
+            this.mean = mean;
+            this.flag = flag;
+            this.validSamples = validSamples;
+            this.samples = samples;
+            this.expectedSamples = expectedSamples;
+        }
+
+        public Window getWindow() {
+            return window;
+        }
+
+        public long getWindowStart() {
+            return windowStart;
+        }
+
+        /**
+         * 有效样本的均值，没有有效样本时为NaN
+         */
+        public double getMean() {
+            return mean;
+        }
+
+        /**
+         * 有效性标记：有效为 NORMAL，无效为主要原因对应的状态
+         */
+        public AttributeStatus getFlag() {
+            return flag;
+        }
+
+        public boolean isValid() {
+            return flag == AttributeStatus.NORMAL;
+        }
+
+        public int getValidSamples() {
+            return validSamples;
+        }
+
+        /**
+         * 收到的样本数（有效和无效，不含缺测）
+         */
+        public int getSamples() {
+            return samples;
+        }
+
+        /**
+         * 窗口应有的样本数（窗口时长 / 采样周期），有效性按此计算
+         */
+        public int getExpectedSamples() {
+            return expectedSamples;
+        }
+    }
+}
@@ -0,0 +1,59 @@
+package com.ecat.integration.SaimosenIntegration;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * 校准时的快速轮询
+ *
+ * <p>周期大于0时，在设备的定时轮询之外每次轮询完成后间隔一个周期再读一次，轮询事务仍在线路队列中排队；
+ * 修改周期或停止时，已排定的下一次轮询取消，进行中的轮询结束后不再排定。</p>
+ *
+ * @version V1.0
+ */
+public class FastPoller {
+
+    private final Supplier<ScheduledExecutorService> executor;
+    private final Supplier<CompletableFuture<?>> poll;
+    private long generation;
+    private ScheduledFuture<?> future;
+
+    /**
+     * @param executor 排定下一次轮询的调度器
+     * @param poll 执行一次轮询周期
+     */
+    public FastPoller(Supplier<ScheduledExecutorService> executor, Supplier<CompletableFuture<?>> poll) {
+        this.executor = executor;
+        this.poll = poll;
+    }
+
+    /**
+     * @param periodMillis 快速轮询周期（毫秒），0 停止
+     */
+    public synchronized void setPeriod(long periodMillis) {
+        generation++;
+        if (future != null) {
+            future.cancel(false);
+            future = null;
+        }
+        if (periodMillis > 0) {
+            schedule(generation, periodMillis);
+        }
+    }
+
+    public synchronized boolean isActive() {
+        return future != null;
+    }
+
+    private synchronized void schedule(long scheduledGeneration, long periodMillis) {
+        if (scheduledGeneration != generation) {
+            return;
+        }
+        future = executor.get().schedule(() -> poll.get()
+                .whenComplete((ok, throwable) -> schedule(scheduledGeneration, periodMillis)),
+                periodMillis, TimeUnit.MILLISECONDS);
+    }
+}
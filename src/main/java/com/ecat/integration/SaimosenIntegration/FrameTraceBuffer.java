@@ -0,0 +1,301 @@
+package com.ecat.integration.SaimosenIntegration;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 单设备Modbus帧跟踪环形缓冲区
+ *
+ * <p>保存最近 N 条请求/响应帧及时间戳，用于替代全局的 {@code ModbusConfig.setEnableDataLog}：
+ * 只对需要排查的设备打开，不影响同一JVM中的其他设备。</p>
+ *
+ * <p>帧内容由设备侧的请求参数和响应数据重建，不是线路上抓到的原始字节：串口和RTU透传为RTU帧
+ * （地址 + 功能码 + 数据 + CRC16），Modbus TCP为MBAP报文头 + 单元标识 + 功能码 + 数据。
+ * MBAP的事务标识是本缓冲区的请求计数，请求帧与对应的响应帧相同，不是报文中实际使用的值。
+ * 超时等没有响应的情况记录为带说明的空帧。</p>
+ *
+ * <p>关闭时 {@link #isEnabled()} 只是一次volatile读，调用方应先判断再构造帧，关闭状态下没有任何分配。</p>
+ *
+ * @version V1.0
+ */
+public class FrameTraceBuffer {
+
+    public static final int DEFAULT_CAPACITY = 64;
+
+    /**
+     * 帧方向
+     */
+    public enum Direction {
+        TX,
+        RX
+    }
+
+    private final Frame[] frames;
+    private final AtomicInteger transactionIds = new AtomicInteger();
+    private volatile boolean enabled;
+    private long sequence;
+
+    public FrameTraceBuffer(int capacity) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("capacity must be positive");
+        }
+        this.frames = new Frame[capacity];
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * 打开或关闭跟踪，关闭时清空已有内容
+     */
+    public synchronized void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+        if (!enabled) {
+            clear();
+        }
+    }
+
+    public int getCapacity() {
+        return frames.length;
+    }
+
+    /**
+     * 记录一帧
+     * @param direction 方向
+     * @param data 帧字节，没有响应时为空数组
+     * @param note 说明，例如 "timeout"，可为null
+     */
+    public void record(Direction direction, byte[] data, String note) {
+        if (!enabled) {
+            return;
+        }
+        Frame frame = new Frame(System.currentTimeMillis(), direction, data, note);
+        synchronized (this) {
+            frames[(int) (sequence % frames.length)] = frame;
+            sequence++;
+        }
+    }
+
+    /**
+     * 记录一个请求帧
+     * @param rtuFrame 按RTU格式构造的帧
+     * @param mbap 是否转换为MBAP格式（Modbus TCP）
+     * @param note 说明，例如命令名称，可为null
+     * @return 事务标识，对应的响应帧用 {@link #recordResponse} 以同一标识记录
+     */
+    public int recordRequest(byte[] rtuFrame, boolean mbap, String note) {
+        int transactionId = transactionIds.incrementAndGet() & 0xFFFF;
+        record(Direction.TX, mbap ? toMbap(rtuFrame, transactionId) : rtuFrame, note);
+        return transactionId;
+    }
+
+    /**
+     * 记录一个响应帧
+     * @param transactionId {@link #recordRequest} 返回的事务标识
+     * @param rtuFrame 按RTU格式构造的帧，没有响应时为空数组
+     * @param mbap 是否转换为MBAP格式（Modbus TCP）
+     * @param note 说明，可为null
+     */
+    public void recordResponse(int transactionId, byte[] rtuFrame, boolean mbap, String note) {
+        record(Direction.RX, mbap ? toMbap(rtuFrame, transactionId) : rtuFrame, note);
+    }
+
+    /**
+     * 按时间顺序返回缓冲区中的帧
+     */
+    public synchronized List<Frame> snapshot() {
+        int size = (int) Math.min(sequence, frames.length);
+        List<Frame> result = new ArrayList<>(size);
+        for (long i = sequence - size; i < sequence; i++) {
+            result.add(frames[(int) (i % frames.length)]);
+        }
+        return Collections.unmodifiableList(result);
+    }
+
+    public synchronized void clear() {
+        for (int i = 0; i < frames.length; i++) {
+            frames[i] = null;
+        }
+        sequence = 0;
+    }
+
+    /**
+     * 构造读保持寄存器请求帧（功能码0x03）
+     */
+    public static byte[] readRequestFrame(int slaveId, int startAddress, int count) {
+        return withCrc(new byte[] {
+                (byte) slaveId, 0x03,
+                (byte) (startAddress >> 8), (byte) startAddress,
+                (byte) (count >> 8), (byte) count});
+    }
+
+    /**
+     * 构造读保持寄存器响应帧（功能码0x03）
+     */
+    public static byte[] readResponseFrame(int slaveId, short[] registers) {
+        int length = registers == null ? 0 : registers.length;
+        byte[] pdu = new byte[3 + length * 2];
+        pdu[0] = (byte) slaveId;
+        pdu[1] = 0x03;
+        pdu[2] = (byte) (length * 2);
+        for (int i = 0; i < length; i++) {
+            pdu[3 + i * 2] = (byte) (registers[i] >> 8);
+            pdu[4 + i * 2] = (byte) registers[i];
+        }
+        return withCrc(pdu);
+    }
+
+    /**
+     * 构造写单个寄存器帧（功能码0x06，请求与正常响应相同）
+     */
+    public static byte[] writeSingleFrame(int slaveId, int address, int value) {
+        return withCrc(new byte[] {
+                (byte) slaveId, 0x06,
+                (byte) (address >> 8), (byte) address,
+                (byte) (value >> 8), (byte) value});
+    }
+
+    /**
+     * 构造写多个寄存器请求帧（功能码0x10）
+     */
+    public static byte[] writeMultipleRequestFrame(int slaveId, int startAddress, short[] registers) {
+        int length = registers.length;
+        byte[] pdu = new byte[7 + length * 2];
+        pdu[0] = (byte) slaveId;
+        pdu[1] = 0x10;
+        pdu[2] = (byte) (startAddress >> 8);
+        pdu[3] = (byte) startAddress;
+        pdu[4] = (byte) (length >> 8);
+        pdu[5] = (byte) length;
+        pdu[6] = (byte) (length * 2);
+        for (int i = 0; i < length; i++) {
+            pdu[7 + i * 2] = (byte) (registers[i] >> 8);
+            pdu[8 + i * 2] = (byte) registers[i];
+        }
+        return withCrc(pdu);
+    }
+
+    /**
+     * 构造写多个寄存器响应帧（功能码0x10）
+     */
+    public static byte[] writeMultipleResponseFrame(int slaveId, int startAddress, int count) {
+        return withCrc(new byte[] {
+                (byte) slaveId, 0x10,
+                (byte) (startAddress >> 8), (byte) startAddress,
+                (byte) (count >> 8), (byte) count});
+    }
+
+    /**
+     * 构造写寄存器请求帧：1个寄存器为写单个寄存器（功能码0x06），多个为写多个寄存器（功能码0x10）
+     */
+    public static byte[] writeRequestFrame(int slaveId, int startAddress, short[] registers) {
+        return registers.length == 1
+                ? writeSingleFrame(slaveId, startAddress, registers[0])
+                : writeMultipleRequestFrame(slaveId, startAddress, registers);
+    }
+
+    /**
+     * 构造 {@link #writeRequestFrame} 对应的正常响应帧
+     */
+    public static byte[] writeResponseFrame(int slaveId, int startAddress, short[] registers) {
+        return registers.length == 1
+                ? writeSingleFrame(slaveId, startAddress, registers[0])
+                : writeMultipleResponseFrame(slaveId, startAddress, registers.length);
+    }
+
+    /**
+     * 构造异常响应帧
+     */
+    public static byte[] exceptionFrame(int slaveId, int functionCode, int exceptionCode) {
+        return withCrc(new byte[] {(byte) slaveId, (byte) (functionCode | 0x80), (byte) exceptionCode});
+    }
+
+    /**
+     * 把RTU帧转换为Modbus TCP帧：去掉CRC，加上MBAP报文头（事务标识 + 协议标识0 + 长度），空帧保持为空
+     */
+    static byte[] toMbap(byte[] rtuFrame, int transactionId) {
+        if (rtuFrame.length < 2) {
+            return rtuFrame;
+        }
+        int length = rtuFrame.length - 2; // 单元标识 + 功能码 + 数据
+        byte[] frame = new byte[6 + length];
+        frame[0] = (byte) (transactionId >> 8);
+        frame[1] = (byte) transactionId;
+        frame[4] = (byte) (length >> 8);
+        frame[5] = (byte) length;
+        System.arraycopy(rtuFrame, 0, frame, 6, length);
+        return frame;
+    }
+
+    static byte[] withCrc(byte[] pdu) {
+        int crc = crc16(pdu, pdu.length);
+        byte[] frame = new byte[pdu.length + 2];
+        System.arraycopy(pdu, 0, frame, 0, pdu.length);
+        frame[pdu.length] = (byte) crc;           // CRC低字节在前
+        frame[pdu.length + 1] = (byte) (crc >> 8);
+        return frame;
+    }
+
+    static int crc16(byte[] data, int length) {
+        int crc = 0xFFFF;
+        for (int i = 0; i < length; i++) {
+            crc ^= data[i] & 0xFF;
+            for (int bit = 0; bit < 8; bit++) {
+                crc = (crc & 1) != 0 ? (crc >>> 1) ^ 0xA001 : crc >>> 1;
+            }
+        }
+        return crc & 0xFFFF;
+    }
+
+    /**
+     * 单条帧记录
+     */
+    public static class Frame {
+        private final long timestamp;
+        private final Direction direction;
+        private final byte[] data;
+        private final String note;
+
+        Frame(long timestamp, Direction direction, byte[] data, String note) {
+            this.timestamp = timestamp;
+            this.direction = direction;
+            this.data = data == null ? new byte[0] : data;
+            this.note = note;
+        }
+
+        public long getTimestamp() {
+            return timestamp;
+        }
+
+        public Direction getDirection() {
+            return direction;
+        }
+
+        public byte[] getData() {
+            return data.clone();
+        }
+
+        public String getNote() {
+            return note;
+        }
+
+        public String toHex() {
+            StringBuilder sb = new StringBuilder(data.length * 3);
+            for (int i = 0; i < data.length; i++) {
+                if (i > 0) {
+                    sb.append(' ');
+                }
+                sb.append(String.format("%02X", data[i] & 0xFF));
+            }
+            return sb.toString();
+        }
+
+        @Override
+        public String toString() {
+            return timestamp + " " + direction + " " + toHex() + (note == null ? "" : " (" + note + ")");
+        }
+    }
+}
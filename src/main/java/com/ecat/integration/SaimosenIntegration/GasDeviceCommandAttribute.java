@@ -1,21 +1,28 @@
 package com.ecat.integration.SaimosenIntegration;
 
+import com.ecat.core.Device.DeviceBase;
 import com.ecat.core.State.*;
 import com.ecat.integration.ModbusIntegration.ModbusSource;
 import com.ecat.integration.ModbusIntegration.ModbusTransactionStrategy;
+import com.serotonin.modbus4j.msg.WriteRegisterResponse;
 
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.concurrent.CompletableFuture;
+import java.util.function.Supplier;
 
 /**
  * 通用气体设备命令属性，支持灵活配置命令模板和返回判断规则。
- * 支持通过设备属性（如CALIBRATION_CONCENTRATION）动态拼接命令参数。
+ * 跨度校准开始命令写入绑定的校准浓度属性（calibration_concentration）的当前值，
+ * 写入成功后通过 {@link CalibrationWriteListener} 通知设备；
+ * {@link #sendCommandAndAwait} 在写入后等待设备校准状态确认命令生效。
  * 命令下发采用事务策略，确保原子性。
  * 使用工厂模式 + 策略模式支持不同气体类型的校准配置。
  */
-public class GasDeviceCommandAttribute extends StringCommandAttribute {
+public class GasDeviceCommandAttribute extends StringCommandAttribute implements ModbusSourceAware {
 
     /**
      * 命令类型枚举，六类校准命令
@@ -143,10 +150,14 @@ public class GasDeviceCommandAttribute extends StringCommandAttribute {
     }
 
     private final Map<String, CommandConfig> commandConfigMap;
-    private ModbusSource modbusSource;
+    private volatile ModbusSource modbusSource;
     private GasCommandConfigFactory factory;
-    // 设备引用，用于通知写入操作（防止竞态条件）
-    private Object deviceInstance; // 使用Object类型避免循环依赖
+    // 所属设备，用于命令追踪
+    private DeviceBase deviceInstance;
+    // 命令写入通知（校准浓度防止竞态条件，命令结果回读）
+    private CalibrationWriteListener writeListener;
+    // 跨度校准开始命令写入的校准浓度属性
+    private NumericAttribute concentrationAttribute;
 
     /**
      * 构造函数 - 使用工厂模式，支持I18n
@@ -176,6 +187,7 @@ public class GasDeviceCommandAttribute extends StringCommandAttribute {
      * 设置Modbus源
      * @param modbusSource Modbus源
      */
+    @Override
     public void setModbusSource(ModbusSource modbusSource) {
         this.modbusSource = modbusSource;
     }
@@ -191,11 +203,29 @@ public class GasDeviceCommandAttribute extends StringCommandAttribute {
     }
 
     /**
-     * 设置设备实例引用（用于通知写入操作，防止竞态条件）
+     * 绑定校准浓度属性，跨度校准开始命令写入其当前值，同时登记为依赖属性
+     * @param attribute 校准浓度属性
+     */
+    public void setConcentrationAttribute(NumericAttribute attribute) {
+        this.concentrationAttribute = attribute;
+        addDependencyAttribute(attribute);
+    }
+
+    /**
+     * 设置设备实例引用，设备实现 {@link CalibrationWriteListener} 时同时作为写入通知对象
      * @param device 设备实例
      */
-    public void setDeviceInstance(Object device) {
+    public void setDeviceInstance(DeviceBase device) {
         this.deviceInstance = device;
+        this.writeListener = device instanceof CalibrationWriteListener ? (CalibrationWriteListener) device : null;
+    }
+
+    /**
+     * 设置校准浓度写入通知对象
+     * @param listener 写入通知对象
+     */
+    public void setCalibrationWriteListener(CalibrationWriteListener listener) {
+        this.writeListener = listener;
     }
 
     /**
@@ -214,37 +244,42 @@ public class GasDeviceCommandAttribute extends StringCommandAttribute {
             return CompletableFuture.completedFuture(false);
         }
         
-        return ModbusTransactionStrategy.executeWithLambda(modbusSource, source -> {
-            // 确定要写入的值
-            final int writeValue;
-            if (config.needsConcentration) {
-                // 如果需要浓度参数，从依赖属性获取
-                double concentration = getConcentrationFromDependency();
-                writeValue = (int) concentration;
-            } else {
-                writeValue = config.writeValue;
+        // 确定要写入的值
+        final int writeValue;
+        if (config.needsConcentration) {
+            Double concentration = concentrationAttribute != null ? concentrationAttribute.getValue() : null;
+            if (concentration == null) {
+                log.warn("GasDeviceCommandAttribute - 校准浓度未设置，命令未下发: " + type +
+                        ", 气体类型: " + factory.getGasType());
+                return CompletableFuture.completedFuture(false);
             }
-            
-            return source.writeRegister(config.modbusAddress, writeValue).thenApply((response) -> {
+            writeValue = concentration.intValue();
+        } else {
+            writeValue = config.writeValue;
+        }
+        CalibrationWriteListener listener = writeListener;
+
+        return ModbusTransactionStrategy.executeWithLambda(modbusSource, source -> {
+            return SaimosenEvents.traceCommandWrite(traceDeviceId(), traceDeviceClass(), type,
+                    config.modbusAddress, writeValue,
+                    () -> recordBusWrite(type, config.modbusAddress, writeValue,
+                            () -> source.writeRegister(config.modbusAddress, writeValue)))
+                    .thenApply((response) -> {
                 if (response == null || response.isException()) {
-                    throw new RuntimeException("命令下发失败" + response.getExceptionMessage());
+                    throw new RuntimeException("命令下发失败: "
+                            + (response == null ? "no response" : response.getExceptionMessage()));
                 }
                 log.info("GasDeviceCommandAttribute - 校准命令执行成功: " + type +
                         ", 气体类型: " + factory.getGasType() +
                         ", 地址: 0x" + Integer.toHexString(config.modbusAddress).toUpperCase() +
                         ", 值: " + writeValue);
                 
-                // 如果写入的是校准浓度地址（0x3EB），通知设备以防止竞态条件
-                if (config.modbusAddress == 0x3EB && config.needsConcentration && deviceInstance != null) {
-                    try {
-                        // 使用反射调用设备的 markCalibrationWrite 方法
-                        java.lang.reflect.Method method = deviceInstance.getClass().getMethod("markCalibrationWrite", double.class);
-                        method.invoke(deviceInstance, (double) writeValue);
-                        log.debug("GasDeviceCommandAttribute - 已通知设备写入校准浓度: " + writeValue);
-                    } catch (Exception e) {
-                        // 如果设备不支持此方法，忽略错误（兼容性考虑）
-                        log.debug("GasDeviceCommandAttribute - 设备不支持 markCalibrationWrite 方法: " + e.getMessage());
+                if (listener != null) {
+                    // 写入的是校准浓度，通知设备以防止竞态条件
+                    if (config.needsConcentration) {
+                        listener.markCalibrationWrite(writeValue);
                     }
+                    listener.markCommandWrite(type);
                 }
                 
                 return true;
@@ -257,22 +292,70 @@ public class GasDeviceCommandAttribute extends StringCommandAttribute {
     }
     
     /**
-     * 从依赖属性获取校准浓度
-     * @return 校准浓度值
+     * 发送命令并等待分析仪校准状态（calibration_status，0x3EE）确认命令已生效：
+     * 开始命令进入零点/跨度校准状态，确认和取消命令回到测量状态。
+     * 写入成功只表示从站收到命令，返回的结果以设备实际状态为准。
+     * @param type 命令类型
+     * @param timeoutMillis 等待状态迁移的超时时间（毫秒）
+     * @return 状态已迁移为 true；写入失败、超时或未绑定设备为 false
      */
-    private double getConcentrationFromDependency() {
-        for (AttributeBase<?> attr : dependencyAttributes) {
-            if (attr instanceof NumericAttribute) {
-                NumericAttribute numAttr = (NumericAttribute) attr;
-                if ("CALIBRATION_CONCENTRATION".equals(numAttr.getAttributeID())) {
-                    return numAttr.getValue();
-                }
+    public CompletableFuture<Boolean> sendCommandAndAwait(String type, long timeoutMillis) {
+        CommandConfig config = commandConfigMap.get(type);
+        if (config == null || !(deviceInstance instanceof SmsDeviceBase)) {
+            return CompletableFuture.completedFuture(false);
+        }
+        SmsDeviceBase device = (SmsDeviceBase) deviceInstance;
+        AttributeAbility<?> status = device.getAttrs().get("calibration_status");
+        if (status == null) {
+            return CompletableFuture.completedFuture(false);
+        }
+        List<String> expected = Collections.singletonList(expectedCalibrationStatus(config.type));
+        return sendCommand(type).thenCompose(ok -> {
+            if (!Boolean.TRUE.equals(ok)) {
+                return CompletableFuture.completedFuture(false);
             }
+            return device.awaitObservedState(
+                    () -> CalibrationSequenceRunner.matches(status.getValue(), expected), timeoutMillis);
+        }).thenApply(confirmed -> {
+            if (!confirmed) {
+                log.warn("GasDeviceCommandAttribute - 校准状态未确认: " + type + ", 气体类型: " + factory.getGasType()
+                        + ", 当前状态: " + status.getValue());
+            }
+            return confirmed;
+        });
+    }
+
+    /**
+     * 命令生效后的校准状态
+     */
+    static String expectedCalibrationStatus(CommandType type) {
+        switch (type) {
+            case ZERO_CALIBRATION_START:
+                return CalibrationSequence.STATUS_ZERO_CALIBRATION;
+            case SPAN_CALIBRATION_START:
+                return CalibrationSequence.STATUS_SPAN_CALIBRATION;
+            default:
+                return CalibrationSequence.STATUS_MEASURE;
         }
-        return 0.0; // 默认值
     }
 
+    /**
+     * 写事务经所属设备的写入路径下发，计入线路统计和帧跟踪
+     */
+    private CompletableFuture<WriteRegisterResponse> recordBusWrite(String command, int address, int value,
+            Supplier<CompletableFuture<WriteRegisterResponse>> write) {
+        return deviceInstance instanceof SmsDeviceBase
+                ? ((SmsDeviceBase) deviceInstance).recordBusWrite(command, address, value, write)
+                : write.get();
+    }
+
+    private String traceDeviceId() {
+        return deviceInstance != null ? deviceInstance.getId() : "";
+    }
 
+    private String traceDeviceClass() {
+        return deviceInstance != null ? deviceInstance.getClass().getSimpleName() : factory.getGasType();
+    }
 
     /**
      * 获取当前气体类型
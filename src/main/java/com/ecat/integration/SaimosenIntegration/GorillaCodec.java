@@ -0,0 +1,340 @@
+package com.ecat.integration.SaimosenIntegration;
+
+import java.util.Arrays;
+
+/**
+ * 时序数据块编解码（Gorilla风格）
+ *
+ * <p>一个块内的行按列依次编码为位流：</p>
+ * <ul>
+ *   <li>时间戳：首个时间戳64位，之后为二阶差分（delta-of-delta），
+ *       按 0 / 7位 / 9位 / 12位 / 64位 五档前缀编码，周期稳定时每行约1位；</li>
+ *   <li>数值：每列先写1位标记，给出精度且整列可无损还原时为1并写4位精度，之后按
+ *       “数值×10^精度”（整数值的float，尾数低位全为零）编码，否则按原始float位编码；
+ *       首值32位，之后与前值异或：相同写1位，不同则写有效位（前导零和尾随零落在上一窗口内时复用窗口）；</li>
+ *   <li>状态：每列首值8位，之后相同写1位，变化写1+8位。</li>
+ * </ul>
+ *
+ * <p>数值在写入前按显示精度量化（{@link #quantize}），使不变的读数得到完全相同的位模式，
+ * 缓慢变化的浓度通常每点不到2字节。块之间相互独立，可单独解码。</p>
+ *
+ * @version V1.0
+ */
+public final class GorillaCodec {
+
+    private GorillaCodec() {
+    }
+
+    /**
+     * 按小数位数量化，precision小于0或数值为NaN时原样返回
+     */
+    public static float quantize(float value, int precision) {
+        if (precision < 0 || Float.isNaN(value) || Float.isInfinite(value)) {
+            return value;
+        }
+        double scale = POWERS_OF_TEN[Math.min(precision, POWERS_OF_TEN.length - 1)];
+        return (float) (Math.round(value * scale) / scale);
+    }
+
+    private static final double[] POWERS_OF_TEN = {1, 10, 100, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9};
+
+    /**
+     * 编码一个块
+     * @param timestamps 时间戳，单调不减
+     * @param values [列][行]
+     * @param statuses [列][行]
+     * @param rows 行数
+     */
+    public static byte[] encodeBlock(long[] timestamps, float[][] values, byte[][] statuses, int rows) {
+        return encodeBlock(timestamps, values, statuses, rows, null);
+    }
+
+    /**
+     * 编码一个块
+     * @param timestamps 时间戳，单调不减
+     * @param values [列][行]
+     * @param statuses [列][行]
+     * @param rows 行数
+     * @param precisions 各列精度（小数位数），为null或小于0时按原始float编码
+     */
+    public static byte[] encodeBlock(long[] timestamps, float[][] values, byte[][] statuses, int rows,
+            int[] precisions) {
+        BitWriter out = new BitWriter(rows * 2 + 16);
+        if (rows == 0) {
+            return out.toByteArray();
+        }
+        out.write(timestamps[0], 64);
+        long previousDelta = 0;
+        for (int i = 1; i < rows; i++) {
+            long delta = timestamps[i] - timestamps[i - 1];
+            long dod = delta - previousDelta;
+            previousDelta = delta;
+            if (dod == 0) {
+                out.writeBit(false);
+            } else if (dod >= -64 && dod <= 63) {
+                out.write(0b10, 2);
+                out.write(dod, 7);
+            } else if (dod >= -256 && dod <= 255) {
+                out.write(0b110, 3);
+                out.write(dod, 9);
+            } else if (dod >= -2048 && dod <= 2047) {
+                out.write(0b1110, 4);
+                out.write(dod, 12);
+            } else {
+                out.write(0b1111, 4);
+                out.write(dod, 64);
+            }
+        }
+
+        for (int c = 0; c < values.length; c++) {
+            float[] column = values[c];
+            int precision = precisions != null && c < precisions.length ? precisions[c] : -1;
+            double scale = isScalable(column, rows, precision) ? POWERS_OF_TEN[precision] : 0;
+            if (scale > 0) {
+                out.writeBit(true);
+                out.write(precision, 4);
+            } else {
+                out.writeBit(false);
+            }
+            int previous = scaledBits(column[0], scale);
+            out.write(previous, 32);
+            int windowLeading = -1;
+            int windowTrailing = 0;
+            for (int i = 1; i < rows; i++) {
+                int bits = scaledBits(column[i], scale);
+                int xor = bits ^ previous;
+                previous = bits;
+                if (xor == 0) {
+                    out.writeBit(false);
+                    continue;
+                }
+                out.writeBit(true);
+                int leading = Math.min(Integer.numberOfLeadingZeros(xor), 31);
+                int trailing = Integer.numberOfTrailingZeros(xor);
+                if (windowLeading >= 0 && leading >= windowLeading && trailing >= windowTrailing) {
+                    out.writeBit(false);
+                    out.write(xor >>> windowTrailing, 32 - windowLeading - windowTrailing);
+                } else {
+                    int meaningful = 32 - leading - trailing;
+                    out.writeBit(true);
+                    out.write(leading, 5);
+                    out.write(meaningful - 1, 5);
+                    out.write(xor >>> trailing, meaningful);
+                    windowLeading = leading;
+                    windowTrailing = trailing;
+                }
+            }
+        }
+
+        for (byte[] column : statuses) {
+            byte previous = column[0];
+            out.write(previous, 8);
+            for (int i = 1; i < rows; i++) {
+                if (column[i] == previous) {
+                    out.writeBit(false);
+                } else {
+                    previous = column[i];
+                    out.writeBit(true);
+                    out.write(previous, 8);
+                }
+            }
+        }
+        return out.toByteArray();
+    }
+
+    /**
+     * 解码一个块到调用方提供的数组
+     * @param values [列][行]，每列长度不小于rows
+     * @param statuses [列][行]，每列长度不小于rows
+     */
+    public static void decodeBlock(byte[] data, int rows, long[] timestamps, float[][] values, byte[][] statuses) {
+        if (rows == 0) {
+            return;
+        }
+        BitReader in = new BitReader(data);
+        timestamps[0] = in.read(64);
+        long previousDelta = 0;
+        for (int i = 1; i < rows; i++) {
+            long dod;
+            if (!in.readBit()) {
+                dod = 0;
+            } else if (!in.readBit()) {
+                dod = in.readSigned(7);
+            } else if (!in.readBit()) {
+                dod = in.readSigned(9);
+            } else if (!in.readBit()) {
+                dod = in.readSigned(12);
+            } else {
+                dod = in.read(64);
+            }
+            previousDelta += dod;
+            timestamps[i] = timestamps[i - 1] + previousDelta;
+        }
+
+        for (float[] column : values) {
+            double scale = in.readBit() ? POWERS_OF_TEN[(int) in.read(4)] : 0;
+            int previous = (int) in.read(32);
+            column[0] = unscale(previous, scale);
+            int windowLeading = 0;
+            int windowTrailing = 0;
+            for (int i = 1; i < rows; i++) {
+                if (in.readBit()) {
+                    if (in.readBit()) {
+                        windowLeading = (int) in.read(5);
+                        int meaningful = (int) in.read(5) + 1;
+                        windowTrailing = 32 - windowLeading - meaningful;
+                    }
+                    int xor = (int) in.read(32 - windowLeading - windowTrailing) << windowTrailing;
+                    previous ^= xor;
+                }
+                column[i] = unscale(previous, scale);
+            }
+        }
+
+        for (byte[] column : statuses) {
+            byte previous = (byte) in.read(8);
+            column[0] = previous;
+            for (int i = 1; i < rows; i++) {
+                if (in.readBit()) {
+                    previous = (byte) in.read(8);
+                }
+                column[i] = previous;
+            }
+        }
+    }
+
+    /**
+     * 整列的值均为该精度下量化后的数（或NaN），按整数编码后可无损还原
+     */
+    private static boolean isScalable(float[] column, int rows, int precision) {
+        if (precision < 0 || precision >= POWERS_OF_TEN.length) {
+            return false;
+        }
+        double scale = POWERS_OF_TEN[precision];
+        for (int i = 0; i < rows; i++) {
+            float value = column[i];
+            if (Float.isNaN(value)) {
+                continue;
+            }
+            double scaled = Math.rint(value * scale);
+            if (Math.abs(scaled) > MAX_EXACT_INTEGER
+                    || Float.floatToRawIntBits(unscale(Float.floatToRawIntBits((float) scaled), scale))
+                            != Float.floatToRawIntBits(value)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static int scaledBits(float value, double scale) {
+        if (scale == 0 || Float.isNaN(value)) {
+            return Float.floatToRawIntBits(value);
+        }
+        return Float.floatToRawIntBits((float) Math.rint(value * scale));
+    }
+
+    private static float unscale(int bits, double scale) {
+        float value = Float.intBitsToFloat(bits);
+        if (scale == 0 || Float.isNaN(value)) {
+            return value;
+        }
+        return (float) (value / scale);
+    }
+
+    /** float可精确表示的最大整数 */
+    private static final double MAX_EXACT_INTEGER = 1 << 24;
+
+    /**
+     * 位流写入（高位在前），按64位字累积
+     */
+    static final class BitWriter {
+        private byte[] buffer;
+        private int size;
+        private long current;
+        private int used;
+
+        BitWriter(int initialBytes) {
+            buffer = new byte[Math.max(16, initialBytes)];
+        }
+
+        void writeBit(boolean bit) {
+            write(bit ? 1 : 0, 1);
+        }
+
+        /**
+         * 写入value的低bits位（1~64）
+         */
+        void write(long value, int bits) {
+            if (bits < 64) {
+                value &= (1L << bits) - 1;
+            }
+            int free = 64 - used;
+            if (bits < free) {
+                current |= value << (free - bits);
+                used += bits;
+                return;
+            }
+            int rest = bits - free;
+            current |= value >>> rest;
+            flushWord();
+            current = rest == 0 ? 0 : value << (64 - rest);
+            used = rest;
+        }
+
+        byte[] toByteArray() {
+            byte[] result = Arrays.copyOf(buffer, size + ((used + 7) >>> 3));
+            for (int i = 0; i < (used + 7) >>> 3; i++) {
+                result[size + i] = (byte) (current >>> (56 - i * 8));
+            }
+            return result;
+        }
+
+        private void flushWord() {
+            if (size + 8 > buffer.length) {
+                buffer = Arrays.copyOf(buffer, buffer.length * 2);
+            }
+            for (int i = 0; i < 8; i++) {
+                buffer[size++] = (byte) (current >>> (56 - i * 8));
+            }
+            current = 0;
+        }
+    }
+
+    /**
+     * 位流读取（高位在前）
+     */
+    static final class BitReader {
+        private final byte[] buffer;
+        private long position;
+
+        BitReader(byte[] buffer) {
+            this.buffer = buffer;
+        }
+
+        boolean readBit() {
+            boolean bit = (buffer[(int) (position >>> 3)] & (0x80 >>> (position & 7))) != 0;
+            position++;
+            return bit;
+        }
+
+        long read(int bits) {
+            long value = 0;
+            int remaining = bits;
+            while (remaining > 0) {
+                int offset = (int) (position & 7);
+                int available = 8 - offset;
+                int take = Math.min(available, remaining);
+                int chunk = ((buffer[(int) (position >>> 3)] & 0xFF) >>> (available - take)) & ((1 << take) - 1);
+                value = (value << take) | chunk;
+                remaining -= take;
+                position += take;
+            }
+            return value;
+        }
+
+        long readSigned(int bits) {
+            long value = read(bits);
+            return (value << (64 - bits)) >> (64 - bits);
+        }
+    }
+}
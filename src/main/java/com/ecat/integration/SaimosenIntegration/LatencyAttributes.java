@@ -0,0 +1,73 @@
+package com.ecat.integration.SaimosenIntegration;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import com.ecat.core.State.AttributeBase;
+import com.ecat.core.State.AttributeClass;
+import com.ecat.core.State.AttributeStatus;
+import com.ecat.core.State.NumericAttribute;
+import com.ecat.core.State.Unit.NoConversionUnit;
+
+/**
+ * 轮询延迟诊断属性（`diagnostics.latency` 开启时创建）
+ *
+ * <p>每个阶段（{@link PollLatencyRecorder.Stage}）一组 `diag_<阶段>_p50/p99/max` 属性（毫秒），
+ * 设备用 {@link #create} 创建并挂上属性，每次发布前 {@link #update} 按 {@link PollLatencyRecorder}
+ * 的阶段快照刷新；尚无样本的阶段保持不变。</p>
+ *
+ * @version V1.0
+ */
+public final class LatencyAttributes {
+
+    private static final String[] SUFFIXES = {"p50", "p99", "max"};
+
+    private LatencyAttributes() {
+    }
+
+    /**
+     * 延迟诊断属性ID，如 diag_bus_p99
+     */
+    public static String attributeId(PollLatencyRecorder.Stage stage, String suffix) {
+        return "diag_" + stage.getKey() + "_" + suffix;
+    }
+
+    /**
+     * 创建全部阶段的延迟诊断属性
+     */
+    public static List<NumericAttribute> create() {
+        List<NumericAttribute> created = new ArrayList<>();
+        for (PollLatencyRecorder.Stage stage : PollLatencyRecorder.Stage.values()) {
+            for (String suffix : SUFFIXES) {
+                created.add(new NumericAttribute(attributeId(stage, suffix), AttributeClass.TIME,
+                        NoConversionUnit.of("ms", "ms"), NoConversionUnit.of("ms", "ms"), 2, false, false));
+            }
+        }
+        return created;
+    }
+
+    /**
+     * 按延迟统计刷新设备的延迟诊断属性
+     * @param recorder 设备的延迟统计
+     * @param attrs 设备属性
+     */
+    public static void update(PollLatencyRecorder recorder, Map<String, AttributeBase<?>> attrs) {
+        for (PollLatencyRecorder.Stage stage : PollLatencyRecorder.Stage.values()) {
+            LatencyHistogram.Snapshot snapshot = recorder.getStageSnapshot(stage);
+            if (snapshot.getCount() == 0) {
+                continue;
+            }
+            update(attrs, attributeId(stage, "p50"), snapshot.getP50Millis());
+            update(attrs, attributeId(stage, "p99"), snapshot.getP99Millis());
+            update(attrs, attributeId(stage, "max"), snapshot.getMaxMillis());
+        }
+    }
+
+    private static void update(Map<String, AttributeBase<?>> attrs, String attrId, double value) {
+        AttributeBase<?> attr = attrs.get(attrId);
+        if (attr instanceof NumericAttribute) {
+            ((NumericAttribute) attr).updateValue(value, AttributeStatus.NORMAL);
+        }
+    }
+}
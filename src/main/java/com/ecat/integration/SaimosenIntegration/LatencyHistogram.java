@@ -0,0 +1,200 @@
+package com.ecat.integration.SaimosenIntegration;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * 无锁延迟直方图（HdrHistogram风格的对数-线性分桶）
+ *
+ * <p>记录单位为微秒，每个2的幂区间再细分为32个子桶，相对误差约3%。
+ * 上限约67秒，远大于Modbus请求超时，更长的耗时按上限计入。
+ * 记录路径只有一次数组下标计算和一次原子自增，不分配对象、不加锁，
+ * 可以直接放在Modbus回调线程上。</p>
+ *
+ * <p>滚动窗口由若干个时间槽组成，每个槽覆盖 slotMillis 毫秒，
+ * 快照时只合并仍在窗口内的槽。槽切换时的清零与并发记录之间存在极小的竞争，
+ * 最多丢失切换瞬间的个别样本，对统计结果没有实际影响。</p>
+ *
+ * @version V1.0
+ */
+public class LatencyHistogram {
+
+    private static final int SUB_BUCKET_BITS = 5;
+    private static final int SUB_BUCKET_COUNT = 1 << SUB_BUCKET_BITS; // 32
+    private static final int MAX_SHIFT = 20; // 最大可记录约 2^26 微秒（约67秒）
+    private static final int BUCKET_COUNT = SUB_BUCKET_COUNT + (MAX_SHIFT + 1) * SUB_BUCKET_COUNT;
+    private static final long MAX_TRACKABLE_MICROS = (2L * SUB_BUCKET_COUNT << MAX_SHIFT) - 1;
+
+    private final long slotMillis;
+    private final Slot[] slots;
+
+    /**
+     * @param slotMillis 每个时间槽的长度（毫秒）
+     * @param slotCount 窗口内的槽数量，窗口长度 = slotMillis * slotCount
+     */
+    public LatencyHistogram(long slotMillis, int slotCount) {
+        if (slotMillis <= 0 || slotCount <= 0) {
+            throw new IllegalArgumentException("slotMillis and slotCount must be positive");
+        }
+        this.slotMillis = slotMillis;
+        this.slots = new Slot[slotCount];
+        for (int i = 0; i < slotCount; i++) {
+            slots[i] = new Slot();
+        }
+    }
+
+    /**
+     * 记录一次耗时
+     * @param nanos 耗时（纳秒）
+     */
+    public void recordNanos(long nanos) {
+        recordNanos(nanos, System.currentTimeMillis());
+    }
+
+    void recordNanos(long nanos, long nowMillis) {
+        long micros = nanos <= 0 ? 0 : nanos / 1000;
+        if (micros > MAX_TRACKABLE_MICROS) {
+            micros = MAX_TRACKABLE_MICROS;
+        }
+        long epoch = nowMillis / slotMillis;
+        Slot slot = slots[(int) (epoch % slots.length)];
+        long slotEpoch = slot.epoch.get();
+        if (slotEpoch != epoch) {
+            if (slotEpoch > epoch) {
+                return; // 时钟回拨或线程长时间挂起后的迟到样本，直接丢弃
+            }
+            if (slot.epoch.compareAndSet(slotEpoch, epoch)) {
+                slot.reset();
+            }
+        }
+        slot.counts.incrementAndGet(bucketIndex(micros));
+        slot.total.incrementAndGet();
+        long max = slot.max.get();
+        while (micros > max && !slot.max.compareAndSet(max, micros)) {
+            max = slot.max.get();
+        }
+    }
+
+    /**
+     * 获取滚动窗口内的统计快照
+     */
+    public Snapshot snapshot() {
+        return snapshot(System.currentTimeMillis());
+    }
+
+    Snapshot snapshot(long nowMillis) {
+        long currentEpoch = nowMillis / slotMillis;
+        long oldestEpoch = currentEpoch - slots.length + 1;
+        long[] merged = new long[BUCKET_COUNT];
+        long count = 0;
+        long max = 0;
+        for (Slot slot : slots) {
+            long epoch = slot.epoch.get();
+            if (epoch < oldestEpoch || epoch > currentEpoch) {
+                continue;
+            }
+            for (int i = 0; i < BUCKET_COUNT; i++) {
+                merged[i] += slot.counts.get(i);
+            }
+            count += slot.total.get();
+            max = Math.max(max, slot.max.get());
+        }
+        if (count == 0) {
+            return Snapshot.EMPTY;
+        }
+        return new Snapshot(count,
+                percentile(merged, count, 0.50, max),
+                percentile(merged, count, 0.99, max),
+                max);
+    }
+
+    private static long percentile(long[] buckets, long count, double quantile, long max) {
+        long target = (long) Math.ceil(quantile * count);
+        long seen = 0;
+        for (int i = 0; i < buckets.length; i++) {
+            seen += buckets[i];
+            if (seen >= target && buckets[i] > 0) {
+                return Math.min(highestEquivalentValue(i), max);
+            }
+        }
+        return max;
+    }
+
+    static int bucketIndex(long micros) {
+        if (micros < SUB_BUCKET_COUNT) {
+            return (int) micros;
+        }
+        int msb = 63 - Long.numberOfLeadingZeros(micros);
+        int shift = msb - SUB_BUCKET_BITS;
+        int sub = (int) (micros >>> shift) - SUB_BUCKET_COUNT;
+        return SUB_BUCKET_COUNT + shift * SUB_BUCKET_COUNT + sub;
+    }
+
+    static long highestEquivalentValue(int index) {
+        if (index < SUB_BUCKET_COUNT) {
+            return index;
+        }
+        int shift = (index - SUB_BUCKET_COUNT) / SUB_BUCKET_COUNT;
+        int sub = (index - SUB_BUCKET_COUNT) % SUB_BUCKET_COUNT;
+        return ((long) (SUB_BUCKET_COUNT + sub) << shift) + (1L << shift) - 1;
+    }
+
+    /**
+     * 单个时间槽
+     */
+    private static class Slot {
+        final AtomicLong epoch = new AtomicLong(Long.MIN_VALUE);
+        final AtomicLongArray counts = new AtomicLongArray(BUCKET_COUNT);
+        final AtomicLong total = new AtomicLong();
+        final AtomicLong max = new AtomicLong();
+
+        void reset() {
+            for (int i = 0; i < BUCKET_COUNT; i++) {
+                counts.set(i, 0);
+            }
+            total.set(0);
+            max.set(0);
+        }
+    }
+
+    /**
+     * 直方图快照，时间单位为微秒
+     */
+    public static class Snapshot {
+        public static final Snapshot EMPTY = new Snapshot(0, 0, 0, 0);
+
+        private final long count;
+        private final long p50Micros;
+        private final long p99Micros;
+        private final long maxMicros;
+
+        Snapshot(long count, long p50Micros, long p99Micros, long maxMicros) {
+            this.count = count;
+            this.p50Micros = p50Micros;
+            this.p99Micros = p99Micros;
+            this.maxMicros = maxMicros;
+        }
+
+        public long getCount() {
+            return count;
+        }
+
+        public double getP50Millis() {
+            return p50Micros / 1000.0;
+        }
+
+        public double getP99Millis() {
+            return p99Micros / 1000.0;
+        }
+
+        public double getMaxMillis() {
+            return maxMicros / 1000.0;
+        }
+
+        @Override
+        public String toString() {
+            return "count=" + count + ", p50=" + getP50Millis() + "ms, p99=" + getP99Millis()
+                    + "ms, max=" + getMaxMillis() + "ms";
+        }
+    }
+}
@@ -0,0 +1,16 @@
+package com.ecat.integration.SaimosenIntegration;
+
+import com.ecat.integration.ModbusIntegration.ModbusSource;
+
+/**
+ * 保存了 ModbusSource 的自有属性
+ *
+ * <p>通信参数变化后设备重新登记 ModbusSource（{@link SmsDeviceBase#applyCommSettings}），
+ * 再通过 {@link #setModbusSource} 把新的 ModbusSource 交给这些属性，属性本身不重建。</p>
+ *
+ * @version V1.0
+ */
+public interface ModbusSourceAware {
+
+    void setModbusSource(ModbusSource modbusSource);
+}
@@ -0,0 +1,146 @@
+package com.ecat.integration.SaimosenIntegration;
+
+import java.util.Map;
+
+/**
+ * 设备通信方式
+ *
+ * <p>对应 comm_settings.transport 配置：</p>
+ * <ul>
+ *   <li>serial：本机串口，Modbus RTU（默认）</li>
+ *   <li>tcp：Modbus TCP（MBAP报文头），用于支持Modbus TCP网关的串口服务器</li>
+ *   <li>rtu_over_tcp：通过TCP透传的Modbus RTU帧，用于透明传输模式的串口服务器</li>
+ * </ul>
+ *
+ * <p>同时给出各方式下读保持寄存器和写寄存器的帧长，供 {@link BusStatistics} 估算字节数，
+ * 以及一次读事务的耗时估算，供集成错开同一线路上设备的首次轮询。</p>
+ *
+ * @version V1.0
+ */
+public enum ModbusTransport {
+    SERIAL("serial"),
+    TCP("tcp"),
+    RTU_OVER_TCP("rtu_over_tcp");
+
+    public static final int DEFAULT_TCP_PORT = 502;
+
+    // Modbus RTU：地址 + 功能码 + 起始地址 + 数量 + CRC；响应 地址 + 功能码 + 字节数 + 数据 + CRC
+    private static final int RTU_READ_REQUEST_BYTES = 8;
+    private static final int RTU_READ_RESPONSE_OVERHEAD = 5;
+    private static final int RTU_EXCEPTION_RESPONSE_BYTES = 5;
+    // Modbus TCP：MBAP(7) + 功能码 + 起始地址 + 数量；响应 MBAP(7) + 功能码 + 字节数 + 数据
+    private static final int TCP_READ_REQUEST_BYTES = 12;
+    private static final int TCP_READ_RESPONSE_OVERHEAD = 9;
+    private static final int TCP_EXCEPTION_RESPONSE_BYTES = 9;
+    // 写单个寄存器：请求与应答等长，RTU 地址 + 功能码 + 寄存器地址 + 值 + CRC，TCP MBAP(7) + 功能码 + 寄存器地址 + 值；
+    // 写多个寄存器的应答（起始地址 + 数量）与之等长
+    private static final int RTU_WRITE_SINGLE_BYTES = 8;
+    private static final int TCP_WRITE_SINGLE_BYTES = 12;
+    // 写多个寄存器请求：RTU 地址 + 功能码 + 起始地址 + 数量 + 字节数 + 数据 + CRC，TCP MBAP(7) + 功能码 + 起始地址 + 数量 + 字节数 + 数据
+    private static final int RTU_WRITE_MULTIPLE_REQUEST_OVERHEAD = 9;
+    private static final int TCP_WRITE_MULTIPLE_REQUEST_OVERHEAD = 13;
+    // RTU 帧之间至少 3.5 个字符的静默；从站处理时间与网络往返时间按经验值估算
+    private static final double RTU_FRAME_GAP_CHARS = 3.5;
+    private static final long SLAVE_TURNAROUND_MICROS = 5_000;
+    private static final long NETWORK_ROUND_TRIP_MICROS = 20_000;
+
+    private final String configValue;
+
+    ModbusTransport(String configValue) {
+        this.configValue = configValue;
+    }
+
+    public String getConfigValue() {
+        return configValue;
+    }
+
+    public boolean isNetwork() {
+        return this != SERIAL;
+    }
+
+    /**
+     * 解析配置值，未配置时为 {@link #SERIAL}
+     * @throws IllegalArgumentException 配置值不支持
+     */
+    public static ModbusTransport fromConfig(Object value) {
+        if (value == null || "".equals(value)) {
+            return SERIAL;
+        }
+        for (ModbusTransport transport : values()) {
+            if (transport.configValue.equalsIgnoreCase(value.toString())) {
+                return transport;
+            }
+        }
+        throw new IllegalArgumentException("不支持的通信方式 transport: " + value);
+    }
+
+    /**
+     * 通信线路标识：串口为端口名，网络方式为 tcp://ip:port。
+     * 同一线路上的设备共享一个 {@link BusStatistics}。
+     */
+    public String lineKey(Map<String, Object> commSettings) {
+        if (this == SERIAL) {
+            return (String) commSettings.get("port");
+        }
+        return "tcp://" + commSettings.get("ip") + ":" + tcpPort(commSettings);
+    }
+
+    /**
+     * 网络方式的TCP端口，未配置时为502
+     */
+    public static int tcpPort(Map<String, Object> commSettings) {
+        Object port = commSettings.get("tcpPort");
+        return port instanceof Number ? ((Number) port).intValue() : DEFAULT_TCP_PORT;
+    }
+
+    /**
+     * 是否使用MBAP报文头（Modbus TCP），RTU透传仍为RTU帧
+     */
+    public boolean usesMbap() {
+        return this == TCP;
+    }
+
+    public int readRequestBytes() {
+        return this == TCP ? TCP_READ_REQUEST_BYTES : RTU_READ_REQUEST_BYTES;
+    }
+
+    public int readResponseOverhead() {
+        return this == TCP ? TCP_READ_RESPONSE_OVERHEAD : RTU_READ_RESPONSE_OVERHEAD;
+    }
+
+    public int exceptionResponseBytes() {
+        return this == TCP ? TCP_EXCEPTION_RESPONSE_BYTES : RTU_EXCEPTION_RESPONSE_BYTES;
+    }
+
+    /**
+     * 写寄存器请求帧长：1个寄存器按写单个寄存器（功能码0x06），多个按写多个寄存器（功能码0x10）
+     */
+    public int writeRequestBytes(int registerCount) {
+        if (registerCount <= 1) {
+            return writeResponseBytes();
+        }
+        return (this == TCP ? TCP_WRITE_MULTIPLE_REQUEST_OVERHEAD : RTU_WRITE_MULTIPLE_REQUEST_OVERHEAD)
+                + registerCount * 2;
+    }
+
+    /**
+     * 写寄存器应答帧长（写单个寄存器回显请求，写多个寄存器回送起始地址和数量，两者等长）
+     */
+    public int writeResponseBytes() {
+        return this == TCP ? TCP_WRITE_SINGLE_BYTES : RTU_WRITE_SINGLE_BYTES;
+    }
+
+    /**
+     * 估算一次读 registerCount 个保持寄存器的事务耗时（微秒）：
+     * 串口按波特率计算请求、响应及帧间静默的传输时间，网络方式按固定往返时间估算，均加上从站处理时间
+     * @param baudRate 串口波特率（网络方式忽略）
+     * @param bitsPerChar 每字符位数：起始位 + 数据位 + 校验位 + 停止位（网络方式忽略）
+     */
+    public long readTransactionMicros(int registerCount, int baudRate, int bitsPerChar) {
+        if (isNetwork() || baudRate <= 0) {
+            return NETWORK_ROUND_TRIP_MICROS + SLAVE_TURNAROUND_MICROS;
+        }
+        double chars = readRequestBytes() + readResponseOverhead() + registerCount * 2 + 2 * RTU_FRAME_GAP_CHARS;
+        return (long) Math.ceil(chars * bitsPerChar * 1_000_000L / baudRate) + SLAVE_TURNAROUND_MICROS;
+    }
+}
@@ -1,9 +1,11 @@
 package com.ecat.integration.SaimosenIntegration;
 
+import java.util.Arrays;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.concurrent.CompletableFuture;
-import java.util.concurrent.TimeUnit;
+import java.util.concurrent.ScheduledFuture;
 
 import com.ecat.core.Device.DeviceStatus;
 import com.ecat.core.State.AttributeAbility;
@@ -29,7 +31,7 @@ import com.ecat.integration.ModbusIntegration.EndianConverter.BigEndianConverter
  * @version 1.0.0
  * @author caohongbo
  */
-public class NO2Device extends SmsDeviceBase {
+public class NO2Device extends SmsDeviceBase implements CalibrationWriteListener {
 
     // 数据段配置
     private static final Map<String, DataSegment> SEGMENT_CONFIG = new HashMap<>();
@@ -49,17 +51,17 @@ public class NO2Device extends SmsDeviceBase {
         SEGMENT_CONFIG.put("calibration_status", new DataSegment(0x3EE, 1, "校准状态"));              // 1006 - 可读
     }
 
+    /**
+     * 参数区间：no_slope~o3_flow_corr（float 11~23）、PMT高压设定值
+     */
+    private static final List<ParameterBackup.Range> PARAMETER_RANGES = Arrays.asList(
+            new ParameterBackup.Range("slope_corr_params", 22, 26),
+            new ParameterBackup.Range("pmt_high_volt_setting", 60, 1));
+
     private DeviceStatus deviceStatus = DeviceStatus.UNKNOWN;
-    
-    // 防止竞态条件：标记是否正在写入校准浓度
-    private volatile boolean isWritingCalibration = false;
-    // 保存最近写入的校准浓度值，避免在写入期间被读取的旧值覆盖
-    private volatile Double lastWrittenCalibrationValue = null;
-    // 写入操作的时间戳，用于判断是否在写入后的短时间内
-    private volatile long lastCalibrationWriteTime = 0;
-    // 写入保护时间窗口（毫秒），在此时间内使用写入的值而不是读取的值
-    private static final long CALIBRATION_WRITE_PROTECTION_MS = 2000; // 2秒保护期
 
+    private ScheduledFuture<?> readFuture;
+    
     public NO2Device(Map<String, Object> config) {
         super(config);
     }
@@ -68,16 +70,22 @@ public class NO2Device extends SmsDeviceBase {
     public void init() {
         super.init();
         createAttributes();
+        createAverageAttributes("no", AttributeClass.NO, AirVolumeUnit.PPB, 1);
+        createAverageAttributes("no2", AttributeClass.NO2, AirVolumeUnit.PPB, 1);
+        createAverageAttributes("nox", AttributeClass.NOX, AirVolumeUnit.PPB, 1);
+        restoreSnapshot();
     }
 
     @Override
     public void start() {
-        getScheduledExecutor().scheduleWithFixedDelay(this::readAndUpdate, 0, 5, TimeUnit.SECONDS);
+        readFuture = schedulePolling(this::readAndUpdate);
     }
 
     @Override
     public void stop() {
-        // 停止逻辑
+        if (readFuture != null) {
+            readFuture.cancel(true);
+        }
     }
 
     @Override
@@ -319,56 +327,97 @@ public class NO2Device extends SmsDeviceBase {
         GasDeviceCommandAttribute commandAttr = new GasDeviceCommandAttribute("dispatch_command",
                 AttributeClass.DISPATCH_COMMAND, new GasDeviceCommandAttribute.NO2CommandConfigFactory());
         commandAttr.setModbusSource(modbusSource);
-        commandAttr.addDependencyAttribute((NumericAttribute) getAttrs().get("calibration_concentration"));
+        commandAttr.setConcentrationAttribute((NumericAttribute) getAttrs().get("calibration_concentration"));
         commandAttr.setDeviceInstance(this); // 设置设备引用，用于防止竞态条件
         setAttribute(commandAttr);
     }
 
+    @Override
+    public CompletableFuture<Boolean> pollOnce() {
+        return readAndUpdate();
+    }
+
+    @Override
+    protected boolean supportsMultipleRegisterWrite() {
+        return true;
+    }
+
+    @Override
+    protected DeviceStatus getCurrentDeviceStatus() {
+        return deviceStatus;
+    }
+
+    @Override
+    protected String[] getStoredAttributeIds() {
+        return new String[] {"no", "no2", "nox"};
+    }
+
+
+    @Override
+    protected String[] getDeferredConfigAttributeIds() {
+        return new String[] {"calibration_concentration"};
+    }
+
+    @Override
+    protected List<ParameterBackup.Range> getParameterRanges() {
+        return PARAMETER_RANGES;
+    }
+
+    @Override
+    protected int[] getPollSegmentSizes() {
+        return new int[] {SEGMENT_CONFIG.get("float_params").count, SEGMENT_CONFIG.get("u16_params").count,
+            SEGMENT_CONFIG.get("span_calibration_start").count, SEGMENT_CONFIG.get("calibration_status").count};
+    }
+
     /**
      * 并行读取
      * 1. 并行读取：多个数据段同时读取，提升性能
      * 2. 统一处理：所有数据读取完成后统一处理
      */
     private CompletableFuture<Boolean> readAndUpdate() {
-        return ModbusTransactionStrategy.executeWithLambda(modbusSource, source -> {
+        return executePoll(source -> {
             
             // 并行读取所有数据段，每个段独立处理失败情况
             CompletableFuture<SegmentData> floatDataFuture = readSegment(source, "float_params")
-                    .thenApply(this::parseFloatData)
+                    .thenApply(data -> decodeSegment("float_params", data, this::parseFloatData))
                     .handle((result, throwable) -> {
                         if (throwable != null) {
-                            log.warn("NO2Device " + getId() + " - Float data segment failed: " + throwable.getMessage());
+                            recordSegmentFailure("float_params", throwable);
                             return null; // 返回null表示失败
                         }
                         return result;
                     });
             
             CompletableFuture<SegmentData> u16DataFuture = readSegment(source, "u16_params")
-                    .thenApply(this::parseU16Data)
+                    .thenApply(data -> decodeSegment("u16_params", data, this::parseU16Data))
                     .handle((result, throwable) -> {
                         if (throwable != null) {
-                            log.warn("NO2Device " + getId() + " - U16 data segment failed: " + throwable.getMessage());
+                            recordSegmentFailure("u16_params", throwable);
                             return null; // 返回null表示失败
                         }
                         return result;
                     });
             
             // 读取可读的校准参数
-            CompletableFuture<SegmentData> spanCalibConcentrationFuture = readSegment(source, "span_calibration_start")
-                    .thenApply(this::parseSpanCalibrationConcentration)
+            // 热启动后推迟首次读取跨度校准浓度（配置寄存器），期间保持快照中的值
+            boolean spanDeferred = isConfigReadDeferred();
+            CompletableFuture<SegmentData> spanCalibConcentrationFuture = spanDeferred
+                    ? CompletableFuture.completedFuture(null)
+                    : readSegment(source, "span_calibration_start")
+                    .thenApply(data -> decodeSegment("span_calibration_start", data, this::parseSpanCalibrationConcentration))
                     .handle((result, throwable) -> {
                         if (throwable != null) {
-                            log.warn("NO2Device " + getId() + " - Span calibration data segment failed: " + throwable.getMessage());
+                            recordSegmentFailure("span_calibration_start", throwable);
                             return null; // 返回null表示失败
                         }
                         return result;
                     });
             
             CompletableFuture<SegmentData> instrumentCalibStatusFuture = readSegment(source, "calibration_status")
-                    .thenApply(this::parseInstrumentCalibrationStatus)
+                    .thenApply(data -> decodeSegment("calibration_status", data, this::parseInstrumentCalibrationStatus))
                     .handle((result, throwable) -> {
                         if (throwable != null) {
-                            log.warn("NO2Device " + getId() + " - Calibration status data segment failed: " + throwable.getMessage());
+                            recordSegmentFailure("calibration_status", throwable);
                             return null; // 返回null表示失败
                         }
                         return result;
@@ -386,7 +435,7 @@ public class NO2Device extends SmsDeviceBase {
                             
                             // 统计成功的数据段
                             int successCount = 0;
-                            int totalCount = 4;
+                            int totalCount = spanDeferred ? 3 : 4;
                             
                             if (floatData != null) successCount++;
                             if (u16Data != null) successCount++;
@@ -402,22 +451,23 @@ public class NO2Device extends SmsDeviceBase {
                             updateAllAttributes(floatData, u16Data, spanCalibConcentration, instrumentCalibStatus);
                             
                             if (successCount == totalCount) {
-                                log.info("NO2Device " + getId() + " - All segments updated successfully, device status: " + deviceStatus.getStatusName());
+                                recordPollResult(PollCycleStats.Result.OK, "{}", deviceStatus.getStatusName());
                             } else {
-                                log.warn("NO2Device " + getId() + " - Partial success: " + successCount + "/" + totalCount + " segments updated, device status: " + deviceStatus.getStatusName());
+                                recordPollResult(successCount > 0 ? PollCycleStats.Result.PARTIAL : PollCycleStats.Result.FAILED,
+                                        "{}/{} segments updated, device status: {}", successCount, totalCount, deviceStatus.getStatusName());
                             }
                             
                             // 只要有任何一个数据段成功，就返回true
                             return successCount > 0;
                             
                 } catch (Exception e) {
-                            log.error("NO2Device data processing failed: " + e.getMessage());
+                            recordPollResult(PollCycleStats.Result.FAILED, "data processing failed: {}", e.getMessage());
                             setAllAttributesStatus(AttributeStatus.MALFUNCTION);
                     return false;
                 }
             });
         }).exceptionally(throwable -> {
-            log.error("NO2Device communication failed: " + throwable.getMessage());
+            recordPollResult(PollCycleStats.Result.FAILED, "communication failed: {}", throwable.getMessage());
             setAllAttributesStatus(AttributeStatus.MALFUNCTION);
             return false;
         });
@@ -436,11 +486,11 @@ public class NO2Device extends SmsDeviceBase {
             return CompletableFuture.completedFuture(new short[0]);
         }
         
-        return source.readHoldingRegisters(segment.startAddress, segment.count)
+        return readSegmentRegisters(source, segmentName, segment.startAddress, segment.count)
                 .thenApply(response -> {
                     short[] data = response.getShortData();
                     if (data == null) {
-                        log.warn("NO2Device " + getId() + " - " + segmentName + " data is null, using default values");
+                        log.warn("NO2Device {} - {} data is null, using default values", getId(), segmentName);
                         data = new short[segment.count];
                     }
                     return data;
@@ -506,8 +556,12 @@ public class NO2Device extends SmsDeviceBase {
     private void processCalibrationStatus(SegmentData calibData) {
         if (calibData != null && calibData.values.length > 0) {
             short calibrationStatus = (short) calibData.values[0];
+            DeviceStatus previous = deviceStatus;
             deviceStatus = parseDeviceStatus(calibrationStatus);
-            log.info("NO2Device " + getId() + " - Calibration status: " + calibrationStatus + ", device status: " + deviceStatus.getStatusName());
+            if (deviceStatus != previous) {
+                log.info("NO2Device {} - device status {} -> {} (calibration status {})",
+                        getId(), previous.getStatusName(), deviceStatus.getStatusName(), calibrationStatus);
+            }
         }
     }
 
@@ -550,7 +604,7 @@ public class NO2Device extends SmsDeviceBase {
         
         // 设置所有属性状态
         setAllAttributesStatus(baseStatus);
-        publicAttrsState();
+        publishAttributes();
     }
 
     /**
@@ -623,34 +677,24 @@ public class NO2Device extends SmsDeviceBase {
             updateAttribute("calibration_status", instrumentCalibStatus.values[0], status);
         }
 
+        // 推迟读取期间保持快照恢复的校准浓度
+        if (spanCalibConcentration == null && isConfigReadDeferred()) {
+            return;
+        }
+
         // 更新校准浓度属性
-        // 防止竞态条件：如果正在写入或刚写入不久，使用写入的值而不是读取的值
         double spanCalibValue = spanCalibConcentration != null && spanCalibConcentration.values.length > 0 
             ? spanCalibConcentration.values[0] : 0.0;
-        
-        // 检查是否在写入保护期内
-        long currentTime = System.currentTimeMillis();
-        boolean inWriteProtection = isWritingCalibration || 
-            (lastWrittenCalibrationValue != null && 
-             (currentTime - lastCalibrationWriteTime) < CALIBRATION_WRITE_PROTECTION_MS);
-        
-        if (inWriteProtection && lastWrittenCalibrationValue != null) {
-            // 在写入保护期内，使用最近写入的值
-            log.debug("NO2Device " + getId() + " - Using written calibration value " + lastWrittenCalibrationValue 
-                + " instead of read value " + spanCalibValue + " (write protection active)");
-            spanCalibValue = lastWrittenCalibrationValue;
-        }
-        
         double calibrationValue = getCalibrationValue(deviceStatus, spanCalibValue);
         updateAttribute("calibration_concentration", calibrationValue, status);
     }
 
     /**
-     * 设置所有属性状态
+     * 设置所有读数属性的状态（均值属性的有效性标记不受影响）
      * @param status 属性状态
      */
     private void setAllAttributesStatus(AttributeStatus status) {
-        getAttrs().values().forEach(attr -> attr.setStatus(status));
+        setReadingAttributesStatus(status);
     }
     
     /**
@@ -760,6 +804,10 @@ public class NO2Device extends SmsDeviceBase {
     }
 
     private void updateAttribute(String attrName, double value, AttributeStatus status) {
+        // 写入后尚未被新读数对账的属性保持写入值
+        if (!acceptRead(attrName)) {
+            return;
+        }
         if (getAttrs().containsKey(attrName)) {
             ((NumericAttribute) getAttrs().get(attrName)).updateValue(value, status);
         }
@@ -772,16 +820,8 @@ public class NO2Device extends SmsDeviceBase {
      */
     public CompletableFuture<Boolean> startZeroCalibration(double concentration) {
         return ModbusTransactionStrategy.executeWithLambda(modbusSource, source -> {
-            // 写入零点校准模式到0x3E8
-            return source.writeRegister(0x3E8, 0)
-                    .thenCompose(v -> {
-                        // 写入零点校准浓度到0x3E9
-                        return source.writeRegister(0x3E9, (int) concentration);
-                    })
-                    .thenCompose(v -> {
-                        // 写入零点校准命令到0x3EA
-                        return source.writeRegister(0x3EA, 0);
-                    })
+            // 零点校准模式（0x3E8）、零点校准浓度（0x3E9）、零点校准命令（0x3EA）地址连续，一次下发
+            return writeCommandBlock(source, "start_zero_calibration", 0x3E8, 0, (int) concentration, 0)
                     .thenApply(v -> {
                         log.info("NO2Device " + getId() + " - Zero calibration started with concentration: " + concentration);
                         return true;
@@ -798,37 +838,26 @@ public class NO2Device extends SmsDeviceBase {
      * @return 操作结果
      */
     public CompletableFuture<Boolean> startSpanCalibration(double concentration) {
-        // 设置写入标志，防止竞态条件
-        isWritingCalibration = true;
-        lastWrittenCalibrationValue = concentration;
-        lastCalibrationWriteTime = System.currentTimeMillis();
+        // 写入结束前忽略校准浓度的读数
+        beginWrite("calibration_concentration");
         
         return ModbusTransactionStrategy.executeWithLambda(modbusSource, source -> {
             // 写入跨度校准模式到0x3E8
-            return source.writeRegister(0x3E8, 2)
-                    .thenCompose(v -> {
-                        // 写入跨度校准浓度到0x3EB
-                        return source.writeRegister(0x3EB, (int) concentration);
-                    })
+            return writeCommandRegister(source, "start_span_calibration", 0x3E8, 2)
                     .thenCompose(v -> {
-                        // 写入跨度校准命令到0x3EC
-                        return source.writeRegister(0x3EC, 1);
+                        // 跨度校准浓度（0x3EB）和跨度校准命令（0x3EC）地址连续，一次下发；
+                        // 0x3E9/0x3EA 是零点命令寄存器，不能并入同一块
+                        return writeCommandBlock(source, "start_span_calibration", 0x3EB, (int) concentration, 1);
                     })
                     .thenApply(v -> {
+                        commitWrite("calibration_concentration", concentration);
                         log.info("NO2Device " + getId() + " - Span calibration started with concentration: " + concentration);
-                        // 写入完成后，延迟清除标志，确保读取操作有足够时间完成
-                        // 标志会在保护期结束后自动失效（通过时间判断）
                         return true;
                     });
         }).exceptionally(throwable -> {
             log.error("NO2Device span calibration failed: " + throwable.getMessage());
-            // 写入失败时清除标志
-            isWritingCalibration = false;
+            cancelWrite("calibration_concentration");
             return false;
-        }).whenComplete((result, throwable) -> {
-            // 无论成功或失败，在保护期结束后清除写入标志
-            // 这里不立即清除，而是依赖时间窗口机制
-            // 如果需要立即清除，可以设置一个定时任务
         });
     }
 
@@ -839,7 +868,7 @@ public class NO2Device extends SmsDeviceBase {
     public CompletableFuture<Boolean> stopCalibration() {
         return ModbusTransactionStrategy.executeWithLambda(modbusSource, source -> {
             // 写入停止校准命令到0x3E8
-            return source.writeRegister(0x3E8, 0)
+            return writeCommandRegister(source, "stop_calibration", 0x3E8, 0)
                     .thenApply(v -> {
                         log.info("NO2Device " + getId() + " - Calibration stopped");
                         return true;
@@ -877,7 +906,7 @@ public class NO2Device extends SmsDeviceBase {
      */
     public CompletableFuture<Boolean> confirmZeroCalibration() {
         return ModbusTransactionStrategy.executeWithLambda(modbusSource, source -> {
-            return source.writeRegister(0x3E9, 0)
+            return writeCommandRegister(source, "confirm_zero_calibration", 0x3E9, 0)
                     .thenApply(v -> {
                         log.info("NO2Device " + getId() + " - Zero calibration confirmed");
                         return true;
@@ -894,7 +923,7 @@ public class NO2Device extends SmsDeviceBase {
      */
     public CompletableFuture<Boolean> cancelZeroCalibration() {
         return ModbusTransactionStrategy.executeWithLambda(modbusSource, source -> {
-            return source.writeRegister(0x3EA, 0)
+            return writeCommandRegister(source, "cancel_zero_calibration", 0x3EA, 0)
                     .thenApply(v -> {
                         log.info("NO2Device " + getId() + " - Zero calibration cancelled");
                         return true;
@@ -911,7 +940,7 @@ public class NO2Device extends SmsDeviceBase {
      */
     public CompletableFuture<Boolean> confirmSpanCalibration() {
         return ModbusTransactionStrategy.executeWithLambda(modbusSource, source -> {
-            return source.writeRegister(0x3EC, 400)
+            return writeCommandRegister(source, "confirm_span_calibration", 0x3EC, 400)
                     .thenApply(v -> {
                         log.info("NO2Device " + getId() + " - Span calibration confirmed");
                         return true;
@@ -928,7 +957,7 @@ public class NO2Device extends SmsDeviceBase {
      */
     public CompletableFuture<Boolean> cancelSpanCalibration() {
         return ModbusTransactionStrategy.executeWithLambda(modbusSource, source -> {
-            return source.writeRegister(0x3ED, 400)
+            return writeCommandRegister(source, "cancel_span_calibration", 0x3ED, 400)
                     .thenApply(v -> {
                         log.info("NO2Device " + getId() + " - Span calibration cancelled");
                         return true;
@@ -965,18 +994,41 @@ public class NO2Device extends SmsDeviceBase {
      * 当外部（如GasDeviceCommandAttribute）写入校准浓度时调用此方法
      * @param concentration 写入的校准浓度值
      */
+    @Override
     public void markCalibrationWrite(double concentration) {
-        isWritingCalibration = true;
-        lastWrittenCalibrationValue = concentration;
-        lastCalibrationWriteTime = System.currentTimeMillis();
+        commitWrite("calibration_concentration", concentration);
         log.debug("NO2Device " + getId() + " - Marked calibration write: " + concentration);
     }
 
     /**
-     * 清除校准写入标记（可选，通常依赖时间窗口自动清除）
+     * 校准命令写入后回读校准状态
+     * @param command 命令名称
+     */
+    @Override
+    public void markCommandWrite(String command) {
+        readBackCalibrationStatus();
+    }
+
+    @Override
+    protected void afterCommandWrite(String command, int startAddress, int count) {
+        readBackCalibrationStatus();
+    }
+
+    @Override
+    protected CompletableFuture<Boolean> probeObservedState() {
+        return readBackCalibrationStatus();
+    }
+
+    /**
+     * 回读校准状态（0x3EE），设备状态和校准状态属性随之更新，不等下一个轮询周期
      */
-    public void clearCalibrationWriteMark() {
-        isWritingCalibration = false;
+    private CompletableFuture<Boolean> readBackCalibrationStatus() {
+        DataSegment segment = SEGMENT_CONFIG.get("calibration_status");
+        return readBack("calibration_status", segment.startAddress, segment.count, data -> {
+            SegmentData calibData = parseInstrumentCalibrationStatus(data);
+            processCalibrationStatus(calibData);
+            updateAttribute("calibration_status", calibData.values[0], mapToAttributeStatus(deviceStatus));
+        });
     }
 
     /**
@@ -0,0 +1,722 @@
+package com.ecat.integration.SaimosenIntegration;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+
+import com.ecat.core.State.AttributeStatus;
+
+/**
+ * 上行存储转发缓冲（store-and-forward）
+ *
+ * <p>设备每次发布后把关键属性（时间戳、数值、状态）作为一条记录 {@link #offer} 进来，由上行消费方注册的
+ * {@link Sink} 取走。上行正常时记录直接交付；上行中断时记录先进入固定大小的内存环形缓冲，环满后
+ * 最早的记录顺序溢出到磁盘日志（`dir` 下按大小切分的 `.obq` 段文件），堆内存占用不随中断时长增长。</p>
+ *
+ * <p>交付分两路，每路内部严格按写入顺序：</p>
+ * <ul>
+ *   <li>实时：内存环中的记录每次 {@link #pump} 全部交付；</li>
+ *   <li>补传：磁盘日志中的记录（总是早于内存环中的记录）按 `catchupRecordsPerSecond` 令牌桶限速交付，
+ *       上行恢复后补传不会挤占实时数据。</li>
+ * </ul>
+ *
+ * <p>{@link Sink#deliver} 返回false或抛出异常时视为上行不可用，该记录保留，本次交付停止。
+ * 补传读取位置在每次交付后写入 `cursor` 文件，进程异常退出后从上次位置继续，最后一批可能重复交付
+ * （至少一次）。{@link #close} 时内存环中未交付的记录写入磁盘日志，重启后作为补传继续。</p>
+ *
+ * <p>磁盘日志总大小超过 `maxDiskBytes` 时整段删除最早的段文件（丢弃最旧的记录），丢弃数见
+ * {@link #getDroppedRecords}；正在写入的段不删除，实际上限不小于一个段。</p>
+ *
+ * <p>同一目录只有一个实例（{@link #forDirectory}），多个设备共享；线程安全，Sink 在锁内调用，不应长时间阻塞。</p>
+ *
+ * @version V1.0
+ */
+public final class OutboundBuffer implements Closeable {
+
+    static final String SEGMENT_SUFFIX = ".obq";
+    static final String CURSOR_FILE = "cursor";
+    public static final int DEFAULT_MEMORY_BYTES = 1 << 20;
+    public static final long DEFAULT_SEGMENT_BYTES = 16L << 20;
+    public static final long DEFAULT_MAX_DISK_BYTES = 1L << 30;
+    public static final double DEFAULT_CATCHUP_RECORDS_PER_SECOND = 50;
+    /** 令牌桶最多累积的秒数，轮询间隔内积攒的补传额度不被截断 */
+    private static final int MAX_BURST_SECONDS = 10;
+
+    private static final Map<String, OutboundBuffer> BUFFERS = new ConcurrentHashMap<>();
+
+    /**
+     * 上行消费方
+     */
+    public interface Sink {
+        /**
+         * 交付一条记录，上行方确认收到后才返回true
+         * @return 上行不可用或尚未确认时返回false，记录保留待下次交付
+         */
+        boolean deliver(Record record);
+    }
+
+    private final Path directory;
+    private final long segmentBytes;
+    private final long maxDiskBytes;
+    private final double catchupRecordsPerSecond;
+
+    // 内存环：[int 长度][记录内容]...
+    private final byte[] ring;
+    private int ringHead;
+    private int ringUsed;
+    private int ringRecords;
+
+    // 磁盘日志
+    private final TreeSet<Long> segments = new TreeSet<>();
+    private FileChannel writeChannel;
+    private long writeSequence;
+    private FileChannel readChannel;
+    private long readSequence;
+    private long readOffset;
+    private long diskRecords;
+    private long diskBytes;
+    private boolean cursorDirty;
+    private final ByteBuffer lengthBuffer = ByteBuffer.allocate(4);
+
+    private byte[] scratch = new byte[256];
+    // 溢出时从内存环搬到磁盘用，不能与保存新记录的scratch共用
+    private byte[] transfer = new byte[256];
+    private Sink sink;
+    private double tokens;
+    private long lastRefillNanos;
+    private long delivered;
+    private long caughtUp;
+    private long failedDeliveries;
+    private long dropped;
+    private boolean closed;
+
+    private OutboundBuffer(Path directory, int memoryBytes, long segmentBytes, long maxDiskBytes,
+            double catchupRecordsPerSecond) {
+        this.directory = directory;
+        this.ring = new byte[memoryBytes];
+        this.segmentBytes = segmentBytes;
+        this.maxDiskBytes = maxDiskBytes;
+        this.catchupRecordsPerSecond = catchupRecordsPerSecond;
+        this.lastRefillNanos = System.nanoTime();
+    }
+
+    /**
+     * 获取（或创建）目录对应的缓冲，同一目录的后续调用忽略参数，返回已有实例
+     * @param directory 磁盘日志目录
+     * @param memoryBytes 内存环大小
+     * @param segmentBytes 单个磁盘段文件的大小上限
+     * @param maxDiskBytes 磁盘日志总大小上限，小于等于0表示不限制
+     * @param catchupRecordsPerSecond 补传限速，小于等于0表示不限速
+     */
+    public static OutboundBuffer forDirectory(String directory, int memoryBytes, long segmentBytes,
+            long maxDiskBytes, double catchupRecordsPerSecond) throws IOException {
+        Path path = Paths.get(directory).toAbsolutePath().normalize();
+        try {
+            return BUFFERS.computeIfAbsent(path.toString(), key -> {
+                try {
+                    return open(path, memoryBytes, segmentBytes, maxDiskBytes, catchupRecordsPerSecond);
+                } catch (IOException e) {
+                    throw new IllegalStateException(e);
+                }
+            });
+        } catch (IllegalStateException e) {
+            if (e.getCause() instanceof IOException) {
+                throw (IOException) e.getCause();
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * 关闭所有共享缓冲（集成释放时调用）
+     */
+    public static void closeAll() {
+        for (OutboundBuffer buffer : BUFFERS.values()) {
+            buffer.close();
+        }
+        BUFFERS.clear();
+    }
+
+    /**
+     * 打开一个不登记、磁盘日志不限大小的独立缓冲
+     */
+    static OutboundBuffer open(Path directory, int memoryBytes, long segmentBytes, double catchupRecordsPerSecond)
+            throws IOException {
+        return open(directory, memoryBytes, segmentBytes, 0, catchupRecordsPerSecond);
+    }
+
+    /**
+     * 打开一个不登记的独立缓冲
+     */
+    static OutboundBuffer open(Path directory, int memoryBytes, long segmentBytes, long maxDiskBytes,
+            double catchupRecordsPerSecond) throws IOException {
+        if (memoryBytes < 64 || segmentBytes <= 0) {
+            throw new IllegalArgumentException("outbound buffer memory and segment size too small");
+        }
+        Files.createDirectories(directory);
+        OutboundBuffer buffer = new OutboundBuffer(directory, memoryBytes, segmentBytes, maxDiskBytes,
+                catchupRecordsPerSecond);
+        buffer.recover();
+        return buffer;
+    }
+
+    public Path getDirectory() {
+        return directory;
+    }
+
+    /**
+     * 注册上行消费方，为null时只缓存不交付
+     */
+    public synchronized void setSink(Sink sink) {
+        this.sink = sink;
+    }
+
+    /**
+     * 尚未注册消费方时注册sink，已有消费方（如上行模块注册的）时保持不变
+     * @return 是否注册了sink
+     */
+    public synchronized boolean setSinkIfAbsent(Sink sink) {
+        if (this.sink != null) {
+            return false;
+        }
+        this.sink = sink;
+        return true;
+    }
+
+    /**
+     * 写入一条记录并尝试交付
+     * @param deviceId 设备ID
+     * @param timestamp 时间戳（毫秒）
+     * @param columns 属性ID
+     * @param values 各列数值，调用方可复用数组
+     * @param statuses 各列状态码（{@link TimeSeriesStore#statusCode}），调用方可复用数组
+     */
+    public void offer(String deviceId, long timestamp, String[] columns, float[] values, byte[] statuses)
+            throws IOException {
+        offer(deviceId, timestamp, columns, values, statuses, System.nanoTime());
+    }
+
+    synchronized void offer(String deviceId, long timestamp, String[] columns, float[] values, byte[] statuses,
+            long nowNanos) throws IOException {
+        if (closed) {
+            throw new IOException("outbound buffer closed");
+        }
+        int length = encode(deviceId, timestamp, columns, values, statuses);
+        if (4 + length > ring.length) {
+            // 超过内存环的记录直接进入磁盘日志，之前的记录先溢出以保持顺序
+            spill(ring.length);
+            appendToDisk(scratch, 0, length);
+        } else {
+            spill(4 + length);
+            ringPut(ringHead + ringUsed, length);
+            ringCopyIn(ringHead + ringUsed + 4, scratch, length);
+            ringUsed += 4 + length;
+            ringRecords++;
+        }
+        pump(nowNanos);
+    }
+
+    /**
+     * 交付：实时记录全部交付，补传记录按限速交付
+     * @return 本次交付的记录数
+     */
+    public int pump() throws IOException {
+        return pump(System.nanoTime());
+    }
+
+    synchronized int pump(long nowNanos) throws IOException {
+        refill(nowNanos);
+        if (sink == null || closed) {
+            return 0;
+        }
+        int count = 0;
+        while (ringRecords > 0) {
+            int length = ringGetInt(ringHead);
+            ensureScratch(length);
+            ringCopyOut(ringHead + 4, scratch, length);
+            if (!tryDeliver(length)) {
+                return count;
+            }
+            ringHead = (ringHead + 4 + length) % ring.length;
+            ringUsed -= 4 + length;
+            ringRecords--;
+            count++;
+        }
+        try {
+            while (diskRecords > 0 && (catchupRecordsPerSecond <= 0 || tokens >= 1)) {
+                int length = readFromDisk();
+                if (length < 0 || !tryDeliver(length)) {
+                    break;
+                }
+                advanceRead(length);
+                tokens--;
+                caughtUp++;
+                count++;
+            }
+        } finally {
+            saveCursor();
+        }
+        return count;
+    }
+
+    /**
+     * 内存环中的记录数
+     */
+    public synchronized int getMemoryRecords() {
+        return ringRecords;
+    }
+
+    /**
+     * 磁盘日志中待补传的记录数
+     */
+    public synchronized long getBacklogRecords() {
+        return diskRecords;
+    }
+
+    /**
+     * 已交付的记录数（含补传）
+     */
+    public synchronized long getDeliveredRecords() {
+        return delivered;
+    }
+
+    /**
+     * 已补传的记录数
+     */
+    public synchronized long getCaughtUpRecords() {
+        return caughtUp;
+    }
+
+    public synchronized long getFailedDeliveries() {
+        return failedDeliveries;
+    }
+
+    /**
+     * 磁盘日志超过大小上限时丢弃的记录数
+     */
+    public synchronized long getDroppedRecords() {
+        return dropped;
+    }
+
+    /**
+     * 磁盘日志段文件的总字节数
+     */
+    public synchronized long getDiskBytes() {
+        return diskBytes;
+    }
+
+    /**
+     * 内存环中的记录写入磁盘日志，关闭文件
+     */
+    @Override
+    public synchronized void close() {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        try {
+            spill(ring.length);
+            saveCursor();
+            if (writeChannel != null) {
+                writeChannel.force(false);
+            }
+        } catch (IOException e) {
+            // 关闭失败时内存中的记录丢失
+        } finally {
+            closeQuietly(writeChannel);
+            closeQuietly(readChannel);
+            writeChannel = null;
+            readChannel = null;
+        }
+    }
+
+    private boolean tryDeliver(int length) {
+        Record record = decode(scratch, length);
+        boolean ok;
+        try {
+            ok = sink.deliver(record);
+        } catch (RuntimeException e) {
+            ok = false;
+        }
+        if (ok) {
+            delivered++;
+        } else {
+            failedDeliveries++;
+        }
+        return ok;
+    }
+
+    private void refill(long nowNanos) {
+        if (catchupRecordsPerSecond <= 0) {
+            return;
+        }
+        long elapsed = Math.max(0, nowNanos - lastRefillNanos);
+        lastRefillNanos = nowNanos;
+        tokens = Math.min(catchupRecordsPerSecond * MAX_BURST_SECONDS,
+                tokens + elapsed * catchupRecordsPerSecond / 1e9);
+    }
+
+    // ---------------- 内存环 ----------------
+
+    /**
+     * 从环头按顺序把记录移到磁盘日志，直到空闲空间不小于needed
+     */
+    private void spill(int needed) throws IOException {
+        while (ringRecords > 0 && ring.length - ringUsed < needed) {
+            int length = ringGetInt(ringHead);
+            if (transfer.length < length) {
+                transfer = new byte[Math.max(length, transfer.length * 2)];
+            }
+            ringCopyOut(ringHead + 4, transfer, length);
+            appendToDisk(transfer, 0, length);
+            ringHead = (ringHead + 4 + length) % ring.length;
+            ringUsed -= 4 + length;
+            ringRecords--;
+        }
+        if (ringRecords == 0) {
+            ringHead = 0;
+        }
+    }
+
+    private void ringPut(int position, int value) {
+        for (int i = 0; i < 4; i++) {
+            ring[(position + i) % ring.length] = (byte) (value >>> (24 - i * 8));
+        }
+    }
+
+    private int ringGetInt(int position) {
+        int value = 0;
+        for (int i = 0; i < 4; i++) {
+            value = (value << 8) | (ring[(position + i) % ring.length] & 0xFF);
+        }
+        return value;
+    }
+
+    private void ringCopyIn(int position, byte[] source, int length) {
+        int start = position % ring.length;
+        int first = Math.min(length, ring.length - start);
+        System.arraycopy(source, 0, ring, start, first);
+        System.arraycopy(source, first, ring, 0, length - first);
+    }
+
+    private void ringCopyOut(int position, byte[] target, int length) {
+        int start = position % ring.length;
+        int first = Math.min(length, ring.length - start);
+        System.arraycopy(ring, start, target, 0, first);
+        System.arraycopy(ring, 0, target, first, length - first);
+    }
+
+    // ---------------- 磁盘日志 ----------------
+
+    private void recover() throws IOException {
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory, "*" + SEGMENT_SUFFIX)) {
+            for (Path file : files) {
+                String name = file.getFileName().toString();
+                try {
+                    segments.add(Long.parseLong(name.substring(0, name.length() - SEGMENT_SUFFIX.length())));
+                } catch (NumberFormatException e) {
+                    // 忽略无关文件
+                }
+            }
+        }
+        Path cursor = directory.resolve(CURSOR_FILE);
+        if (Files.exists(cursor)) {
+            ByteBuffer data = ByteBuffer.wrap(Files.readAllBytes(cursor));
+            if (data.remaining() >= 16) {
+                readSequence = data.getLong();
+                readOffset = data.getLong();
+            }
+        }
+        // 删除已交付完的段
+        while (!segments.isEmpty() && segments.first() < readSequence) {
+            Files.deleteIfExists(segmentPath(segments.pollFirst()));
+        }
+        if (segments.isEmpty()) {
+            readOffset = 0;
+        } else if (segments.first() > readSequence) {
+            readSequence = segments.first();
+            readOffset = 0;
+        }
+        writeSequence = segments.isEmpty() ? readSequence : segments.last();
+        diskRecords = countRecords();
+        for (long sequence : segments) {
+            diskBytes += Files.size(segmentPath(sequence));
+        }
+    }
+
+    /**
+     * 统计读取位置之后的完整记录数，截断写到一半的尾部记录
+     */
+    private long countRecords() throws IOException {
+        long count = 0;
+        for (long sequence : segments) {
+            count += countSegment(sequence, sequence == segments.last());
+        }
+        return count;
+    }
+
+    /**
+     * 统计一个段中读取位置之后的完整记录数
+     * @param truncate 是否截断写到一半的尾部记录
+     */
+    private long countSegment(long sequence, boolean truncate) throws IOException {
+        long count = 0;
+        try (FileChannel channel = FileChannel.open(segmentPath(sequence), StandardOpenOption.READ,
+                StandardOpenOption.WRITE)) {
+            long position = sequence == readSequence ? readOffset : 0;
+            long size = channel.size();
+            while (position + 4 <= size) {
+                lengthBuffer.clear();
+                readFully(channel, lengthBuffer, position);
+                int length = lengthBuffer.getInt(0);
+                if (length < 0 || position + 4 + length > size) {
+                    break;
+                }
+                position += 4 + length;
+                count++;
+            }
+            if (position < size && truncate) {
+                channel.truncate(position);
+            }
+        }
+        return count;
+    }
+
+    private void appendToDisk(byte[] data, int offset, int length) throws IOException {
+        if (writeChannel == null || (writeChannel.size() > 0 && writeChannel.size() + 4 + length > segmentBytes)) {
+            if (writeChannel != null) {
+                writeChannel.close();
+                writeSequence++;
+            }
+            segments.add(writeSequence);
+            writeChannel = FileChannel.open(segmentPath(writeSequence), StandardOpenOption.CREATE,
+                    StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+        }
+        while (maxDiskBytes > 0 && diskBytes + 4 + length > maxDiskBytes && segments.first() < writeSequence) {
+            dropOldestSegment();
+        }
+        lengthBuffer.clear();
+        lengthBuffer.putInt(0, length);
+        writeFully(writeChannel, lengthBuffer);
+        writeFully(writeChannel, ByteBuffer.wrap(data, offset, length));
+        diskRecords++;
+        diskBytes += 4 + length;
+    }
+
+    /**
+     * 删除最早的段文件，其中未交付的记录计入丢弃数
+     */
+    private void dropOldestSegment() throws IOException {
+        long sequence = segments.first();
+        long count = countSegment(sequence, false);
+        if (sequence == readSequence) {
+            closeQuietly(readChannel);
+            readChannel = null;
+            readSequence = segments.higher(sequence);
+            readOffset = 0;
+            cursorDirty = true;
+        }
+        Path file = segmentPath(sequence);
+        diskBytes -= Files.size(file);
+        Files.deleteIfExists(file);
+        segments.remove(sequence);
+        diskRecords -= count;
+        dropped += count;
+    }
+
+    /**
+     * 读取下一条补传记录到scratch
+     * @return 记录长度，没有记录时返回-1
+     */
+    private int readFromDisk() throws IOException {
+        while (true) {
+            if (readChannel == null) {
+                if (!segments.contains(readSequence)) {
+                    return -1;
+                }
+                readChannel = FileChannel.open(segmentPath(readSequence), StandardOpenOption.READ);
+            }
+            if (readOffset + 4 <= readChannel.size()) {
+                lengthBuffer.clear();
+                readFully(readChannel, lengthBuffer, readOffset);
+                int length = lengthBuffer.getInt(0);
+                ensureScratch(length);
+                readFully(readChannel, ByteBuffer.wrap(scratch, 0, length), readOffset + 4);
+                return length;
+            }
+            if (readSequence >= writeSequence) {
+                return -1;
+            }
+            // 当前段已读完，删除并转到下一段
+            diskBytes -= readChannel.size();
+            readChannel.close();
+            readChannel = null;
+            Files.deleteIfExists(segmentPath(readSequence));
+            segments.remove(readSequence);
+            readSequence++;
+            readOffset = 0;
+        }
+    }
+
+    private void advanceRead(int length) {
+        readOffset += 4 + length;
+        diskRecords--;
+        cursorDirty = true;
+    }
+
+    private void saveCursor() throws IOException {
+        if (!cursorDirty) {
+            return;
+        }
+        ByteBuffer data = ByteBuffer.allocate(16);
+        data.putLong(readSequence).putLong(readOffset);
+        Files.write(directory.resolve(CURSOR_FILE), data.array());
+        cursorDirty = false;
+    }
+
+    private Path segmentPath(long sequence) {
+        return directory.resolve(String.format("%020d%s", sequence, SEGMENT_SUFFIX));
+    }
+
+    private static void readFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer, position + buffer.position()) < 0) {
+                throw new IOException("truncated outbound record");
+            }
+        }
+    }
+
+    private static void writeFully(FileChannel channel, ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+    }
+
+    private static void closeQuietly(Closeable closeable) {
+        if (closeable != null) {
+            try {
+                closeable.close();
+            } catch (IOException e) {
+                // ignore
+            }
+        }
+    }
+
+    // ---------------- 记录编码 ----------------
+
+    /**
+     * 编码到scratch：时间戳、设备ID、列数，每列为 名称、数值、状态码
+     */
+    private int encode(String deviceId, long timestamp, String[] columns, float[] values, byte[] statuses) {
+        ByteBuffer out;
+        while (true) {
+            out = ByteBuffer.wrap(scratch);
+            try {
+                out.putLong(timestamp);
+                putString(out, deviceId);
+                out.putShort((short) columns.length);
+                for (int i = 0; i < columns.length; i++) {
+                    putString(out, columns[i]);
+                    out.putFloat(values[i]);
+                    out.put(statuses[i]);
+                }
+                return out.position();
+            } catch (BufferOverflowException e) {
+                scratch = new byte[scratch.length * 2];
+            }
+        }
+    }
+
+    private static void putString(ByteBuffer out, String value) {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        out.putShort((short) bytes.length);
+        out.put(bytes);
+    }
+
+    private static String getString(ByteBuffer in) {
+        byte[] bytes = new byte[in.getShort() & 0xFFFF];
+        in.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private void ensureScratch(int length) {
+        if (scratch.length < length) {
+            scratch = Arrays.copyOf(scratch, Math.max(length, scratch.length * 2));
+        }
+    }
+
+    private static Record decode(byte[] data, int length) {
+        ByteBuffer in = ByteBuffer.wrap(data, 0, length);
+        long timestamp = in.getLong();
+        String deviceId = getString(in);
+        int count = in.getShort() & 0xFFFF;
+        String[] columns = new String[count];
+        float[] values = new float[count];
+        byte[] statuses = new byte[count];
+        for (int i = 0; i < count; i++) {
+            columns[i] = getString(in);
+            values[i] = in.getFloat();
+            statuses[i] = in.get();
+        }
+        return new Record(deviceId, timestamp, columns, values, statuses);
+    }
+
+    /**
+     * 一条上行记录
+     */
+    public static final class Record {
+        private final String deviceId;
+        private final long timestamp;
+        private final String[] columns;
+        private final float[] values;
+        private final byte[] statuses;
+
+        Record(String deviceId, long timestamp, String[] columns, float[] values, byte[] statuses) {
+            this.deviceId = deviceId;
+            this.timestamp = timestamp;
+            this.columns = columns;
+            this.values = values;
+            this.statuses = statuses;
+        }
+
+        public String getDeviceId() {
+            return deviceId;
+        }
+
+        public long getTimestamp() {
+            return timestamp;
+        }
+
+        public int getColumnCount() {
+            return columns.length;
+        }
+
+        public String getColumn(int index) {
+            return columns[index];
+        }
+
+        public float getValue(int index) {
+            return values[index];
+        }
+
+        public byte getStatusCode(int index) {
+            return statuses[index];
+        }
+
+        public AttributeStatus getStatus(int index) {
+            return TimeSeriesStore.statusOf(statuses[index]);
+        }
+    }
+}
@@ -0,0 +1,134 @@
+package com.ecat.integration.SaimosenIntegration;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import com.ecat.core.EcatCore;
+import com.ecat.core.Bus.BusRegistry;
+
+/**
+ * 经平台总线交付上行记录、等待上行方确认的 {@link OutboundBuffer.Sink}
+ *
+ * <p>设备打开 {@link OutboundBuffer} 时，若上行模块尚未注册消费方，则注册本类。记录包装为 {@link Delivery}
+ * 发布到 `topic`，上行订阅方把记录送达平台后调用 {@link Delivery#acknowledge()}；确认之前记录留在缓冲中，
+ * 发布本身不算交付。订阅方在发布调用内同步确认时记录立即交付；异步确认时本次交付返回false，
+ * 确认到达后回调 {@link #setOnAcknowledged} 登记的动作（如再次 {@link OutboundBuffer#pump}），
+ * 下一次交付同一记录时返回true。超过 `ackTimeoutMillis` 未确认时重新发布（至少一次，可能重复）。</p>
+ *
+ * <p>总线尚不可用（核心未就绪）或发布抛出异常时返回false，记录留在缓冲中待下次交付。
+ * 同一时间只有一条记录等待确认，按缓冲的交付顺序逐条确认。</p>
+ *
+ * @version V1.0
+ */
+public final class OutboundBusSink implements OutboundBuffer.Sink {
+
+    public static final String DEFAULT_TOPIC = "saimosen.outbound";
+    public static final long DEFAULT_ACK_TIMEOUT_MILLIS = 30_000;
+
+    private final EcatCore core;
+    private final String topic;
+    private final long ackTimeoutNanos;
+    private volatile Runnable onAcknowledged;
+    private Delivery pending;
+
+    public OutboundBusSink(EcatCore core, String topic) {
+        this(core, topic, DEFAULT_ACK_TIMEOUT_MILLIS);
+    }
+
+    /**
+     * @param ackTimeoutMillis 等待确认的时长，超时后重新发布
+     */
+    public OutboundBusSink(EcatCore core, String topic, long ackTimeoutMillis) {
+        this.core = core;
+        this.topic = topic;
+        this.ackTimeoutNanos = TimeUnit.MILLISECONDS.toNanos(ackTimeoutMillis);
+    }
+
+    public String getTopic() {
+        return topic;
+    }
+
+    /**
+     * 登记异步确认到达后执行的动作，在调用 {@link Delivery#acknowledge()} 的线程上运行，不应阻塞
+     */
+    public void setOnAcknowledged(Runnable onAcknowledged) {
+        this.onAcknowledged = onAcknowledged;
+    }
+
+    @Override
+    public boolean deliver(OutboundBuffer.Record record) {
+        return deliver(record, System.nanoTime());
+    }
+
+    synchronized boolean deliver(OutboundBuffer.Record record, long nowNanos) {
+        if (pending != null) {
+            if (!pending.isFor(record)) {
+                // 缓冲已不再交付该记录（如磁盘日志超限被丢弃），放弃等待
+                pending = null;
+            } else if (pending.isAcknowledged()) {
+                pending = null;
+                return true;
+            } else if (nowNanos - pending.publishedNanos < ackTimeoutNanos) {
+                return false;
+            } else {
+                pending = null;
+            }
+        }
+        BusRegistry bus = core == null ? null : core.getBusRegistry();
+        if (bus == null) {
+            return false;
+        }
+        Delivery delivery = new Delivery(record, nowNanos);
+        try {
+            bus.publish(topic, delivery);
+        } catch (RuntimeException e) {
+            // 留在缓冲中，下次交付时重试
+            return false;
+        }
+        if (delivery.isAcknowledged()) {
+            return true;
+        }
+        pending = delivery;
+        delivery.acknowledged.thenRun(() -> {
+            Runnable action = onAcknowledged;
+            if (action != null) {
+                action.run();
+            }
+        });
+        return false;
+    }
+
+    /**
+     * 发布到总线的消息体：一条上行记录及其确认
+     */
+    public static final class Delivery {
+        private final OutboundBuffer.Record record;
+        private final long publishedNanos;
+        private final CompletableFuture<Void> acknowledged = new CompletableFuture<>();
+
+        Delivery(OutboundBuffer.Record record, long publishedNanos) {
+            this.record = record;
+            this.publishedNanos = publishedNanos;
+        }
+
+        public OutboundBuffer.Record getRecord() {
+            return record;
+        }
+
+        /**
+         * 上行方确认记录已送达，可从缓冲中移除
+         */
+        public void acknowledge() {
+            acknowledged.complete(null);
+        }
+
+        public boolean isAcknowledged() {
+            return acknowledged.isDone();
+        }
+
+        private boolean isFor(OutboundBuffer.Record other) {
+            return record.getTimestamp() == other.getTimestamp()
+                    && record.getDeviceId().equals(other.getDeviceId());
+        }
+    }
+}
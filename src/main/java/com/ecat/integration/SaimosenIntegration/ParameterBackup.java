@@ -0,0 +1,189 @@
+package com.ecat.integration.SaimosenIntegration;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * 设备参数备份文件（更换仪器后恢复斜率、截距、修正值和设定值用）
+ *
+ * <p>按寄存器原样保存每个参数区间，恢复时逐字写回，不经过浮点换算。格式：</p>
+ * <pre>
+ * 魔数 "SMSP"、版本、设备型号（类名，UTF）、保存时间（毫秒）、区间数
+ * 区间：名称（UTF）、起始地址、寄存器数量、各寄存器值
+ * </pre>
+ *
+ * <p>写入先到临时文件再原子替换，进程在写入中途退出时保留上一次的备份。</p>
+ *
+ * @version V1.0
+ */
+public final class ParameterBackup {
+
+    private static final int MAGIC = 0x534D5350; // "SMSP"
+    private static final int VERSION = 1;
+
+    private final String deviceClass;
+    private final long savedAt;
+    private final List<Block> blocks;
+
+    public ParameterBackup(String deviceClass, long savedAt, List<Block> blocks) {
+        this.deviceClass = deviceClass;
+        this.savedAt = savedAt;
+        this.blocks = Collections.unmodifiableList(new ArrayList<>(blocks));
+    }
+
+    /**
+     * 备份来源的设备型号（类名），恢复时必须一致
+     */
+    public String getDeviceClass() {
+        return deviceClass;
+    }
+
+    /**
+     * 保存时间（毫秒）
+     */
+    public long getSavedAt() {
+        return savedAt;
+    }
+
+    public List<Block> getBlocks() {
+        return blocks;
+    }
+
+    /**
+     * 写入备份文件（先写临时文件再原子替换）
+     */
+    public void write(Path file) throws IOException {
+        Path parent = file.toAbsolutePath().getParent();
+        if (parent != null) {
+            Files.createDirectories(parent);
+        }
+        Path temp = file.resolveSibling(file.getFileName() + ".tmp");
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temp)))) {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeUTF(deviceClass);
+            out.writeLong(savedAt);
+            out.writeInt(blocks.size());
+            for (Block block : blocks) {
+                out.writeUTF(block.range.name);
+                out.writeInt(block.range.startAddress);
+                out.writeInt(block.values.length);
+                for (short value : block.values) {
+                    out.writeShort(value);
+                }
+            }
+        }
+        Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * 读取备份文件
+     */
+    public static ParameterBackup read(Path file) throws IOException {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file)))) {
+            if (in.readInt() != MAGIC) {
+                throw new IOException("not a parameter backup: " + file);
+            }
+            if (in.readInt() != VERSION) {
+                throw new IOException("unsupported parameter backup version: " + file);
+            }
+            String deviceClass = in.readUTF();
+            long savedAt = in.readLong();
+            int count = in.readInt();
+            List<Block> blocks = new ArrayList<>(count);
+            for (int i = 0; i < count; i++) {
+                String name = in.readUTF();
+                int startAddress = in.readInt();
+                int registerCount = in.readInt();
+                if (registerCount <= 0 || registerCount > 123) {
+                    throw new IOException("invalid register count " + registerCount + " in parameter backup: " + file);
+                }
+                short[] values = new short[registerCount];
+                for (int j = 0; j < registerCount; j++) {
+                    values[j] = in.readShort();
+                }
+                blocks.add(new Block(new Range(name, startAddress, registerCount), values));
+            }
+            return new ParameterBackup(deviceClass, savedAt, blocks);
+        }
+    }
+
+    /**
+     * 一段连续的可写参数寄存器，由设备型号声明
+     */
+    public static final class Range {
+        private final String name;
+        private final int startAddress;
+        private final int count;
+
+        public Range(String name, int startAddress, int count) {
+            this.name = name;
+            this.startAddress = startAddress;
+            this.count = count;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public int getStartAddress() {
+            return startAddress;
+        }
+
+        public int getCount() {
+            return count;
+        }
+
+        /**
+         * 地址和数量相同即为同一区间
+         */
+        public boolean matches(Range other) {
+            return other != null && startAddress == other.startAddress && count == other.count;
+        }
+    }
+
+    /**
+     * 一个参数区间及其寄存器值
+     */
+    public static final class Block {
+        private final Range range;
+        private final short[] values;
+
+        public Block(Range range, short[] values) {
+            if (values.length != range.count) {
+                throw new IllegalArgumentException("range " + range.name + " expects " + range.count
+                        + " registers, got " + values.length);
+            }
+            this.range = range;
+            this.values = values.clone();
+        }
+
+        public Range getRange() {
+            return range;
+        }
+
+        public short[] getValues() {
+            return values.clone();
+        }
+
+        /**
+         * 各寄存器值（无符号）
+         */
+        int[] toRegisterValues() {
+            int[] registers = new int[values.length];
+            for (int i = 0; i < values.length; i++) {
+                registers[i] = values[i] & 0xFFFF;
+            }
+            return registers;
+        }
+    }
+}
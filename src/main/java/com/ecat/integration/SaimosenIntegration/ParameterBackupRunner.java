@@ -0,0 +1,144 @@
+package com.ecat.integration.SaimosenIntegration;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+
+import com.ecat.integration.ModbusIntegration.ModbusSource;
+
+/**
+ * 设备参数的备份与恢复事务
+ *
+ * <p>备份在一个总线事务内逐区间读取 {@link SmsDeviceBase#getParameterRanges()} 声明的寄存器；
+ * 恢复在一个总线事务内按区间以命令块（{@link SmsDeviceBase#writeCommandBlock}）写回，
+ * 再逐区间读取一次与备份比对。文件格式见 {@link ParameterBackup}，{@link #load} 校验备份的型号和区间与设备一致。</p>
+ *
+ * @version V1.0
+ */
+public class ParameterBackupRunner {
+
+    /** 恢复写入使用的命令名，不触发设备的命令写入回读 */
+    static final String RESTORE_COMMAND = "parameter_restore";
+
+    private final SmsDeviceBase device;
+
+    public ParameterBackupRunner(SmsDeviceBase device) {
+        this.device = device;
+    }
+
+    /**
+     * 读取参数区间
+     * @param source 所在总线事务的 Modbus 源
+     * @param ranges 参数区间
+     * @return 与区间一一对应的寄存器值；读取失败或从站异常响应时以异常结束
+     */
+    public CompletableFuture<List<ParameterBackup.Block>> read(ModbusSource source,
+            List<ParameterBackup.Range> ranges) {
+        List<ParameterBackup.Block> blocks = new ArrayList<>();
+        return readBlocks(source, ranges, 0, blocks).thenApply(ignored -> blocks);
+    }
+
+    /**
+     * 写回参数区间并回读校验
+     * @param source 所在总线事务的 Modbus 源
+     * @param blocks 备份中的参数区间
+     * @return 全部一致时为null，否则为第一个不一致区间的说明；写入失败时以异常结束
+     */
+    public CompletableFuture<String> restore(ModbusSource source, List<ParameterBackup.Block> blocks) {
+        return writeBlocks(source, blocks, 0).thenCompose(ignored -> verifyBlocks(source, blocks, 0));
+    }
+
+    /**
+     * 把读取的参数区间保存为备份文件
+     * @return 保存的备份；文件写入失败时抛出 {@link CompletionException}
+     */
+    public ParameterBackup save(List<ParameterBackup.Block> blocks, Path file) {
+        ParameterBackup backup = new ParameterBackup(device.getClass().getSimpleName(), System.currentTimeMillis(),
+                blocks);
+        try {
+            backup.write(file);
+        } catch (IOException e) {
+            throw new CompletionException(e);
+        }
+        return backup;
+    }
+
+    /**
+     * 读取备份文件并校验型号和区间与设备一致
+     * @param file {@link #save} 保存的备份文件
+     * @param ranges 设备声明的参数区间
+     * @throws IOException 文件无法读取
+     * @throws IllegalArgumentException 型号或区间不符
+     */
+    public ParameterBackup load(Path file, List<ParameterBackup.Range> ranges) throws IOException {
+        ParameterBackup backup = ParameterBackup.read(file);
+        String deviceClass = device.getClass().getSimpleName();
+        if (!deviceClass.equals(backup.getDeviceClass())) {
+            throw new IllegalArgumentException("参数备份型号不符: " + backup.getDeviceClass()
+                    + "，当前设备为 " + deviceClass);
+        }
+        for (ParameterBackup.Block block : backup.getBlocks()) {
+            boolean declared = false;
+            for (ParameterBackup.Range range : ranges) {
+                declared |= range.matches(block.getRange());
+            }
+            if (!declared) {
+                throw new IllegalArgumentException("参数备份区间不符: " + block.getRange().getName());
+            }
+        }
+        return backup;
+    }
+
+    private CompletableFuture<Void> readBlocks(ModbusSource source, List<ParameterBackup.Range> ranges, int index,
+            List<ParameterBackup.Block> blocks) {
+        if (index >= ranges.size()) {
+            return CompletableFuture.completedFuture(null);
+        }
+        ParameterBackup.Range range = ranges.get(index);
+        return device.readSegmentRegisters(source, range.getName(), range.getStartAddress(), range.getCount())
+                .thenCompose(response -> {
+                    if (response == null || response.isException() || response.getShortData() == null
+                            || response.getShortData().length < range.getCount()) {
+                        throw new CompletionException(new IllegalStateException("参数读取失败: " + range.getName()
+                                + (response != null && response.isException() ? " " + response.getExceptionMessage() : "")));
+                    }
+                    blocks.add(new ParameterBackup.Block(range,
+                            Arrays.copyOf(response.getShortData(), range.getCount())));
+                    return readBlocks(source, ranges, index + 1, blocks);
+                });
+    }
+
+    private CompletableFuture<Void> writeBlocks(ModbusSource source, List<ParameterBackup.Block> blocks, int index) {
+        if (index >= blocks.size()) {
+            return CompletableFuture.completedFuture(null);
+        }
+        ParameterBackup.Block block = blocks.get(index);
+        return device.writeCommandBlock(source, RESTORE_COMMAND, block.getRange().getStartAddress(),
+                block.toRegisterValues())
+                .thenCompose(ignored -> writeBlocks(source, blocks, index + 1));
+    }
+
+    private CompletableFuture<String> verifyBlocks(ModbusSource source, List<ParameterBackup.Block> blocks,
+            int index) {
+        if (index >= blocks.size()) {
+            return CompletableFuture.completedFuture(null);
+        }
+        ParameterBackup.Range range = blocks.get(index).getRange();
+        short[] expected = blocks.get(index).getValues();
+        return device.readSegmentRegisters(source, range.getName(), range.getStartAddress(), range.getCount())
+                .thenCompose(response -> {
+                    short[] actual = response == null || response.isException() ? null : response.getShortData();
+                    if (actual == null || actual.length < expected.length
+                            || !Arrays.equals(expected, Arrays.copyOf(actual, expected.length))) {
+                        return CompletableFuture.completedFuture("parameter range " + range.getName() + " read back "
+                                + (actual == null ? "nothing" : Arrays.toString(actual)) + ", expected "
+                                + Arrays.toString(expected));
+                    }
+                    return verifyBlocks(source, blocks, index + 1);
+                });
+    }
+}
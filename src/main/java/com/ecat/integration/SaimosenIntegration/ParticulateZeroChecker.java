@@ -3,6 +3,7 @@ package com.ecat.integration.SaimosenIntegration;
 import java.util.Collection;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ScheduledFuture;
 import java.util.concurrent.TimeUnit;
 
@@ -12,13 +13,17 @@ import com.ecat.core.State.AttributeClass;
 /**
  * 颗粒物零点检查8220设备，modbus通讯
  * 
- * 每次启动时会发送关闭命令停止质控状态, 解决断电重启后恢复状态
+ * 每次启动时会发送关闭命令停止质控状态, 解决断电重启后恢复状态；
+ * 两个通道依次关闭，前一个通道应答后立即发送下一个
  * 
  * @version V1.0
  * @author coffee
  */
 public class ParticulateZeroChecker extends SmsDeviceBase {
 
+    // 启动后发送关闭命令的延迟（秒）
+    private static final long CLOSE_ON_START_DELAY_SECONDS = 8;
+
     // 读取任务
     private ScheduledFuture<?> readFuture;
 
@@ -44,24 +49,27 @@ public class ParticulateZeroChecker extends SmsDeviceBase {
             testControlFuture = getScheduledExecutor().scheduleWithFixedDelay(this::controlMode, 10, 60, TimeUnit.SECONDS);
         }
 
-        // 自动关闭质控状态
-        getScheduledExecutor().schedule(() -> {
-            try {
-                ParticulateZeroCheckerCommandAttribute commandPM2_5Attr = (ParticulateZeroCheckerCommandAttribute) getAttrs().get("pm2_5_zero_check_command");
-                commandPM2_5Attr.sendCommand("关闭"); // 发送关闭命令
-            } catch (Exception e) {
-                log.error("Failed to send close command: " + e.getMessage());
-            }
-        }, 8, TimeUnit.SECONDS);
-
-        getScheduledExecutor().schedule(() -> {
-            try {
-                ParticulateZeroCheckerCommandAttribute commandPM10Attr = (ParticulateZeroCheckerCommandAttribute) getAttrs().get("pm10_zero_check_command");
-                commandPM10Attr.sendCommand("关闭"); // 发送关闭命令
-            } catch (Exception e) {
-                log.error("Failed to send close command: " + e.getMessage());
-            }
-        }, 10, TimeUnit.SECONDS);
+        // 自动关闭质控状态：PM2.5通道应答后立即关闭PM10通道，不再按固定间隔
+        getScheduledExecutor().schedule(() -> closeChannel("pm2_5_zero_check_command")
+                .thenCompose(ok -> closeChannel("pm10_zero_check_command")),
+                CLOSE_ON_START_DELAY_SECONDS, TimeUnit.SECONDS);
+    }
+
+    /**
+     * 发送关闭命令，失败只记录日志，不影响后续通道
+     * @return 设备应答成功为 true
+     */
+    private CompletableFuture<Boolean> closeChannel(String attributeId) {
+        try {
+            ParticulateZeroCheckerCommandAttribute commandAttr = (ParticulateZeroCheckerCommandAttribute) getAttrs().get(attributeId);
+            return commandAttr.sendCommand("关闭").exceptionally(e -> {
+                log.error("Failed to send close command to " + attributeId + ": " + e.getMessage());
+                return false;
+            });
+        } catch (Exception e) {
+            log.error("Failed to send close command to " + attributeId + ": " + e.getMessage());
+            return CompletableFuture.completedFuture(false);
+        }
     }
 
     @Override
@@ -84,15 +92,19 @@ public class ParticulateZeroChecker extends SmsDeviceBase {
      * 创建设备属性
      */
     private void createAttributes() {
-        setAttribute(new ParticulateZeroCheckerCommandAttribute(
+        ParticulateZeroCheckerCommandAttribute pm10Command = new ParticulateZeroCheckerCommandAttribute(
                 "pm10_zero_check_command",
                 AttributeClass.DISPATCH_COMMAND,
-                modbusSource, (short)0x01, (short)0x02));
+                modbusSource, (short)0x01, (short)0x02);
+        pm10Command.setDevice(this);
+        setAttribute(pm10Command);
 
-        setAttribute(new ParticulateZeroCheckerCommandAttribute(
+        ParticulateZeroCheckerCommandAttribute pm25Command = new ParticulateZeroCheckerCommandAttribute(
                 "pm2_5_zero_check_command",
                 AttributeClass.DISPATCH_COMMAND,
-                modbusSource, (short)0x03, (short)0x04));
+                modbusSource, (short)0x03, (short)0x04);
+        pm25Command.setDevice(this);
+        setAttribute(pm25Command);
     }
 
     /**
@@ -16,8 +16,8 @@ import com.ecat.integration.ModbusIntegration.ModbusTransactionStrategy;
  * @version V1.0
  * @author coffee
  */
-public class ParticulateZeroCheckerCommandAttribute extends StringCommandAttribute{
-    private final ModbusSource modbusSource;
+public class ParticulateZeroCheckerCommandAttribute extends StringCommandAttribute implements ModbusSourceAware {
+    private volatile ModbusSource modbusSource;
     private final Map<String, Short> optionToBitMap;  // 选项到寄存器地址的映射
 
     // 寄存器地址定义, 默认值为0x0001和0x0002
@@ -26,6 +26,8 @@ public class ParticulateZeroCheckerCommandAttribute extends StringCommandAttribu
 
     // 运行状态
     private volatile boolean isRunning = false;
+    // 写事务计入该设备的线路统计
+    private SmsDeviceBase device;
 
     public ParticulateZeroCheckerCommandAttribute(String attributeID, AttributeClass attrClass, ModbusSource modbusSource,
         short turn_on_addr, short turn_off_addr) {
@@ -43,6 +45,15 @@ public class ParticulateZeroCheckerCommandAttribute extends StringCommandAttribu
         setCommands(new ArrayList<>(optionToBitMap.keySet()));
     }
 
+    /**
+     * 设置Modbus源（通信参数变化重新登记后）
+     * @param modbusSource Modbus源
+     */
+    @Override
+    public void setModbusSource(ModbusSource modbusSource) {
+        this.modbusSource = modbusSource;
+    }
+
     @Override
     protected CompletableFuture<Boolean> sendCommandImpl(String cmd) {
         // 校验选项是否合法
@@ -65,28 +76,59 @@ public class ParticulateZeroCheckerCommandAttribute extends StringCommandAttribu
         return handleStateChange(registerAddr);
     }
 
+    /**
+     * 设置所属设备，写事务计入该设备的线路统计
+     */
+    public void setDevice(SmsDeviceBase device) {
+        this.device = device;
+    }
+
+    /**
+     * 是否有开关操作正在执行（从发出到设备应答）
+     */
+    public boolean isRunning() {
+        return isRunning;
+    }
+
     private CompletableFuture<Boolean> handleStateChange(short registerAddr) {
-        // 检查是否正在运行
-        if (isRunning) {
-            CompletableFuture<Boolean> failedFuture = new CompletableFuture<>();
-            failedFuture.completeExceptionally(new RuntimeException("设备正在执行开关操作，请等待完成"));
-            return failedFuture;
+        // 检查是否正在运行，检查和置位需原子完成
+        synchronized (this) {
+            if (isRunning) {
+                CompletableFuture<Boolean> failedFuture = new CompletableFuture<>();
+                failedFuture.completeExceptionally(new RuntimeException("设备正在执行开关操作，请等待完成"));
+                return failedFuture;
+            }
+            isRunning = true;
         }
-        
+
+        CompletableFuture<Boolean> transaction;
+        try {
+            transaction = executeStateChange(registerAddr);
+        } catch (RuntimeException e) {
+            isRunning = false;
+            throw e;
+        }
+        // 事务未能获得总线就失败时同样要恢复运行状态
+        return transaction.whenComplete((ok, throwable) -> isRunning = false);
+    }
+
+    private CompletableFuture<Boolean> executeStateChange(short registerAddr) {
         return ModbusTransactionStrategy.executeWithLambda(modbusSource, source -> {
 
-            return source.writeRegister(registerAddr, (short) 0)
+            return SaimosenEvents.traceCommandWrite("", "ParticulateZeroChecker", getAttributeID(),
+                    registerAddr, 0, () -> device != null
+                            ? device.recordBusWrite(getAttributeID(), registerAddr, 0,
+                                    () -> source.writeRegister(registerAddr, (short) 0))
+                            : source.writeRegister(registerAddr, (short) 0))
                 .thenApply(response -> {
                     if (response == null || response.isException()) {
                         throw new RuntimeException("写入寄存器失败，地址: " + registerAddr + "，值: " +  "0");
                     }
-                    isRunning = false;
                     return true;
                 })
                 
                 // 异常处理
                 .exceptionally(ex -> {
-                    isRunning = false; // 确保在异常情况下也能恢复运行状态
                     throw new RuntimeException("开关切换过程中发生错误: " + ex.getMessage(), ex);
                 });
             });
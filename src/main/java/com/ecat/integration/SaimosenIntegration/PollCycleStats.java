@@ -0,0 +1,169 @@
+package com.ecat.integration.SaimosenIntegration;
+
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 轮询周期结果计数
+ *
+ * <p>替代每个周期一条info日志：成功/部分成功/失败只做计数，
+ * 由设备在结果状态变化时输出一条日志，并按固定间隔输出一次汇总。
+ * 本类只负责计数和判断，不输出日志。</p>
+ *
+ * @version V1.0
+ */
+public class PollCycleStats {
+
+    /**
+     * 单个轮询周期的结果
+     */
+    public enum Result {
+        OK,
+        PARTIAL,
+        FAILED
+    }
+
+    private final LongAdder ok = new LongAdder();
+    private final LongAdder partial = new LongAdder();
+    private final LongAdder failed = new LongAdder();
+    private final AtomicReference<Result> lastResult = new AtomicReference<>();
+    private final Set<String> failingSegments = ConcurrentHashMap.newKeySet();
+
+    private final long summaryIntervalNanos;
+    private final AtomicLong windowStart;
+    private long windowOk;
+    private long windowPartial;
+    private long windowFailed;
+
+    /**
+     * @param summaryIntervalSeconds 汇总间隔（秒），小于等于0表示不输出汇总
+     */
+    public PollCycleStats(long summaryIntervalSeconds) {
+        this(summaryIntervalSeconds, System.nanoTime());
+    }
+
+    PollCycleStats(long summaryIntervalSeconds, long nowNanos) {
+        this.summaryIntervalNanos = summaryIntervalSeconds * 1_000_000_000L;
+        this.windowStart = new AtomicLong(nowNanos);
+    }
+
+    /**
+     * 记录一个周期结果
+     * @return 上一个周期的结果（首个周期为null），与本次不同时表示状态发生了变化
+     */
+    public Result record(Result result) {
+        switch (result) {
+            case OK:
+                ok.increment();
+                break;
+            case PARTIAL:
+                partial.increment();
+                break;
+            default:
+                failed.increment();
+                break;
+        }
+        return lastResult.getAndSet(result);
+    }
+
+    /**
+     * 标记数据段失败
+     * @return true 表示该数据段此前正常，本次是新出现的失败
+     */
+    public boolean markSegmentFailed(String segmentName) {
+        return failingSegments.add(segmentName);
+    }
+
+    /**
+     * 标记数据段成功
+     * @return true 表示该数据段此前处于失败状态，本次恢复
+     */
+    public boolean markSegmentOk(String segmentName) {
+        return !failingSegments.isEmpty() && failingSegments.remove(segmentName);
+    }
+
+    /**
+     * 到达汇总间隔时返回本窗口的汇总并开启新窗口，否则返回null。
+     * 只有一个线程能取得某个窗口的汇总。
+     */
+    public Summary pollSummary() {
+        return pollSummary(System.nanoTime());
+    }
+
+    Summary pollSummary(long nowNanos) {
+        if (summaryIntervalNanos <= 0) {
+            return null;
+        }
+        long start = windowStart.get();
+        if (nowNanos - start < summaryIntervalNanos || !windowStart.compareAndSet(start, nowNanos)) {
+            return null;
+        }
+        synchronized (this) {
+            long totalOk = ok.sum();
+            long totalPartial = partial.sum();
+            long totalFailed = failed.sum();
+            Summary summary = new Summary((nowNanos - start) / 1_000_000_000L,
+                    totalOk - windowOk, totalPartial - windowPartial, totalFailed - windowFailed);
+            windowOk = totalOk;
+            windowPartial = totalPartial;
+            windowFailed = totalFailed;
+            return summary;
+        }
+    }
+
+    public long getOkCount() {
+        return ok.sum();
+    }
+
+    public long getPartialCount() {
+        return partial.sum();
+    }
+
+    public long getFailedCount() {
+        return failed.sum();
+    }
+
+    public Result getLastResult() {
+        return lastResult.get();
+    }
+
+    /**
+     * 一个汇总窗口内的周期计数
+     */
+    public static class Summary {
+        private final long seconds;
+        private final long ok;
+        private final long partial;
+        private final long failed;
+
+        Summary(long seconds, long ok, long partial, long failed) {
+            this.seconds = seconds;
+            this.ok = ok;
+            this.partial = partial;
+            this.failed = failed;
+        }
+
+        public long getSeconds() {
+            return seconds;
+        }
+
+        public long getOk() {
+            return ok;
+        }
+
+        public long getPartial() {
+            return partial;
+        }
+
+        public long getFailed() {
+            return failed;
+        }
+
+        public long getTotal() {
+            return ok + partial + failed;
+        }
+    }
+}
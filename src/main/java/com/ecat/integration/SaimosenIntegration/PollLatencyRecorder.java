@@ -0,0 +1,113 @@
+package com.ecat.integration.SaimosenIntegration;
+
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 轮询周期分阶段延迟记录器
+ *
+ * <p>设备开启 `diagnostics.latency` 时持有一个实例，按 数据段 × 阶段 维护 {@link LatencyHistogram}，
+ * 同时为每个阶段维护一个汇总直方图，供诊断属性和快照接口使用。直方图在第一次记录时创建，
+ * 只有实际记录过的组合占用内存：数据段只有 BUS、DECODE，{@link #CYCLE} 只有 QUEUE_WAIT、PUBLISH。</p>
+ *
+ * <ul>
+ *   <li>QUEUE_WAIT：提交事务到获得总线的等待时间（按周期记录）</li>
+ *   <li>BUS：一次读寄存器请求从下发到收到响应的总线往返时间（按数据段记录）</li>
+ *   <li>DECODE：寄存器数据解析为工程值的耗时（按数据段记录）</li>
+ *   <li>PUBLISH：属性状态发布耗时（按周期记录）</li>
+ * </ul>
+ *
+ * @version V1.0
+ */
+public class PollLatencyRecorder {
+
+    /**
+     * 按周期记录的阶段使用的数据段名
+     */
+    public static final String CYCLE = "cycle";
+
+    /**
+     * 默认滚动窗口：3个1分钟的时间槽
+     */
+    private static final long DEFAULT_SLOT_MILLIS = 60_000L;
+    private static final int DEFAULT_SLOT_COUNT = 3;
+
+    public enum Stage {
+        QUEUE_WAIT("queue_wait"),
+        BUS("bus"),
+        DECODE("decode"),
+        PUBLISH("publish");
+
+        private final String key;
+
+        Stage(String key) {
+            this.key = key;
+        }
+
+        public String getKey() {
+            return key;
+        }
+    }
+
+    private final long slotMillis;
+    private final int slotCount;
+    private final Map<String, Map<Stage, LatencyHistogram>> segments = new ConcurrentHashMap<>();
+    private final Map<Stage, LatencyHistogram> totals = new ConcurrentHashMap<>();
+
+    public PollLatencyRecorder() {
+        this(DEFAULT_SLOT_MILLIS, DEFAULT_SLOT_COUNT);
+    }
+
+    public PollLatencyRecorder(long slotMillis, int slotCount) {
+        this.slotMillis = slotMillis;
+        this.slotCount = slotCount;
+    }
+
+    /**
+     * 记录一个阶段耗时
+     * @param segmentName 数据段名，按周期记录的阶段使用 {@link #CYCLE}
+     * @param stage 阶段
+     * @param nanos 耗时（纳秒）
+     */
+    public void record(String segmentName, Stage stage, long nanos) {
+        segments.computeIfAbsent(segmentName, k -> new ConcurrentHashMap<>())
+                .computeIfAbsent(stage, this::createHistogram).recordNanos(nanos);
+        totals.computeIfAbsent(stage, this::createHistogram).recordNanos(nanos);
+    }
+
+    /**
+     * 获取某个阶段跨所有数据段的汇总快照，没有记录过的阶段返回 {@link LatencyHistogram.Snapshot#EMPTY}
+     */
+    public LatencyHistogram.Snapshot getStageSnapshot(Stage stage) {
+        LatencyHistogram histogram = totals.get(stage);
+        return histogram == null ? LatencyHistogram.Snapshot.EMPTY : histogram.snapshot();
+    }
+
+    /**
+     * 获取所有数据段、所有已记录阶段的快照
+     * @return segmentName -> (stage -> snapshot)，按数据段名插入顺序无保证
+     */
+    public Map<String, Map<Stage, LatencyHistogram.Snapshot>> getSnapshot() {
+        Map<String, Map<Stage, LatencyHistogram.Snapshot>> result = new LinkedHashMap<>();
+        for (Map.Entry<String, Map<Stage, LatencyHistogram>> entry : segments.entrySet()) {
+            Map<Stage, LatencyHistogram.Snapshot> stages = new EnumMap<>(Stage.class);
+            for (Map.Entry<Stage, LatencyHistogram> stageEntry : entry.getValue().entrySet()) {
+                LatencyHistogram.Snapshot snapshot = stageEntry.getValue().snapshot();
+                if (snapshot.getCount() > 0) {
+                    stages.put(stageEntry.getKey(), snapshot);
+                }
+            }
+            if (!stages.isEmpty()) {
+                result.put(entry.getKey(), Collections.unmodifiableMap(stages));
+            }
+        }
+        return Collections.unmodifiableMap(result);
+    }
+
+    private LatencyHistogram createHistogram(Stage stage) {
+        return new LatencyHistogram(slotMillis, slotCount);
+    }
+}
@@ -0,0 +1,96 @@
+package com.ecat.integration.SaimosenIntegration;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+/**
+ * 设备发布属性后的监听和读数状态确认
+ *
+ * <p>设备每次发布属性后调用 {@link #notifyListeners}，依次运行登记的监听器，单个监听器失败不影响其它监听器。
+ * {@link #await} 在此之上等待命令写入后的读数满足条件：每次发布后检查，开始时立即探测一次，之后按探测间隔
+ * 主动调用探测读取（通常是一次轮询周期或只读状态寄存器），不等下一个轮询周期；超时以 false 完成。
+ * 开始等待时缓存的读数可能是写入前的，不作为满足条件的依据。</p>
+ *
+ * @version V1.0
+ */
+public class PublishObserver {
+
+    private final List<Runnable> listeners = new CopyOnWriteArrayList<>();
+    private final Supplier<ScheduledExecutorService> executor;
+    private final Supplier<CompletableFuture<Boolean>> probe;
+
+    /**
+     * @param executor 定时超时和探测的调度器
+     * @param probe 读取反映状态的寄存器并发布
+     */
+    public PublishObserver(Supplier<ScheduledExecutorService> executor, Supplier<CompletableFuture<Boolean>> probe) {
+        this.executor = executor;
+        this.probe = probe;
+    }
+
+    public void addListener(Runnable listener) {
+        listeners.add(listener);
+    }
+
+    public void removeListener(Runnable listener) {
+        listeners.remove(listener);
+    }
+
+    /**
+     * 运行全部监听器
+     * @param onFailure 监听器抛出异常时调用
+     */
+    public void notifyListeners(Consumer<RuntimeException> onFailure) {
+        for (Runnable listener : listeners) {
+            try {
+                listener.run();
+            } catch (RuntimeException e) {
+                onFailure.accept(e);
+            }
+        }
+    }
+
+    /**
+     * 等待读数满足条件
+     * @param condition 读数满足的条件，在发布线程上调用
+     * @param timeoutMillis 超时时间（毫秒）
+     * @param probeMillis 探测间隔（毫秒），0 不探测，只等待发布
+     * @return 条件满足时为 true，超时为 false
+     */
+    public CompletableFuture<Boolean> await(BooleanSupplier condition, long timeoutMillis, long probeMillis) {
+        CompletableFuture<Boolean> observed = new CompletableFuture<>();
+        Runnable listener = () -> {
+            if (condition.getAsBoolean()) {
+                observed.complete(true);
+            }
+        };
+        addListener(listener);
+        ScheduledFuture<?> timeout = executor.get().schedule(() -> observed.complete(false),
+                timeoutMillis, TimeUnit.MILLISECONDS);
+        observed.whenComplete((ok, throwable) -> {
+            removeListener(listener);
+            timeout.cancel(false);
+        });
+        scheduleProbe(observed, 0, probeMillis);
+        return observed;
+    }
+
+    private void scheduleProbe(CompletableFuture<Boolean> observed, long delayMillis, long probeMillis) {
+        if (observed.isDone() || probeMillis <= 0) {
+            return;
+        }
+        executor.get().schedule(() -> {
+            if (observed.isDone()) {
+                return;
+            }
+            probe.get().whenComplete((ok, throwable) -> scheduleProbe(observed, probeMillis, probeMillis));
+        }, delayMillis, TimeUnit.MILLISECONDS);
+    }
+}
@@ -29,14 +29,12 @@ import com.ecat.core.Utils.DynamicConfig.ConfigDefinition;
 import com.ecat.core.Utils.DynamicConfig.ConfigItem;
 import com.ecat.core.Utils.DynamicConfig.ConfigItemBuilder;
 import com.ecat.core.State.UnitInfo;
-import com.ecat.integration.ModbusIntegration.ModbusTransactionStrategy;
 import com.ecat.integration.ModbusIntegration.Tools;
 import com.ecat.integration.ModbusIntegration.Attribute.ModbusFloatAttribute;
 import com.ecat.integration.ModbusIntegration.Attribute.ModbusShortAttribute;
 import com.ecat.integration.ModbusIntegration.Attribute.ModbusScalableFloatSRAttribute;
 import com.ecat.integration.ModbusIntegration.EndianConverter.AbstractEndianConverter;
 import com.ecat.integration.ModbusIntegration.EndianConverter.BigEndianConverter;
-import com.serotonin.modbus4j.ModbusConfig;
 
 import lombok.Getter;
 import lombok.Setter;
@@ -64,6 +62,8 @@ public class QCDevice extends SmsDeviceBase {
 
     private ConfigDefinition configDefinition;
     private DeviceConfig deviceConfig;
+    // 采样管流量无效提示只在状态变化时输出
+    private boolean samplingTubeFlowInvalid = false;
 
     private ScheduledFuture<?> testControlFuture;
     private boolean isDebug = false; // 是否开启调试模式
@@ -82,13 +82,13 @@ public class QCDevice extends SmsDeviceBase {
     public void init() {
         super.init();
         createAttributes();
-        ModbusConfig.setEnableDataLog(true, true);
+        restoreSnapshot();
     }
 
     @Override
     public void start() {
         // 每10秒定时读取一次Modbus数据
-        readFuture = getScheduledExecutor().scheduleWithFixedDelay(this::readRegisters, 0, 5, TimeUnit.SECONDS);
+        readFuture = schedulePolling(this::readRegisters);
 
         if (isDebug) {
             testControlFuture = getScheduledExecutor().scheduleWithFixedDelay(this::controlMode, 60, 60, TimeUnit.SECONDS);
@@ -490,6 +490,12 @@ public class QCDevice extends SmsDeviceBase {
                 NoConversionUnit.of("s", "秒"), NoConversionUnit.of("s", "秒"), 1, false, false));
     }
 
+    @Override
+    protected void onModbusSourceChanged() {
+        // ModbusFloatAttribute 等属性类没有修改 ModbusSource 的入口，按新的 ModbusSource 重建属性
+        createAttributes();
+    }
+
     /**
      * 动态创建属性（关键优化：根据dataType选择属性类）
      */
@@ -511,7 +517,7 @@ public class QCDevice extends SmsDeviceBase {
     private void createAttribute(AttributeInfo info, Integer address) {
         switch (info.dataType) {
             case FLOAT:
-                setAttribute(new ModbusFloatAttribute(
+                setRoutedAttribute(new SmsModbusFloatAttribute(
                     info.attributeId, info.attrClass,
                     info.unitType, info.unitType, info.displayPrecision, false, info.isWritable,
                     modbusSource, address.shortValue(), bigConverter
@@ -519,7 +525,7 @@ public class QCDevice extends SmsDeviceBase {
                 break;
 
             case U16X10:
-                setAttribute(new ModbusScalableFloatSRAttribute(
+                setRoutedAttribute(new SmsModbusScalableFloatAttribute(
                     info.attributeId, info.attrClass,
                     info.unitType, info.unitType, info.displayPrecision, false, info.isWritable,
                     modbusSource, address.shortValue(), bigConverter, 10.0f
@@ -527,7 +533,7 @@ public class QCDevice extends SmsDeviceBase {
                 break;
 
             case U16:
-                setAttribute(new ModbusShortAttribute(
+                setRoutedAttribute(new SmsModbusShortAttribute(
                     info.attributeId, info.attrClass,
                     info.unitType, info.unitType, info.displayPrecision, false, info.isWritable,
                     modbusSource, address.shortValue()
@@ -536,50 +542,69 @@ public class QCDevice extends SmsDeviceBase {
         }
     }
 
+    @Override
+    public CompletableFuture<Boolean> pollOnce() {
+        return readRegisters();
+    }
+
+    @Override
+    protected String[] getStoredAttributeIds() {
+        return new String[] {"pm10_std_flow", "pm10_working_flow", "pm2_5_std_flow", "pm2_5_working_flow"};
+    }
+
+
+    @Override
+    protected int[] getPollSegmentSizes() {
+        return new int[] {FIRST_BLOCK_COUNT, SECOND_BLOCK_COUNT};
+    }
+
     /**
      * 定时读取Modbus寄存器数据
      */
-    protected void readRegisters() {
-        ModbusTransactionStrategy.executeWithLambda(modbusSource, source -> {
+    protected CompletableFuture<Boolean> readRegisters() {
+        return executePoll(source -> {
             // 先读取第一个地址块(前110个参数)
-            return source.readHoldingRegisters(FIRST_BLOCK_START, FIRST_BLOCK_COUNT)
+            return readSegmentRegisters(source, "first_block", FIRST_BLOCK_START, FIRST_BLOCK_COUNT)
                     .thenCompose(firstResponse -> {
                         try {
                             // 处理第一块数据
                             short[] firstBlockRegisters = firstResponse.getShortData();
-                            parseBlockData(firstBlockRegisters, FIRST_BLOCK_START);
+                            decodeBlock("first_block", firstBlockRegisters, data -> parseBlockData(data, FIRST_BLOCK_START));
 
                             // 再读取第二个地址块(剩余122个参数)
-                            return source.readHoldingRegisters(SECOND_BLOCK_START, SECOND_BLOCK_COUNT)
+                            return readSegmentRegisters(source, "second_block", SECOND_BLOCK_START, SECOND_BLOCK_COUNT)
                                     .thenApply(secondResponse -> {
                                         try {
                                             // 处理第二块数据
                                             short[] secondBlockRegisters = secondResponse.getShortData();
-                                            parseBlockData(secondBlockRegisters, SECOND_BLOCK_START);
+                                            decodeBlock("second_block", secondBlockRegisters, data -> parseBlockData(data, SECOND_BLOCK_START));
                                             
                                             // 更新计算属性
                                             updateCalulateAttr();
 
                                             // 设置所有属性状态
                                             getAttrs().values().forEach(attr -> attr.setStatus(AttributeStatus.NORMAL));
-                                            publicAttrsState();
-                                            log.info("QCDevice " + getId() + " - 数据更新成功");
+                                            publishAttributes();
+                                            recordPollResult(PollCycleStats.Result.OK, "数据更新成功");
                                             return true;
                                         } catch (Exception e) {
-                                            log.error("QCDevice 第二块数据解析失败: " + e.getMessage());
+                                            recordPollResult(PollCycleStats.Result.FAILED, "第二块数据解析失败: {}", e.getMessage());
                                             getAttrs().values()
                                                     .forEach(attr -> attr.setStatus(AttributeStatus.MALFUNCTION));
-                                            publicAttrsState();
+                                            publishAttributes();
                                             return false;
                                         }
                                     });
                         } catch (Exception e) {
-                            log.error("QCDevice 第一块数据解析失败: " + e.getMessage());
+                            recordPollResult(PollCycleStats.Result.FAILED, "第一块数据解析失败: {}", e.getMessage());
                             getAttrs().values().forEach(attr -> attr.setStatus(AttributeStatus.MALFUNCTION));
-                            publicAttrsState();
+                            publishAttributes();
                             return CompletableFuture.completedFuture(false);
                         }
                     });
+        }).exceptionally(throwable -> {
+            recordPollResult(PollCycleStats.Result.FAILED, "communication failed: {}", throwable.getMessage());
+            return false;
         });
     }
 
@@ -646,6 +671,10 @@ public class QCDevice extends SmsDeviceBase {
      * 更新float类型属性值
      */
     private void updateModbusFloatAttribute(String attributeId, float value, AttributeStatus status) {
+        // 写入后尚未被新读数对账的属性保持写入值
+        if (!acceptRead(attributeId)) {
+            return;
+        }
         ModbusFloatAttribute attr = (ModbusFloatAttribute) getAttrs().get(attributeId);
         if (attr != null) {
             attr.updateValue(value, status);
@@ -656,6 +685,10 @@ public class QCDevice extends SmsDeviceBase {
      * 更新short类型属性值
      */
     private void updateModbusShortAttribute(String attributeId, short value, AttributeStatus status) {
+        // 写入后尚未被新读数对账的属性保持写入值
+        if (!acceptRead(attributeId)) {
+            return;
+        }
         ModbusShortAttribute attr = (ModbusShortAttribute) getAttrs().get(attributeId);
         if (attr != null) {
             attr.updateValue(value, status);
@@ -663,6 +696,10 @@ public class QCDevice extends SmsDeviceBase {
     }
 
     private void updateModbus10XShortAttribute(String attributeId, short value, AttributeStatus status) {
+        // 写入后尚未被新读数对账的属性保持写入值
+        if (!acceptRead(attributeId)) {
+            return;
+        }
         ModbusScalableFloatSRAttribute attr = (ModbusScalableFloatSRAttribute) getAttrs().get(attributeId);
         if (attr != null) attr.updateValue(value, status);
     }
@@ -674,9 +711,14 @@ public class QCDevice extends SmsDeviceBase {
             Double residenceTime = 999.0; // 默认值
             Float samplingTubeFlow = samplingTubeFlowAttr.getValue();
             if( samplingTubeFlow == null || samplingTubeFlow <= 0) {
-                log.warn("采样管流量为0或null，无效，无法计算滞留时间，设置为极大的默认值");
+                // 只在流量由有效变为无效时提示一次，避免每个周期重复输出
+                if (!samplingTubeFlowInvalid) {
+                    log.warn("QCDevice {} - 采样管流量为0或null，无效，无法计算滞留时间，设置为极大的默认值", getId());
+                    samplingTubeFlowInvalid = true;
+                }
             }
             else{
+                samplingTubeFlowInvalid = false;
                 residenceTime = deviceConfig.getSamplingTubeLength() / samplingTubeFlow;
             }
 
@@ -746,17 +788,13 @@ public class QCDevice extends SmsDeviceBase {
                 if (dev instanceof QCDevice) {
                     if (testCount++ % 2 == 0) {
                         // start calibration
-                        ((ModbusShortAttribute) dev.getAttrs().get("calibration_valve_so2"))
-                                .setDisplayValue("1");
-                        ((ModbusShortAttribute) dev.getAttrs().get("zero_gas_relay"))
-                                .setDisplayValue("1");
+                        ((QCDevice) dev).writeAttribute("calibration_valve_so2", "1");
+                        ((QCDevice) dev).writeAttribute("zero_gas_relay", "1");
 
                     } else {
                         //stop
-                        ((ModbusShortAttribute) dev.getAttrs().get("calibration_valve_so2"))
-                                .setDisplayValue("0");
-                        ((ModbusShortAttribute) dev.getAttrs().get("zero_gas_relay"))
-                                .setDisplayValue("0");
+                        ((QCDevice) dev).writeAttribute("calibration_valve_so2", "0");
+                        ((QCDevice) dev).writeAttribute("zero_gas_relay", "0");
                     }
                 }
             }
@@ -0,0 +1,351 @@
+package com.ecat.integration.SaimosenIntegration;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 寄存器报文记录文件
+ *
+ * <p>记录现场设备每个数据段读回的寄存器原始值（时间戳、设备类、设备ID、从站地址、数据段、起始地址、数据），
+ * 用于离线回放到设备解析代码，作为真实固件数据的回归测试和解析/发布吞吐基准的输入。</p>
+ *
+ * <p>文件格式（大端）：</p>
+ * <pre>
+ * 文件头:   'S' 'M' 'R' 'T' 版本(1字节)
+ * 字典项:   0x01 id(varint) 字符串(UTF)        —— 设备类、设备ID、数据段名首次出现时写入
+ * 数据帧:   0x02 时间差(zigzag varlong, 毫秒，相对上一帧)
+ *           设备类id(varint) 设备ID id(varint) 数据段id(varint)
+ *           从站地址(1字节) 起始地址(varint) 寄存器数(varint) 寄存器值(每个2字节)
+ * </pre>
+ *
+ * <p>同一文件可由多个设备共享（通过 {@link #writerFor(String)} 获取），写入按帧加锁。
+ * 每帧的额外开销通常为8~10字节。</p>
+ *
+ * @version V1.0
+ */
+public final class RegisterTrafficLog {
+
+    private static final byte[] MAGIC = {'S', 'M', 'R', 'T'};
+    private static final int VERSION = 1;
+    private static final int TAG_STRING = 0x01;
+    private static final int TAG_FRAME = 0x02;
+    private static final long FLUSH_INTERVAL_MILLIS = 1000;
+
+    private static final Map<String, Writer> WRITERS = new ConcurrentHashMap<>();
+
+    private RegisterTrafficLog() {
+    }
+
+    /**
+     * 获取指定文件的共享写入器，不存在时创建（追加到已有文件）
+     */
+    public static Writer writerFor(String file) throws IOException {
+        Path path = Paths.get(file).toAbsolutePath().normalize();
+        try {
+            return WRITERS.computeIfAbsent(path.toString(), key -> {
+                try {
+                    return new Writer(Files.newOutputStream(path, StandardOpenOption.CREATE, StandardOpenOption.APPEND));
+                } catch (IOException e) {
+                    throw new IllegalStateException(e);
+                }
+            });
+        } catch (IllegalStateException e) {
+            if (e.getCause() instanceof IOException) {
+                throw (IOException) e.getCause();
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * 关闭所有共享写入器（集成释放时调用）
+     */
+    public static void closeAll() {
+        for (Writer writer : WRITERS.values()) {
+            try {
+                writer.close();
+            } catch (IOException e) {
+                // 关闭失败时丢弃未刷新的数据
+            }
+        }
+        WRITERS.clear();
+    }
+
+    /**
+     * 打开记录文件读取
+     */
+    public static Reader open(Path file) throws IOException {
+        return new Reader(Files.newInputStream(file));
+    }
+
+    /**
+     * 读取整个记录文件
+     */
+    public static List<Record> readAll(Path file) throws IOException {
+        List<Record> records = new ArrayList<>();
+        try (Reader reader = open(file)) {
+            Record record;
+            while ((record = reader.next()) != null) {
+                records.add(record);
+            }
+        }
+        return records;
+    }
+
+    /**
+     * 记录文件写入器
+     *
+     * <p>每个写入器先写文件头；追加到已有文件时字典和时间基准随新的文件头重新开始，
+     * 读取端遇到文件头时同样重置，所以多次追加的文件可以连续读取。</p>
+     */
+    public static class Writer implements Closeable {
+        private final DataOutputStream out;
+        private final Map<String, Integer> dictionary = new HashMap<>();
+        private long lastTimestamp;
+        private long lastFlush = System.currentTimeMillis();
+        private boolean closed;
+
+        public Writer(OutputStream output) throws IOException {
+            this.out = new DataOutputStream(new BufferedOutputStream(output, 64 * 1024));
+            out.write(MAGIC);
+            out.writeByte(VERSION);
+        }
+
+        /**
+         * 追加一帧
+         */
+        public synchronized void append(long timestamp, String deviceClass, String deviceId, int slaveId,
+                String segment, int startAddress, short[] registers) throws IOException {
+            if (closed) {
+                throw new IOException("traffic log closed");
+            }
+            int classId = intern(deviceClass);
+            int deviceRef = intern(deviceId);
+            int segmentId = intern(segment);
+
+            out.writeByte(TAG_FRAME);
+            long delta = timestamp - lastTimestamp;
+            writeVarLong(out, (delta << 1) ^ (delta >> 63));
+            lastTimestamp = timestamp;
+            writeVarLong(out, classId);
+            writeVarLong(out, deviceRef);
+            writeVarLong(out, segmentId);
+            out.writeByte(slaveId);
+            writeVarLong(out, startAddress);
+            writeVarLong(out, registers.length);
+            for (short register : registers) {
+                out.writeShort(register);
+            }
+
+            long now = System.currentTimeMillis();
+            if (now - lastFlush >= FLUSH_INTERVAL_MILLIS) {
+                out.flush();
+                lastFlush = now;
+            }
+        }
+
+        public synchronized void flush() throws IOException {
+            out.flush();
+        }
+
+        @Override
+        public synchronized void close() throws IOException {
+            if (!closed) {
+                closed = true;
+                out.close();
+            }
+        }
+
+        private int intern(String value) throws IOException {
+            String key = value == null ? "" : value;
+            Integer id = dictionary.get(key);
+            if (id == null) {
+                id = dictionary.size();
+                dictionary.put(key, id);
+                out.writeByte(TAG_STRING);
+                writeVarLong(out, id);
+                out.writeUTF(key);
+            }
+            return id;
+        }
+    }
+
+    /**
+     * 记录文件读取器
+     */
+    public static class Reader implements Closeable {
+        private final DataInputStream in;
+        private final List<String> dictionary = new ArrayList<>();
+        private long lastTimestamp;
+
+        public Reader(InputStream input) throws IOException {
+            this.in = new DataInputStream(new BufferedInputStream(input, 64 * 1024));
+            readHeader(in.readUnsignedByte());
+        }
+
+        /**
+         * 读取下一帧，到达文件末尾时返回null
+         */
+        public Record next() throws IOException {
+            while (true) {
+                int tag = in.read();
+                if (tag < 0) {
+                    return null;
+                }
+                if (tag == MAGIC[0]) {
+                    // 追加写入的新段
+                    readHeader(tag);
+                } else if (tag == TAG_STRING) {
+                    int id = (int) readVarLong(in);
+                    String value = in.readUTF();
+                    if (id != dictionary.size()) {
+                        throw new IOException("corrupt traffic log: unexpected dictionary id " + id);
+                    }
+                    dictionary.add(value);
+                } else if (tag == TAG_FRAME) {
+                    return readFrame();
+                } else {
+                    throw new IOException("corrupt traffic log: unknown tag " + tag);
+                }
+            }
+        }
+
+        private Record readFrame() throws IOException {
+            long zigzag = readVarLong(in);
+            long timestamp = lastTimestamp + ((zigzag >>> 1) ^ -(zigzag & 1));
+            lastTimestamp = timestamp;
+            String deviceClass = lookup(readVarLong(in));
+            String deviceId = lookup(readVarLong(in));
+            String segment = lookup(readVarLong(in));
+            int slaveId = in.readUnsignedByte();
+            int startAddress = (int) readVarLong(in);
+            int count = (int) readVarLong(in);
+            short[] registers = new short[count];
+            for (int i = 0; i < count; i++) {
+                registers[i] = in.readShort();
+            }
+            return new Record(timestamp, deviceClass, deviceId, slaveId, segment, startAddress, registers);
+        }
+
+        private void readHeader(int first) throws IOException {
+            byte[] magic = new byte[MAGIC.length];
+            magic[0] = (byte) first;
+            in.readFully(magic, 1, MAGIC.length - 1);
+            for (int i = 0; i < MAGIC.length; i++) {
+                if (magic[i] != MAGIC[i]) {
+                    throw new IOException("not a traffic log file");
+                }
+            }
+            int version = in.readUnsignedByte();
+            if (version != VERSION) {
+                throw new IOException("unsupported traffic log version " + version);
+            }
+            dictionary.clear();
+            lastTimestamp = 0;
+        }
+
+        private String lookup(long id) throws IOException {
+            if (id < 0 || id >= dictionary.size()) {
+                throw new IOException("corrupt traffic log: unknown dictionary id " + id);
+            }
+            return dictionary.get((int) id);
+        }
+
+        @Override
+        public void close() throws IOException {
+            in.close();
+        }
+    }
+
+    /**
+     * 一帧记录
+     */
+    public static class Record {
+        private final long timestamp;
+        private final String deviceClass;
+        private final String deviceId;
+        private final int slaveId;
+        private final String segment;
+        private final int startAddress;
+        private final short[] registers;
+
+        public Record(long timestamp, String deviceClass, String deviceId, int slaveId,
+                String segment, int startAddress, short[] registers) {
+            this.timestamp = timestamp;
+            this.deviceClass = deviceClass;
+            this.deviceId = deviceId;
+            this.slaveId = slaveId;
+            this.segment = segment;
+            this.startAddress = startAddress;
+            this.registers = registers;
+        }
+
+        public long getTimestamp() {
+            return timestamp;
+        }
+
+        public String getDeviceClass() {
+            return deviceClass;
+        }
+
+        public String getDeviceId() {
+            return deviceId;
+        }
+
+        public int getSlaveId() {
+            return slaveId;
+        }
+
+        public String getSegment() {
+            return segment;
+        }
+
+        public int getStartAddress() {
+            return startAddress;
+        }
+
+        public int getRegisterCount() {
+            return registers.length;
+        }
+
+        public short[] getRegisters() {
+            return registers.clone();
+        }
+    }
+
+    private static void writeVarLong(DataOutputStream out, long value) throws IOException {
+        while ((value & ~0x7FL) != 0) {
+            out.writeByte((int) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        out.writeByte((int) value);
+    }
+
+    private static long readVarLong(DataInputStream in) throws IOException {
+        long value = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            int b = in.readUnsignedByte();
+            value |= (long) (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+        throw new EOFException("malformed varint");
+    }
+}
@@ -1,9 +1,11 @@
 package com.ecat.integration.SaimosenIntegration;
 
+import java.util.Arrays;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.concurrent.CompletableFuture;
-import java.util.concurrent.TimeUnit;
+import java.util.concurrent.ScheduledFuture;
 
 import com.ecat.core.Device.DeviceStatus;
 import com.ecat.core.State.AttributeAbility;
@@ -27,7 +29,7 @@ import com.ecat.integration.ModbusIntegration.Tools;
  * @version 1.0.0
  * @author caohongbo
  */
-public class SO2Device extends SmsDeviceBase {
+public class SO2Device extends SmsDeviceBase implements CalibrationWriteListener {
 
     // 数据段配置
     private static final Map<String, DataSegment> SEGMENT_CONFIG = new HashMap<>();
@@ -47,17 +49,17 @@ public class SO2Device extends SmsDeviceBase {
         SEGMENT_CONFIG.put("calibration_status", new DataSegment(0x3EE, 1, "校准状态"));  // 1006 - 可读
     }
 
+    /**
+     * 参数区间：slope~xe_latp_driving_volt_setting（float 7~14）、PMT高压设定值
+     */
+    private static final List<ParameterBackup.Range> PARAMETER_RANGES = Arrays.asList(
+            new ParameterBackup.Range("slope_corr_params", 14, 16),
+            new ParameterBackup.Range("pmt_high_volt_setting", 40, 1));
+
     private DeviceStatus deviceStatus = DeviceStatus.UNKNOWN;
-    
-    // 防止竞态条件：标记是否正在写入校准浓度
-    private volatile boolean isWritingCalibration = false;
-    // 保存最近写入的校准浓度值，避免在写入期间被读取的旧值覆盖
-    private volatile Double lastWrittenCalibrationValue = null;
-    // 写入操作的时间戳，用于判断是否在写入后的短时间内
-    private volatile long lastCalibrationWriteTime = 0;
-    // 写入保护时间窗口（毫秒），在此时间内使用写入的值而不是读取的值
-    private static final long CALIBRATION_WRITE_PROTECTION_MS = 2000; // 2秒保护期
 
+    private ScheduledFuture<?> readFuture;
+    
     public SO2Device(Map<String, Object> config) {
         super(config);
     }
@@ -66,16 +68,20 @@ public class SO2Device extends SmsDeviceBase {
     public void init() {
         super.init();
         createAttributes();
+        createAverageAttributes("so2", AttributeClass.SO2, AirVolumeUnit.PPB, 3);
+        restoreSnapshot();
     }
 
     @Override
     public void start() {
-        getScheduledExecutor().scheduleWithFixedDelay(this::readAndUpdate, 0, 5, TimeUnit.SECONDS);
+        readFuture = schedulePolling(this::readAndUpdate);
     }
 
     @Override
     public void stop() {
-        // 停止逻辑
+        if (readFuture != null) {
+            readFuture.cancel(true);
+        }
     }
 
     @Override
@@ -261,51 +267,91 @@ public class SO2Device extends SmsDeviceBase {
         GasDeviceCommandAttribute commandAttr = new GasDeviceCommandAttribute("dispatch_command",
                 AttributeClass.DISPATCH_COMMAND, new GasDeviceCommandAttribute.SO2CommandConfigFactory());
         commandAttr.setModbusSource(modbusSource);
-        commandAttr.addDependencyAttribute((NumericAttribute) getAttrs().get("calibration_concentration"));
+        commandAttr.setConcentrationAttribute((NumericAttribute) getAttrs().get("calibration_concentration"));
         commandAttr.setDeviceInstance(this); // 设置设备引用，用于防止竞态条件
         setAttribute(commandAttr);
 
         log.info("SO2Device " + getId() + " initialized with " + getAttrs().size() + " attributes");
     }
 
+    @Override
+    public CompletableFuture<Boolean> pollOnce() {
+        return readAndUpdate();
+    }
+
+    @Override
+    protected DeviceStatus getCurrentDeviceStatus() {
+        return deviceStatus;
+    }
+
+    @Override
+    protected String[] getStoredAttributeIds() {
+        return new String[] {"so2"};
+    }
+
+
+    @Override
+    protected String[] getDeferredConfigAttributeIds() {
+        return new String[] {"calibration_concentration"};
+    }
+
+    @Override
+    protected List<ParameterBackup.Range> getParameterRanges() {
+        return PARAMETER_RANGES;
+    }
+
+    @Override
+    protected int[] getPollSegmentSizes() {
+        return new int[] {SEGMENT_CONFIG.get("float_params").count, SEGMENT_CONFIG.get("u16_params").count,
+            SEGMENT_CONFIG.get("span_calibration_start").count, SEGMENT_CONFIG.get("calibration_status").count};
+    }
+
     private CompletableFuture<Boolean> readAndUpdate() {
-        return ModbusTransactionStrategy.executeWithLambda(modbusSource, source -> {
+        return executePoll(source -> {
             // 并行读取所有数据段，每个段独立处理失败情况
             CompletableFuture<SegmentData> floatDataFuture = readSegment(source, "float_params")
-                    .thenApply(this::parseFloatData)
+                    .thenApply(data -> decodeSegment("float_params", data, this::parseFloatData))
                     .handle((result, throwable) -> {
                         if (throwable != null) {
-                            log.warn("SO2Device " + getId() + " - Float data segment failed: " + throwable.getMessage());
+                            recordSegmentFailure("float_params", throwable);
                             return null; // 返回null表示失败
                         }
                         return result;
                     });
             
             CompletableFuture<SegmentData> u16DataFuture = readSegment(source, "u16_params")
-                    .thenApply(this::parseU16Data)
+                    .thenApply(data -> decodeSegment("u16_params", data, this::parseU16Data))
                     .handle((result, throwable) -> {
                         if (throwable != null) {
-                            log.warn("SO2Device " + getId() + " - U16 data segment failed: " + throwable.getMessage());
+                            recordSegmentFailure("u16_params", throwable);
                             return null; // 返回null表示失败
                         }
                         return result;
                     });
             
-            CompletableFuture<SegmentData> spanCalibConcentrationFuture = readSegment(source, "span_calibration_start")
-                    .thenApply(this::parseSpanCalibrationConcentration)
+            // 热启动后推迟首次读取跨度校准浓度（配置寄存器），期间保持快照中的值
+            
+            boolean spanDeferred = isConfigReadDeferred();
+            
+            CompletableFuture<SegmentData> spanCalibConcentrationFuture = spanDeferred
+            
+                    ? CompletableFuture.completedFuture(null)
+            
+                    : readSegment(source, "span_calibration_start")
+                    .thenApply(data -> decodeSegment("span_calibration_start", data, this::parseSpanCalibrationConcentration))
                     .handle((result, throwable) -> {
                         if (throwable != null) {
-                            log.warn("SO2Device " + getId() + " - Span calibration data segment failed: " + throwable.getMessage());
+                            recordSegmentFailure("span_calibration_start", throwable);
                             return null; // 返回null表示失败
                         }
                         return result;
                     });
             
             CompletableFuture<SegmentData> instrumentCalibStatusFuture = readSegment(source, "calibration_status")
-                    .thenApply(this::parseInstrumentCalibrationStatus)
+                    .thenApply(data -> decodeSegment("calibration_status", data, this::parseInstrumentCalibrationStatus))
                     .handle((result, throwable) -> {
                         if (throwable != null) {
-                            log.warn("SO2Device " + getId() + " - Calibration status data segment failed: " + throwable.getMessage());
+                            recordSegmentFailure("calibration_status", throwable);
                             return null; // 返回null表示失败
                         }
                         return result;
@@ -322,7 +368,7 @@ public class SO2Device extends SmsDeviceBase {
                             
                             // 统计成功的数据段
                             int successCount = 0;
-                            int totalCount = 4;
+                            int totalCount = spanDeferred ? 3 : 4;
                             
                             if (floatData != null) successCount++;
                             if (u16Data != null) successCount++;
@@ -337,19 +383,20 @@ public class SO2Device extends SmsDeviceBase {
                             updateAllAttributes(floatData, u16Data, spanCalibConcentration, instrumentCalibStatus);
                             
                             if (successCount == totalCount) {
-                                log.info("SO2Device " + getId() + " - All segments updated successfully, device status: " + deviceStatus.getStatusName());
+                                recordPollResult(PollCycleStats.Result.OK, "{}", deviceStatus.getStatusName());
                             } else {
-                                log.warn("SO2Device " + getId() + " - Partial success: " + successCount + "/" + totalCount + " segments updated, device status: " + deviceStatus.getStatusName());
+                                recordPollResult(successCount > 0 ? PollCycleStats.Result.PARTIAL : PollCycleStats.Result.FAILED,
+                                        "{}/{} segments updated, device status: {}", successCount, totalCount, deviceStatus.getStatusName());
                             }
                             return successCount > 0; // 只要有任何一个数据段成功，就返回true
                         } catch (Exception e) {
-                            log.error("SO2Device data processing failed: " + e.getMessage());
+                            recordPollResult(PollCycleStats.Result.FAILED, "data processing failed: {}", e.getMessage());
                             setAllAttributesStatus(AttributeStatus.MALFUNCTION);
                             return false;
                         }
                     });
         }).exceptionally(throwable -> {
-            log.error("SO2Device communication failed: " + throwable.getMessage());
+            recordPollResult(PollCycleStats.Result.FAILED, "communication failed: {}", throwable.getMessage());
             setAllAttributesStatus(AttributeStatus.MALFUNCTION);
             return false;
         });
@@ -363,7 +410,7 @@ public class SO2Device extends SmsDeviceBase {
             return future;
         }
         
-        return source.readHoldingRegisters(segment.startAddress, segment.count)
+        return readSegmentRegisters(source, segmentName, segment.startAddress, segment.count)
                 .thenApply(response -> response.getShortData());
     }
 
@@ -398,8 +445,12 @@ public class SO2Device extends SmsDeviceBase {
     private void processCalibrationStatus(SegmentData calibData) {
         if (calibData != null && calibData.values.length > 0) {
             short calibStatus = (short) calibData.values[0];
+            DeviceStatus previous = deviceStatus;
             deviceStatus = parseDeviceStatus(calibStatus);
-            log.info("SO2Device " + getId() + " - Calibration status: " + calibStatus + ", device status: " + deviceStatus.getStatusName());
+            if (deviceStatus != previous) {
+                log.info("SO2Device {} - device status {} -> {} (calibration status {})",
+                        getId(), previous.getStatusName(), deviceStatus.getStatusName(), calibStatus);
+            }
         }
     }
 
@@ -433,7 +484,7 @@ public class SO2Device extends SmsDeviceBase {
 
         // 设置所有属性状态
         setAllAttributesStatus(baseStatus);
-        publicAttrsState();
+        publishAttributes();
     }
 
     private void updateFloatAttributes(double[] values, AttributeStatus status) {
@@ -478,29 +529,19 @@ public class SO2Device extends SmsDeviceBase {
             updateAttribute("calibration_status", instrumentCalibStatus.values[0], status);
         }
 
+        // 推迟读取期间保持快照恢复的校准浓度
+        if (spanCalibConcentration == null && isConfigReadDeferred()) {
+            return;
+        }
+
         // 更新校准浓度属性
-        // 防止竞态条件：如果正在写入或刚写入不久，使用写入的值而不是读取的值
         double spanCalibValue = spanCalibConcentration != null && spanCalibConcentration.values.length > 0 
             ? spanCalibConcentration.values[0] : 0.0;
-        
-        // 检查是否在写入保护期内
-        long currentTime = System.currentTimeMillis();
-        boolean inWriteProtection = isWritingCalibration || 
-            (lastWrittenCalibrationValue != null && 
-             (currentTime - lastCalibrationWriteTime) < CALIBRATION_WRITE_PROTECTION_MS);
-        
-        if (inWriteProtection && lastWrittenCalibrationValue != null) {
-            // 在写入保护期内，使用最近写入的值
-            log.debug("SO2Device " + getId() + " - Using written calibration value " + lastWrittenCalibrationValue 
-                + " instead of read value " + spanCalibValue + " (write protection active)");
-            spanCalibValue = lastWrittenCalibrationValue;
-        }
-        
         updateAttribute("calibration_concentration", spanCalibValue, status);
     }
 
     private void setAllAttributesStatus(AttributeStatus status) {
-        getAttrs().values().forEach(attr -> attr.setStatus(status));
+        setReadingAttributesStatus(status);
     }
     
     /**
@@ -590,6 +631,10 @@ public class SO2Device extends SmsDeviceBase {
     }
 
     private void updateAttribute(String attrName, double value, AttributeStatus status) {
+        // 写入后尚未被新读数对账的属性保持写入值
+        if (!acceptRead(attrName)) {
+            return;
+        }
         AttributeAbility<?> attr = getAttrs().get(attrName);
         if (attr instanceof NumericAttribute) {
             NumericAttribute numAttr = (NumericAttribute) attr;
@@ -601,7 +646,7 @@ public class SO2Device extends SmsDeviceBase {
         return ModbusTransactionStrategy.executeWithLambda(modbusSource, source -> {
             try {
                 // 写入零点校准开始命令
-                source.writeRegister(SEGMENT_CONFIG.get("zero_calibration_start").startAddress, 1);
+                writeCommandRegister(source, "start_zero_calibration", SEGMENT_CONFIG.get("zero_calibration_start").startAddress, 1);
                 log.info("SO2Device " + getId() + " - Zero calibration started");
                 return CompletableFuture.completedFuture(true);
             } catch (Exception e) {
@@ -612,22 +657,20 @@ public class SO2Device extends SmsDeviceBase {
     }
 
     public CompletableFuture<Boolean> startSpanCalibration(double concentration) {
-        // 设置写入标志，防止竞态条件
-        isWritingCalibration = true;
-        lastWrittenCalibrationValue = concentration;
-        lastCalibrationWriteTime = System.currentTimeMillis();
+        // 写入结束前忽略校准浓度的读数
+        beginWrite("calibration_concentration");
         
         return ModbusTransactionStrategy.executeWithLambda(modbusSource, source -> {
             // 先写入跨度校准浓度
-            return source.writeRegister(SEGMENT_CONFIG.get("span_calibration_start").startAddress, (int) concentration)
+            return writeCommandRegister(source, "start_span_calibration", SEGMENT_CONFIG.get("span_calibration_start").startAddress, (int) concentration)
                 .thenApply(v -> {
+                    commitWrite("calibration_concentration", concentration);
                     log.info("SO2Device " + getId() + " - Span calibration started with concentration: " + concentration);
                     return true;
                 });
         }).exceptionally(throwable -> {
             log.error("SO2Device span calibration failed: " + throwable.getMessage());
-            // 写入失败时清除标志
-            isWritingCalibration = false;
+            cancelWrite("calibration_concentration");
             return false;
         });
     }
@@ -636,7 +679,7 @@ public class SO2Device extends SmsDeviceBase {
         return ModbusTransactionStrategy.executeWithLambda(modbusSource, source -> {
             try {
                 // 写入停止校准命令（可以写入0到校准状态寄存器）
-                source.writeRegister(SEGMENT_CONFIG.get("calibration_status").startAddress, 0);
+                writeCommandRegister(source, "stop_calibration", SEGMENT_CONFIG.get("calibration_status").startAddress, 0);
                 log.info("SO2Device " + getId() + " - Calibration stopped");
                 return CompletableFuture.completedFuture(true);
             } catch (Exception e) {
@@ -657,7 +700,7 @@ public class SO2Device extends SmsDeviceBase {
     public CompletableFuture<Boolean> confirmZeroCalibration() {
         return ModbusTransactionStrategy.executeWithLambda(modbusSource, source -> {
             try {
-                source.writeRegister(SEGMENT_CONFIG.get("zero_calibration_confirm").startAddress, 1);
+                writeCommandRegister(source, "confirm_zero_calibration", SEGMENT_CONFIG.get("zero_calibration_confirm").startAddress, 1);
                 log.info("SO2Device " + getId() + " - Zero calibration confirmed");
                 return CompletableFuture.completedFuture(true);
             } catch (Exception e) {
@@ -670,7 +713,7 @@ public class SO2Device extends SmsDeviceBase {
     public CompletableFuture<Boolean> cancelZeroCalibration() {
         return ModbusTransactionStrategy.executeWithLambda(modbusSource, source -> {
             try {
-                source.writeRegister(SEGMENT_CONFIG.get("zero_calibration_cancel").startAddress, 1);
+                writeCommandRegister(source, "cancel_zero_calibration", SEGMENT_CONFIG.get("zero_calibration_cancel").startAddress, 1);
                 log.info("SO2Device " + getId() + " - Zero calibration cancelled");
                 return CompletableFuture.completedFuture(true);
             } catch (Exception e) {
@@ -683,7 +726,7 @@ public class SO2Device extends SmsDeviceBase {
     public CompletableFuture<Boolean> confirmSpanCalibration() {
         return ModbusTransactionStrategy.executeWithLambda(modbusSource, source -> {
             try {
-                source.writeRegister(SEGMENT_CONFIG.get("span_calibration_confirm").startAddress, 1);
+                writeCommandRegister(source, "confirm_span_calibration", SEGMENT_CONFIG.get("span_calibration_confirm").startAddress, 1);
                 log.info("SO2Device " + getId() + " - Span calibration confirmed");
                 return CompletableFuture.completedFuture(true);
             } catch (Exception e) {
@@ -696,7 +739,7 @@ public class SO2Device extends SmsDeviceBase {
     public CompletableFuture<Boolean> cancelSpanCalibration() {
         return ModbusTransactionStrategy.executeWithLambda(modbusSource, source -> {
             try {
-                source.writeRegister(SEGMENT_CONFIG.get("span_calibration_cancel").startAddress, 1);
+                writeCommandRegister(source, "cancel_span_calibration", SEGMENT_CONFIG.get("span_calibration_cancel").startAddress, 1);
                 log.info("SO2Device " + getId() + " - Span calibration cancelled");
                 return CompletableFuture.completedFuture(true);
             } catch (Exception e) {
@@ -719,18 +762,41 @@ public class SO2Device extends SmsDeviceBase {
      * 当外部（如GasDeviceCommandAttribute）写入校准浓度时调用此方法
      * @param concentration 写入的校准浓度值
      */
+    @Override
     public void markCalibrationWrite(double concentration) {
-        isWritingCalibration = true;
-        lastWrittenCalibrationValue = concentration;
-        lastCalibrationWriteTime = System.currentTimeMillis();
+        commitWrite("calibration_concentration", concentration);
         log.debug("SO2Device " + getId() + " - Marked calibration write: " + concentration);
     }
 
     /**
-     * 清除校准写入标记（可选，通常依赖时间窗口自动清除）
+     * 校准命令写入后回读校准状态
+     * @param command 命令名称
      */
-    public void clearCalibrationWriteMark() {
-        isWritingCalibration = false;
+    @Override
+    public void markCommandWrite(String command) {
+        readBackCalibrationStatus();
+    }
+
+    @Override
+    protected void afterCommandWrite(String command, int startAddress, int count) {
+        readBackCalibrationStatus();
+    }
+
+    @Override
+    protected CompletableFuture<Boolean> probeObservedState() {
+        return readBackCalibrationStatus();
+    }
+
+    /**
+     * 回读校准状态（0x3EE），设备状态和校准状态属性随之更新，不等下一个轮询周期
+     */
+    private CompletableFuture<Boolean> readBackCalibrationStatus() {
+        DataSegment segment = SEGMENT_CONFIG.get("calibration_status");
+        return readBack("calibration_status", segment.startAddress, segment.count, data -> {
+            SegmentData calibData = parseInstrumentCalibrationStatus(data);
+            processCalibrationStatus(calibData);
+            updateAttribute("calibration_status", calibData.values[0], mapToAttributeStatus(deviceStatus));
+        });
     }
 
     private static class DataSegment {
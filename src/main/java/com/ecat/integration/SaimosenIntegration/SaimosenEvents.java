@@ -0,0 +1,215 @@
+package com.ecat.integration.SaimosenIntegration;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Supplier;
+
+import com.serotonin.modbus4j.msg.ModbusResponse;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Enabled;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Timespan;
+
+/**
+ * Java Flight Recorder 自定义事件
+ *
+ * <p>事件默认启用、不采集调用栈，未开启录制时 {@link Event#shouldCommit()} 直接返回false，
+ * 开销只有一次小对象分配，可用于生产环境的持续录制。事件的持续时间即对应阶段耗时；
+ * 在 JMC 中按 "Saimosen" 分类查看，或通过 {@code jfr print --events saimosen.*} 导出。</p>
+ *
+ * <ul>
+ *   <li>{@link PollCycleEvent}：一次完整轮询事务（含排队等待时间）</li>
+ *   <li>{@link SegmentReadEvent}：一个数据段的读寄存器请求</li>
+ *   <li>{@link DecodeEvent}：数据段解析</li>
+ *   <li>{@link PublishEvent}：属性状态发布</li>
+ *   <li>{@link CommandWriteEvent}：命令/参数写寄存器</li>
+ * </ul>
+ *
+ * @version V1.0
+ */
+public final class SaimosenEvents {
+
+    public static final String OUTCOME_OK = "ok";
+    public static final String OUTCOME_FAILED = "failed";
+    public static final String OUTCOME_TIMEOUT = "timeout";
+    public static final String OUTCOME_ERROR = "error";
+    public static final String OUTCOME_EXCEPTION = "exception";
+
+    private SaimosenEvents() {
+    }
+
+    /**
+     * 根据异步结果判定事件结果：超时、通讯错误、Modbus异常响应、业务失败（返回false）或成功
+     */
+    public static String outcomeOf(Object result, Throwable throwable) {
+        if (throwable != null) {
+            return BusTransactionRecorder.isTimeout(throwable) ? OUTCOME_TIMEOUT : OUTCOME_ERROR;
+        }
+        if (result instanceof ModbusResponse && ((ModbusResponse) result).isException()) {
+            return OUTCOME_EXCEPTION;
+        }
+        if (Boolean.FALSE.equals(result)) {
+            return OUTCOME_FAILED;
+        }
+        return OUTCOME_OK;
+    }
+
+    /**
+     * 执行一次写寄存器并记录 {@link CommandWriteEvent}
+     * @param deviceId 设备ID，未知时为空字符串
+     * @param deviceClass 设备类名
+     * @param command 命令名称
+     * @param address 寄存器地址
+     * @param value 写入值
+     * @param write 实际发起写操作
+     */
+    public static <T> CompletableFuture<T> traceCommandWrite(String deviceId, String deviceClass, String command,
+            int address, int value, Supplier<CompletableFuture<T>> write) {
+        return traceCommandWrite(deviceId, deviceClass, command, address, value, 1, write);
+    }
+
+    /**
+     * 执行一次写多个寄存器并记录 {@link CommandWriteEvent}
+     * @param address 起始地址
+     * @param value 第一个寄存器的写入值
+     * @param registerCount 寄存器数量
+     */
+    public static <T> CompletableFuture<T> traceCommandWrite(String deviceId, String deviceClass, String command,
+            int address, int value, int registerCount, Supplier<CompletableFuture<T>> write) {
+        CommandWriteEvent event = new CommandWriteEvent();
+        event.begin();
+        return write.get().whenComplete((result, throwable) -> {
+            event.end();
+            if (event.shouldCommit()) {
+                event.deviceId = deviceId;
+                event.deviceClass = deviceClass;
+                event.command = command;
+                event.address = address;
+                event.value = value;
+                event.registerCount = registerCount;
+                event.outcome = outcomeOf(result, throwable);
+                event.commit();
+            }
+        });
+    }
+
+    @Name("saimosen.PollCycle")
+    @Label("Poll Cycle")
+    @Description("一次完整的轮询事务，从提交到完成")
+    @Category({"Saimosen", "Modbus"})
+    @Enabled(true)
+    @StackTrace(false)
+    public static class PollCycleEvent extends Event {
+        @Label("Device Id")
+        public String deviceId;
+
+        @Label("Device Class")
+        public String deviceClass;
+
+        @Label("Queue Wait")
+        @Timespan(Timespan.NANOSECONDS)
+        public long queueWait;
+
+        @Label("Outcome")
+        public String outcome;
+    }
+
+    @Name("saimosen.SegmentRead")
+    @Label("Segment Read")
+    @Description("一个数据段的读保持寄存器请求")
+    @Category({"Saimosen", "Modbus"})
+    @Enabled(true)
+    @StackTrace(false)
+    public static class SegmentReadEvent extends Event {
+        @Label("Device Id")
+        public String deviceId;
+
+        @Label("Device Class")
+        public String deviceClass;
+
+        @Label("Segment")
+        public String segment;
+
+        @Label("Start Address")
+        public int startAddress;
+
+        @Label("Register Count")
+        public int registerCount;
+
+        @Label("Outcome")
+        public String outcome;
+    }
+
+    @Name("saimosen.Decode")
+    @Label("Segment Decode")
+    @Description("寄存器数据解析为工程值")
+    @Category({"Saimosen", "Modbus"})
+    @Enabled(true)
+    @StackTrace(false)
+    public static class DecodeEvent extends Event {
+        @Label("Device Id")
+        public String deviceId;
+
+        @Label("Device Class")
+        public String deviceClass;
+
+        @Label("Segment")
+        public String segment;
+
+        @Label("Register Count")
+        public int registerCount;
+
+        @Label("Outcome")
+        public String outcome;
+    }
+
+    @Name("saimosen.Publish")
+    @Label("Attribute Publish")
+    @Description("设备属性状态发布")
+    @Category({"Saimosen", "Modbus"})
+    @Enabled(true)
+    @StackTrace(false)
+    public static class PublishEvent extends Event {
+        @Label("Device Id")
+        public String deviceId;
+
+        @Label("Device Class")
+        public String deviceClass;
+
+        @Label("Attribute Count")
+        public int attributeCount;
+    }
+
+    @Name("saimosen.CommandWrite")
+    @Label("Command Write")
+    @Description("命令或参数写寄存器")
+    @Category({"Saimosen", "Modbus"})
+    @Enabled(true)
+    @StackTrace(false)
+    public static class CommandWriteEvent extends Event {
+        @Label("Device Id")
+        public String deviceId;
+
+        @Label("Device Class")
+        public String deviceClass;
+
+        @Label("Command")
+        public String command;
+
+        @Label("Address")
+        public int address;
+
+        @Label("Value")
+        public int value;
+
+        @Label("Register Count")
+        public int registerCount;
+
+        @Label("Outcome")
+        public String outcome;
+    }
+}
@@ -3,9 +3,18 @@ package com.ecat.integration.SaimosenIntegration;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.HashMap;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
+import java.util.Iterator;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
 import com.ecat.core.Device.DeviceBase;
 import com.ecat.core.Device.DeviceClasses;
 import com.ecat.core.Integration.IntegrationDeviceBase;
@@ -36,8 +45,11 @@ import com.ecat.core.Utils.DynamicConfig.*;
  *   <li>integration: Required, String, length 1-50.</li>
  *   <li>comm_settings: Required, Map, containing:
  *     <ul>
- *       <li>ip: Required, String, length 1-50.</li>
- *       <li>port: Required, Integer.</li>
+ *       <li>transport: Optional, String, one of ["serial", "tcp", "rtu_over_tcp"], default "serial".</li>
+ *       <li>port, baudRate, numDataBit, numStopBit, parity: Required when transport is "serial".</li>
+ *       <li>ip: Required when transport is "tcp" or "rtu_over_tcp", String, length 1-50.</li>
+ *       <li>tcpPort: Optional, Integer, default 502.</li>
+ *       <li>timeout: Optional, Integer.</li>
  *       <li>slaveId: Required, Integer.</li>
  *     </ul>
  *   </li>
@@ -48,22 +60,107 @@ import com.ecat.core.Utils.DynamicConfig.*;
  *   <li>Validates the configuration using the defined schema.</li>
  *   <li>Creates a device instance based on the "class" field in the configuration.</li>
  *   <li>Currently supports "air.monitor.no2" class, which creates an instance of NOXDevice.</li>
+ *   <li>For every distinct serial port or TCP line (ip:port) a {@link SerialBusDevice} is created
+ *       automatically to publish bus throughput, timeout/error counters and queue depth.</li>
+ * </ul>
+ *
+ * <p>Startup:</p>
+ * <ul>
+ *   <li>onInit groups device configurations by line. Lines are created in parallel, devices on the
+ *       same line in configuration order. Registration with ModbusIntegration is serialized.</li>
+ *   <li>The first polls of devices on the same line are staggered by their estimated poll time
+ *       ({@link SmsDeviceBase#estimatePollMillis()}) so they do not hit the bus at once.</li>
+ *   <li>The time from onInit until every polling device has published once is logged and
+ *       available from {@link #getStartupMillis()}.</li>
+ * </ul>
+ *
+ * <p>Hot reload ({@link #reload()} / {@link #reconfigure(List)}):</p>
+ * <ul>
+ *   <li>Device configurations are compared with the running devices by id.</li>
+ *   <li>Unchanged devices keep running untouched.</li>
+ *   <li>Devices whose only change is comm_settings drain their in-flight transactions and
+ *       re-register their ModbusSource; attributes, averages and storage are kept.</li>
+ *   <li>Removed devices are stopped, drained and released; devices with other changes are replaced.</li>
+ *   <li>An invalid new configuration leaves the running device as it is.</li>
+ *   <li>The bus device of a line is released once no device is left on that line.</li>
+ * </ul>
+ *
+ * <p>Calibration sequences ({@link #runSequence}):</p>
+ * <ul>
+ *   <li>Sequences defined under calibration_sequences in the integration configuration (see
+ *       {@link CalibrationSequence}) or built in code are executed by {@link CalibrationSequenceRunner}.</li>
+ *   <li>Each step fires as soon as the previous write is acknowledged or the awaited register value is
+ *       published; timeouts, abort and rollback are handled by the runner.</li>
+ *   <li>{@link #runZeroCheck} runs one shared zero-air phase for all gas analyzers and confirms each
+ *       analyzer independently as soon as it is ready ({@link ZeroCheckOrchestrator}).</li>
+ *   <li>With calibration_stability configured, readiness and {@link #confirmWhenStable} are decided by
+ *       {@link StabilityDetector} on the analyzer's concentration readings instead of a fixed hold time.</li>
  * </ul>
  * 
  * @author coffee
  */
 public class SaimosenIntegration extends IntegrationDeviceBase {
 
+    // 并行创建设备的最大线程数（按线路分组，每条线路一个任务）
+    private static final int MAX_INIT_THREADS = 8;
+    // 热更新时等待设备在途事务结束的最长时间
+    private static final long DRAIN_TIMEOUT_MILLIS = 10_000;
+
+    // 串口或 tcp://ip:port -> 总线诊断设备
+    private final Map<String, SerialBusDevice> busDevices = new HashMap<>();
+    private long initStartNanos;
+    private volatile long startupMillis = -1;
+    private volatile boolean running;
+    // 集成配置 calibration_sequences 中定义的校准序列，按名称索引
+    private final Map<String, CalibrationSequence> sequences = new LinkedHashMap<>();
+    // 集成配置 calibration_stability：校准时按读数稳定自动确认，未配置为 null
+    private volatile Supplier<StabilityDetector> stabilityDetectors;
+    private volatile long stabilityFastPollMillis;
+
     @Override
     public void onInit() {
+        initStartNanos = System.nanoTime();
+        startupMillis = -1;
         Map<String, Object> integrationConfig = integrationManager.loadConfig(this.getName());
 
         // 获取 devices 列表
         @SuppressWarnings("unchecked")
         List<Map<String, Object>> deviceConfigs = (List<Map<String, Object>>) integrationConfig.getOrDefault("devices", null);
         if (deviceConfigs != null) {
-            for (Map<String, Object> config : deviceConfigs) {
-                createDevice(config);
+            createDevicesByLine(deviceConfigs);
+        }
+        loadSequences(integrationConfig.get("calibration_sequences"));
+        loadStability(integrationConfig.get("calibration_stability"));
+    }
+
+    @SuppressWarnings("unchecked")
+    private void loadStability(Object stabilityConfig) {
+        stabilityDetectors = null;
+        if (!(stabilityConfig instanceof Map)) {
+            return;
+        }
+        Map<String, Object> config = (Map<String, Object>) stabilityConfig;
+        try {
+            stabilityDetectors = StabilityDetector.factory(config);
+            Object fastPoll = config.get("fast_poll_millis");
+            stabilityFastPollMillis = fastPoll instanceof Number ? ((Number) fastPoll).longValue() : 0;
+        } catch (IllegalArgumentException e) {
+            log.error("SaimosenIntegration: invalid calibration_stability {}: {}", config, e.getMessage());
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private void loadSequences(Object sequenceConfigs) {
+        sequences.clear();
+        if (!(sequenceConfigs instanceof List)) {
+            return;
+        }
+        for (Object item : (List<Object>) sequenceConfigs) {
+            try {
+                CalibrationSequence sequence = CalibrationSequence.fromConfig((Map<String, Object>) item);
+                sequences.put(sequence.getName(), sequence);
+            } catch (RuntimeException e) {
+                log.error("SaimosenIntegration: invalid calibration sequence {}: {}", item, e.getMessage());
             }
         }
     }
@@ -71,14 +168,116 @@ public class SaimosenIntegration extends IntegrationDeviceBase {
     @Override
     public void onStart() {
         log.info("SaimosenIntegration started");
+        running = true;
+        List<CompletableFuture<Void>> reports = new ArrayList<>();
         for (DeviceBase device : getAllDevices()) {
             device.start();
+            if (device instanceof SmsDeviceBase && ((SmsDeviceBase) device).getPollSegmentSizes().length > 0) {
+                reports.add(((SmsDeviceBase) device).getFirstReport());
+            }
+        }
+        if (startupMillis < 0 && !reports.isEmpty()) {
+            CompletableFuture.allOf(reports.toArray(new CompletableFuture<?>[0])).thenRun(() -> {
+                startupMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - initStartNanos);
+                log.info("SaimosenIntegration: all {} polling devices reported {} ms after init", reports.size(),
+                        startupMillis);
+            });
+        }
+    }
+
+    /**
+     * 从onInit到所有轮询设备第一次发布属性的耗时（毫秒），尚未全部上报时为-1
+     */
+    public long getStartupMillis() {
+        return startupMillis;
+    }
+
+    /**
+     * 执行集成配置 calibration_sequences 中定义的校准序列
+     * @return 执行句柄，序列不存在时为 null
+     */
+    public CalibrationSequenceRunner.Execution runSequence(String name) {
+        CalibrationSequence sequence = sequences.get(name);
+        if (sequence == null) {
+            log.warn("SaimosenIntegration: calibration sequence {} not defined", name);
+            return null;
+        }
+        return runSequence(sequence);
+    }
+
+    /**
+     * 执行校准序列，立即返回；步骤中的设备ID在本集成的设备中查找
+     */
+    public CalibrationSequenceRunner.Execution runSequence(CalibrationSequence sequence) {
+        CalibrationSequenceRunner runner = new CalibrationSequenceRunner(id -> {
+            DeviceBase device = devices.get(id);
+            return device instanceof SmsDeviceBase ? (SmsDeviceBase) device : null;
+        }, core.getTaskManager().getExecutorService());
+        log.info("SaimosenIntegration: calibration sequence {} started", sequence.getName());
+        CalibrationSequenceRunner.Execution execution = runner.start(sequence);
+        execution.getResult().thenAccept(outcome -> {
+            if (outcome == CalibrationSequenceRunner.Outcome.COMPLETED) {
+                log.info("SaimosenIntegration: calibration sequence {} completed", sequence.getName());
+            } else {
+                log.warn("SaimosenIntegration: calibration sequence {} {} - {}", sequence.getName(), outcome,
+                        execution.getFailureReason());
+            }
+        });
+        return execution;
+    }
+
+    /**
+     * 所有气体分析仪共用一个零气阶段同时做零点检查，见 {@link ZeroCheckOrchestrator}
+     * @param calibratorId 校准仪设备ID
+     * @param analyzerIds 分析仪设备ID，null 时为本集成的全部气体分析仪（NO2/SO2/CO/O3）
+     */
+    public ZeroCheckOrchestrator.Run runZeroCheck(String calibratorId, List<String> analyzerIds) {
+        List<String> ids = analyzerIds;
+        if (ids == null) {
+            ids = new ArrayList<>();
+            for (DeviceBase device : getAllDevices()) {
+                if (device instanceof NO2Device || device instanceof SO2Device || device instanceof CODevice
+                        || device instanceof O3Device) {
+                    ids.add(device.getId());
+                }
+            }
+        }
+        ZeroCheckOrchestrator orchestrator = new ZeroCheckOrchestrator(id -> {
+            DeviceBase device = devices.get(id);
+            return device instanceof SmsDeviceBase ? (SmsDeviceBase) device : null;
+        }, core.getTaskManager().getExecutorService());
+        Supplier<StabilityDetector> detectors = stabilityDetectors;
+        if (detectors != null) {
+            orchestrator.setReadinessCheck(CalibrationStabilityMonitor.readiness(detectors, stabilityFastPollMillis));
+        }
+        log.info("SaimosenIntegration: shared zero check started on {} with analyzers {}", calibratorId, ids);
+        ZeroCheckOrchestrator.Run run = orchestrator.start(calibratorId, ids);
+        run.getResult().thenAccept(results -> log.info("SaimosenIntegration: shared zero check finished in {} ms: {}",
+                run.getElapsedMillis(), results));
+        return run;
+    }
+
+    /**
+     * 分析仪读数稳定后自动发送确认命令，需配置 calibration_stability
+     * @param analyzerId 分析仪设备ID
+     * @param command zero_calibration_confirm 或 span_calibration_confirm
+     * @return 命令发送结果；未配置、设备不存在时为 false
+     */
+    public CompletableFuture<Boolean> confirmWhenStable(String analyzerId, String command) {
+        DeviceBase device = devices.get(analyzerId);
+        Supplier<StabilityDetector> detectors = stabilityDetectors;
+        if (!(device instanceof SmsDeviceBase) || detectors == null) {
+            return CompletableFuture.completedFuture(false);
         }
+        return new CalibrationStabilityMonitor((SmsDeviceBase) device, detectors)
+                .setFastPollMillis(stabilityFastPollMillis)
+                .confirmWhenStable(command);
     }
 
     @Override
     public void onPause() {
         log.info("SaimosenIntegration paused");
+        running = false;
         for (DeviceBase device : getAllDevices()) {
             device.stop();
         }
@@ -87,10 +286,15 @@ public class SaimosenIntegration extends IntegrationDeviceBase {
     @Override
     public void onRelease() {
         log.info("SaimosenIntegration released");
+        running = false;
         for (DeviceBase device : getAllDevices()) {
             device.release();
         }
         devices.clear();
+        busDevices.clear();
+        BusStatistics.clearAll();
+        RegisterTrafficLog.closeAll();
+        OutboundBuffer.closeAll();
     }
 
     @Override
@@ -111,6 +315,11 @@ public class SaimosenIntegration extends IntegrationDeviceBase {
                                                                 DeviceClasses.AIR_MONITOR_SO2.getClassName()
                                                                 ));
             StringEnumValidator classEnumValidator = new StringEnumValidator(classValidValues);
+            Set<String> transportValidValues = new HashSet<>();
+            for (ModbusTransport transport : ModbusTransport.values()) {
+                transportValidValues.add(transport.getConfigValue());
+            }
+            StringEnumValidator transportEnumValidator = new StringEnumValidator(transportValidValues);
 
             ConfigItemBuilder builder = new ConfigItemBuilder()
                 .add(new ConfigItem<>("id", String.class, true, null, Collections.singletonList(lengthValidator)))
@@ -121,13 +330,53 @@ public class SaimosenIntegration extends IntegrationDeviceBase {
                 .add(new ConfigItem<>("model", String.class, false, null, Collections.singletonList(lengthValidator)))
                 .add(new ConfigItem<>("comm_settings", Map.class, true, null)
                     .addNestedConfigItems(new ConfigItemBuilder()
-                        .add(new ConfigItem<>("port", String.class, true, null, Collections.singletonList(lengthValidator)))
-                        .add(new ConfigItem<>("baudRate", Integer.class, true, null))
-                        .add(new ConfigItem<>("numDataBit", Integer.class, true, null))
-                        .add(new ConfigItem<>("numStopBit", Integer.class, true, null))
-                        .add(new ConfigItem<>("parity", String.class, true, null, Collections.singletonList(lengthValidator)))
+                        // 串口与网络方式的必填项不同，由 SmsDeviceBase.load 按 transport 校验
+                        .add(new ConfigItem<>("transport", String.class, false, ModbusTransport.SERIAL.getConfigValue(), transportEnumValidator))
+                        .add(new ConfigItem<>("port", String.class, false, null, Collections.singletonList(lengthValidator)))
+                        .add(new ConfigItem<>("baudRate", Integer.class, false, null))
+                        .add(new ConfigItem<>("numDataBit", Integer.class, false, null))
+                        .add(new ConfigItem<>("numStopBit", Integer.class, false, null))
+                        .add(new ConfigItem<>("parity", String.class, false, null, Collections.singletonList(lengthValidator)))
+                        .add(new ConfigItem<>("ip", String.class, false, null, Collections.singletonList(lengthValidator)))
+                        .add(new ConfigItem<>("tcpPort", Integer.class, false, ModbusTransport.DEFAULT_TCP_PORT))
                         .add(new ConfigItem<>("timeout", Integer.class, false, 1000))
                         .add(new ConfigItem<>("slaveId", Integer.class, true, null))
+                    ))
+                .add(new ConfigItem<>("diagnostics", Map.class, false, null)
+                    .addNestedConfigItems(new ConfigItemBuilder()
+                        .add(new ConfigItem<>("latency", Boolean.class, false, false))
+                        .add(new ConfigItem<>("log_summary_seconds", Integer.class, false, 600))
+                        .add(new ConfigItem<>("frame_trace", Boolean.class, false, false))
+                        .add(new ConfigItem<>("frame_trace_size", Integer.class, false, FrameTraceBuffer.DEFAULT_CAPACITY))
+                        .add(new ConfigItem<>("traffic_record_file", String.class, false, null))
+                    ))
+                .add(new ConfigItem<>("averages", Map.class, false, null)
+                    .addNestedConfigItems(new ConfigItemBuilder()
+                        .add(new ConfigItem<>("enabled", Boolean.class, false, false))
+                        .add(new ConfigItem<>("min_valid_percent", Integer.class, false, 75))
+                    ))
+                .add(new ConfigItem<>("storage", Map.class, false, null)
+                    .addNestedConfigItems(new ConfigItemBuilder()
+                        .add(new ConfigItem<>("dir", String.class, false, null))
+                        .add(new ConfigItem<>("segment_hours", Integer.class, false, 24))
+                        .add(new ConfigItem<>("retention_days", Integer.class, false, 30))
+                    ))
+                .add(new ConfigItem<>("outbound", Map.class, false, null)
+                    .addNestedConfigItems(new ConfigItemBuilder()
+                        .add(new ConfigItem<>("dir", String.class, false, null))
+                        .add(new ConfigItem<>("memory_kb", Integer.class, false, OutboundBuffer.DEFAULT_MEMORY_BYTES / 1024))
+                        .add(new ConfigItem<>("segment_mb", Integer.class, false, (int) (OutboundBuffer.DEFAULT_SEGMENT_BYTES >> 20)))
+                        .add(new ConfigItem<>("max_disk_mb", Integer.class, false, (int) (OutboundBuffer.DEFAULT_MAX_DISK_BYTES >> 20)))
+                        .add(new ConfigItem<>("topic", String.class, false, OutboundBusSink.DEFAULT_TOPIC))
+                        .add(new ConfigItem<>("ack_timeout_seconds", Integer.class, false, (int) (OutboundBusSink.DEFAULT_ACK_TIMEOUT_MILLIS / 1000)))
+                        .add(new ConfigItem<>("catchup_records_per_second", Integer.class, false, (int) OutboundBuffer.DEFAULT_CATCHUP_RECORDS_PER_SECOND))
+                    ))
+                .add(new ConfigItem<>("warm_start", Map.class, false, null)
+                    .addNestedConfigItems(new ConfigItemBuilder()
+                        .add(new ConfigItem<>("dir", String.class, false, null))
+                        .add(new ConfigItem<>("checkpoint_seconds", Integer.class, false, WarmStart.DEFAULT_CHECKPOINT_SECONDS))
+                        .add(new ConfigItem<>("defer_config_seconds", Integer.class, false, WarmStart.DEFAULT_DEFER_CONFIG_SECONDS))
+                        .add(new ConfigItem<>("max_age_seconds", Integer.class, false, WarmStart.DEFAULT_MAX_AGE_SECONDS))
                     ));
 
             deviceConfigDefinition.define(builder);
@@ -137,8 +386,220 @@ public class SaimosenIntegration extends IntegrationDeviceBase {
 
     @Override
     public boolean createDevice(Map<String, Object> config) {
-        boolean isValid = deviceConfigDefinition.validateConfig(config);
-        if (isValid) {
+        return newDevice(config) != null;
+    }
+
+    /**
+     * 重新读取集成配置并按差异更新设备，见 {@link #reconfigure(List)}
+     */
+    public ReloadResult reload() {
+        Map<String, Object> integrationConfig = integrationManager.loadConfig(this.getName());
+        @SuppressWarnings("unchecked")
+        List<Map<String, Object>> deviceConfigs = (List<Map<String, Object>>) integrationConfig.getOrDefault("devices", null);
+        return reconfigure(deviceConfigs != null ? deviceConfigs : Collections.<Map<String, Object>>emptyList());
+    }
+
+    /**
+     * 按设备ID对比新配置与运行中的设备，只处理有变化的设备，不重启集成：
+     * 未变化的设备不受影响；仅 comm_settings 变化的设备等待在途事务结束后重新注册 ModbusSource；
+     * 删除的设备停止轮询、等待在途事务结束后释放；其它配置变化的设备重建；新增设备创建后（集成运行中时）立即启动。
+     * 新配置校验失败时保留运行中的设备。
+     * @param deviceConfigs 完整的设备配置列表
+     */
+    public synchronized ReloadResult reconfigure(List<Map<String, Object>> deviceConfigs) {
+        ReloadResult result = new ReloadResult();
+        Map<String, Map<String, Object>> desired = new LinkedHashMap<>();
+        for (Map<String, Object> config : deviceConfigs) {
+            if (!validate(config)) {
+                result.invalid.add(String.valueOf(config.get("id")));
+                continue;
+            }
+            desired.put((String) config.get("id"), config);
+        }
+
+        List<SmsDeviceBase> existing = new ArrayList<>();
+        for (DeviceBase device : getAllDevices()) {
+            if (device instanceof SmsDeviceBase) {
+                existing.add((SmsDeviceBase) device);
+            }
+        }
+        for (SmsDeviceBase device : existing) {
+            String id = device.getId();
+            Map<String, Object> config = desired.get(id);
+            if (config == null) {
+                if (!result.invalid.contains(id)) {
+                    removeDevice(device);
+                    result.removed.add(id);
+                }
+                continue;
+            }
+            Map<String, Object> current = device.getConfig();
+            if (current.equals(config)) {
+                result.unchanged.add(id);
+            } else if (withoutCommSettings(current).equals(withoutCommSettings(config))) {
+                reconnectDevice(device, config, result);
+            } else {
+                removeDevice(device);
+                result.replaced.add(id);
+                if (startNewDevice(config) == null) {
+                    result.failed.add(id);
+                }
+            }
+        }
+        for (Map.Entry<String, Map<String, Object>> entry : desired.entrySet()) {
+            if (!devices.containsKey(entry.getKey()) && !result.replaced.contains(entry.getKey())) {
+                if (startNewDevice(entry.getValue()) != null) {
+                    result.added.add(entry.getKey());
+                } else {
+                    result.failed.add(entry.getKey());
+                }
+            }
+        }
+        releaseUnusedBusDevices();
+        log.info("SaimosenIntegration reconfigured: {}", result);
+        return result;
+    }
+
+    /**
+     * 仅通信参数变化：停止轮询、等待在途事务结束、重新注册 ModbusSource 后恢复轮询
+     */
+    @SuppressWarnings("unchecked")
+    private void reconnectDevice(SmsDeviceBase device, Map<String, Object> config, ReloadResult result) {
+        device.stop();
+        try {
+            device.applyCommSettings((Map<String, Object>) config.get("comm_settings"), DRAIN_TIMEOUT_MILLIS);
+            ensureBusDevice(device.getBusStatistics());
+            result.reconnected.add(device.getId());
+        } catch (RuntimeException e) {
+            log.error("Re-register Modbus source failed for device {}", device.getId(), e);
+            result.failed.add(device.getId());
+        }
+        if (running) {
+            device.setStartDelayMillis(lineOffsetMillis(device));
+            device.start();
+        }
+    }
+
+    /**
+     * 停止轮询，等待在途事务结束后释放设备
+     */
+    private void removeDevice(SmsDeviceBase device) {
+        device.stop();
+        if (!device.awaitIdle(DRAIN_TIMEOUT_MILLIS, TimeUnit.MILLISECONDS)) {
+            log.warn("Device {} still has in-flight transactions after {} ms, releasing anyway", device.getId(),
+                    DRAIN_TIMEOUT_MILLIS);
+        }
+        device.release();
+        devices.remove(device.getId());
+    }
+
+    private SmsDeviceBase startNewDevice(Map<String, Object> config) {
+        SmsDeviceBase device = newDevice(config);
+        if (device != null && running) {
+            device.setStartDelayMillis(lineOffsetMillis(device));
+            device.start();
+        }
+        return device;
+    }
+
+    /**
+     * 设备所在线路上其它设备估算轮询耗时之和（超过轮询周期时回绕），作为新启动设备的首次轮询延迟
+     */
+    private long lineOffsetMillis(SmsDeviceBase device) {
+        String port = device.getBusStatistics().getPort();
+        long offset = 0;
+        for (DeviceBase other : getAllDevices()) {
+            if (other != device && other instanceof SmsDeviceBase
+                    && port.equals(((SmsDeviceBase) other).getBusStatistics().getPort())) {
+                offset += ((SmsDeviceBase) other).estimatePollMillis();
+            }
+        }
+        return offset % SmsDeviceBase.POLL_PERIOD_MILLIS;
+    }
+
+    private static Map<String, Object> withoutCommSettings(Map<String, Object> config) {
+        Map<String, Object> copy = new HashMap<>(config);
+        copy.remove("comm_settings");
+        return copy;
+    }
+
+    /**
+     * 按通信线路分组并行创建设备：不同线路并行，同一线路上的设备按配置顺序依次创建，
+     * 向 ModbusIntegration 登记在 SmsDeviceBase 中串行；全部创建后按估算的轮询耗时错开同一线路上各设备的首次轮询
+     */
+    private void createDevicesByLine(List<Map<String, Object>> deviceConfigs) {
+        Map<String, List<Map<String, Object>>> lines = new LinkedHashMap<>();
+        for (Map<String, Object> config : deviceConfigs) {
+            lines.computeIfAbsent(lineKeyOf(config), key -> new ArrayList<>()).add(config);
+        }
+        if (lines.isEmpty()) {
+            return;
+        }
+        ExecutorService executor = Executors.newFixedThreadPool(Math.min(lines.size(), MAX_INIT_THREADS), runnable -> {
+            Thread thread = new Thread(runnable, "saimosen-init");
+            thread.setDaemon(true);
+            return thread;
+        });
+        int created = 0;
+        try {
+            List<CompletableFuture<List<SmsDeviceBase>>> futures = new ArrayList<>();
+            for (List<Map<String, Object>> lineConfigs : lines.values()) {
+                futures.add(CompletableFuture.supplyAsync(() -> {
+                    List<SmsDeviceBase> lineDevices = new ArrayList<>();
+                    for (Map<String, Object> config : lineConfigs) {
+                        SmsDeviceBase device = newDevice(config);
+                        if (device != null) {
+                            lineDevices.add(device);
+                        }
+                    }
+                    return lineDevices;
+                }, executor));
+            }
+            for (CompletableFuture<List<SmsDeviceBase>> future : futures) {
+                List<SmsDeviceBase> lineDevices = future.join();
+                staggerFirstPolls(lineDevices);
+                created += lineDevices.size();
+            }
+        } finally {
+            executor.shutdown();
+        }
+        log.info("SaimosenIntegration created {} of {} devices on {} lines in {} ms", created, deviceConfigs.size(),
+                lines.size(), TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - initStartNanos));
+    }
+
+    /**
+     * 同一线路上的设备依次错开首次轮询，偏移为前面设备估算轮询耗时之和（超过轮询周期时回绕）
+     */
+    private void staggerFirstPolls(List<SmsDeviceBase> lineDevices) {
+        long offset = 0;
+        for (SmsDeviceBase device : lineDevices) {
+            device.setStartDelayMillis(offset);
+            offset = (offset + device.estimatePollMillis()) % SmsDeviceBase.POLL_PERIOD_MILLIS;
+        }
+    }
+
+    /**
+     * 设备配置所在的通信线路（与 {@link BusStatistics} 的端口标识一致），配置不完整时归入空线路
+     */
+    @SuppressWarnings("unchecked")
+    private static String lineKeyOf(Map<String, Object> config) {
+        Object commSettings = config.get("comm_settings");
+        if (!(commSettings instanceof Map)) {
+            return "";
+        }
+        Map<String, Object> settings = (Map<String, Object>) commSettings;
+        try {
+            return String.valueOf(ModbusTransport.fromConfig(settings.get("transport")).lineKey(settings));
+        } catch (IllegalArgumentException e) {
+            return "";
+        }
+    }
+
+    /**
+     * 校验配置并创建、加载、初始化设备，失败时返回null
+     */
+    private SmsDeviceBase newDevice(Map<String, Object> config) {
+        if (validate(config)) {
             try {
                 String deviceClass = (String) config.get("class");
                 SmsDeviceBase device;
@@ -172,24 +633,154 @@ public class SaimosenIntegration extends IntegrationDeviceBase {
                         device = new SO2Device(config);
                         break;
                     default:
-                        return false;
+                        return null;
                 }
 
                 device.load(core);
                 device.init();
-                addDevice(device);
-                return true;
+                registerDevice(device);
+                return device;
             } catch (Exception e) {
                 log.error("Create device failed", e);
-                return false;
+                return null;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * 校验设备配置，失败时输出各错误配置项
+     */
+    private boolean validate(Map<String, Object> config) {
+        boolean isValid;
+        Map<ConfigItem<?>, String> invalidItems = null;
+        // 校验结果保存在配置定义实例中，并行创建设备时校验需要串行
+        synchronized (deviceConfigDefinition) {
+            isValid = deviceConfigDefinition.validateConfig(config);
+            if (!isValid) {
+                invalidItems = new LinkedHashMap<>(deviceConfigDefinition.getInvalidConfigItems());
             }
         }
-        else{
-            Map<ConfigItem<?>, String> invalidItems = deviceConfigDefinition.getInvalidConfigItems();
+        if (!isValid) {
             for (Map.Entry<ConfigItem<?>, String> entry : invalidItems.entrySet()) {
                 log.error("集成{}的配置项: {} 错误信息: {}.", this.getName(), entry.getKey().getKey(), entry.getValue());
             }
         }
-        return false;
+        return isValid;
+    }
+
+    /**
+     * 登记设备及其线路的总线诊断设备（并行创建设备时串行执行）
+     */
+    private synchronized void registerDevice(SmsDeviceBase device) {
+        addDevice(device);
+        ensureBusDevice(device.getBusStatistics());
+    }
+
+    /**
+     * 为设备所在线路创建总线诊断设备（每个串口或 ip:port 只创建一个）
+     */
+    private void ensureBusDevice(BusStatistics statistics) {
+        String port = statistics.getPort();
+        if (port == null || port.isEmpty() || busDevices.containsKey(port)) {
+            return;
+        }
+        try {
+            SerialBusDevice busDevice = new SerialBusDevice(SerialBusDevice.buildConfig(port), statistics);
+            busDevice.load(core);
+            busDevice.init();
+            addDevice(busDevice);
+            busDevices.put(port, busDevice);
+            if (running) {
+                busDevice.start();
+            }
+            log.info("Serial bus device created for port {}: {}", port, busDevice.getId());
+        } catch (Exception e) {
+            log.error("Create serial bus device failed for port " + port, e);
+        }
+    }
+
+    /**
+     * 释放已没有设备的线路的总线诊断设备（热更新删除或迁走线路上的最后一台设备后）
+     */
+    private void releaseUnusedBusDevices() {
+        Set<String> usedPorts = new HashSet<>();
+        for (DeviceBase device : getAllDevices()) {
+            if (device instanceof SmsDeviceBase) {
+                usedPorts.add(((SmsDeviceBase) device).getBusStatistics().getPort());
+            }
+        }
+        Iterator<Map.Entry<String, SerialBusDevice>> iterator = busDevices.entrySet().iterator();
+        while (iterator.hasNext()) {
+            Map.Entry<String, SerialBusDevice> entry = iterator.next();
+            if (usedPorts.contains(entry.getKey())) {
+                continue;
+            }
+            SerialBusDevice busDevice = entry.getValue();
+            busDevice.release();
+            devices.remove(busDevice.getId());
+            iterator.remove();
+            BusStatistics.remove(entry.getKey());
+            log.info("Serial bus device released for port {}: {}", entry.getKey(), busDevice.getId());
+        }
+    }
+
+    /**
+     * 一次热更新的结果（设备ID列表）
+     */
+    public static final class ReloadResult {
+        private final List<String> added = new ArrayList<>();
+        private final List<String> removed = new ArrayList<>();
+        private final List<String> reconnected = new ArrayList<>();
+        private final List<String> replaced = new ArrayList<>();
+        private final List<String> unchanged = new ArrayList<>();
+        private final List<String> invalid = new ArrayList<>();
+        private final List<String> failed = new ArrayList<>();
+
+        public List<String> getAdded() {
+            return added;
+        }
+
+        public List<String> getRemoved() {
+            return removed;
+        }
+
+        /**
+         * 仅通信参数变化、重新注册了 ModbusSource 的设备
+         */
+        public List<String> getReconnected() {
+            return reconnected;
+        }
+
+        /**
+         * 其它配置变化、重建的设备
+         */
+        public List<String> getReplaced() {
+            return replaced;
+        }
+
+        public List<String> getUnchanged() {
+            return unchanged;
+        }
+
+        /**
+         * 新配置校验失败的设备，运行中的同ID设备保持不变
+         */
+        public List<String> getInvalid() {
+            return invalid;
+        }
+
+        /**
+         * 创建或重新注册失败的设备
+         */
+        public List<String> getFailed() {
+            return failed;
+        }
+
+        @Override
+        public String toString() {
+            return "added=" + added + ", removed=" + removed + ", reconnected=" + reconnected + ", replaced="
+                    + replaced + ", unchanged=" + unchanged.size() + ", invalid=" + invalid + ", failed=" + failed;
+        }
     }
 }
@@ -1,9 +1,11 @@
 package com.ecat.integration.SaimosenIntegration;
 
+import java.util.Arrays;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ScheduledFuture;
-import java.util.concurrent.TimeUnit;
 
 import com.ecat.core.State.AttributeClass;
 import com.ecat.core.State.AttributeStatus;
@@ -43,6 +45,28 @@ public class SampleTube extends SmsDeviceBase {
         BLOCK_CONFIG.put("DEFAULT", new RegisterBlock(0, 11));
     }
 
+    // 各地址对应的属性（地址0x0000-0x000A）
+    private static final String[] REGISTER_ATTRIBUTES = {
+            "humidity",                 // 0x0000: 样气湿度
+            "sample_gas_temperature",   // 0x0001: 样气温度
+            "calibration_status",       // 0x0002: 校准状态（无意义）
+            "reserved_3",               // 0x0003: 保留（无意义）
+            "device_address",           // 0x0004: 设备地址
+            "gas_flow_rate",            // 0x0005: 样气流速
+            "heating_tube_actual_temp", // 0x0006: 加热管实际温度
+            "fan_power",                // 0x0007: 风机功率
+            "heating_belt_power",       // 0x0008: 加热带功率
+            "reserved_9",               // 0x0009: 未使用
+            "heating_tube_target_temp"  // 0x000A: 加热管设置温度
+    };
+    private static final int DEVICE_ADDRESS_REGISTER = 4;
+
+    /**
+     * 参数区间：加热管设置温度
+     */
+    private static final List<ParameterBackup.Range> PARAMETER_RANGES = Arrays.asList(
+            new ParameterBackup.Range("heating_tube_target_temp", 0x0A, 1));
+
     // 大端模式转换器
     private BigEndianConverter bigConverter = AbstractEndianConverter.getBigEndianConverter();
     // 读取任务
@@ -58,13 +82,14 @@ public class SampleTube extends SmsDeviceBase {
     public void init() {
         super.init();
         createAttributes();
+        restoreSnapshot();
     }
 
     /**
      * 启动设备数据读取
      */
     public void start() {
-        readFuture = getScheduledExecutor().scheduleWithFixedDelay(this::readRegisters, 0, 5, TimeUnit.SECONDS);
+        readFuture = schedulePolling(this::readRegisters);
     }
 
     /**
@@ -84,6 +109,12 @@ public class SampleTube extends SmsDeviceBase {
         super.release();
     }
 
+    @Override
+    protected void onModbusSourceChanged() {
+        // ModbusScalableFloatSRAttribute 没有修改 ModbusSource 的入口，按新的 ModbusSource 重建属性
+        createAttributes();
+    }
+
     /**
      * 创建设备属性（根据协议文档）
      */
@@ -254,33 +285,57 @@ public class SampleTube extends SmsDeviceBase {
         ));
     }
 
+    @Override
+    public CompletableFuture<Boolean> pollOnce() {
+        return readRegisters();
+    }
+
+    @Override
+    protected String[] getStoredAttributeIds() {
+        return new String[] {"heating_tube_actual_temp", "heating_tube_target_temp", "sample_gas_temperature"};
+    }
+
+
+    @Override
+    protected List<ParameterBackup.Range> getParameterRanges() {
+        return PARAMETER_RANGES;
+    }
+
+    @Override
+    protected int[] getPollSegmentSizes() {
+        return new int[] {BLOCK_CONFIG.get("DEFAULT").registerCount};
+    }
+
     /**
      * 读取所有寄存器并解析数据
      */
-    private void readRegisters() {
+    private CompletableFuture<Boolean> readRegisters() {
         if (!BLOCK_CONFIG.containsKey("DEFAULT")) {
             log.error("Unsupported device configuration for reading");
-            return;
+            return CompletableFuture.completedFuture(false);
         }
 
-        ModbusTransactionStrategy.executeWithLambda(modbusSource, source -> {
+        return executePoll(source -> {
             RegisterBlock block = BLOCK_CONFIG.get("DEFAULT");
-            return source.readHoldingRegisters(block.startAddress, block.registerCount)
+            return readSegmentRegisters(source, "default", block.startAddress, block.registerCount)
                     .thenApply(response -> {
                         try {
                             short[] registers = response.getShortData();
-                            parseRegisters(registers);
+                            decodeBlock("default", registers, this::parseRegisters);
                             getAttrs().values().forEach(attr -> attr.setStatus(AttributeStatus.NORMAL));
-                            publicAttrsState();
-                            log.info("SampleTube - Data updated successfully");
+                            publishAttributes();
+                            recordPollResult(PollCycleStats.Result.OK, "data updated");
                             return true;
                         } catch (Exception e) {
-                            log.error("SampleTube parsing failed: " + e.getMessage());
+                            recordPollResult(PollCycleStats.Result.FAILED, "parsing failed: {}", e.getMessage());
                             getAttrs().values().forEach(attr -> attr.setStatus(AttributeStatus.MALFUNCTION));
-                            publicAttrsState();
+                            publishAttributes();
                             return false;
                         }
                     });
+        }).exceptionally(throwable -> {
+            recordPollResult(PollCycleStats.Result.FAILED, "communication failed: {}", throwable.getMessage());
+            return false;
         });
     }
 
@@ -289,45 +344,35 @@ public class SampleTube extends SmsDeviceBase {
      */
     private void parseRegisters(short[] registers) {
         AttributeStatus status = AttributeStatus.NORMAL;
-        
-        // 地址0x0000: 样气湿度
-        updateScalableAttribute("humidity", registers[0], status);
-
-        // 地址0x0001: 样气温度
-        updateScalableAttribute("sample_gas_temperature", registers[1], status);
-
-        // 地址0x0002: 校准状态（无意义）
-        updateScalableAttribute("calibration_status", registers[2], status);
-
-        // 地址0x0003: 保留（无意义）
-        updateScalableAttribute("reserved_3", registers[3], status);
-
-        // 地址0x0004: 设备地址
-        updateScalableAttribute("device_address", registers[4], status);
-
-        // 地址0x0005: 样气流速
-        updateScalableAttribute("gas_flow_rate", registers[5], status);
-
-        // 地址0x0006: 加热管实际温度
-        updateScalableAttribute("heating_tube_actual_temp", registers[6], status);
-
-        // 地址0x0007: 风机功率
-        updateScalableAttribute("fan_power", registers[7], status);
-
-        // 地址0x0008: 加热带功率
-        updateScalableAttribute("heating_belt_power", registers[8], status);
-
-        // 地址0x0009: 未使用
-        updateScalableAttribute("reserved_9", registers[9], status);
+        for (int i = 0; i < REGISTER_ATTRIBUTES.length; i++) {
+            updateScalableAttribute(REGISTER_ATTRIBUTES[i], registers[i], status);
+        }
+    }
 
-        // 地址0x000A: 加热管设置温度
-        updateScalableAttribute("heating_tube_target_temp", registers[10], status);
+    /**
+     * 写入成功后回读写入的寄存器
+     */
+    @Override
+    protected void afterCommandWrite(String command, int startAddress, int count) {
+        if (startAddress == DEVICE_ADDRESS_REGISTER || startAddress + count > REGISTER_ATTRIBUTES.length) {
+            // 修改设备地址后原地址不再应答
+            return;
+        }
+        readBack(REGISTER_ATTRIBUTES[startAddress], startAddress, count, data -> {
+            for (int i = 0; i < data.length && i < count; i++) {
+                updateScalableAttribute(REGISTER_ATTRIBUTES[startAddress + i], data[i], AttributeStatus.NORMAL);
+            }
+        });
     }
 
     /**
      * 更新可缩放的浮点型属性值
      */
     private void updateScalableAttribute(String attrId, short data, AttributeStatus status) {
+        // 写入后尚未被新读数对账的属性保持写入值
+        if (!acceptRead(attrId)) {
+            return;
+        }
         ModbusScalableFloatSRAttribute attr = (ModbusScalableFloatSRAttribute) getAttrs().getOrDefault(attrId, null);
         if (attr != null) {
             attr.updateValue(data, status);
@@ -342,16 +387,23 @@ public class SampleTube extends SmsDeviceBase {
         ModbusScalableFloatSRAttribute attr = (ModbusScalableFloatSRAttribute) getAttrs().get("heating_tube_target_temp");
         if (attr != null) {
             int value = (int) (temperature * 10); // 转换为寄存器值（实际值的10倍）
-            ModbusTransactionStrategy.executeWithLambda(modbusSource, source -> {
-                return source.writeRegister(10, value)
-                        .thenApply(response -> {
-                            log.info("SampleTube - Heating tube target temperature set to: " + temperature + "°C");
-                            return true;
-                        })
-                        .exceptionally(throwable -> {
-                            log.error("SampleTube - Failed to set heating tube target temperature: " + throwable.getMessage());
-                            return false;
-                        });
+            // 连续调整时尚未下发的旧设定值被最新值替换
+            submitWrite("heating_tube_target_temp", () -> {
+                beginWrite("heating_tube_target_temp");
+                return ModbusTransactionStrategy.executeWithLambda(modbusSource, source -> {
+                    return writeCommandRegister(source, "set_heating_tube_target_temp", 10, value)
+                            .thenApply(response -> {
+                                commitWrite("heating_tube_target_temp");
+                                attr.updateValue((short) value, AttributeStatus.NORMAL);
+                                log.info("SampleTube - Heating tube target temperature set to: " + temperature + "°C");
+                                return true;
+                            })
+                            .exceptionally(throwable -> {
+                                log.error("SampleTube - Failed to set heating tube target temperature: " + throwable.getMessage());
+                                cancelWrite("heating_tube_target_temp");
+                                return false;
+                            });
+                });
             });
         }
     }
@@ -364,16 +416,23 @@ public class SampleTube extends SmsDeviceBase {
         ModbusScalableFloatSRAttribute attr = (ModbusScalableFloatSRAttribute) getAttrs().get("heating_tube_actual_temp");
         if (attr != null) {
             int value = (int) (temperature * 10); // 转换为寄存器值（实际值的10倍）
-            ModbusTransactionStrategy.executeWithLambda(modbusSource, source -> {
-                return source.writeRegister(6, value)
-                        .thenApply(response -> {
-                            log.info("SampleTube - Heating tube actual temperature set to: " + temperature + "°C");
-                            return true;
-                        })
-                        .exceptionally(throwable -> {
-                            log.error("SampleTube - Failed to set heating tube actual temperature: " + throwable.getMessage());
-                            return false;
-                        });
+            // 连续调整时尚未下发的旧设定值被最新值替换
+            submitWrite("heating_tube_actual_temp", () -> {
+                beginWrite("heating_tube_actual_temp");
+                return ModbusTransactionStrategy.executeWithLambda(modbusSource, source -> {
+                    return writeCommandRegister(source, "set_heating_tube_actual_temp", 6, value)
+                            .thenApply(response -> {
+                                commitWrite("heating_tube_actual_temp");
+                                attr.updateValue((short) value, AttributeStatus.NORMAL);
+                                log.info("SampleTube - Heating tube actual temperature set to: " + temperature + "°C");
+                                return true;
+                            })
+                            .exceptionally(throwable -> {
+                                log.error("SampleTube - Failed to set heating tube actual temperature: " + throwable.getMessage());
+                                cancelWrite("heating_tube_actual_temp");
+                                return false;
+                            });
+                });
             });
         }
     }
@@ -390,7 +449,7 @@ public class SampleTube extends SmsDeviceBase {
         ModbusScalableFloatSRAttribute attr = (ModbusScalableFloatSRAttribute) getAttrs().get("device_address");
         if (attr != null) {
             ModbusTransactionStrategy.executeWithLambda(modbusSource, source -> {
-                return source.writeRegister(4, address)
+                return writeCommandRegister(source, "set_device_address", 4, address)
                         .thenApply(response -> {
                             log.info("SampleTube - Device address set to: " + address);
                             return true;
@@ -412,7 +471,7 @@ public class SampleTube extends SmsDeviceBase {
         ModbusScalableFloatSRAttribute attr = (ModbusScalableFloatSRAttribute) getAttrs().get("calibration_status");
         if (attr != null) {
             ModbusTransactionStrategy.executeWithLambda(modbusSource, source -> {
-                return source.writeRegister(2, status)
+                return writeCommandRegister(source, "set_calibration_status", 2, status)
                         .thenApply(response -> {
                             log.info("SampleTube - Calibration status set to: " + status);
                             return true;
@@ -0,0 +1,163 @@
+package com.ecat.integration.SaimosenIntegration;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+import com.ecat.core.Device.DeviceBase;
+import com.ecat.core.State.AttributeClass;
+import com.ecat.core.State.AttributeStatus;
+import com.ecat.core.State.NumericAttribute;
+import com.ecat.core.State.Unit.NoConversionUnit;
+
+/**
+ * 串口总线诊断设备
+ *
+ * <p>集成为每个不同的串口（或网络方式的 ip:port 线路）自动创建一个实例，不直接访问Modbus，
+ * 只周期性读取 {@link BusStatistics} 并发布以下属性：</p>
+ * <ul>
+ *   <li>transaction_rate：事务速率（次/秒）</li>
+ *   <li>byte_rate：总线字节速率（字节/秒）</li>
+ *   <li>timeout_count / error_count：累计超时次数、CRC或异常响应次数</li>
+ *   <li>mean_turnaround：统计周期内成功事务的平均往返耗时（ms）</li>
+ *   <li>queue_depth：当前等待总线的事务数</li>
+ * </ul>
+ *
+ * @version V1.0
+ */
+public class SerialBusDevice extends DeviceBase {
+
+    private static final long PUBLISH_INTERVAL_SECONDS = 5;
+
+    private final BusStatistics statistics;
+    private ScheduledFuture<?> publishFuture;
+
+    private long lastTime;
+    private long lastTransactions;
+    private long lastBytes;
+    private long lastCompleted;
+    private long lastTurnaroundNanos;
+
+    public SerialBusDevice(Map<String, Object> config, BusStatistics statistics) {
+        super(config);
+        this.statistics = statistics;
+    }
+
+    /**
+     * 根据串口名或 tcp://ip:port 线路标识构造总线设备配置
+     */
+    public static Map<String, Object> buildConfig(String port) {
+        Map<String, Object> config = new HashMap<>();
+        config.put("id", deviceIdForPort(port));
+        config.put("name", port.startsWith("tcp://") ? "TCP " + port.substring("tcp://".length()) : "RS-485 " + port);
+        config.put("port", port);
+        return config;
+    }
+
+    /**
+     * 串口名转换为设备ID，例如 /dev/ttyUSB0 -> bus_dev_ttyUSB0，tcp://10.0.0.5:502 -> bus_tcp_10_0_0_5_502
+     */
+    public static String deviceIdForPort(String port) {
+        return "bus" + ("_" + port).replaceAll("[^A-Za-z0-9]+", "_");
+    }
+
+    @Override
+    public void init() {
+        createAttributes();
+        resetBaseline();
+    }
+
+    @Override
+    public void start() {
+        resetBaseline();
+        publishFuture = getScheduledExecutor().scheduleWithFixedDelay(this::publishStatistics,
+                PUBLISH_INTERVAL_SECONDS, PUBLISH_INTERVAL_SECONDS, TimeUnit.SECONDS);
+    }
+
+    @Override
+    public void stop() {
+        if (publishFuture != null) {
+            publishFuture.cancel(false);
+            publishFuture = null;
+        }
+    }
+
+    @Override
+    public void release() {
+        stop();
+    }
+
+    public BusStatistics getStatistics() {
+        return statistics;
+    }
+
+    private void createAttributes() {
+        setAttribute(new NumericAttribute(
+                "transaction_rate", AttributeClass.TEXT, NoConversionUnit.of("1/s", "次/秒"), NoConversionUnit.of("1/s", "次/秒"),
+                2, false, false));
+        setAttribute(new NumericAttribute(
+                "byte_rate", AttributeClass.TEXT, NoConversionUnit.of("B/s", "字节/秒"), NoConversionUnit.of("B/s", "字节/秒"),
+                1, false, false));
+        setAttribute(new NumericAttribute(
+                "timeout_count", AttributeClass.TEXT, NoConversionUnit.of(""), NoConversionUnit.of(""),
+                0, false, false));
+        setAttribute(new NumericAttribute(
+                "error_count", AttributeClass.TEXT, NoConversionUnit.of(""), NoConversionUnit.of(""),
+                0, false, false));
+        setAttribute(new NumericAttribute(
+                "mean_turnaround", AttributeClass.TIME, NoConversionUnit.of("ms", "ms"), NoConversionUnit.of("ms", "ms"),
+                2, false, false));
+        setAttribute(new NumericAttribute(
+                "queue_depth", AttributeClass.TEXT, NoConversionUnit.of(""), NoConversionUnit.of(""),
+                0, false, false));
+    }
+
+    private void resetBaseline() {
+        lastTime = System.nanoTime();
+        lastTransactions = statistics.getTransactions();
+        lastBytes = statistics.getBytes();
+        lastCompleted = statistics.getCompletedTransactions();
+        lastTurnaroundNanos = statistics.getTurnaroundNanos();
+    }
+
+    /**
+     * 按上一个统计周期的增量计算速率并发布
+     */
+    void publishStatistics() {
+        try {
+            long now = System.nanoTime();
+            long transactions = statistics.getTransactions();
+            long bytes = statistics.getBytes();
+            long completed = statistics.getCompletedTransactions();
+            long turnaround = statistics.getTurnaroundNanos();
+            double seconds = Math.max(1e-3, (now - lastTime) / 1e9);
+
+            updateAttribute("transaction_rate", (transactions - lastTransactions) / seconds);
+            updateAttribute("byte_rate", (bytes - lastBytes) / seconds);
+            updateAttribute("timeout_count", statistics.getTimeouts());
+            updateAttribute("error_count", statistics.getErrors());
+            updateAttribute("queue_depth", statistics.getQueueDepth());
+            long completedDelta = completed - lastCompleted;
+            if (completedDelta > 0) {
+                updateAttribute("mean_turnaround", (turnaround - lastTurnaroundNanos) / 1e6 / completedDelta);
+            }
+            publicAttrsState();
+
+            lastTime = now;
+            lastTransactions = transactions;
+            lastBytes = bytes;
+            lastCompleted = completed;
+            lastTurnaroundNanos = turnaround;
+        } catch (Exception e) {
+            log.error("SerialBusDevice " + getId() + " - publish statistics failed: " + e.getMessage());
+        }
+    }
+
+    private void updateAttribute(String attrId, double value) {
+        NumericAttribute attr = (NumericAttribute) getAttrs().get(attrId);
+        if (attr != null) {
+            attr.updateValue(value, AttributeStatus.NORMAL);
+        }
+    }
+}
@@ -2,8 +2,8 @@ package com.ecat.integration.SaimosenIntegration;
 
 import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ScheduledFuture;
-import java.util.concurrent.TimeUnit;
 
 import com.ecat.core.State.AttributeClass;
 import com.ecat.core.State.AttributeStatus;
@@ -12,7 +12,6 @@ import com.ecat.core.State.Unit.NoConversionUnit;
 import com.ecat.core.State.Unit.PowerUnit;
 import com.ecat.core.State.Unit.TemperatureUnit;
 import com.ecat.core.State.Unit.VoltageUnit;
-import com.ecat.integration.ModbusIntegration.ModbusTransactionStrategy;
 import com.ecat.integration.ModbusIntegration.Attribute.ModbusScalableFloatSRAttribute;
 import com.ecat.integration.ModbusIntegration.EndianConverter.AbstractEndianConverter;
 import com.ecat.integration.ModbusIntegration.EndianConverter.BigEndianConverter;
@@ -48,13 +47,19 @@ public class SmartPowerStabilizer extends SmsDeviceBase {
     public void init() {
         super.init();
         createAttributes();
+        restoreSnapshot();
     }
 
     /**
      * 启动设备数据读取
      */
     public void start() {
-        readFuture = getScheduledExecutor().scheduleWithFixedDelay(this::readRegisters, 0, 5, TimeUnit.SECONDS);
+        readFuture = schedulePolling(this::readRegisters);
+    }
+
+    @Override
+    protected int[] getPollSegmentSizes() {
+        return new int[] {BLOCK_CONFIG.get("DEFAULT").registerCount};
     }
 
     /**
@@ -304,33 +309,41 @@ public class SmartPowerStabilizer extends SmsDeviceBase {
         ));
     }
 
+    @Override
+    public CompletableFuture<Boolean> pollOnce() {
+        return readRegisters();
+    }
+
     /**
      * 读取所有寄存器并解析数据
      */
-    private void readRegisters() {
+    private CompletableFuture<Boolean> readRegisters() {
         if (!BLOCK_CONFIG.containsKey("DEFAULT")) {
             log.error("Unsupported device configuration for reading");
-            return;
+            return CompletableFuture.completedFuture(false);
         }
 
-        ModbusTransactionStrategy.executeWithLambda(modbusSource, source -> {
+        return executePoll(source -> {
             RegisterBlock block = BLOCK_CONFIG.get("DEFAULT");
-            return source.readHoldingRegisters(block.startAddress, block.registerCount)
+            return readSegmentRegisters(source, "default", block.startAddress, block.registerCount)
                     .thenApply(response -> {
                         try {
                             short[] registers = response.getShortData();
-                            parseRegisters(registers);
+                            decodeBlock("default", registers, this::parseRegisters);
                             getAttrs().values().forEach(attr -> attr.setStatus(AttributeStatus.NORMAL));
-                            publicAttrsState();
-                            log.info("SmartPowerStabilizer - Data updated successfully");
+                            publishAttributes();
+                            recordPollResult(PollCycleStats.Result.OK, "data updated");
                             return true;
                         } catch (Exception e) {
-                            log.error("SmartPowerStabilizer parsing failed: " + e.getMessage());
+                            recordPollResult(PollCycleStats.Result.FAILED, "parsing failed: {}", e.getMessage());
                             getAttrs().values().forEach(attr -> attr.setStatus(AttributeStatus.MALFUNCTION));
-                            publicAttrsState();
+                            publishAttributes();
                             return false;
                         }
                     });
+        }).exceptionally(throwable -> {
+            recordPollResult(PollCycleStats.Result.FAILED, "communication failed: {}", throwable.getMessage());
+            return false;
         });
     }
 
@@ -401,6 +414,10 @@ public class SmartPowerStabilizer extends SmsDeviceBase {
      * 更新可缩放的浮点型属性值
      */
     private void updateScalableAttribute(String attrId, short data, AttributeStatus status) {
+        // 写入后尚未被新读数对账的属性保持写入值
+        if (!acceptRead(attrId)) {
+            return;
+        }
         ModbusScalableFloatSRAttribute attr = (ModbusScalableFloatSRAttribute) getAttrs().getOrDefault(attrId, null);
         if (attr != null) {
             attr.updateValue(data, status);
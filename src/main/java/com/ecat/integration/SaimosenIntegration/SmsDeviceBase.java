@@ -1,22 +1,55 @@
 package com.ecat.integration.SaimosenIntegration;
 
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.BooleanSupplier;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.Supplier;
 import com.ecat.core.Device.DeviceBase;
+import com.ecat.core.Device.DeviceStatus;
 import com.ecat.core.EcatCore;
-import com.ecat.integration.ModbusIntegration.ModbusSerialInfo;
+import com.ecat.core.State.AttributeAbility;
+import com.ecat.core.State.AttributeBase;
+import com.ecat.core.State.AttributeClass;
+import com.ecat.core.State.AttributeStatus;
+import com.ecat.core.State.NumericAttribute;
+import com.ecat.core.State.UnitInfo;
+import com.ecat.integration.ModbusIntegration.ModbusInfo;
+import com.ecat.integration.ModbusIntegration.Attribute.ModbusFloatAttribute;
+import com.ecat.integration.ModbusIntegration.Attribute.ModbusScalableFloatSRAttribute;
+import com.ecat.integration.ModbusIntegration.Attribute.ModbusShortAttribute;
 import com.ecat.integration.ModbusIntegration.ModbusSource;
-import com.fazecast.jSerialComm.SerialPort;
+import com.ecat.integration.ModbusIntegration.ModbusTransactionStrategy;
+import com.serotonin.modbus4j.msg.ModbusResponse;
+import com.serotonin.modbus4j.msg.ReadHoldingRegistersResponse;
+import com.serotonin.modbus4j.msg.WriteRegisterResponse;
+import com.serotonin.modbus4j.msg.WriteRegistersResponse;
 import com.ecat.integration.ModbusIntegration.ModbusIntegration;
 
 /**
  * Abstract base class for devices that integrate with the MyESA system.
  * This class extends the `DeviceBase` class and provides functionality
- * for integrating with a Modbus TCP system using the `ModbusIntegration`.
+ * for integrating with a Modbus RTU / Modbus TCP system using the `ModbusIntegration`.
  *
  * <p>Key responsibilities of this class include:
  * <ul>
- *   <li>Loading Modbus TCP integration and communication settings.</li>
+ *   <li>Loading Modbus integration and communication settings.</li>
  *   <li>Initializing a Modbus source for communication with the device.</li>
  * </ul>
  *
@@ -24,26 +57,88 @@ import com.ecat.integration.ModbusIntegration.ModbusIntegration;
  * <ul>
  *   <li>The `config` map must include a `comm_settings` key containing:
  *     <ul>
- *       <li>`ip` (String): The IP address of the Modbus device.</li>
- *       <li>`port` (Integer): The port number for the Modbus connection.</li>
- *       <li>`slaveId` (Integer): The slave ID of the Modbus device.</li>
+ *       <li>`transport` (String, optional): `serial` (default), `tcp` or `rtu_over_tcp`, see {@link ModbusTransport}.</li>
+ *       <li>serial: `port` (String), `baudRate`, `numDataBit`, `numStopBit` (Integer), `parity` (N/E/O).</li>
+ *       <li>tcp / rtu_over_tcp: `ip` (String) and `tcpPort` (Integer, default 502).</li>
+ *       <li>`slaveId` (Integer): The slave ID (unit ID) of the Modbus device.</li>
+ *       <li>`timeout` (Integer, optional): response timeout in ms, default 2000.</li>
  *     </ul>
  *   </li>
  *   <li>The `config` map must also include an `id` key for uniquely identifying the device.</li>
  * </ul>
  *
+ * <p>网络方式下每个 ip:port 是一条独立线路，不同线路上的设备互不排队，可以并行轮询。
+ *
+ * <p>轮询：子类通过 {@link #schedulePolling} 启动轮询（首次轮询按 {@link #setStartDelayMillis} 错开），
+ * 用 {@link #executePoll}、{@link #readSegmentRegisters}、{@link #decodeSegment} 和 {@link #publishAttributes}
+ * 执行一个周期；各阶段耗时、总线统计、帧跟踪和报文记录由本类在这些入口统一记录（`diagnostics.*` 配置）。
+ *
+ * <p>写入：可写属性和命令经 {@link #routeAttributeWrite}、{@link #writeCommandRegister}、{@link #writeCommandBlock}
+ * 写入设备，写入成功后子类可用 {@link #readBack} 立即回读，用 {@link #awaitObservedState} 按读数确认命令结果。
+ *
+ * <p>热更新：{@link #awaitIdle} 等待在途事务结束，{@link #applyCommSettings} 在不重建设备的情况下按新的
+ * comm_settings 重新注册 ModbusSource。
+ *
+ * <p>以下功能由协作类实现，本类只负责按配置创建并在上述入口调用：
+ * <ul>
+ *   <li>{@link WriteOverlay}：写入值在设备读数确认前的显示覆盖。</li>
+ *   <li>{@link WriteCoalescer}：同一属性排队写入的合并。</li>
+ *   <li>{@link AverageAttributes}：`averages` 配置的浓度均值属性。</li>
+ *   <li>{@link AttributeRecorder}：`storage` 本地时序存储和 `outbound` 存储转发。</li>
+ *   <li>{@link WarmStart}：`warm_start` 快照恢复、检查点和过期标记。</li>
+ *   <li>{@link ParameterBackupRunner}：{@link #backupParameters}/{@link #restoreParameters} 的总线事务和备份文件校验。</li>
+ *   <li>{@link CommSettings}：comm_settings 的解析和校验。</li>
+ *   <li>{@link BusTransactionRecorder}：每个总线事务的线路统计和帧跟踪。</li>
+ *   <li>{@link CommandBlockWriter}：{@link #writeCommandBlock} 的写多个寄存器及回退。</li>
+ *   <li>{@link PublishObserver}：发布监听和 {@link #awaitObservedState} 的探测等待。</li>
+ *   <li>{@link FastPoller}：{@link #setFastPolling} 的快速轮询。</li>
+ *   <li>{@link LatencyAttributes}：`diagnostics.latency` 的延迟诊断属性。</li>
+ * </ul>
+ *
  * @see DeviceBase
  * @see ModbusIntegration
  * 
  * @author coffee
  */
 public abstract class SmsDeviceBase extends DeviceBase {
-    protected static ModbusIntegration modbusIntegration;
+    // 并行创建设备时多个线程同时加载，见 load
+    protected static volatile ModbusIntegration modbusIntegration;
     protected ModbusSource modbusSource;
-    protected ModbusSerialInfo modbusInfo;
+    protected ModbusInfo modbusInfo;
+    protected ModbusTransport transport = ModbusTransport.SERIAL;
 
     protected ScheduledFuture<?> readFuture;
 
+    // 只在开启 diagnostics.latency 时创建，关闭时不分配直方图也不记录
+    protected volatile PollLatencyRecorder latencyRecorder;
+    private static final long DEFAULT_LOG_SUMMARY_SECONDS = 600;
+    private static final long DEFAULT_ACK_PROBE_MILLIS = 1000;
+    public static final long POLL_PERIOD_MILLIS = 5000;
+    protected PollCycleStats pollStats = new PollCycleStats(DEFAULT_LOG_SUMMARY_SECONDS);
+    private volatile RegisterTrafficLog.Writer trafficLog;
+    private AttributeRecorder recorder;
+    private AverageAttributes averages;
+    private volatile WarmStart warmStart;
+    private volatile long startDelayMillis;
+    private final CompletableFuture<Void> firstReport = new CompletableFuture<>();
+    private CommSettings commSettings;
+    private final Set<CompletableFuture<?>> inFlight = ConcurrentHashMap.newKeySet();
+    private final PublishObserver publishObserver = new PublishObserver(this::getScheduledExecutor,
+            this::probeObservedState);
+    private final FastPoller fastPoller = new FastPoller(this::getScheduledExecutor, this::pollOnce);
+    private final WriteOverlay writeOverlay = new WriteOverlay();
+    private final WriteCoalescer writeCoalescer = new WriteCoalescer();
+    private final ParameterBackupRunner parameterBackup = new ParameterBackupRunner(this);
+    private final CommandBlockWriter commandBlockWriter = new CommandBlockWriter(this::writeCommandRegister,
+            this::writeMultipleRegisters);
+    private final Map<String, CompletableFuture<Boolean>> queuedReadBacks = new ConcurrentHashMap<>();
+    private final AtomicReference<CompletableFuture<Boolean>> queuedPoll = new AtomicReference<>();
+    private final Object segmentReadLock = new Object();
+    private CompletableFuture<?> lastSegmentRead = CompletableFuture.completedFuture(null);
+    // 未加载配置前（测试场景）使用不登记的独立线路统计
+    private volatile BusTransactionRecorder busRecorder = new BusTransactionRecorder(transport, 1,
+            new BusStatistics(""), new FrameTraceBuffer(FrameTraceBuffer.DEFAULT_CAPACITY));
+
     public SmsDeviceBase(Map<String, Object> config) {
         super(config);
     }
@@ -53,49 +148,760 @@ public abstract class SmsDeviceBase extends DeviceBase {
     public void load(EcatCore core) {
         super.load(core);
         if (modbusIntegration == null) {
-            modbusIntegration = (ModbusIntegration) core.getIntegrationRegistry().getIntegration("integration-modbus");
-        }
-
-        Map<String, Object> commSettings = (Map<String, Object>) config.get("comm_settings");
-        int parity;
-        switch ((String)commSettings.get("parity")) {
-            case "N":
-                parity = SerialPort.NO_PARITY;
-                break;
-            case "E":
-                parity = SerialPort.EVEN_PARITY;
-                break;
-            case "O":
-                parity = SerialPort.ODD_PARITY;
-                break;
-            default:
-                parity = SerialPort.NO_PARITY;
-        }
-        modbusInfo = new ModbusSerialInfo(
-            (String) commSettings.get("port"),
-            (Integer) commSettings.get("baudRate"),
-            (Integer) commSettings.get("numDataBit"),
-            (Integer) commSettings.get("numStopBit"),
-            parity,
-            (Integer) commSettings.getOrDefault("timeout", 2000),
-            (Integer) commSettings.get("slaveId")
-        );
+            synchronized (SmsDeviceBase.class) {
+                if (modbusIntegration == null) {
+                    modbusIntegration = (ModbusIntegration) core.getIntegrationRegistry().getIntegration("integration-modbus");
+                }
+            }
+        }
+
+        CommSettings settings = CommSettings.parse(config.get("id"), (Map<String, Object>) config.get("comm_settings"));
+
+        Map<String, Object> diagnostics = getDiagnosticsConfig();
+        if (Boolean.TRUE.equals(diagnostics.get("latency"))) {
+            latencyRecorder = new PollLatencyRecorder();
+        }
+        Object summarySeconds = diagnostics.get("log_summary_seconds");
+        if (summarySeconds instanceof Number) {
+            pollStats = new PollCycleStats(((Number) summarySeconds).longValue());
+        }
+        FrameTraceBuffer frameTrace = busRecorder.getFrameTrace();
+        Object traceSize = diagnostics.get("frame_trace_size");
+        if (traceSize instanceof Number && ((Number) traceSize).intValue() > 0) {
+            frameTrace = new FrameTraceBuffer(((Number) traceSize).intValue());
+        }
+        frameTrace.setEnabled(Boolean.TRUE.equals(diagnostics.get("frame_trace")));
+        useCommSettings(settings, frameTrace);
+        Object trafficFile = diagnostics.get("traffic_record_file");
+        if (trafficFile instanceof String && !((String) trafficFile).isEmpty()) {
+            try {
+                trafficLog = RegisterTrafficLog.writerFor((String) trafficFile);
+                log.info("{} {} - recording register traffic to {}", getClass().getSimpleName(), getId(), trafficFile);
+            } catch (IOException e) {
+                log.error("{} {} - cannot open traffic record file {}: {}", getClass().getSimpleName(), getId(),
+                        trafficFile, e.getMessage());
+            }
+        }
+    }
+
+    private void useCommSettings(CommSettings settings, FrameTraceBuffer frameTrace) {
+        commSettings = settings;
+        transport = settings.getTransport();
+        modbusInfo = settings.getModbusInfo();
+        busRecorder = new BusTransactionRecorder(settings, BusStatistics.forPort(settings.getLineKey()), frameTrace);
     }
 
     @Override
     public void init() {
         // 如果 modbusSource 已经设置（测试场景），则跳过注册
         if (modbusSource == null) {
-            modbusSource = modbusIntegration.register(modbusInfo, this.getClass().getName() + "-" + config.get("id"));
+            modbusSource = registerModbusSource(modbusInfo);
+        }
+        if (latencyRecorder != null) {
+            for (NumericAttribute attr : LatencyAttributes.create()) {
+                setAttribute(attr);
+            }
         }
+        openRecorder();
     }
 
     @Override
     public void release() {
-        if (modbusSource != null && modbusSource.isModbusOpen()) {
-            modbusSource.closeModbus();
-            log.info("Modbus closed for device " + config.get("id") + ": " + modbusSource.getModbusInfo());
+        setFastPolling(0);
+        saveSnapshot();
+        closeModbusSource(modbusSource);
+        if (recorder != null) {
+            recorder.closeStore();
+        }
+    }
+
+    /**
+     * 向 ModbusIntegration 登记当前通信参数；登记不保证线程安全，各线路并行创建设备和热更新时在此串行
+     */
+    private ModbusSource registerModbusSource(ModbusInfo info) {
+        synchronized (SmsDeviceBase.class) {
+            return modbusIntegration.register(info, this.getClass().getName() + "-" + config.get("id"));
+        }
+    }
+
+    private void closeModbusSource(ModbusSource source) {
+        if (source != null && source.isModbusOpen()) {
+            source.closeModbus();
+            log.info("Modbus closed for device " + config.get("id") + ": " + source.getModbusInfo());
+        }
+    }
+
+    /**
+     * 等待在途的轮询、命令写和属性写入事务（含排队待合并的写入）结束，调用前应先 {@link #stop()} 停止轮询
+     * @return 超时前全部结束返回true
+     */
+    public boolean awaitIdle(long timeout, TimeUnit unit) {
+        CompletableFuture<?>[] pending = inFlight.toArray(new CompletableFuture<?>[0]);
+        if (pending.length == 0) {
+            return true;
+        }
+        try {
+            CompletableFuture.allOf(pending).get(timeout, unit);
+            return true;
+        } catch (ExecutionException e) {
+            // 事务失败同样表示已经结束
+            return true;
+        } catch (TimeoutException e) {
+            return false;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    /**
+     * 应用新的通信参数：等待在途事务结束后按新参数重新登记，新的 ModbusSource 就绪后再关闭原来的。
+     * 属性、均值、存储等状态保持不变；调用前应先 {@link #stop()}，之后再 {@link #start()}
+     * @param commSettings 新的 comm_settings
+     * @param drainTimeoutMillis 等待在途事务的最长时间
+     * @throws IllegalArgumentException 通信参数不完整，此时设备保持原有连接
+     */
+    public void applyCommSettings(Map<String, Object> commSettings, long drainTimeoutMillis) {
+        if (!awaitIdle(drainTimeoutMillis, TimeUnit.MILLISECONDS)) {
+            log.warn("{} {} - in-flight transactions did not finish within {} ms before re-registering",
+                    getClass().getSimpleName(), getId(), drainTimeoutMillis);
+        }
+        // 解析或登记失败时设备保持原有连接
+        CommSettings settings = CommSettings.parse(config.get("id"), commSettings);
+        ModbusSource replacement = registerModbusSource(settings.getModbusInfo());
+        ModbusSource previous = modbusSource;
+        useCommSettings(settings, busRecorder.getFrameTrace());
+        modbusSource = replacement;
+        config.put("comm_settings", commSettings);
+        rebindModbusAttributes();
+        if (previous != replacement) {
+            closeModbusSource(previous);
         }
+        log.info("{} {} - re-registered Modbus source: {}", getClass().getSimpleName(), getId(),
+                replacement.getModbusInfo());
+    }
+
+    /**
+     * 把重新登记的 {@link #modbusSource} 交给属性，保持各属性的值和状态
+     */
+    @SuppressWarnings("unchecked")
+    private void rebindModbusAttributes() {
+        Map<String, AttributeBase<?>> previous = new HashMap<>(getAttrs());
+        onModbusSourceChanged();
+        for (Map.Entry<String, AttributeBase<?>> entry : getAttrs().entrySet()) {
+            AttributeBase<?> old = previous.get(entry.getKey());
+            AttributeBase<?> rebuilt = entry.getValue();
+            if (old == null || old == rebuilt || old.getValue() == null) {
+                continue;
+            }
+            ((AttributeBase<Object>) rebuilt).updateValue(old.getValue(), old.getStatus());
+        }
+    }
+
+    /**
+     * 通信参数变化重新登记后调用：{@link ModbusSourceAware} 属性改用新的 {@link #modbusSource}。
+     * ModbusIntegration 中的属性类（如 ModbusFloatAttribute）在创建时保存 ModbusSource 且没有修改入口，
+     * 使用这些属性的子类覆盖本方法，按新的 ModbusSource 重新创建并登记同ID的属性，原属性的值和状态会转到新属性上
+     */
+    protected void onModbusSourceChanged() {
+        for (AttributeBase<?> attr : getAttrs().values()) {
+            if (attr instanceof ModbusSourceAware) {
+                ((ModbusSourceAware) attr).setModbusSource(modbusSource);
+            }
+        }
+    }
+
+    /**
+     * 登记在途事务，结束后自动移除
+     */
+    private <T> CompletableFuture<T> trackInFlight(CompletableFuture<T> transaction) {
+        inFlight.add(transaction);
+        transaction.whenComplete((result, throwable) -> inFlight.remove(transaction));
+        return transaction;
+    }
+
+    /**
+     * 从热启动快照恢复属性值和状态并立即发布，子类在创建完属性后（init末尾）调用；
+     * 未配置 `warm_start.dir` 或快照不存在时不做任何事
+     */
+    protected void restoreSnapshot() {
+        long now = System.currentTimeMillis();
+        WarmStart state = WarmStart.fromConfig(configSection("warm_start"), getId(), now);
+        if (state == null) {
+            return;
+        }
+        warmStart = state;
+        if (!Files.exists(state.getFile())) {
+            return;
+        }
+        AttributeSnapshot snapshot;
+        try {
+            snapshot = AttributeSnapshot.read(state.getFile());
+        } catch (IOException e) {
+            log.warn("{} {} - cannot read snapshot {}: {}", getClass().getSimpleName(), getId(), state.getFile(),
+                    e.getMessage());
+            return;
+        }
+        if (state.isExpired(snapshot, now)) {
+            log.info("{} {} - snapshot saved {}s ago is too old, starting cold", getClass().getSimpleName(), getId(),
+                    (now - snapshot.getSavedAt()) / 1000);
+            return;
+        }
+        int restored = state.apply(snapshot, getAttrs(), now);
+        if (restored == 0) {
+            return;
+        }
+        publicAttrsState();
+        log.info("{} {} - restored {} attributes from snapshot saved {}s ago", getClass().getSimpleName(), getId(),
+                restored, (now - snapshot.getSavedAt()) / 1000);
+    }
+
+    /**
+     * 把所有属性的值和状态写入热启动快照（未配置 `warm_start.dir` 时不做任何事）
+     */
+    protected void saveSnapshot() {
+        WarmStart state = warmStart;
+        if (state == null) {
+            return;
+        }
+        try {
+            state.capture(getAttrs(), System.currentTimeMillis()).write(state.getFile());
+        } catch (IOException e) {
+            log.warn("{} {} - cannot write snapshot {}: {}", getClass().getSimpleName(), getId(), state.getFile(),
+                    e.getMessage());
+        }
+    }
+
+    /**
+     * 属性是否仍是从快照恢复、尚未被实际读数刷新的过期值
+     */
+    public boolean isStale(String attributeId) {
+        WarmStart state = warmStart;
+        return state != null && state.isStale(attributeId);
+    }
+
+    /**
+     * 热启动后推迟读取配置寄存器的时间窗内返回true；时间窗结束后一直返回false
+     */
+    protected boolean isConfigReadDeferred() {
+        WarmStart state = warmStart;
+        return state != null && state.isConfigReadDeferred(System.currentTimeMillis());
+    }
+
+    /**
+     * 来自配置寄存器的属性ID，推迟读取期间发布时保持快照中的值和过期标记
+     */
+    protected String[] getDeferredConfigAttributeIds() {
+        return new String[0];
+    }
+
+    /**
+     * 当前设备状态，用于判断均值样本的有效性；没有设备状态的设备返回null
+     */
+    protected DeviceStatus getCurrentDeviceStatus() {
+        return null;
+    }
+
+    /**
+     * 均值属性ID，如 no_avg_1h
+     */
+    public static String averageAttributeId(String sourceId, ConcentrationAverager.Window window) {
+        return AverageAttributes.attributeId(sourceId, window);
+    }
+
+    /**
+     * 为浓度属性创建1分钟、5分钟和小时均值属性（未开启 `averages.enabled` 时不创建）
+     * @param sourceId 浓度属性ID
+     */
+    protected void createAverageAttributes(String sourceId, AttributeClass attrClass, UnitInfo unit, int precision) {
+        Map<String, Object> config = configSection("averages");
+        if (!Boolean.TRUE.equals(config.get("enabled"))) {
+            return;
+        }
+        if (averages == null) {
+            Object percent = config.get("min_valid_percent");
+            averages = new AverageAttributes(percent instanceof Number
+                    ? ((Number) percent).doubleValue() / 100 : ConcentrationAverager.DEFAULT_MIN_VALID_FRACTION,
+                    POLL_PERIOD_MILLIS);
+        }
+        for (NumericAttribute average : averages.add(sourceId, attrClass, unit, precision)) {
+            setAttribute(average);
+        }
+    }
+
+    /**
+     * 设置设备读数属性的状态（通讯失败、解析失败或读数成功时统一设置）。
+     * 均值属性的状态是窗口的有效性标记，只在窗口结束时更新，这里跳过
+     * @param status 属性状态
+     */
+    protected void setReadingAttributesStatus(AttributeStatus status) {
+        for (Map.Entry<String, AttributeBase<?>> entry : getAttrs().entrySet()) {
+            if (averages == null || !averages.contains(entry.getKey())) {
+                entry.getValue().setStatus(status);
+            }
+        }
+    }
+
+    /**
+     * 需要写入本地时序存储的属性ID，默认不存储
+     */
+    protected String[] getStoredAttributeIds() {
+        return new String[0];
+    }
+
+    /**
+     * 每个轮询周期依次读取的数据段寄存器数量，用于估算轮询占用线路的时间；默认空数组表示不轮询
+     */
+    protected int[] getPollSegmentSizes() {
+        return new int[0];
+    }
+
+    /**
+     * 估算一个轮询周期占用线路的时间（毫秒），按 {@link #getPollSegmentSizes()} 逐段累加事务耗时
+     */
+    public long estimatePollMillis() {
+        long micros = 0;
+        for (int count : getPollSegmentSizes()) {
+            micros += commSettings != null
+                    ? commSettings.readTransactionMicros(count) : transport.readTransactionMicros(count, 0, 0);
+        }
+        return (micros + 999) / 1000;
+    }
+
+    /**
+     * 设置首次轮询延迟（毫秒），在 {@link #start()} 之前调用
+     */
+    public void setStartDelayMillis(long startDelayMillis) {
+        this.startDelayMillis = startDelayMillis;
+    }
+
+    public long getStartDelayMillis() {
+        return startDelayMillis;
+    }
+
+    /**
+     * 第一次发布属性后完成，用于统计集成启动到所有设备上报的耗时
+     */
+    public CompletableFuture<Void> getFirstReport() {
+        return firstReport;
+    }
+
+    /**
+     * 按轮询周期定时执行读取任务，首次执行延迟 {@link #getStartDelayMillis()}
+     */
+    protected ScheduledFuture<?> schedulePolling(Runnable task) {
+        return getScheduledExecutor().scheduleWithFixedDelay(task, Math.max(startDelayMillis, 0), POLL_PERIOD_MILLIS,
+                TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * 快速轮询（校准时使用）：periodMillis 大于0时，在定时轮询之外每次 {@link #pollOnce()} 完成后
+     * 间隔 periodMillis 再读一次，事务仍在线路队列中排队；0 停止
+     */
+    public void setFastPolling(long periodMillis) {
+        fastPoller.setPeriod(periodMillis);
+    }
+
+    public boolean isFastPolling() {
+        return fastPoller.isActive();
+    }
+
+    /**
+     * 存储属性的显示精度（小数位数），与 {@link #getStoredAttributeIds()} 一一对应，
+     * 写入前按此量化以提高压缩率；取自各属性的显示精度，非数值属性为-1（不量化）
+     */
+    protected int[] getStoredAttributePrecisions() {
+        String[] ids = getStoredAttributeIds();
+        int[] precisions = new int[ids.length];
+        for (int i = 0; i < ids.length; i++) {
+            AttributeBase<?> attr = getAttrs().get(ids[i]);
+            precisions[i] = attr instanceof NumericAttribute ? attr.getDisplayPrecision() : -1;
+        }
+        return precisions;
+    }
+
+    /**
+     * 本地时序存储，未配置 `storage.dir` 时返回null
+     */
+    public TimeSeriesStore getTimeSeriesStore() {
+        return recorder == null ? null : recorder.getStore();
+    }
+
+    /**
+     * 上行存储转发缓冲，未配置 `outbound.dir` 时返回null
+     */
+    public OutboundBuffer getOutboundBuffer() {
+        return recorder == null ? null : recorder.getOutbound();
+    }
+
+    /**
+     * 立即执行一次轮询周期（读取、解析、发布），不影响定时轮询。
+     * 用于报文回放和基准测试；没有周期读取的设备返回 false。
+     */
+    public CompletableFuture<Boolean> pollOnce() {
+        return CompletableFuture.completedFuture(false);
+    }
+
+    /**
+     * 读取反映命令结果的寄存器，{@link #awaitObservedState} 等待期间周期调用；默认执行一次轮询周期
+     */
+    protected CompletableFuture<Boolean> probeObservedState() {
+        return pollOnce();
+    }
+
+    /**
+     * 等待设备读数确认状态迁移：每次发布属性后检查条件，满足即以 true 完成；
+     * 开始时立即 {@link #probeObservedState()} 一次（写入前缓存的读数不算确认），之后每 `ack_probe_millis`
+     * （默认 {@link #DEFAULT_ACK_PROBE_MILLIS}）毫秒一次，不等下一个轮询周期；超时以 false 完成
+     * @param condition 读数满足的条件，在发布线程上调用
+     * @param timeoutMillis 超时时间（毫秒）
+     * @return 状态确认时为 true，超时为 false
+     */
+    public CompletableFuture<Boolean> awaitObservedState(BooleanSupplier condition, long timeoutMillis) {
+        Object configured = config.get("ack_probe_millis");
+        long probeMillis = configured instanceof Number ? ((Number) configured).longValue() : DEFAULT_ACK_PROBE_MILLIS;
+        return publishObserver.await(condition, timeoutMillis, probeMillis);
+    }
+
+    private void recordTraffic(String segmentName, int startAddress, short[] registers) {
+        RegisterTrafficLog.Writer writer = trafficLog;
+        if (writer == null || registers == null) {
+            return;
+        }
+        try {
+            writer.append(System.currentTimeMillis(), getClass().getSimpleName(), getId(),
+                    commSettings != null ? commSettings.getSlaveId() : 1,
+                    segmentName, startAddress, registers);
+        } catch (IOException e) {
+            // 记录失败不影响轮询，停止本设备的记录
+            trafficLog = null;
+            log.error("{} {} - traffic recording stopped: {}", getClass().getSimpleName(), getId(), e.getMessage());
+        }
+    }
+
+    /**
+     * 登记发布监听器，每次发布属性后在轮询线程上调用，监听器应尽快返回
+     */
+    public void addPublishListener(Runnable listener) {
+        publishObserver.addListener(listener);
+    }
+
+    public void removePublishListener(Runnable listener) {
+        publishObserver.removeListener(listener);
+    }
+
+    private void notifyPublishListeners() {
+        publishObserver.notifyListeners(e -> log.error("{} {} - publish listener failed: {}",
+                getClass().getSimpleName(), getId(), e.getMessage()));
+    }
+
+    /**
+     * 通过属性自身的写入逻辑（setDisplayValue）写入设备，期间及写入后的旧读数不覆盖写入值。
+     * 写入经 {@link #submitWrite} 排队，同一属性尚未开始的写入被最新值替换
+     * @param attributeId 属性ID
+     * @param displayValue 显示值
+     * @return 写入结果，属性不存在时为 false；被后续写入合并时为最终写入的结果
+     */
+    public CompletableFuture<Boolean> writeAttribute(String attributeId, String displayValue) {
+        AttributeAbility<?> attr = getAttrs().get(attributeId);
+        if (!(attr instanceof AttributeBase)) {
+            return CompletableFuture.completedFuture(false);
+        }
+        AttributeBase<?> target = (AttributeBase<?>) attr;
+        // 登记了写入路径的属性自行经 routeAttributeWrite 写入
+        return attr instanceof AttributeWriteRouter.Routable
+                ? target.setDisplayValue(displayValue)
+                : routeAttributeWrite(attributeId, () -> target.setDisplayValue(displayValue));
+    }
+
+    /**
+     * 登记可写属性：平台直接调用属性的 setDisplayValue 时同样经 {@link #routeAttributeWrite} 写入
+     */
+    protected <T, A extends AttributeBase<T> & AttributeWriteRouter.Routable> void setRoutedAttribute(A attr) {
+        attr.setWriteRouter(new AttributeWriteRouter() {
+            @Override
+            public CompletableFuture<Boolean> route(String attributeId, Supplier<CompletableFuture<Boolean>> write) {
+                return routeAttributeWrite(attributeId, write);
+            }
+
+            @Override
+            public CompletableFuture<Boolean> route(String attributeId, short[] registers,
+                    Supplier<CompletableFuture<Boolean>> write) {
+                return routeAttributeWrite(attributeId, registers, write);
+            }
+        });
+        setAttribute(attr);
+    }
+
+    /**
+     * 属性写入路径：经 {@link #submitWrite} 排队，同一属性尚未开始的写入被最新值替换；
+     * 写入开始时登记写入覆盖，成功后提交并调用 {@link #afterAttributeWrite} 回读，失败时取消
+     * @param attributeId 属性ID
+     * @param write 属性原有的写入逻辑
+     * @return 写入结果；被后续写入合并时为最终写入的结果
+     */
+    protected CompletableFuture<Boolean> routeAttributeWrite(String attributeId,
+            Supplier<CompletableFuture<Boolean>> write) {
+        return routeAttributeWrite(attributeId, null, write);
+    }
+
+    /**
+     * 属性写入路径，Modbus寄存器属性的写入计入线路统计，给出寄存器内容时同时记录帧跟踪
+     * @param registers 写入的寄存器内容（{@link AttributeWriteRouter.Routable#encodeRegisters}），未知时为null
+     */
+    protected CompletableFuture<Boolean> routeAttributeWrite(String attributeId, short[] registers,
+            Supplier<CompletableFuture<Boolean>> write) {
+        AttributeBase<?> attr = getAttrs().get(attributeId);
+        final int registerCount = registers != null ? registers.length : modbusRegisterCount(attr);
+        final int address = attr instanceof AttributeWriteRouter.Routable
+                ? ((AttributeWriteRouter.Routable) attr).getRegisterAddress() : 0;
+        // 排队等待合并的写入同样计入在途事务，热更新时等它执行完
+        // 写入开始执行时才登记写入覆盖，被合并的写入不会执行
+        return trackInFlight(submitWrite(attributeId, () -> writeOverlay.track(attributeId,
+                () -> registerCount > 0 ? dispatchWrite(attributeId, address, registers, registerCount, write)
+                        : write.get(),
+                () -> runWriteHook(() -> afterAttributeWrite(attributeId)))));
+    }
+
+    /**
+     * Modbus寄存器属性一次写入的寄存器数量，用于线路统计；命令属性自行经 {@link #recordBusWrite} 计数，返回0
+     */
+    private static int modbusRegisterCount(AttributeAbility<?> attr) {
+        if (attr instanceof ModbusFloatAttribute) {
+            return 2;
+        }
+        if (attr instanceof ModbusShortAttribute || attr instanceof ModbusScalableFloatSRAttribute) {
+            return 1;
+        }
+        return 0;
+    }
+
+    /**
+     * 写入设定值：按属性排队，同一时间只执行一个写入，同一属性尚未开始的写入只保留最新的一个（{@link WriteCoalescer}）
+     * @param attributeId 写入的属性ID
+     * @param write 执行写入
+     * @return 写入结果；被后续写入合并时为最终写入的结果
+     */
+    protected CompletableFuture<Boolean> submitWrite(String attributeId, Supplier<CompletableFuture<Boolean>> write) {
+        return writeCoalescer.submit(attributeId, write);
+    }
+
+    /**
+     * 设定值写入队列，提供合并计数
+     */
+    public WriteCoalescer getWriteCoalescer() {
+        return writeCoalescer;
+    }
+
+    /**
+     * 子类写入寄存器前调用，写入结束前忽略该属性的读数
+     */
+    protected void beginWrite(String attributeId) {
+        writeOverlay.begin(attributeId);
+    }
+
+    /**
+     * 写入成功，由调用方更新属性值；提交后发起的读取才能更新该属性
+     */
+    protected void commitWrite(String attributeId) {
+        writeOverlay.commit(attributeId);
+    }
+
+    /**
+     * 写入成功，数值属性立即显示写入值
+     */
+    protected void commitWrite(String attributeId, double value) {
+        writeOverlay.commit(attributeId);
+        AttributeAbility<?> attr = getAttrs().get(attributeId);
+        if (attr instanceof NumericAttribute) {
+            ((NumericAttribute) attr).updateValue(value, AttributeStatus.NORMAL);
+        }
+    }
+
+    /**
+     * 写入失败，读数照常更新
+     */
+    protected void cancelWrite(String attributeId) {
+        writeOverlay.cancel(attributeId);
+    }
+
+    /**
+     * 轮询读数能否更新属性，子类更新可写属性前调用
+     */
+    protected boolean acceptRead(String attributeId) {
+        return writeOverlay.accept(attributeId);
+    }
+
+    /**
+     * 属性是否正在写入或写入后尚未被新的读数对账
+     */
+    public boolean isWriteOverlaid(String attributeId) {
+        return writeOverlay.contains(attributeId);
+    }
+
+    /**
+     * 属性经 {@link #routeAttributeWrite}（属性的 setDisplayValue 或 {@link #writeAttribute}）写入成功后调用，
+     * 子类在此 {@link #readBack} 该属性的寄存器；默认不回读
+     * @param attributeId 属性ID
+     */
+    protected void afterAttributeWrite(String attributeId) {
+    }
+
+    /**
+     * {@link #writeCommandRegister}/{@link #writeCommandBlock} 写入成功后在命令事务内调用，
+     * 子类在此 {@link #readBack} 反映命令结果的寄存器；默认不回读
+     * @param command 命令名称
+     * @param startAddress 写入的起始地址
+     * @param count 写入的寄存器数量
+     */
+    protected void afterCommandWrite(String command, int startAddress, int count) {
+    }
+
+    /**
+     * 命令写入后的回调；参数恢复由 {@link #restoreParameters} 统一回读校验，不再逐块回读
+     */
+    private void runCommandWriteHook(String command, int startAddress, int count) {
+        if (!ParameterBackupRunner.RESTORE_COMMAND.equals(command)) {
+            runWriteHook(() -> afterCommandWrite(command, startAddress, count));
+        }
+    }
+
+    /**
+     * 执行写后回调，回调失败不影响写入结果
+     */
+    private void runWriteHook(Runnable hook) {
+        try {
+            hook.run();
+        } catch (RuntimeException e) {
+            log.warn("{} {} - read-back scheduling failed: {}", getClass().getSimpleName(), getId(), e.getMessage());
+        }
+    }
+
+    /**
+     * 写入后立即回读一段寄存器，只读受影响的区间，不等下一个轮询周期。
+     * 本设备已有轮询周期在排队时以该周期代替（其读取在写入之后发起）；
+     * 同一数据段的回读尚未获得总线时合并为一次。回读在写入提交之后发起，读数会对账写入覆盖。
+     * @param segmentName 段名称（延迟统计和帧跟踪中使用）
+     * @param startAddress 起始地址
+     * @param count 寄存器数量
+     * @param parser 解析读数并更新属性
+     * @return 回读（或代替它的轮询周期）成功时为 true
+     */
+    protected CompletableFuture<Boolean> readBack(String segmentName, int startAddress, int count,
+            Consumer<short[]> parser) {
+        if (modbusSource == null) {
+            return CompletableFuture.completedFuture(false);
+        }
+        CompletableFuture<Boolean> poll = queuedPoll.get();
+        if (poll != null) {
+            return poll;
+        }
+        CompletableFuture<Boolean> readBack = new CompletableFuture<>();
+        CompletableFuture<Boolean> queued = queuedReadBacks.putIfAbsent(segmentName, readBack);
+        if (queued != null) {
+            return queued;
+        }
+        final AtomicBoolean dequeued = new AtomicBoolean(false);
+        busRecorder.getStatistics().onQueued();
+        CompletableFuture<Boolean> transaction = ModbusTransactionStrategy.executeWithLambda(modbusSource, source -> {
+            if (dequeued.compareAndSet(false, true)) {
+                busRecorder.getStatistics().onDequeued();
+            }
+            // 获得总线后的新写入需要再次回读
+            queuedReadBacks.remove(segmentName, readBack);
+            long readSequence = writeOverlay.beginRead();
+            return readSegmentRegisters(source, segmentName, startAddress, count)
+                    .thenApply(response -> {
+                        if (response == null || response.isException() || response.getShortData() == null) {
+                            return false;
+                        }
+                        decodeBlock(segmentName, response.getShortData(), parser);
+                        publicAttrsState();
+                        notifyPublishListeners();
+                        return true;
+                    })
+                    .whenComplete((ok, throwable) -> writeOverlay.endRead(readSequence));
+        });
+        trackInFlight(transaction).whenComplete((ok, throwable) -> {
+            if (dequeued.compareAndSet(false, true)) {
+                busRecorder.getStatistics().onDequeued();
+            }
+            queuedReadBacks.remove(segmentName, readBack);
+            if (throwable != null) {
+                log.warn("{} {} - read-back of {} failed: {}", getClass().getSimpleName(), getId(), segmentName,
+                        throwable.getMessage());
+            }
+            readBack.complete(throwable == null && Boolean.TRUE.equals(ok));
+        });
+        return readBack;
+    }
+
+    /**
+     * 可备份恢复的参数寄存器区间（斜率、截距、修正值、设定值等），按地址连续分组；默认没有
+     */
+    protected List<ParameterBackup.Range> getParameterRanges() {
+        return Collections.emptyList();
+    }
+
+    /**
+     * 读取全部参数区间并保存为备份文件，每个区间一次读取，在同一个总线事务内完成
+     * @param file 备份文件
+     * @return 保存的备份；读取失败、从站异常响应或文件写入失败时以异常结束
+     */
+    public CompletableFuture<ParameterBackup> backupParameters(Path file) {
+        List<ParameterBackup.Range> ranges = getParameterRanges();
+        if (ranges.isEmpty()) {
+            return failedFuture(new UnsupportedOperationException(getClass().getSimpleName() + " 没有可备份的参数"));
+        }
+        if (modbusSource == null) {
+            return failedFuture(new IllegalStateException("ModbusSource 未初始化"));
+        }
+        CompletableFuture<List<ParameterBackup.Block>> transaction = ModbusTransactionStrategy.executeWithLambda(
+                modbusSource, source -> parameterBackup.read(source, ranges));
+        return trackInFlight(transaction).thenApply(blocks -> {
+            ParameterBackup backup = parameterBackup.save(blocks, file);
+            log.info("{} {} - backed up {} parameter ranges to {}", getClass().getSimpleName(), getId(),
+                    blocks.size(), file);
+            return backup;
+        });
+    }
+
+    /**
+     * 从备份文件恢复参数：在同一个总线事务内按区间写回（支持时每个区间一次写多个寄存器），
+     * 再逐区间读取一次校验寄存器值与备份一致。属性显示值由下一个轮询周期更新。
+     * @param file {@link #backupParameters} 保存的备份文件
+     * @return 写入并校验一致时为 true，回读与备份不一致时为 false；
+     *         文件无法读取、型号或区间不符、写入失败时以异常结束
+     */
+    public CompletableFuture<Boolean> restoreParameters(Path file) {
+        ParameterBackup backup;
+        try {
+            backup = parameterBackup.load(file, getParameterRanges());
+        } catch (IOException | IllegalArgumentException e) {
+            return failedFuture(e);
+        }
+        if (modbusSource == null) {
+            return failedFuture(new IllegalStateException("ModbusSource 未初始化"));
+        }
+        List<ParameterBackup.Block> blocks = backup.getBlocks();
+        CompletableFuture<String> transaction = ModbusTransactionStrategy.executeWithLambda(modbusSource,
+                source -> parameterBackup.restore(source, blocks));
+        return trackInFlight(transaction).thenApply(mismatch -> {
+            if (mismatch == null) {
+                log.info("{} {} - restored {} parameter ranges from {}", getClass().getSimpleName(), getId(),
+                        blocks.size(), file);
+                return true;
+            }
+            log.warn("{} {} - parameter restore from {} did not verify: {}", getClass().getSimpleName(), getId(),
+                    file, mismatch);
+            return false;
+        });
+    }
+
+    private static <T> CompletableFuture<T> failedFuture(Throwable throwable) {
+        CompletableFuture<T> future = new CompletableFuture<>();
+        future.completeExceptionally(throwable);
+        return future;
     }
 
     /**
@@ -104,4 +910,449 @@ public abstract class SmsDeviceBase extends DeviceBase {
     public void setModbusSource(ModbusSource modbusSource) {
         this.modbusSource = modbusSource;
     }
+
+    /**
+     * 获取轮询延迟统计快照，未开启 `diagnostics.latency` 时为空
+     * @return segmentName -> (stage -> snapshot)，周期级阶段的数据段名为 {@link PollLatencyRecorder#CYCLE}
+     */
+    public Map<String, Map<PollLatencyRecorder.Stage, LatencyHistogram.Snapshot>> getLatencySnapshot() {
+        PollLatencyRecorder recorder = latencyRecorder;
+        return recorder == null ? Collections.emptyMap() : recorder.getSnapshot();
+    }
+
+    private void recordLatency(String segmentName, PollLatencyRecorder.Stage stage, long nanos) {
+        PollLatencyRecorder recorder = latencyRecorder;
+        if (recorder != null) {
+            recorder.record(segmentName, stage, nanos);
+        }
+    }
+
+    /**
+     * 获取设备的通信方式
+     */
+    public ModbusTransport getTransport() {
+        return transport;
+    }
+
+    /**
+     * 获取设备所在串口（或TCP线路）的总线统计
+     */
+    public BusStatistics getBusStatistics() {
+        return busRecorder.getStatistics();
+    }
+
+    /**
+     * 运行时打开或关闭本设备的帧跟踪，关闭时清空缓冲区
+     */
+    public void setFrameTraceEnabled(boolean enabled) {
+        busRecorder.getFrameTrace().setEnabled(enabled);
+        log.info("{} {} - frame trace {}", getClass().getSimpleName(), getId(), enabled ? "enabled" : "disabled");
+    }
+
+    public boolean isFrameTraceEnabled() {
+        return busRecorder.getFrameTrace().isEnabled();
+    }
+
+    /**
+     * 获取最近的请求/响应帧（按时间顺序），未开启跟踪时为空
+     */
+    public List<FrameTraceBuffer.Frame> getFrameTrace() {
+        return busRecorder.getFrameTrace().snapshot();
+    }
+
+    /**
+     * 以轮询事务执行读取，记录从提交到获得总线的排队等待时间
+     */
+    protected <T> CompletableFuture<T> executePoll(Function<ModbusSource, CompletableFuture<T>> action) {
+        final long queuedAt = System.nanoTime();
+        final AtomicBoolean dequeued = new AtomicBoolean(false);
+        final SaimosenEvents.PollCycleEvent event = new SaimosenEvents.PollCycleEvent();
+        // 排队期间的回读以本周期代替
+        final CompletableFuture<Boolean> pollDone = new CompletableFuture<>();
+        queuedPoll.set(pollDone);
+        event.begin();
+        busRecorder.getStatistics().onQueued();
+        return trackInFlight(ModbusTransactionStrategy.executeWithLambda(modbusSource, source -> {
+            if (dequeued.compareAndSet(false, true)) {
+                busRecorder.getStatistics().onDequeued();
+            }
+            queuedPoll.compareAndSet(pollDone, null);
+            long queueWait = System.nanoTime() - queuedAt;
+            event.queueWait = queueWait;
+            recordLatency(PollLatencyRecorder.CYCLE, PollLatencyRecorder.Stage.QUEUE_WAIT, queueWait);
+            // 本周期的读取在此之后发起，属性更新在周期结束前完成
+            long readSequence = writeOverlay.beginRead();
+            CompletableFuture<T> cycle;
+            try {
+                cycle = action.apply(source);
+            } catch (RuntimeException e) {
+                writeOverlay.endRead(readSequence);
+                throw e;
+            }
+            return cycle.whenComplete((result, throwable) -> writeOverlay.endRead(readSequence));
+        }).whenComplete((result, throwable) -> {
+            // 事务未能获得总线就失败时，同样要从排队深度中扣除
+            if (dequeued.compareAndSet(false, true)) {
+                busRecorder.getStatistics().onDequeued();
+            }
+            queuedPoll.compareAndSet(pollDone, null);
+            pollDone.complete(throwable == null && !Boolean.FALSE.equals(result));
+            event.end();
+            if (event.shouldCommit()) {
+                event.deviceId = getId();
+                event.deviceClass = getClass().getSimpleName();
+                event.outcome = SaimosenEvents.outcomeOf(result, throwable);
+                event.commit();
+            }
+        }));
+    }
+
+    /**
+     * 读取一个数据段的保持寄存器，记录总线往返时间。
+     * 同一设备同时提交的多个数据段（分析仪一个周期的各段）按提交顺序依次下发，
+     * 前一段结束后才发出下一段请求，总线往返时间从请求实际下发开始计时，不含在从站队列中的等待
+     * @param source Modbus源
+     * @param segmentName 段名称
+     * @param startAddress 起始地址
+     * @param count 寄存器数量
+     */
+    protected CompletableFuture<ReadHoldingRegistersResponse> readSegmentRegisters(ModbusSource source,
+            String segmentName, int startAddress, int count) {
+        CompletableFuture<ReadHoldingRegistersResponse> read;
+        synchronized (segmentReadLock) {
+            read = lastSegmentRead.handle((response, throwable) -> null)
+                    .thenCompose(ignored -> dispatchSegmentRead(source, segmentName, startAddress, count));
+            lastSegmentRead = read;
+        }
+        return read;
+    }
+
+    private CompletableFuture<ReadHoldingRegistersResponse> dispatchSegmentRead(ModbusSource source,
+            String segmentName, int startAddress, int count) {
+        final long begin = System.nanoTime();
+        final SaimosenEvents.SegmentReadEvent event = new SaimosenEvents.SegmentReadEvent();
+        event.begin();
+        final BusTransactionRecorder bus = busRecorder;
+        final int traceId = bus.traceRead(startAddress, count, segmentName);
+        return source.readHoldingRegisters(startAddress, count)
+                .whenComplete((response, throwable) -> {
+                    long elapsed = System.nanoTime() - begin;
+                    event.end();
+                    if (event.shouldCommit()) {
+                        event.deviceId = getId();
+                        event.deviceClass = getClass().getSimpleName();
+                        event.segment = segmentName;
+                        event.startAddress = startAddress;
+                        event.registerCount = count;
+                        event.outcome = SaimosenEvents.outcomeOf(response, throwable);
+                        event.commit();
+                    }
+                    recordLatency(segmentName, PollLatencyRecorder.Stage.BUS, elapsed);
+                    if (bus.recordRead(traceId, count, response, throwable, elapsed)) {
+                        if (pollStats.markSegmentOk(segmentName)) {
+                            log.info("{} {} - segment {} recovered", getClass().getSimpleName(), getId(), segmentName);
+                        }
+                        if (trafficLog != null && response != null) {
+                            recordTraffic(segmentName, startAddress, response.getShortData());
+                        }
+                    }
+                });
+    }
+
+    /**
+     * 下发一次写单个寄存器事务，见 {@link #recordBusWrite(String, int, short[], Supplier)}
+     */
+    protected <R extends ModbusResponse> CompletableFuture<R> recordBusWrite(String label, int address, int value,
+            Supplier<CompletableFuture<R>> write) {
+        return recordBusWrite(label, address, new short[] {(short) value}, write);
+    }
+
+    /**
+     * 下发一次写寄存器事务：计入线路统计并记录帧跟踪，往返时间从请求下发开始计时。
+     * 设备的命令写入、参数恢复以及命令属性发起的写入都经此下发，可写属性的写入见 {@link #routeAttributeWrite}
+     * @param label 帧跟踪中的说明（命令名称或属性ID）
+     * @param startAddress 起始地址
+     * @param registers 写入的寄存器内容：1个为写单个寄存器（功能码0x06），多个为写多个寄存器（功能码0x10）
+     * @param write 实际的写请求
+     */
+    protected <R extends ModbusResponse> CompletableFuture<R> recordBusWrite(String label, int startAddress,
+            short[] registers, Supplier<CompletableFuture<R>> write) {
+        return dispatchWrite(label, startAddress, registers, registers.length, write);
+    }
+
+    /**
+     * 写寄存器事务的公共路径，结果为Modbus响应或属性写入的成败；事务计入在途事务（{@link #awaitIdle}）
+     * @param registers 写入的寄存器内容，无法编码时为null，只计入线路统计不记录帧跟踪
+     * @param registerCount 写入的寄存器数量
+     */
+    private <T> CompletableFuture<T> dispatchWrite(String label, int startAddress, short[] registers,
+            int registerCount, Supplier<CompletableFuture<T>> write) {
+        final BusTransactionRecorder bus = busRecorder;
+        final int traceId = bus.traceWrite(startAddress, registers, label);
+        final long begin = System.nanoTime();
+        CompletableFuture<T> future = write.get();
+        if (future == null) {
+            return null;
+        }
+        return trackInFlight(future.whenComplete((result, throwable) -> bus.recordWrite(traceId, startAddress,
+                registers, registerCount, result, throwable, System.nanoTime() - begin)));
+    }
+
+    /**
+     * 解析一个数据段，记录解析耗时
+     */
+    protected <R> R decodeSegment(String segmentName, short[] rawData, Function<short[], R> parser) {
+        final long begin = System.nanoTime();
+        SaimosenEvents.DecodeEvent event = new SaimosenEvents.DecodeEvent();
+        event.begin();
+        String outcome = SaimosenEvents.OUTCOME_ERROR;
+        try {
+            R result = parser.apply(rawData);
+            outcome = SaimosenEvents.OUTCOME_OK;
+            return result;
+        } finally {
+            recordLatency(segmentName, PollLatencyRecorder.Stage.DECODE, System.nanoTime() - begin);
+            event.end();
+            if (event.shouldCommit()) {
+                event.deviceId = getId();
+                event.deviceClass = getClass().getSimpleName();
+                event.segment = segmentName;
+                event.registerCount = rawData == null ? 0 : rawData.length;
+                event.outcome = outcome;
+                event.commit();
+            }
+        }
+    }
+
+    /**
+     * 解析一个没有返回值的数据块（解析结果直接写入属性），记录解析耗时
+     */
+    protected void decodeBlock(String segmentName, short[] rawData, Consumer<short[]> parser) {
+        decodeSegment(segmentName, rawData, data -> {
+            parser.accept(data);
+            return null;
+        });
+    }
+
+    /**
+     * 发布属性状态，记录发布耗时；启用延迟诊断属性时先刷新诊断属性
+     */
+    protected void publishAttributes() {
+        PollLatencyRecorder recorder = latencyRecorder;
+        if (recorder != null) {
+            LatencyAttributes.update(recorder, getAttrs());
+        }
+        final long begin = System.nanoTime();
+        SaimosenEvents.PublishEvent event = new SaimosenEvents.PublishEvent();
+        event.begin();
+        long now = System.currentTimeMillis();
+        if (averages != null) {
+            averages.update(getAttrs(), now, getCurrentDeviceStatus());
+        }
+        WarmStart state = warmStart;
+        if (state != null) {
+            state.refreshStale(getDeferredConfigAttributeIds(), now);
+        }
+        publicAttrsState();
+        recordAttributes(now);
+        if (state != null && state.isCheckpointDue(now)) {
+            saveSnapshot();
+        }
+        firstReport.complete(null);
+        notifyPublishListeners();
+        recordLatency(PollLatencyRecorder.CYCLE, PollLatencyRecorder.Stage.PUBLISH, System.nanoTime() - begin);
+        event.end();
+        if (event.shouldCommit()) {
+            event.deviceId = getId();
+            event.deviceClass = getClass().getSimpleName();
+            event.attributeCount = getAttrs().size();
+            event.commit();
+        }
+    }
+
+    /**
+     * 写单个命令/参数寄存器，记录JFR命令写事件
+     * @param source Modbus源
+     * @param command 命令名称
+     * @param address 寄存器地址
+     * @param value 写入值
+     */
+    protected CompletableFuture<WriteRegisterResponse> writeCommandRegister(ModbusSource source, String command,
+            int address, int value) {
+        return trackInFlight(SaimosenEvents.traceCommandWrite(getId(), getClass().getSimpleName(), command, address,
+                value, () -> recordBusWrite(command, address, value, () -> source.writeRegister(address, value)))
+                .whenComplete((response, throwable) -> {
+                    if (throwable == null && response != null && !response.isException()) {
+                        runCommandWriteHook(command, address, 1);
+                    }
+                }));
+    }
+
+    /**
+     * 型号固件是否接受写多个寄存器（功能码0x10），默认不接受
+     */
+    protected boolean supportsMultipleRegisterWrite() {
+        return false;
+    }
+
+    /**
+     * 当前是否以写多个寄存器下发命令块：配置 `write_multiple_registers` 优先于型号声明，从站拒绝过则不再使用
+     */
+    public boolean isMultipleRegisterWriteEnabled() {
+        if (commandBlockWriter.isMultipleRejected()) {
+            return false;
+        }
+        Object configured = config.get("write_multiple_registers");
+        return configured instanceof Boolean ? (Boolean) configured : supportsMultipleRegisterWrite();
+    }
+
+    /**
+     * 按地址顺序写一段连续的命令/参数寄存器，支持时合并为一次写多个寄存器事务
+     * @param source Modbus源
+     * @param command 命令名称
+     * @param startAddress 起始地址
+     * @param values 各寄存器的写入值
+     * @return 全部写入成功时完成，异常响应或通讯失败时以异常结束
+     */
+    protected CompletableFuture<Void> writeCommandBlock(ModbusSource source, String command, int startAddress,
+            int... values) {
+        return commandBlockWriter.write(source, command, startAddress, values, isMultipleRegisterWriteEnabled(),
+                reason -> log.warn("{} {} - write multiple registers rejected ({}), "
+                        + "falling back to single register writes", getClass().getSimpleName(), getId(), reason));
+    }
+
+    private CompletableFuture<WriteRegistersResponse> writeMultipleRegisters(ModbusSource source, String command,
+            int startAddress, short[] registers) {
+        return trackInFlight(SaimosenEvents.traceCommandWrite(getId(), getClass().getSimpleName(), command,
+                startAddress, registers[0], registers.length,
+                () -> recordBusWrite(command, startAddress, registers,
+                        () -> source.writeRegisters(startAddress, registers)))
+                .whenComplete((response, throwable) -> {
+                    if (throwable == null && response != null && !response.isException()) {
+                        runCommandWriteHook(command, startAddress, registers.length);
+                    }
+                }));
+    }
+
+    /**
+     * 记录一个轮询周期的结果。成功周期只计数；结果状态变化时输出一条日志，到达汇总间隔时输出汇总。
+     * 说明按日志占位符传入，只在输出状态变化日志时格式化，成功周期不拼接字符串
+     * @param result 周期结果
+     * @param detailPattern 状态变化日志中附带的说明（设备状态或失败原因），可含 {} 占位符
+     * @param detailArgs 说明中占位符的参数
+     */
+    protected void recordPollResult(PollCycleStats.Result result, String detailPattern, Object... detailArgs) {
+        PollCycleStats.Result previous = pollStats.record(result);
+        if (previous != result) {
+            Object from = previous == null ? "START" : previous;
+            if (result == PollCycleStats.Result.OK) {
+                log.info("{} {} - poll {} -> OK, " + detailPattern,
+                        withDetailArgs(detailArgs, getClass().getSimpleName(), getId(), from));
+            } else {
+                log.warn("{} {} - poll {} -> {}, " + detailPattern,
+                        withDetailArgs(detailArgs, getClass().getSimpleName(), getId(), from, result));
+            }
+        }
+        PollCycleStats.Summary summary = pollStats.pollSummary();
+        if (summary != null) {
+            PollLatencyRecorder recorder = latencyRecorder;
+            if (recorder == null) {
+                log.info("{} {} - poll summary: {} cycles in {}s, ok={}, partial={}, failed={}",
+                        getClass().getSimpleName(), getId(), summary.getTotal(), summary.getSeconds(),
+                        summary.getOk(), summary.getPartial(), summary.getFailed());
+            } else {
+                LatencyHistogram.Snapshot bus = recorder.getStageSnapshot(PollLatencyRecorder.Stage.BUS);
+                log.info("{} {} - poll summary: {} cycles in {}s, ok={}, partial={}, failed={}, bus p99={}ms",
+                        getClass().getSimpleName(), getId(), summary.getTotal(), summary.getSeconds(),
+                        summary.getOk(), summary.getPartial(), summary.getFailed(), bus.getP99Millis());
+            }
+        }
+    }
+
+    private static Object[] withDetailArgs(Object[] detailArgs, Object... head) {
+        Object[] args = Arrays.copyOf(head, head.length + detailArgs.length);
+        System.arraycopy(detailArgs, 0, args, head.length, detailArgs.length);
+        return args;
+    }
+
+    /**
+     * 记录数据段读取或解析失败，同一数据段连续失败只在第一次输出警告
+     */
+    protected void recordSegmentFailure(String segmentName, Throwable throwable) {
+        if (pollStats.markSegmentFailed(segmentName)) {
+            log.warn("{} {} - segment {} failed: {}", getClass().getSimpleName(), getId(), segmentName,
+                    throwable == null ? "unknown" : throwable.getMessage());
+        }
+    }
+
+    /**
+     * 获取轮询周期计数
+     */
+    public PollCycleStats getPollStats() {
+        return pollStats;
+    }
+
+    protected Map<String, Object> getDiagnosticsConfig() {
+        return configSection("diagnostics");
+    }
+
+    /**
+     * 设备配置中的一节（diagnostics、averages、warm_start、storage、outbound），未配置时为空
+     */
+    @SuppressWarnings("unchecked")
+    private Map<String, Object> configSection(String key) {
+        Object section = config.get(key);
+        return section instanceof Map ? (Map<String, Object>) section : Collections.emptyMap();
+    }
+
+    private void openRecorder() {
+        if (recorder == null) {
+            recorder = new AttributeRecorder(getStoredAttributeIds());
+        }
+        String columns = String.join(",", recorder.getColumns());
+        Object storageDir = configSection("storage").get("dir");
+        try {
+            TimeSeriesStore store = recorder.openStore(configSection("storage"), getId(), getStoredAttributePrecisions());
+            if (store != null) {
+                log.info("{} {} - storing {} to {}", getClass().getSimpleName(), getId(), columns, store.getDirectory());
+            }
+        } catch (IOException | IllegalArgumentException e) {
+            log.error("{} {} - cannot open time series store in {}: {}", getClass().getSimpleName(), getId(),
+                    storageDir, e.getMessage());
+        }
+        Object outboundDir = configSection("outbound").get("dir");
+        try {
+            OutboundBuffer buffer = recorder.openOutbound(configSection("outbound"), core);
+            if (buffer != null) {
+                log.info("{} {} - forwarding {} through {}", getClass().getSimpleName(), getId(), columns,
+                        buffer.getDirectory());
+            }
+        } catch (IOException | IllegalArgumentException e) {
+            log.error("{} {} - cannot open outbound buffer in {}: {}", getClass().getSimpleName(), getId(),
+                    outboundDir, e.getMessage());
+        }
+    }
+
+    private void recordAttributes(long timestamp) {
+        if (recorder == null || !recorder.isRecording()) {
+            return;
+        }
+        recorder.sample(getAttrs());
+        try {
+            recorder.append(timestamp);
+        } catch (IOException e) {
+            // 存储失败不影响发布，停止本设备的本地存储
+            recorder.closeStore();
+            log.error("{} {} - time series storing stopped: {}", getClass().getSimpleName(), getId(),
+                    e.getMessage());
+        }
+        try {
+            recorder.forward(getId(), timestamp);
+        } catch (IOException e) {
+            // 缓冲由多个设备共享，只停止本设备的转发
+            recorder.stopForwarding();
+            log.error("{} {} - outbound forwarding stopped: {}", getClass().getSimpleName(), getId(),
+                    e.getMessage());
+        }
+    }
 }
@@ -0,0 +1,68 @@
+package com.ecat.integration.SaimosenIntegration;
+
+import java.util.concurrent.CompletableFuture;
+
+import com.ecat.core.State.AttributeClass;
+import com.ecat.core.State.UnitInfo;
+import com.ecat.integration.ModbusIntegration.ModbusSource;
+import com.ecat.integration.ModbusIntegration.Attribute.ModbusFloatAttribute;
+import com.ecat.integration.ModbusIntegration.EndianConverter.AbstractEndianConverter;
+
+/**
+ * 经所属设备写入路径写入的 float 属性
+ *
+ * <p>寄存器编码和写入仍由 {@link ModbusFloatAttribute} 完成；平台直接调用 setDisplayValue 时，
+ * 写入交给 {@link SmsDeviceBase#setRoutedAttribute} 登记的写入路径执行。</p>
+ *
+ * @version V1.0
+ */
+public class SmsModbusFloatAttribute extends ModbusFloatAttribute implements AttributeWriteRouter.Routable {
+
+    private final AttributeWriteRouter.Binding writeBinding = new AttributeWriteRouter.Binding();
+    private final UnitInfo nativeUnit;
+    private final short registerAddress;
+
+    public SmsModbusFloatAttribute(String attributeID, AttributeClass attrClass, UnitInfo nativeUnit,
+            UnitInfo displayUnit, int displayPrecision, boolean unitChangeable, boolean valueChangeable,
+            ModbusSource modbusSource, short registerAddress, AbstractEndianConverter endianConverter) {
+        super(attributeID, attrClass, nativeUnit, displayUnit, displayPrecision, unitChangeable, valueChangeable,
+                modbusSource, registerAddress, endianConverter);
+        this.nativeUnit = nativeUnit;
+        this.registerAddress = registerAddress;
+    }
+
+    @Override
+    public void setWriteRouter(AttributeWriteRouter router) {
+        writeBinding.setRouter(router);
+    }
+
+    @Override
+    public int getRegisterAddress() {
+        return registerAddress & 0xFFFF;
+    }
+
+    /**
+     * 按大端（高字在前）编码为2个寄存器，与设备创建属性时使用的大端转换器一致
+     */
+    @Override
+    public short[] encodeRegisters(String displayValue, UnitInfo fromUnit) {
+        Float value = AttributeWriteRouter.parseNativeValue(displayValue, fromUnit, nativeUnit);
+        if (value == null) {
+            return null;
+        }
+        int bits = Float.floatToIntBits(value);
+        return new short[] {(short) (bits >>> 16), (short) bits};
+    }
+
+    @Override
+    public CompletableFuture<Boolean> setDisplayValue(String newDisplayValue) {
+        return writeBinding.write(getAttributeID(), encodeRegisters(newDisplayValue, null),
+                () -> super.setDisplayValue(newDisplayValue));
+    }
+
+    @Override
+    public CompletableFuture<Boolean> setDisplayValue(String newDisplayValue, UnitInfo fromUnit) {
+        return writeBinding.write(getAttributeID(), encodeRegisters(newDisplayValue, fromUnit),
+                () -> super.setDisplayValue(newDisplayValue, fromUnit));
+    }
+}
@@ -0,0 +1,64 @@
+package com.ecat.integration.SaimosenIntegration;
+
+import java.util.concurrent.CompletableFuture;
+
+import com.ecat.core.State.AttributeClass;
+import com.ecat.core.State.UnitInfo;
+import com.ecat.integration.ModbusIntegration.ModbusSource;
+import com.ecat.integration.ModbusIntegration.Attribute.ModbusScalableFloatSRAttribute;
+import com.ecat.integration.ModbusIntegration.EndianConverter.AbstractEndianConverter;
+
+/**
+ * 经所属设备写入路径写入的缩放 short 属性（质控仪加热温度、风机功率等 U16X10 寄存器）
+ *
+ * <p>缩放和寄存器写入仍由 {@link ModbusScalableFloatSRAttribute} 完成；平台直接调用 setDisplayValue 时，
+ * 写入交给 {@link SmsDeviceBase#setRoutedAttribute} 登记的写入路径执行。</p>
+ *
+ * @version V1.0
+ */
+public class SmsModbusScalableFloatAttribute extends ModbusScalableFloatSRAttribute
+        implements AttributeWriteRouter.Routable {
+
+    private final AttributeWriteRouter.Binding writeBinding = new AttributeWriteRouter.Binding();
+    private final UnitInfo nativeUnit;
+    private final short registerAddress;
+    private final float scale;
+
+    public SmsModbusScalableFloatAttribute(String attributeID, AttributeClass attrClass, UnitInfo nativeUnit,
+            UnitInfo displayUnit, int displayPrecision, boolean unitChangeable, boolean valueChangeable,
+            ModbusSource modbusSource, short registerAddress, AbstractEndianConverter endianConverter, float scale) {
+        super(attributeID, attrClass, nativeUnit, displayUnit, displayPrecision, unitChangeable, valueChangeable,
+                modbusSource, registerAddress, endianConverter, scale);
+        this.nativeUnit = nativeUnit;
+        this.registerAddress = registerAddress;
+        this.scale = scale;
+    }
+
+    @Override
+    public void setWriteRouter(AttributeWriteRouter router) {
+        writeBinding.setRouter(router);
+    }
+
+    @Override
+    public int getRegisterAddress() {
+        return registerAddress & 0xFFFF;
+    }
+
+    @Override
+    public short[] encodeRegisters(String displayValue, UnitInfo fromUnit) {
+        Float value = AttributeWriteRouter.parseNativeValue(displayValue, fromUnit, nativeUnit);
+        return value == null ? null : new short[] {(short) Math.round(value * scale)};
+    }
+
+    @Override
+    public CompletableFuture<Boolean> setDisplayValue(String newDisplayValue) {
+        return writeBinding.write(getAttributeID(), encodeRegisters(newDisplayValue, null),
+                () -> super.setDisplayValue(newDisplayValue));
+    }
+
+    @Override
+    public CompletableFuture<Boolean> setDisplayValue(String newDisplayValue, UnitInfo fromUnit) {
+        return writeBinding.write(getAttributeID(), encodeRegisters(newDisplayValue, fromUnit),
+                () -> super.setDisplayValue(newDisplayValue, fromUnit));
+    }
+}
@@ -0,0 +1,60 @@
+package com.ecat.integration.SaimosenIntegration;
+
+import java.util.concurrent.CompletableFuture;
+
+import com.ecat.core.State.AttributeClass;
+import com.ecat.core.State.UnitInfo;
+import com.ecat.integration.ModbusIntegration.ModbusSource;
+import com.ecat.integration.ModbusIntegration.Attribute.ModbusShortAttribute;
+
+/**
+ * 经所属设备写入路径写入的 short 属性（质控仪阀门、继电器、空调设定等）
+ *
+ * <p>寄存器写入仍由 {@link ModbusShortAttribute} 完成；平台直接调用 setDisplayValue 时，
+ * 写入交给 {@link SmsDeviceBase#setRoutedAttribute} 登记的写入路径执行。</p>
+ *
+ * @version V1.0
+ */
+public class SmsModbusShortAttribute extends ModbusShortAttribute implements AttributeWriteRouter.Routable {
+
+    private final AttributeWriteRouter.Binding writeBinding = new AttributeWriteRouter.Binding();
+    private final UnitInfo nativeUnit;
+    private final short registerAddress;
+
+    public SmsModbusShortAttribute(String attributeID, AttributeClass attrClass, UnitInfo nativeUnit,
+            UnitInfo displayUnit, int displayPrecision, boolean unitChangeable, boolean valueChangeable,
+            ModbusSource modbusSource, short registerAddress) {
+        super(attributeID, attrClass, nativeUnit, displayUnit, displayPrecision, unitChangeable, valueChangeable,
+                modbusSource, registerAddress);
+        this.nativeUnit = nativeUnit;
+        this.registerAddress = registerAddress;
+    }
+
+    @Override
+    public void setWriteRouter(AttributeWriteRouter router) {
+        writeBinding.setRouter(router);
+    }
+
+    @Override
+    public int getRegisterAddress() {
+        return registerAddress & 0xFFFF;
+    }
+
+    @Override
+    public short[] encodeRegisters(String displayValue, UnitInfo fromUnit) {
+        Float value = AttributeWriteRouter.parseNativeValue(displayValue, fromUnit, nativeUnit);
+        return value == null ? null : new short[] {(short) Math.round(value)};
+    }
+
+    @Override
+    public CompletableFuture<Boolean> setDisplayValue(String newDisplayValue) {
+        return writeBinding.write(getAttributeID(), encodeRegisters(newDisplayValue, null),
+                () -> super.setDisplayValue(newDisplayValue));
+    }
+
+    @Override
+    public CompletableFuture<Boolean> setDisplayValue(String newDisplayValue, UnitInfo fromUnit) {
+        return writeBinding.write(getAttributeID(), encodeRegisters(newDisplayValue, fromUnit),
+                () -> super.setDisplayValue(newDisplayValue, fromUnit));
+    }
+}
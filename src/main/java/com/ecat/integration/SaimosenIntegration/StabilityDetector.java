@@ -0,0 +1,230 @@
+package com.ecat.integration.SaimosenIntegration;
+
+import java.util.Map;
+import java.util.function.Supplier;
+
+/**
+ * 流式读数稳定判断（校准时自动确认用）
+ *
+ * <p>在最近 {@code windowSize} 个样本的滑动窗口上维护均值、标准差和线性回归斜率，
+ * 每个样本 O(1) 更新：窗口内保存 Σx、Σx²、Σy、Σy²、Σxy（x 为相对窗口基准时间的秒数），
+ * 样本进出窗口时增减；每滑过一个完整窗口按环形缓冲重新求和一次并重设基准时间，避免累计误差。</p>
+ *
+ * <p>窗口填满后，每个样本检查：标准差不超过 {@code maxStdDev}、斜率绝对值不超过 {@code maxSlopePerMinute}
+ * （每分钟变化量），设置了目标值时均值与目标差不超过 {@code targetTolerance}。
+ * 连续 {@code requiredSamples} 个样本满足即判定稳定，任一样本不满足则重新计数。</p>
+ *
+ * <p>非线程安全，由调用方保证同一时间只有一个线程写入。</p>
+ *
+ * @version V1.0
+ */
+public class StabilityDetector {
+
+    public static final int DEFAULT_WINDOW_SAMPLES = 12;
+    public static final double DEFAULT_MAX_STD_DEV = 1.0;
+    public static final double DEFAULT_MAX_SLOPE_PER_MINUTE = 1.0;
+    public static final int DEFAULT_REQUIRED_SAMPLES = 3;
+
+    private final int windowSize;
+    private final double maxStdDev;
+    private final double maxSlopePerMinute;
+    private final int requiredSamples;
+    private double target = Double.NaN;
+    private double targetTolerance = Double.POSITIVE_INFINITY;
+
+    private final double[] xs;
+    private final double[] ys;
+    private int count;
+    private int head;
+    private int sinceRebase;
+    private long baseMillis;
+    private double sumX;
+    private double sumXX;
+    private double sumY;
+    private double sumYY;
+    private double sumXY;
+    private int stableCount;
+
+    /**
+     * @param windowSize 窗口样本数（至少2）
+     * @param maxStdDev 允许的最大标准差
+     * @param maxSlopePerMinute 允许的最大斜率绝对值（每分钟变化量）
+     * @param requiredSamples 需连续满足条件的样本数
+     */
+    public StabilityDetector(int windowSize, double maxStdDev, double maxSlopePerMinute, int requiredSamples) {
+        if (windowSize < 2 || requiredSamples < 1) {
+            throw new IllegalArgumentException("windowSize must be at least 2 and requiredSamples positive");
+        }
+        this.windowSize = windowSize;
+        this.maxStdDev = maxStdDev;
+        this.maxSlopePerMinute = maxSlopePerMinute;
+        this.requiredSamples = requiredSamples;
+        this.xs = new double[windowSize];
+        this.ys = new double[windowSize];
+    }
+
+    /**
+     * 按配置创建检测器工厂，配置项：window_samples、max_std_dev、max_slope_per_minute、required_samples，
+     * 缺省使用 DEFAULT_* 值
+     */
+    public static Supplier<StabilityDetector> factory(Map<String, Object> config) {
+        int windowSize = intValue(config.get("window_samples"), DEFAULT_WINDOW_SAMPLES);
+        double maxStdDev = doubleValue(config.get("max_std_dev"), DEFAULT_MAX_STD_DEV);
+        double maxSlope = doubleValue(config.get("max_slope_per_minute"), DEFAULT_MAX_SLOPE_PER_MINUTE);
+        int required = intValue(config.get("required_samples"), DEFAULT_REQUIRED_SAMPLES);
+        // 先创建一次以校验参数
+        new StabilityDetector(windowSize, maxStdDev, maxSlope, required);
+        return () -> new StabilityDetector(windowSize, maxStdDev, maxSlope, required);
+    }
+
+    private static int intValue(Object value, int defaultValue) {
+        return value instanceof Number ? ((Number) value).intValue() : defaultValue;
+    }
+
+    private static double doubleValue(Object value, double defaultValue) {
+        return value instanceof Number ? ((Number) value).doubleValue() : defaultValue;
+    }
+
+    /**
+     * 设置目标值，均值需在目标值 ± tolerance 内（零点检查时目标为0）
+     */
+    public StabilityDetector setTarget(double target, double tolerance) {
+        this.target = target;
+        this.targetTolerance = tolerance;
+        return this;
+    }
+
+    /**
+     * 加入一个样本
+     * @param timeMillis 样本时间（毫秒）
+     * @param value 读数，NaN 或无穷大时清空窗口
+     * @return 加入后是否稳定
+     */
+    public boolean add(long timeMillis, double value) {
+        if (Double.isNaN(value) || Double.isInfinite(value)) {
+            reset();
+            return false;
+        }
+        if (count == 0) {
+            baseMillis = timeMillis;
+        }
+        double x = (timeMillis - baseMillis) / 1000.0;
+        int slot = (head + count) % windowSize;
+        if (count == windowSize) {
+            // 窗口已满，最早的样本移出
+            slot = head;
+            remove(xs[head], ys[head]);
+            head = (head + 1) % windowSize;
+            count--;
+        }
+        xs[slot] = x;
+        ys[slot] = value;
+        count++;
+        sumX += x;
+        sumXX += x * x;
+        sumY += value;
+        sumYY += value * value;
+        sumXY += x * value;
+        if (++sinceRebase >= windowSize) {
+            rebase();
+        }
+
+        if (count < windowSize) {
+            stableCount = 0;
+            return false;
+        }
+        boolean ok = getStdDev() <= maxStdDev
+                && Math.abs(getSlopePerMinute()) <= maxSlopePerMinute
+                && (Double.isNaN(target) || Math.abs(getMean() - target) <= targetTolerance);
+        stableCount = ok ? stableCount + 1 : 0;
+        return isStable();
+    }
+
+    public boolean isStable() {
+        return stableCount >= requiredSamples;
+    }
+
+    /**
+     * 窗口内样本数
+     */
+    public int getCount() {
+        return count;
+    }
+
+    public double getMean() {
+        return count > 0 ? sumY / count : Double.NaN;
+    }
+
+    /**
+     * 样本标准差
+     */
+    public double getStdDev() {
+        if (count < 2) {
+            return Double.NaN;
+        }
+        double variance = (sumYY - sumY * sumY / count) / (count - 1);
+        return variance > 0 ? Math.sqrt(variance) : 0;
+    }
+
+    /**
+     * 最小二乘斜率（每分钟变化量），样本时间全部相同时为0
+     */
+    public double getSlopePerMinute() {
+        if (count < 2) {
+            return Double.NaN;
+        }
+        double denominator = count * sumXX - sumX * sumX;
+        if (denominator <= 0) {
+            return 0;
+        }
+        return (count * sumXY - sumX * sumY) / denominator * 60;
+    }
+
+    /**
+     * 清空窗口和连续计数
+     */
+    public void reset() {
+        count = 0;
+        head = 0;
+        sinceRebase = 0;
+        stableCount = 0;
+        sumX = 0;
+        sumXX = 0;
+        sumY = 0;
+        sumYY = 0;
+        sumXY = 0;
+    }
+
+    private void remove(double x, double y) {
+        sumX -= x;
+        sumXX -= x * x;
+        sumY -= y;
+        sumYY -= y * y;
+        sumXY -= x * y;
+    }
+
+    /**
+     * 以窗口最早样本为新基准重新求和
+     */
+    private void rebase() {
+        sinceRebase = 0;
+        double shift = xs[head];
+        baseMillis += Math.round(shift * 1000);
+        sumX = 0;
+        sumXX = 0;
+        sumY = 0;
+        sumYY = 0;
+        sumXY = 0;
+        for (int i = 0; i < count; i++) {
+            int slot = (head + i) % windowSize;
+            double x = xs[slot] - shift;
+            double y = ys[slot];
+            xs[slot] = x;
+            sumX += x;
+            sumXX += x * x;
+            sumY += y;
+            sumYY += y * y;
+            sumXY += x * y;
+        }
+    }
+}
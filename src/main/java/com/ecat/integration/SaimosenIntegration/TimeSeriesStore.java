@@ -0,0 +1,1098 @@
+package com.ecat.integration.SaimosenIntegration;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import com.ecat.core.State.AttributeStatus;
+
+/**
+ * 单设备本地时序存储（列式、内存映射、只追加）
+ *
+ * <p>每个设备一个目录，按时间切分为若干段。正在写入的段是原始段文件 `<首个时间戳>.tsd`，
+ * 创建时按容量一次性分配（稀疏文件，未写入的页不占磁盘），整体映射到内存，布局如下：</p>
+ * <pre>
+ * [0, 4096)                    文件头：魔数、版本、列数、容量、行数、首/末时间戳、列名
+ * 时间戳列   long[容量]
+ * 数值列     float[容量] × 列数      —— 无值时为NaN
+ * 状态列     byte[容量]  × 列数      —— {@link #statusCode(AttributeStatus)}
+ * </pre>
+ *
+ * <p>追加只做顺序的绝对位置写入，不产生对象分配；数值按列的显示精度量化（{@link GorillaCodec#quantize}），
+ * 数据先写入，最后更新文件头中的行数，进程异常退出时最多丢失最后一行。</p>
+ *
+ * <p>段写满或超过 `segmentMillis` 时滚动：旧段在后台线程上按 {@value #BLOCK_ROWS} 行一块用 {@link GorillaCodec}
+ * 压缩为 `<首个时间戳>.tsc` 并删除原始段，追加不等待压缩；压缩完成前查询仍读取原始段。
+ * 滚动时同时删除末时间戳超过保留期的段。压缩段格式：</p>
+ * <pre>
+ * 魔数 "SMTC"、版本、列数、列名、块数
+ * 块索引：首时间戳、末时间戳、偏移、长度、行数（每块一项）
+ * 块数据
+ * </pre>
+ *
+ * <p>查询先按文件名选出时间范围重叠的段，原始段在时间戳列上二分查找，只触及所需行所在的页；
+ * 压缩段按块索引只读取和解码与范围重叠的块。时间戳必须单调不减，早于上一行的样本被丢弃
+ * （{@link #append} 返回false）。</p>
+ *
+ * <p>映射的缓冲区在不再使用时立即解除映射，不等GC：当前段在 {@link #close()} 时，待压缩的段在压缩完成后，
+ * 查询读到的段在游标移到下一段、遍历结束或 {@link Cursor#close()} 时。游标持有的段在游标释放前保持映射。</p>
+ *
+ * @version V1.0
+ */
+public final class TimeSeriesStore implements Closeable {
+
+    static final int MAGIC = 0x534D5453; // "SMTS"
+    static final int COMPRESSED_MAGIC = 0x534D5443; // "SMTC"
+    static final int VERSION = 1;
+    static final int HEADER_BYTES = 4096;
+    static final int BLOCK_ROWS = 1024;
+    static final String SEGMENT_SUFFIX = ".tsd";
+    static final String COMPRESSED_SUFFIX = ".tsc";
+    private static final String TEMP_SUFFIX = ".tmp";
+
+    private static final int OFF_MAGIC = 0;
+    private static final int OFF_VERSION = 4;
+    private static final int OFF_COLUMNS = 8;
+    private static final int OFF_CAPACITY = 12;
+    private static final int OFF_COUNT = 16;
+    private static final int OFF_FIRST = 24;
+    private static final int OFF_LAST = 32;
+    private static final int OFF_NAMES = 40;
+
+    /** 状态列取值 */
+    public static final byte STATUS_NORMAL = 0;
+    public static final byte STATUS_ZERO_CALIBRATION = 1;
+    public static final byte STATUS_SPAN_CALIBRATION = 2;
+    public static final byte STATUS_MAINTENANCE = 3;
+    public static final byte STATUS_MALFUNCTION = 4;
+    public static final byte STATUS_EMPTY = 5;
+    public static final byte STATUS_UNKNOWN = 0x7F;
+
+    // 所有设备共用一个压缩线程，压缩只在段滚动时发生
+    private static final ExecutorService SEAL_EXECUTOR = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "saimosen-tsstore-seal");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private final Path directory;
+    private final String[] columns;
+    private final int[] precisions;
+    private final long segmentMillis;
+    private final long retentionMillis;
+    private final int segmentCapacity;
+    /** 首个时间戳 -> 段信息（含当前段） */
+    private final TreeMap<Long, SegmentRef> segments = new TreeMap<>();
+    private Segment active;
+    private SegmentRef activeRef;
+    /** 本存储已提交的压缩，按提交顺序依次执行 */
+    private CompletableFuture<Void> sealing = CompletableFuture.completedFuture(null);
+    private boolean closed;
+
+    private TimeSeriesStore(Path directory, String[] columns, int[] precisions, long segmentMillis,
+            int segmentCapacity, long retentionMillis) {
+        this.directory = directory;
+        this.columns = columns.clone();
+        this.precisions = new int[columns.length];
+        for (int i = 0; i < columns.length; i++) {
+            this.precisions[i] = precisions != null && i < precisions.length ? precisions[i] : -1;
+        }
+        this.segmentMillis = segmentMillis;
+        this.segmentCapacity = segmentCapacity;
+        this.retentionMillis = retentionMillis;
+    }
+
+    /**
+     * 打开（或创建）设备存储目录，数值不量化，段容量按每秒一行计算
+     */
+    public static TimeSeriesStore open(Path directory, String[] columns, long segmentMillis, long retentionMillis)
+            throws IOException {
+        return open(directory, columns, null, segmentMillis, retentionMillis);
+    }
+
+    /**
+     * 打开（或创建）设备存储目录，段容量按每秒一行计算
+     * @param directory 设备存储目录
+     * @param columns 列名（属性ID）
+     * @param precisions 各列显示精度（小数位数），为null或小于0时不量化
+     * @param segmentMillis 单个段覆盖的时长
+     * @param retentionMillis 保留时长，小于等于0表示不删除
+     */
+    public static TimeSeriesStore open(Path directory, String[] columns, int[] precisions, long segmentMillis,
+            long retentionMillis) throws IOException {
+        int capacity = (int) Math.min(Integer.MAX_VALUE, Math.max(1, segmentMillis / 1000));
+        return open(directory, columns, precisions, segmentMillis, capacity, retentionMillis);
+    }
+
+    /**
+     * 打开（或创建）设备存储目录，数值不量化
+     * @param segmentCapacity 单个段的最大行数
+     */
+    public static TimeSeriesStore open(Path directory, String[] columns, long segmentMillis, int segmentCapacity,
+            long retentionMillis) throws IOException {
+        return open(directory, columns, null, segmentMillis, segmentCapacity, retentionMillis);
+    }
+
+    /**
+     * 打开（或创建）设备存储目录
+     * @param segmentCapacity 单个段的最大行数
+     */
+    public static TimeSeriesStore open(Path directory, String[] columns, int[] precisions, long segmentMillis,
+            int segmentCapacity, long retentionMillis) throws IOException {
+        if (columns.length == 0) {
+            throw new IllegalArgumentException("time series store needs at least one column");
+        }
+        if (segmentMillis <= 0 || segmentCapacity <= 0) {
+            throw new IllegalArgumentException("segment duration and capacity must be positive");
+        }
+        Files.createDirectories(directory);
+        TimeSeriesStore store = new TimeSeriesStore(directory, columns, precisions, segmentMillis, segmentCapacity,
+                retentionMillis);
+        store.scan();
+        return store;
+    }
+
+    public String[] getColumns() {
+        return columns.clone();
+    }
+
+    /**
+     * 列名对应的下标，不存在时返回-1
+     */
+    public int columnIndex(String column) {
+        return indexOf(columns, column);
+    }
+
+    public Path getDirectory() {
+        return directory;
+    }
+
+    /**
+     * 当前保留的段数（含正在写入的段）
+     */
+    public synchronized int getSegmentCount() {
+        return segments.size();
+    }
+
+    /**
+     * 已压缩段占用的磁盘字节数
+     */
+    public synchronized long getCompressedBytes() throws IOException {
+        long bytes = 0;
+        for (SegmentRef ref : segments.values()) {
+            if (ref.compressed) {
+                bytes += Files.size(ref.path);
+            }
+        }
+        return bytes;
+    }
+
+    /**
+     * 追加一行
+     * @param timestamp 时间戳（毫秒）
+     * @param values 各列数值，长度与列数一致，调用方可复用数组
+     * @param statuses 各列状态码，长度与列数一致，调用方可复用数组
+     * @return 时间戳早于上一行时丢弃并返回false
+     */
+    public synchronized boolean append(long timestamp, float[] values, byte[] statuses) throws IOException {
+        if (closed) {
+            throw new IOException("time series store closed");
+        }
+        if (active != null && timestamp < active.last) {
+            return false;
+        }
+        if (active == null || active.count >= active.capacity || timestamp >= active.first + segmentMillis) {
+            rollover(timestamp);
+        }
+        active.append(timestamp, values, statuses, precisions);
+        activeRef.last = timestamp;
+        return true;
+    }
+
+    /**
+     * 把当前段刷新到磁盘
+     */
+    public synchronized void flush() {
+        if (active != null) {
+            active.force();
+        }
+    }
+
+    /**
+     * 查询时间范围 [from, to] 内的行
+     */
+    public synchronized Cursor query(long from, long to) throws IOException {
+        List<RowsLoader> selected = new ArrayList<>();
+        Long start = segments.floorKey(from);
+        Map<Long, SegmentRef> range = segments.subMap(start == null ? Long.MIN_VALUE : start, true, to, true);
+        for (SegmentRef ref : range.values()) {
+            if (ref.last < from) {
+                continue;
+            }
+            if (ref == activeRef) {
+                selected.add(new RetainedRows(active.snapshot()));
+            } else if (ref.sealing != null) {
+                selected.add(new RetainedRows(ref.sealing.snapshot()));
+            } else if (!ref.compressed) {
+                Path path = ref.path;
+                selected.add(() -> Segment.map(path, false));
+            } else {
+                CompressedIndex index = ref.index();
+                for (int b = 0; b < index.blockCount(); b++) {
+                    if (index.last[b] >= from && index.first[b] <= to) {
+                        int block = b;
+                        Path path = ref.path;
+                        selected.add(() -> index.readBlock(path, block));
+                    }
+                }
+            }
+        }
+        return new Cursor(selected, from, to);
+    }
+
+    /**
+     * 删除末时间戳早于 now - 保留时长 的段（当前段除外）；正在压缩的段由压缩线程在完成后删除文件
+     */
+    public synchronized int purge(long now) throws IOException {
+        if (retentionMillis <= 0) {
+            return 0;
+        }
+        int removed = 0;
+        Iterator<SegmentRef> iterator = segments.values().iterator();
+        while (iterator.hasNext()) {
+            SegmentRef ref = iterator.next();
+            if (ref.last >= now - retentionMillis || ref == activeRef) {
+                continue;
+            }
+            if (ref.sealing == null) {
+                Files.deleteIfExists(ref.path);
+            }
+            iterator.remove();
+            removed++;
+        }
+        return removed;
+    }
+
+    /**
+     * 等待已提交的段压缩完成
+     */
+    public void awaitSealed() {
+        CompletableFuture<Void> pending;
+        synchronized (this) {
+            pending = sealing;
+        }
+        pending.join();
+    }
+
+    /**
+     * 关闭存储：等待已提交的压缩完成，刷新并解除当前段的映射
+     */
+    @Override
+    public void close() {
+        synchronized (this) {
+            if (closed) {
+                return;
+            }
+            closed = true;
+        }
+        // 压缩线程完成时需要获取锁，在锁外等待
+        awaitSealed();
+        synchronized (this) {
+            if (active != null) {
+                active.force();
+                active.release();
+            }
+            active = null;
+            activeRef = null;
+        }
+    }
+
+    private void rollover(long timestamp) throws IOException {
+        if (active != null) {
+            Segment sealed = active;
+            SegmentRef sealedRef = activeRef;
+            active = null;
+            activeRef = null;
+            // 压缩完成前查询读取仍在映射中的原始段
+            sealedRef.sealing = sealed;
+            sealing = sealing.thenRunAsync(() -> sealInBackground(sealedRef, sealed), SEAL_EXECUTOR);
+        }
+        Path path = directory.resolve(timestamp + SEGMENT_SUFFIX);
+        active = Segment.create(path, columns, segmentCapacity, timestamp);
+        activeRef = new SegmentRef(path, timestamp, false);
+        activeRef.last = timestamp;
+        segments.put(timestamp, activeRef);
+        purge(timestamp);
+    }
+
+    /**
+     * 压缩原始段并替换
+     */
+    private void seal(SegmentRef ref, Segment segment) throws IOException {
+        Path compressed = directory.resolve(ref.first + COMPRESSED_SUFFIX);
+        CompressedIndex index = CompressedIndex.write(compressed, segment, precisionsFor(segment.columns));
+        replace(ref, compressed, index);
+    }
+
+    /**
+     * 在压缩线程上压缩滚动出来的段，压缩期间不持有锁；完成后替换并解除原始段的映射。
+     * 压缩失败时保留原始段，下次打开存储时重新压缩
+     */
+    private void sealInBackground(SegmentRef ref, Segment segment) {
+        Path compressed = directory.resolve(ref.first + COMPRESSED_SUFFIX);
+        try {
+            CompressedIndex index = CompressedIndex.write(compressed, segment, precisionsFor(segment.columns));
+            synchronized (this) {
+                ref.sealing = null;
+                if (segments.get(ref.first) == ref) {
+                    replace(ref, compressed, index);
+                } else {
+                    // 压缩期间已超过保留期
+                    Files.deleteIfExists(compressed);
+                    Files.deleteIfExists(ref.path);
+                }
+            }
+        } catch (IOException | RuntimeException e) {
+            synchronized (this) {
+                ref.sealing = null;
+            }
+        } finally {
+            segment.release();
+        }
+    }
+
+    private void replace(SegmentRef ref, Path compressed, CompressedIndex index) throws IOException {
+        SegmentRef replacement = new SegmentRef(compressed, ref.first, true);
+        replacement.last = ref.last;
+        replacement.index = index;
+        segments.put(ref.first, replacement);
+        Files.deleteIfExists(ref.path);
+    }
+
+    private void scan() throws IOException {
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory)) {
+            for (Path file : files) {
+                String name = file.getFileName().toString();
+                if (name.endsWith(TEMP_SUFFIX)) {
+                    // 压缩中途退出留下的临时文件
+                    Files.deleteIfExists(file);
+                    continue;
+                }
+                boolean compressed = name.endsWith(COMPRESSED_SUFFIX);
+                if (!compressed && !name.endsWith(SEGMENT_SUFFIX)) {
+                    continue;
+                }
+                long first;
+                try {
+                    first = Long.parseLong(name.substring(0, name.length() - SEGMENT_SUFFIX.length()));
+                } catch (NumberFormatException e) {
+                    continue;
+                }
+                SegmentRef existing = segments.get(first);
+                if (existing != null) {
+                    // 压缩完成但原始段未删除
+                    Path raw = existing.compressed ? file : existing.path;
+                    Files.deleteIfExists(raw);
+                    if (existing.compressed) {
+                        continue;
+                    }
+                }
+                SegmentRef ref = new SegmentRef(file, first, compressed);
+                if (compressed) {
+                    ref.last = ref.index().lastTimestamp(first);
+                } else {
+                    Segment segment = Segment.map(file, false);
+                    ref.last = segment.count == 0 ? first : segment.last;
+                    segment.release();
+                }
+                segments.put(first, ref);
+            }
+        }
+        if (segments.isEmpty()) {
+            return;
+        }
+        // 继续写入最后一个原始段：列相同且未写满；其余原始段压缩
+        SegmentRef last = segments.lastEntry().getValue();
+        if (!last.compressed) {
+            Segment segment = Segment.map(last.path, true);
+            if (Arrays.equals(segment.columns, columns) && segment.count < segment.capacity) {
+                active = segment;
+                activeRef = last;
+            } else {
+                segment.release();
+            }
+        }
+        // 打开时存储还没有交给调用方，直接压缩
+        for (SegmentRef ref : new ArrayList<>(segments.values())) {
+            if (!ref.compressed && ref != activeRef) {
+                Segment segment = Segment.map(ref.path, false);
+                try {
+                    seal(ref, segment);
+                } finally {
+                    segment.release();
+                }
+            }
+        }
+        purge(last.last);
+    }
+
+    /**
+     * 段内各列的精度，当前配置中没有的列不量化
+     */
+    private int[] precisionsFor(String[] segmentColumns) {
+        int[] result = new int[segmentColumns.length];
+        for (int i = 0; i < segmentColumns.length; i++) {
+            int column = indexOf(columns, segmentColumns[i]);
+            result[i] = column < 0 ? -1 : precisions[column];
+        }
+        return result;
+    }
+
+    private static int indexOf(String[] names, String name) {
+        for (int i = 0; i < names.length; i++) {
+            if (names[i].equals(name)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * 状态码
+     */
+    public static byte statusCode(AttributeStatus status) {
+        if (status == null) {
+            return STATUS_UNKNOWN;
+        }
+        switch (status) {
+            case NORMAL:
+                return STATUS_NORMAL;
+            case ZERO_CALIBRATION:
+                return STATUS_ZERO_CALIBRATION;
+            case SPAN_CALIBRATION:
+                return STATUS_SPAN_CALIBRATION;
+            case MAINTENANCE:
+                return STATUS_MAINTENANCE;
+            case MALFUNCTION:
+                return STATUS_MALFUNCTION;
+            case EMPTY:
+                return STATUS_EMPTY;
+            default:
+                return STATUS_UNKNOWN;
+        }
+    }
+
+    /**
+     * 状态码对应的属性状态，未知时返回null
+     */
+    public static AttributeStatus statusOf(byte code) {
+        switch (code) {
+            case STATUS_NORMAL:
+                return AttributeStatus.NORMAL;
+            case STATUS_ZERO_CALIBRATION:
+                return AttributeStatus.ZERO_CALIBRATION;
+            case STATUS_SPAN_CALIBRATION:
+                return AttributeStatus.SPAN_CALIBRATION;
+            case STATUS_MAINTENANCE:
+                return AttributeStatus.MAINTENANCE;
+            case STATUS_MALFUNCTION:
+                return AttributeStatus.MALFUNCTION;
+            case STATUS_EMPTY:
+                return AttributeStatus.EMPTY;
+            default:
+                return null;
+        }
+    }
+
+    private static final class SegmentRef {
+        final Path path;
+        final long first;
+        final boolean compressed;
+        long last;
+        CompressedIndex index;
+        /** 已滚动、正在压缩的原始段，压缩完成后为null */
+        Segment sealing;
+
+        SegmentRef(Path path, long first, boolean compressed) {
+            this.path = path;
+            this.first = first;
+            this.compressed = compressed;
+        }
+
+        CompressedIndex index() throws IOException {
+            if (index == null) {
+                index = CompressedIndex.read(path);
+            }
+            return index;
+        }
+    }
+
+    /**
+     * 一组按时间排序的行
+     */
+    private interface Rows {
+        String[] columns();
+
+        int count();
+
+        long timestamp(int row);
+
+        float value(int column, int row);
+
+        byte status(int column, int row);
+
+        /**
+         * 第一个时间戳 >= timestamp 的行
+         */
+        /**
+         * 游标不再使用时调用，释放占用的映射
+         */
+        default void release() {
+        }
+
+        default int lowerBound(long timestamp) {
+            int low = 0;
+            int high = count();
+            while (low < high) {
+                int mid = (low + high) >>> 1;
+                if (timestamp(mid) < timestamp) {
+                    low = mid + 1;
+                } else {
+                    high = mid;
+                }
+            }
+            return low;
+        }
+    }
+
+    private interface RowsLoader {
+        Rows load() throws IOException;
+
+        /**
+         * 游标关闭时还没有加载的来源调用
+         */
+        default void discard() {
+        }
+    }
+
+    /**
+     * 查询开始时已经持有映射的段（当前段、正在压缩的段）
+     */
+    private static final class RetainedRows implements RowsLoader {
+        private final Segment segment;
+
+        RetainedRows(Segment segment) {
+            this.segment = segment;
+        }
+
+        @Override
+        public Rows load() {
+            return segment;
+        }
+
+        @Override
+        public void discard() {
+            segment.release();
+        }
+    }
+
+    /**
+     * 映射的缓冲区，按引用计数在最后一个使用者释放时解除映射
+     */
+    private static final class Mapping {
+        private final MappedByteBuffer buffer;
+        private int references = 1;
+
+        Mapping(MappedByteBuffer buffer) {
+            this.buffer = buffer;
+        }
+
+        /**
+         * 只在调用方已持有引用时调用
+         */
+        synchronized void retain() {
+            references++;
+        }
+
+        synchronized void release() {
+            if (--references == 0) {
+                unmap(buffer);
+            }
+        }
+    }
+
+    /**
+     * 映射到内存的原始段文件
+     */
+    private static final class Segment implements Rows {
+        final Mapping mapping;
+        final ByteBuffer buffer;
+        final String[] columns;
+        final int capacity;
+        final long first;
+        int count;
+        long last;
+        private boolean released;
+
+        private Segment(Mapping mapping, ByteBuffer buffer, String[] columns, int capacity, long first, int count,
+                long last) {
+            this.mapping = mapping;
+            this.buffer = buffer;
+            this.columns = columns;
+            this.capacity = capacity;
+            this.first = first;
+            this.count = count;
+            this.last = last;
+        }
+
+        static Segment create(Path path, String[] columns, int capacity, long first) throws IOException {
+            byte[][] names = new byte[columns.length][];
+            int namesBytes = 0;
+            for (int i = 0; i < columns.length; i++) {
+                names[i] = columns[i].getBytes(StandardCharsets.UTF_8);
+                namesBytes += 2 + names[i].length;
+            }
+            if (OFF_NAMES + namesBytes > HEADER_BYTES) {
+                throw new IllegalArgumentException("too many columns for time series header");
+            }
+            long size = HEADER_BYTES + (long) capacity * (8 + columns.length * 5L);
+            if (size > Integer.MAX_VALUE) {
+                throw new IllegalArgumentException("time series segment too large, reduce segment duration");
+            }
+            MappedByteBuffer buffer;
+            try (RandomAccessFile file = new RandomAccessFile(path.toFile(), "rw");
+                    FileChannel channel = file.getChannel()) {
+                file.setLength(size);
+                buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+            }
+            buffer.putInt(OFF_MAGIC, MAGIC);
+            buffer.putInt(OFF_VERSION, VERSION);
+            buffer.putInt(OFF_COLUMNS, columns.length);
+            buffer.putInt(OFF_CAPACITY, capacity);
+            buffer.putInt(OFF_COUNT, 0);
+            buffer.putLong(OFF_FIRST, first);
+            buffer.putLong(OFF_LAST, first);
+            int position = OFF_NAMES;
+            for (byte[] name : names) {
+                buffer.putShort(position, (short) name.length);
+                position += 2;
+                for (byte b : name) {
+                    buffer.put(position++, b);
+                }
+            }
+            return new Segment(new Mapping(buffer), buffer, columns.clone(), capacity, first, 0, first);
+        }
+
+        static Segment map(Path path, boolean writable) throws IOException {
+            MappedByteBuffer buffer;
+            try (RandomAccessFile file = new RandomAccessFile(path.toFile(), writable ? "rw" : "r");
+                    FileChannel channel = file.getChannel()) {
+                buffer = channel.map(writable ? FileChannel.MapMode.READ_WRITE : FileChannel.MapMode.READ_ONLY,
+                        0, channel.size());
+            }
+            if (buffer.capacity() < HEADER_BYTES || buffer.getInt(OFF_MAGIC) != MAGIC) {
+                unmap(buffer);
+                throw new IOException("not a time series segment: " + path);
+            }
+            if (buffer.getInt(OFF_VERSION) != VERSION) {
+                unmap(buffer);
+                throw new IOException("unsupported time series segment version: " + path);
+            }
+            int columnCount = buffer.getInt(OFF_COLUMNS);
+            int capacity = buffer.getInt(OFF_CAPACITY);
+            String[] columns = new String[columnCount];
+            int position = OFF_NAMES;
+            for (int i = 0; i < columnCount; i++) {
+                int length = buffer.getShort(position);
+                position += 2;
+                byte[] name = new byte[length];
+                for (int j = 0; j < length; j++) {
+                    name[j] = buffer.get(position++);
+                }
+                columns[i] = new String(name, StandardCharsets.UTF_8);
+            }
+            return new Segment(new Mapping(buffer), buffer, columns, capacity, buffer.getLong(OFF_FIRST),
+                    buffer.getInt(OFF_COUNT), buffer.getLong(OFF_LAST));
+        }
+
+        /**
+         * 段的只读视图（固定查询开始时的行数），持有映射直到 {@link #release()}
+         */
+        Segment snapshot() {
+            mapping.retain();
+            return new Segment(mapping, buffer.duplicate(), columns, capacity, first, count, last);
+        }
+
+        void force() {
+            mapping.buffer.force();
+        }
+
+        @Override
+        public void release() {
+            if (!released) {
+                released = true;
+                mapping.release();
+            }
+        }
+
+        void append(long timestamp, float[] values, byte[] statuses, int[] precisions) {
+            int row = count;
+            buffer.putLong(timestampOffset(row), timestamp);
+            for (int c = 0; c < columns.length; c++) {
+                buffer.putFloat(valueOffset(c, row), GorillaCodec.quantize(values[c], precisions[c]));
+                buffer.put(statusOffset(c, row), statuses[c]);
+            }
+            count = row + 1;
+            last = timestamp;
+            buffer.putLong(OFF_LAST, timestamp);
+            buffer.putInt(OFF_COUNT, count);
+        }
+
+        @Override
+        public String[] columns() {
+            return columns;
+        }
+
+        @Override
+        public int count() {
+            return count;
+        }
+
+        @Override
+        public long timestamp(int row) {
+            return buffer.getLong(timestampOffset(row));
+        }
+
+        @Override
+        public float value(int column, int row) {
+            return buffer.getFloat(valueOffset(column, row));
+        }
+
+        @Override
+        public byte status(int column, int row) {
+            return buffer.get(statusOffset(column, row));
+        }
+
+        private int timestampOffset(int row) {
+            return HEADER_BYTES + row * 8;
+        }
+
+        private int valueOffset(int column, int row) {
+            return HEADER_BYTES + capacity * 8 + (column * capacity + row) * 4;
+        }
+
+        private int statusOffset(int column, int row) {
+            return HEADER_BYTES + capacity * 8 + columns.length * capacity * 4 + column * capacity + row;
+        }
+    }
+
+    /**
+     * 压缩段的文件头和块索引
+     */
+    private static final class CompressedIndex {
+        final String[] columns;
+        final long[] first;
+        final long[] last;
+        final long[] offset;
+        final int[] length;
+        final int[] rows;
+
+        private CompressedIndex(String[] columns, int blocks) {
+            this.columns = columns;
+            this.first = new long[blocks];
+            this.last = new long[blocks];
+            this.offset = new long[blocks];
+            this.length = new int[blocks];
+            this.rows = new int[blocks];
+        }
+
+        int blockCount() {
+            return first.length;
+        }
+
+        long lastTimestamp(long fallback) {
+            return first.length == 0 ? fallback : last[first.length - 1];
+        }
+
+        static CompressedIndex write(Path path, Segment segment, int[] precisions) throws IOException {
+            int columnCount = segment.columns.length;
+            int blocks = (segment.count + BLOCK_ROWS - 1) / BLOCK_ROWS;
+            CompressedIndex index = new CompressedIndex(segment.columns, blocks);
+            List<byte[]> encoded = new ArrayList<>(blocks);
+            long[] timestamps = new long[BLOCK_ROWS];
+            float[][] values = new float[columnCount][BLOCK_ROWS];
+            byte[][] statuses = new byte[columnCount][BLOCK_ROWS];
+            for (int b = 0; b < blocks; b++) {
+                int start = b * BLOCK_ROWS;
+                int rows = Math.min(BLOCK_ROWS, segment.count - start);
+                for (int i = 0; i < rows; i++) {
+                    timestamps[i] = segment.timestamp(start + i);
+                    for (int c = 0; c < columnCount; c++) {
+                        values[c][i] = segment.value(c, start + i);
+                        statuses[c][i] = segment.status(c, start + i);
+                    }
+                }
+                encoded.add(GorillaCodec.encodeBlock(timestamps, values, statuses, rows, precisions));
+                index.first[b] = timestamps[0];
+                index.last[b] = timestamps[rows - 1];
+                index.rows[b] = rows;
+            }
+
+            long headerBytes = 16;
+            for (String column : segment.columns) {
+                headerBytes += 2 + column.getBytes(StandardCharsets.UTF_8).length;
+            }
+            headerBytes += (long) blocks * 32;
+            long position = headerBytes;
+            for (int b = 0; b < blocks; b++) {
+                index.offset[b] = position;
+                index.length[b] = encoded.get(b).length;
+                position += index.length[b];
+            }
+
+            Path temp = path.resolveSibling(path.getFileName() + TEMP_SUFFIX);
+            try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(
+                    Files.newOutputStream(temp, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING)))) {
+                out.writeInt(COMPRESSED_MAGIC);
+                out.writeInt(VERSION);
+                out.writeInt(columnCount);
+                for (String column : segment.columns) {
+                    out.writeUTF(column);
+                }
+                out.writeInt(blocks);
+                for (int b = 0; b < blocks; b++) {
+                    out.writeLong(index.first[b]);
+                    out.writeLong(index.last[b]);
+                    out.writeLong(index.offset[b]);
+                    out.writeInt(index.length[b]);
+                    out.writeInt(index.rows[b]);
+                }
+                for (byte[] block : encoded) {
+                    out.write(block);
+                }
+            }
+            Files.move(temp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            return index;
+        }
+
+        static CompressedIndex read(Path path) throws IOException {
+            try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(path)))) {
+                if (in.readInt() != COMPRESSED_MAGIC) {
+                    throw new IOException("not a compressed time series segment: " + path);
+                }
+                if (in.readInt() != VERSION) {
+                    throw new IOException("unsupported compressed time series segment version: " + path);
+                }
+                String[] columns = new String[in.readInt()];
+                for (int i = 0; i < columns.length; i++) {
+                    columns[i] = in.readUTF();
+                }
+                CompressedIndex index = new CompressedIndex(columns, in.readInt());
+                for (int b = 0; b < index.blockCount(); b++) {
+                    index.first[b] = in.readLong();
+                    index.last[b] = in.readLong();
+                    index.offset[b] = in.readLong();
+                    index.length[b] = in.readInt();
+                    index.rows[b] = in.readInt();
+                }
+                return index;
+            }
+        }
+
+        /**
+         * 只读取并解码一个块
+         */
+        Rows readBlock(Path path, int block) throws IOException {
+            ByteBuffer data = ByteBuffer.allocate(length[block]);
+            try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+                while (data.hasRemaining()) {
+                    if (channel.read(data, offset[block] + data.position()) < 0) {
+                        throw new IOException("truncated time series block: " + path);
+                    }
+                }
+            }
+            int count = rows[block];
+            DecodedBlock decoded = new DecodedBlock(columns, count);
+            GorillaCodec.decodeBlock(data.array(), count, decoded.timestamps, decoded.values, decoded.statuses);
+            return decoded;
+        }
+    }
+
+    /**
+     * 解码后的压缩块
+     */
+    private static final class DecodedBlock implements Rows {
+        final String[] columns;
+        final int count;
+        final long[] timestamps;
+        final float[][] values;
+        final byte[][] statuses;
+
+        DecodedBlock(String[] columns, int count) {
+            this.columns = columns;
+            this.count = count;
+            this.timestamps = new long[count];
+            this.values = new float[columns.length][count];
+            this.statuses = new byte[columns.length][count];
+        }
+
+        @Override
+        public String[] columns() {
+            return columns;
+        }
+
+        @Override
+        public int count() {
+            return count;
+        }
+
+        @Override
+        public long timestamp(int row) {
+            return timestamps[row];
+        }
+
+        @Override
+        public float value(int column, int row) {
+            return values[column][row];
+        }
+
+        @Override
+        public byte status(int column, int row) {
+            return statuses[column][row];
+        }
+    }
+
+    /**
+     * 查询游标，按时间顺序遍历行；列下标对应 {@link #getColumns()}。
+     * 遍历结束时自动释放，提前停止遍历时应调用 {@link #close()}
+     */
+    public final class Cursor implements Closeable {
+        private final List<RowsLoader> selected;
+        private final long from;
+        private final long to;
+        private int sourceIndex = -1;
+        private Rows rows;
+        private int[] columnMapping;
+        private int row;
+        private int endRow;
+
+        private Cursor(List<RowsLoader> selected, long from, long to) {
+            this.selected = selected;
+            this.from = from;
+            this.to = to;
+        }
+
+        /**
+         * 移动到下一行，没有更多行时返回false；压缩块在到达时才读取
+         */
+        public boolean next() throws IOException {
+            while (true) {
+                if (rows != null && ++row < endRow) {
+                    return true;
+                }
+                if (rows != null) {
+                    rows.release();
+                    rows = null;
+                }
+                if (++sourceIndex >= selected.size()) {
+                    sourceIndex = selected.size();
+                    return false;
+                }
+                rows = selected.get(sourceIndex).load();
+                row = rows.lowerBound(from) - 1;
+                endRow = rows.lowerBound(to == Long.MAX_VALUE ? to : to + 1);
+                columnMapping = new int[columns.length];
+                for (int c = 0; c < columns.length; c++) {
+                    columnMapping[c] = indexOf(rows.columns(), columns[c]);
+                }
+            }
+        }
+
+        public long getTimestamp() {
+            return rows.timestamp(row);
+        }
+
+        /**
+         * 数值，该段没有此列时返回NaN
+         */
+        public float getValue(int column) {
+            int mapped = columnMapping[column];
+            return mapped < 0 ? Float.NaN : rows.value(mapped, row);
+        }
+
+        public byte getStatusCode(int column) {
+            int mapped = columnMapping[column];
+            return mapped < 0 ? STATUS_UNKNOWN : rows.status(mapped, row);
+        }
+
+        public AttributeStatus getStatus(int column) {
+            return statusOf(getStatusCode(column));
+        }
+
+        /**
+         * 释放游标持有的映射，之后不能再读取
+         */
+        @Override
+        public void close() {
+            if (rows != null) {
+                rows.release();
+                rows = null;
+            }
+            for (int i = Math.max(sourceIndex + 1, 0); i < selected.size(); i++) {
+                selected.get(i).discard();
+            }
+            sourceIndex = selected.size();
+        }
+    }
+
+    /**
+     * 立即解除映射：JDK 9+ 使用 Unsafe.invokeCleaner，JDK 8 调用缓冲区的 Cleaner。
+     * 两者都不可用时交给GC回收
+     */
+    static void unmap(MappedByteBuffer buffer) {
+        try {
+            Class<?> unsafeClass = Class.forName("sun.misc.Unsafe");
+            Method invokeCleaner;
+            try {
+                invokeCleaner = unsafeClass.getMethod("invokeCleaner", ByteBuffer.class);
+            } catch (NoSuchMethodException e) {
+                Method cleanerMethod = buffer.getClass().getMethod("cleaner");
+                cleanerMethod.setAccessible(true);
+                Object cleaner = cleanerMethod.invoke(buffer);
+                if (cleaner != null) {
+                    cleaner.getClass().getMethod("clean").invoke(cleaner);
+                }
+                return;
+            }
+            Field theUnsafe = unsafeClass.getDeclaredField("theUnsafe");
+            theUnsafe.setAccessible(true);
+            invokeCleaner.invoke(theUnsafe.get(null), buffer);
+        } catch (ReflectiveOperationException | RuntimeException e) {
+            // 无法立即解除映射，由GC回收
+        }
+    }
+}
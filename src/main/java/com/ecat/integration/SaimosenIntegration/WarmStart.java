@@ -0,0 +1,183 @@
+package com.ecat.integration.SaimosenIntegration;
+
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+import com.ecat.core.State.AttributeBase;
+import com.ecat.core.State.AttributeStatus;
+
+/**
+ * 热启动状态：快照恢复、检查点和过期标记
+ *
+ * <p>保存时间早于 `maxAgeMillis` 的快照已不能代表设备当前状态（{@link #isExpired}），由设备按冷启动处理。
+ * {@link #apply} 把 {@link AttributeSnapshot} 中的值和状态写回属性，标记为过期，并开启推迟读取配置寄存器的
+ * 时间窗；之后每次实际读数发布时 {@link #refreshStale} 清除过期标记（时间窗内推迟读取的配置属性除外）。
+ * {@link #capture} 生成检查点快照，{@link #isCheckpointDue} 判断是否到了下一个检查点。文件读写由设备完成。</p>
+ *
+ * @version V1.0
+ */
+public class WarmStart {
+
+    public static final int DEFAULT_CHECKPOINT_SECONDS = 300;
+    public static final int DEFAULT_DEFER_CONFIG_SECONDS = 60;
+    public static final int DEFAULT_MAX_AGE_SECONDS = 600;
+
+    private final Path file;
+    private final long checkpointMillis;
+    private final long deferConfigMillis;
+    private final long maxAgeMillis;
+    private volatile long lastCheckpoint;
+    private volatile long configDeferredUntil;
+    private final Set<String> staleAttributeIds = ConcurrentHashMap.newKeySet();
+
+    /**
+     * @param file 快照文件
+     * @param checkpointMillis 检查点间隔
+     * @param deferConfigMillis 恢复后推迟读取配置寄存器的时长
+     * @param now 当前时间（毫秒），作为第一个检查点间隔的起点
+     */
+    public WarmStart(Path file, long checkpointMillis, long deferConfigMillis, long now) {
+        this(file, checkpointMillis, deferConfigMillis, TimeUnit.SECONDS.toMillis(DEFAULT_MAX_AGE_SECONDS), now);
+    }
+
+    /**
+     * @param file 快照文件
+     * @param checkpointMillis 检查点间隔
+     * @param deferConfigMillis 恢复后推迟读取配置寄存器的时长
+     * @param maxAgeMillis 可恢复快照的最大保存时长，小于等于0表示不限制
+     * @param now 当前时间（毫秒），作为第一个检查点间隔的起点
+     */
+    public WarmStart(Path file, long checkpointMillis, long deferConfigMillis, long maxAgeMillis, long now) {
+        this.file = file;
+        this.checkpointMillis = checkpointMillis;
+        this.deferConfigMillis = deferConfigMillis;
+        this.maxAgeMillis = maxAgeMillis;
+        this.lastCheckpoint = now;
+    }
+
+    /**
+     * 按设备的 `warm_start` 配置创建热启动状态，快照文件为 `<dir>/<设备ID>.snapshot`
+     * @param config `warm_start` 配置
+     * @param deviceId 设备ID
+     * @param now 当前时间（毫秒）
+     * @return 未配置 `dir` 时为null
+     */
+    public static WarmStart fromConfig(Map<String, Object> config, String deviceId, long now) {
+        Object dir = config.get("dir");
+        if (!(dir instanceof String) || ((String) dir).isEmpty()) {
+            return null;
+        }
+        return new WarmStart(Paths.get((String) dir, deviceId + ".snapshot"),
+                secondsToMillis(config.get("checkpoint_seconds"), DEFAULT_CHECKPOINT_SECONDS),
+                secondsToMillis(config.get("defer_config_seconds"), DEFAULT_DEFER_CONFIG_SECONDS),
+                secondsToMillis(config.get("max_age_seconds"), DEFAULT_MAX_AGE_SECONDS),
+                now);
+    }
+
+    private static long secondsToMillis(Object seconds, long defaultSeconds) {
+        return TimeUnit.SECONDS.toMillis(seconds instanceof Number ? ((Number) seconds).longValue() : defaultSeconds);
+    }
+
+    public Path getFile() {
+        return file;
+    }
+
+    /**
+     * 快照保存时间是否早于最大保存时长，过期的快照不应恢复
+     */
+    public boolean isExpired(AttributeSnapshot snapshot, long now) {
+        return maxAgeMillis > 0 && now - snapshot.getSavedAt() > maxAgeMillis;
+    }
+
+    /**
+     * 把快照中类型一致的值和状态写回属性并标记为过期；恢复了属性时开启推迟读取配置寄存器的时间窗
+     * @return 恢复的属性数
+     */
+    @SuppressWarnings("unchecked")
+    public int apply(AttributeSnapshot snapshot, Map<String, AttributeBase<?>> attrs, long now) {
+        int restored = 0;
+        for (AttributeSnapshot.Entry entry : snapshot.getEntries()) {
+            AttributeBase<?> attr = attrs.get(entry.getAttributeId());
+            if (attr == null) {
+                continue;
+            }
+            Object current = attr.getValue();
+            if (current != null && current.getClass() != entry.getValue().getClass()) {
+                continue;
+            }
+            AttributeStatus status = entry.getStatus() == null ? AttributeStatus.EMPTY : entry.getStatus();
+            ((AttributeBase<Object>) attr).updateValue(entry.getValue(), status);
+            staleAttributeIds.add(entry.getAttributeId());
+            restored++;
+        }
+        if (restored > 0) {
+            configDeferredUntil = now + deferConfigMillis;
+        }
+        return restored;
+    }
+
+    /**
+     * 生成所有可保存属性的快照，并以此作为最近一次检查点
+     */
+    public AttributeSnapshot capture(Map<String, AttributeBase<?>> attrs, long now) {
+        List<AttributeSnapshot.Entry> entries = new ArrayList<>();
+        for (AttributeBase<?> attr : attrs.values()) {
+            Object value = attr.getValue();
+            if (AttributeSnapshot.isSupported(value)) {
+                entries.add(new AttributeSnapshot.Entry(attr.getAttributeID(), value, attr.getStatus()));
+            }
+        }
+        lastCheckpoint = now;
+        return new AttributeSnapshot(now, entries);
+    }
+
+    public boolean isCheckpointDue(long now) {
+        return now - lastCheckpoint >= checkpointMillis;
+    }
+
+    /**
+     * 属性是否仍是从快照恢复、尚未被实际读数刷新的过期值
+     */
+    public boolean isStale(String attributeId) {
+        return staleAttributeIds.contains(attributeId);
+    }
+
+    /**
+     * 推迟读取配置寄存器的时间窗内返回true；时间窗结束后一直返回false
+     */
+    public boolean isConfigReadDeferred(long now) {
+        long until = configDeferredUntil;
+        if (until == 0) {
+            return false;
+        }
+        if (now >= until) {
+            configDeferredUntil = 0;
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * 一次实际读数发布后清除过期标记，时间窗内推迟读取的配置属性除外
+     * @param deferredConfigIds 来自配置寄存器的属性ID
+     */
+    public void refreshStale(String[] deferredConfigIds, long now) {
+        if (staleAttributeIds.isEmpty()) {
+            return;
+        }
+        if (!isConfigReadDeferred(now)) {
+            staleAttributeIds.clear();
+            return;
+        }
+        Set<String> deferred = new HashSet<>(Arrays.asList(deferredConfigIds));
+        staleAttributeIds.retainAll(deferred);
+    }
+}
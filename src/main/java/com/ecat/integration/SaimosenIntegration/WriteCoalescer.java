@@ -0,0 +1,133 @@
+package com.ecat.integration.SaimosenIntegration;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * 设备写入队列（同一寄存器后写覆盖）
+ *
+ * <p>界面滑块或上游自动化会连续下发同一设定值，每次写入都要占用一次串行总线事务。
+ * 本队列按键（属性ID，对应一个寄存器）排队，同一时间只执行一个写入：</p>
+ * <ul>
+ *   <li>键没有待执行的写入时追加到队尾；</li>
+ *   <li>键已有待执行（尚未开始）的写入时只替换为最新的写入，保留原来的排队位置，计为合并；</li>
+ *   <li>正在执行的写入不受影响，之后提交的同键写入重新排队。</li>
+ * </ul>
+ *
+ * <p>不同键之间保持首次提交的顺序；被合并的调用方与最终写入共享同一个结果。</p>
+ *
+ * @version V1.0
+ */
+public class WriteCoalescer {
+
+    /**
+     * 一个待执行的写入
+     */
+    private static final class Pending {
+        Supplier<CompletableFuture<Boolean>> write;
+        final CompletableFuture<Boolean> result = new CompletableFuture<>();
+
+        Pending(Supplier<CompletableFuture<Boolean>> write) {
+            this.write = write;
+        }
+    }
+
+    private final Map<String, Pending> pending = new LinkedHashMap<>();
+    private boolean draining;
+
+    private final AtomicLong submittedCount = new AtomicLong();
+    private final AtomicLong coalescedCount = new AtomicLong();
+    private final AtomicLong writtenCount = new AtomicLong();
+
+    /**
+     * 提交写入
+     * @param key 写入目标（属性ID）
+     * @param write 执行写入，返回写入结果
+     * @return 写入结果；被后续写入合并时为最终写入的结果
+     */
+    public CompletableFuture<Boolean> submit(String key, Supplier<CompletableFuture<Boolean>> write) {
+        CompletableFuture<Boolean> result;
+        synchronized (this) {
+            submittedCount.incrementAndGet();
+            Pending queued = pending.get(key);
+            if (queued != null) {
+                queued.write = write;
+                coalescedCount.incrementAndGet();
+                return queued.result;
+            }
+            Pending entry = new Pending(write);
+            pending.put(key, entry);
+            result = entry.result;
+            if (draining) {
+                return result;
+            }
+            draining = true;
+        }
+        drainNext();
+        return result;
+    }
+
+    private void drainNext() {
+        Pending next;
+        synchronized (this) {
+            Iterator<Pending> iterator = pending.values().iterator();
+            if (!iterator.hasNext()) {
+                draining = false;
+                return;
+            }
+            next = iterator.next();
+            iterator.remove();
+        }
+        CompletableFuture<Boolean> written;
+        try {
+            written = next.write.get();
+        } catch (RuntimeException e) {
+            written = new CompletableFuture<>();
+            written.completeExceptionally(e);
+        }
+        if (written == null) {
+            written = CompletableFuture.completedFuture(false);
+        }
+        written.whenComplete((ok, throwable) -> {
+            writtenCount.incrementAndGet();
+            if (throwable != null) {
+                next.result.completeExceptionally(throwable);
+            } else {
+                next.result.complete(ok);
+            }
+            drainNext();
+        });
+    }
+
+    /**
+     * 待执行（尚未开始）的写入数量
+     */
+    public synchronized int getPendingCount() {
+        return pending.size();
+    }
+
+    /**
+     * 提交的写入总数
+     */
+    public long getSubmittedCount() {
+        return submittedCount.get();
+    }
+
+    /**
+     * 被后续写入合并、未下发的写入数
+     */
+    public long getCoalescedCount() {
+        return coalescedCount.get();
+    }
+
+    /**
+     * 实际执行的写入数
+     */
+    public long getWrittenCount() {
+        return writtenCount.get();
+    }
+}
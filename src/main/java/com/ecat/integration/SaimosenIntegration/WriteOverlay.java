@@ -0,0 +1,151 @@
+package com.ecat.integration.SaimosenIntegration;
+
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * 可写属性的写入覆盖层（乐观写入）
+ *
+ * <p>属性写入设备期间以及写入之后，写入前发起的轮询读到的仍是旧值，不应覆盖刚写入的值。
+ * 每个正在写入或刚写入的属性一条记录：</p>
+ * <ul>
+ *   <li>{@link #begin}：写入开始，记录为待定，期间的读数一律忽略；</li>
+ *   <li>{@link #commit}：写入成功，记录提交序号，由调用方让属性立即显示写入值；</li>
+ *   <li>{@link #cancel}：写入失败，没有其它写入时删除记录，下次读数照常更新；</li>
+ *   <li>{@link #accept}：读数更新属性前调用。只有提交之后才发起的读取可以更新属性，
+ *       此时删除记录并以读数为准（对账）。</li>
+ * </ul>
+ *
+ * <p>读取和提交共用一个递增序号：轮询事务获得总线时由 {@link #beginRead} 取号，结束时 {@link #endRead}。
+ * 判断读数时取所有进行中读取的最小序号（多个轮询周期重叠时偏保守），大于提交序号即为提交后发起的读取；
+ * 没有进行中的读取时（不是轮询产生的更新）不覆盖写入值。</p>
+ *
+ * @version V1.0
+ */
+public class WriteOverlay {
+
+    /**
+     * 单个属性的写入记录
+     */
+    private static final class Entry {
+        int pending;
+        long commitSequence;
+    }
+
+    private final AtomicLong sequence = new AtomicLong();
+    private final Map<String, Entry> entries = new ConcurrentHashMap<>();
+    private final ConcurrentSkipListSet<Long> activeReads = new ConcurrentSkipListSet<>();
+
+    /**
+     * 写入开始
+     */
+    public synchronized void begin(String attributeId) {
+        entries.computeIfAbsent(attributeId, id -> new Entry()).pending++;
+    }
+
+    /**
+     * 写入成功（未调用 {@link #begin} 的写入也可直接提交）
+     */
+    public synchronized void commit(String attributeId) {
+        Entry entry = entries.computeIfAbsent(attributeId, id -> new Entry());
+        if (entry.pending > 0) {
+            entry.pending--;
+        }
+        entry.commitSequence = sequence.incrementAndGet();
+    }
+
+    /**
+     * 登记一次写入：执行前 {@link #begin}，成功时 {@link #commit} 后运行 onCommitted，
+     * 失败、没有结果或抛出异常时 {@link #cancel}
+     * @param write 执行写入
+     * @param onCommitted 提交后运行（如回读）
+     * @return 写入结果，write 没有返回结果时为 false
+     */
+    public CompletableFuture<Boolean> track(String attributeId, Supplier<CompletableFuture<Boolean>> write,
+            Runnable onCommitted) {
+        begin(attributeId);
+        CompletableFuture<Boolean> written;
+        try {
+            written = write.get();
+        } catch (RuntimeException e) {
+            cancel(attributeId);
+            throw e;
+        }
+        if (written == null) {
+            cancel(attributeId);
+            return CompletableFuture.completedFuture(false);
+        }
+        return written.whenComplete((ok, throwable) -> {
+            if (throwable == null && Boolean.TRUE.equals(ok)) {
+                commit(attributeId);
+                onCommitted.run();
+            } else {
+                cancel(attributeId);
+            }
+        });
+    }
+
+    /**
+     * 写入失败
+     */
+    public synchronized void cancel(String attributeId) {
+        Entry entry = entries.get(attributeId);
+        if (entry == null) {
+            return;
+        }
+        if (entry.pending > 0) {
+            entry.pending--;
+        }
+        if (entry.pending == 0 && entry.commitSequence == 0) {
+            entries.remove(attributeId);
+        }
+    }
+
+    /**
+     * 读取开始，返回读取序号
+     */
+    public long beginRead() {
+        long readSequence = sequence.incrementAndGet();
+        activeReads.add(readSequence);
+        return readSequence;
+    }
+
+    /**
+     * 读取结束
+     */
+    public void endRead(long readSequence) {
+        activeReads.remove(readSequence);
+    }
+
+    /**
+     * 读数能否更新属性：没有写入记录，或读取在提交之后发起（此时删除记录）
+     */
+    public boolean accept(String attributeId) {
+        if (entries.isEmpty()) {
+            return true;
+        }
+        synchronized (this) {
+            Entry entry = entries.get(attributeId);
+            if (entry == null) {
+                return true;
+            }
+            Long oldestRead = activeReads.ceiling(Long.MIN_VALUE);
+            if (entry.pending > 0 || oldestRead == null || oldestRead < entry.commitSequence) {
+                return false;
+            }
+            entries.remove(attributeId);
+            return true;
+        }
+    }
+
+    /**
+     * 属性是否有写入记录（正在写入或尚未对账）
+     */
+    public boolean contains(String attributeId) {
+        return entries.containsKey(attributeId);
+    }
+}
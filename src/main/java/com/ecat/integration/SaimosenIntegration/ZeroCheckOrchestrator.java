@@ -0,0 +1,352 @@
+package com.ecat.integration.SaimosenIntegration;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+/**
+ * 多台分析仪共用一个零气阶段的零点检查
+ *
+ * <p>流程：</p>
+ * <ol>
+ *   <li>校准仪执行零气序列（默认 {@link CalibrationSequence#zeroAir}）进入零气输出；</li>
+ *   <li>所有分析仪同时发送 zero_calibration_start，各自等待 calibration_status 进入零点校准；</li>
+ *   <li>每台分析仪在每次发布后由 {@link ReadinessCheck} 判断是否稳定，稳定即单独发送 zero_calibration_confirm
+ *       并等待回到测量状态，不等其它分析仪；</li>
+ *   <li>超时的分析仪发送 zero_calibration_cancel 并等待回到测量状态；全部分析仪结束后校准仪恢复待机。</li>
+ * </ol>
+ * <p>命令后的状态等待都由 {@link CalibrationSequenceRunner} 经 {@link SmsDeviceBase#awaitObservedState}
+ * 主动探测分析仪状态，不等下一个轮询周期。</p>
+ * <p>默认的就绪判断是进入零点状态后保持 {@link #DEFAULT_HOLD_SECONDS} 秒（与人工固定等待相同），
+ * 可通过 {@link #setReadinessCheck} 替换，例如按读数稳定判断的 {@link CalibrationStabilityMonitor#readiness}。</p>
+ *
+ * @version V1.0
+ */
+public class ZeroCheckOrchestrator {
+
+    public static final int DEFAULT_HOLD_SECONDS = 300;
+    public static final int DEFAULT_ANALYZER_TIMEOUT_SECONDS = 1800;
+
+    /**
+     * 单台分析仪的零点检查结果
+     */
+    public enum Result {
+        CONFIRMED,
+        FAILED,
+        TIMED_OUT,
+        ABORTED
+    }
+
+    /**
+     * 分析仪零点是否已稳定可确认
+     */
+    public interface ReadinessCheck {
+        /**
+         * 分析仪每次发布属性后调用
+         * @param analyzer 分析仪
+         * @param zeroMillis 进入零点校准状态后的时长（毫秒）
+         */
+        boolean isReady(SmsDeviceBase analyzer, long zeroMillis);
+
+        /**
+         * 分析仪确认、超时或中止后调用，释放为其保存的状态
+         */
+        default void release(SmsDeviceBase analyzer) {
+        }
+    }
+
+    private final Function<String, SmsDeviceBase> devices;
+    private final ScheduledExecutorService scheduler;
+    private final CalibrationSequenceRunner runner;
+    private volatile long holdMillis = DEFAULT_HOLD_SECONDS * 1000L;
+    private volatile long analyzerTimeoutMillis = DEFAULT_ANALYZER_TIMEOUT_SECONDS * 1000L;
+    private volatile ReadinessCheck readinessCheck = (analyzer, zeroMillis) -> zeroMillis >= holdMillis;
+    private volatile Function<String, CalibrationSequence> zeroPhaseSequence = CalibrationSequence::zeroAir;
+
+    /**
+     * @param devices 按设备ID查找设备，找不到返回 null
+     * @param scheduler 用于超时的调度器
+     */
+    public ZeroCheckOrchestrator(Function<String, SmsDeviceBase> devices, ScheduledExecutorService scheduler) {
+        this.devices = devices;
+        this.scheduler = scheduler;
+        this.runner = new CalibrationSequenceRunner(devices, scheduler);
+    }
+
+    /**
+     * 默认就绪判断的保持时长
+     */
+    public void setHoldMillis(long holdMillis) {
+        this.holdMillis = holdMillis;
+    }
+
+    /**
+     * 每台分析仪从发送开始命令到确认完成的最长时间
+     */
+    public void setAnalyzerTimeoutMillis(long analyzerTimeoutMillis) {
+        this.analyzerTimeoutMillis = analyzerTimeoutMillis;
+    }
+
+    public void setReadinessCheck(ReadinessCheck readinessCheck) {
+        this.readinessCheck = readinessCheck;
+    }
+
+    /**
+     * 校准仪进入零气输出的序列（参数为校准仪设备ID），默认 {@link CalibrationSequence#zeroAir}
+     */
+    public void setZeroPhase(Function<String, CalibrationSequence> zeroPhase) {
+        this.zeroPhaseSequence = zeroPhase;
+    }
+
+    /**
+     * 开始零点检查，立即返回
+     * @param calibratorId 校准仪设备ID
+     * @param analyzerIds 分析仪设备ID
+     */
+    public Run start(String calibratorId, List<String> analyzerIds) {
+        Run run = new Run(calibratorId, analyzerIds);
+        run.start();
+        return run;
+    }
+
+    /**
+     * 一次零点检查
+     */
+    public final class Run {
+        private final String calibratorId;
+        private final Map<String, Analyzer> analyzers = new LinkedHashMap<>();
+        private final Map<String, Result> results = new LinkedHashMap<>();
+        private final CompletableFuture<Map<String, Result>> result = new CompletableFuture<>();
+        private final long startNanos = System.nanoTime();
+        private volatile long elapsedMillis = -1;
+        private CalibrationSequenceRunner.Execution zeroPhase;
+        private boolean aborted;
+
+        private Run(String calibratorId, List<String> analyzerIds) {
+            this.calibratorId = calibratorId;
+            for (String id : analyzerIds) {
+                analyzers.put(id, new Analyzer(this, id));
+            }
+        }
+
+        /**
+         * 各分析仪的结果，所有分析仪结束且校准仪恢复待机后完成
+         */
+        public CompletableFuture<Map<String, Result>> getResult() {
+            return result;
+        }
+
+        /**
+         * 从开始到全部结束的耗时（毫秒），未结束为-1
+         */
+        public long getElapsedMillis() {
+            return elapsedMillis;
+        }
+
+        /**
+         * 分析仪进入零点状态到确认的时长（毫秒），未进入零点状态为-1
+         */
+        public long getZeroMillis(String analyzerId) {
+            Analyzer analyzer = analyzers.get(analyzerId);
+            return analyzer != null ? analyzer.zeroMillis : -1;
+        }
+
+        /**
+         * 中止：未结束的分析仪取消零点校准，校准仪恢复待机
+         */
+        public void abort() {
+            CalibrationSequenceRunner.Execution phase;
+            synchronized (this) {
+                aborted = true;
+                phase = zeroPhase;
+            }
+            if (phase != null) {
+                phase.abort();
+            }
+            for (Analyzer analyzer : analyzers.values()) {
+                analyzer.stop(Result.ABORTED);
+            }
+        }
+
+        private void start() {
+            if (analyzers.isEmpty()) {
+                finishRun();
+                return;
+            }
+            CalibrationSequenceRunner.Execution phase = runner.start(zeroPhaseSequence.apply(calibratorId));
+            synchronized (this) {
+                zeroPhase = phase;
+            }
+            phase.getResult().thenAccept(outcome -> {
+                if (outcome == CalibrationSequenceRunner.Outcome.COMPLETED && !isAborted()) {
+                    // 零气就绪后所有分析仪同时开始
+                    for (Analyzer analyzer : analyzers.values()) {
+                        analyzer.start();
+                    }
+                } else {
+                    Result failed = outcome == CalibrationSequenceRunner.Outcome.ABORTED || isAborted()
+                            ? Result.ABORTED : Result.FAILED;
+                    for (Analyzer analyzer : analyzers.values()) {
+                        analyzer.stop(failed);
+                    }
+                }
+            });
+        }
+
+        private synchronized boolean isAborted() {
+            return aborted;
+        }
+
+        private void record(String analyzerId, Result analyzerResult) {
+            synchronized (this) {
+                if (results.containsKey(analyzerId)) {
+                    return;
+                }
+                results.put(analyzerId, analyzerResult);
+                if (results.size() < analyzers.size()) {
+                    return;
+                }
+            }
+            finishRun();
+        }
+
+        private void finishRun() {
+            runner.start(CalibrationSequence.initialize(calibratorId)).getResult().whenComplete((outcome, throwable) -> {
+                elapsedMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos);
+                synchronized (this) {
+                    result.complete(Collections.unmodifiableMap(new LinkedHashMap<>(results)));
+                }
+            });
+        }
+    }
+
+    /**
+     * 单台分析仪的状态：开始 → 零点中（等待稳定）→ 确认 → 结束
+     */
+    private final class Analyzer {
+        private final Run run;
+        private final String id;
+        private boolean done;
+        private CalibrationSequenceRunner.Execution execution;
+        private Runnable listener;
+        private SmsDeviceBase device;
+        private ScheduledFuture<?> timeout;
+        private volatile long zeroMillis = -1;
+
+        private Analyzer(Run run, String id) {
+            this.run = run;
+            this.id = id;
+        }
+
+        private void start() {
+            CalibrationSequenceRunner.Execution started;
+            synchronized (this) {
+                if (done) {
+                    return;
+                }
+                timeout = scheduler.schedule(() -> stop(Result.TIMED_OUT), analyzerTimeoutMillis,
+                        TimeUnit.MILLISECONDS);
+                started = runner.start(CalibrationSequence.analyzerCommand(id, "zero_calibration_start",
+                        CalibrationSequence.STATUS_ZERO_CALIBRATION, "zero_calibration_cancel"));
+                execution = started;
+            }
+            started.getResult().thenAccept(outcome -> {
+                if (outcome == CalibrationSequenceRunner.Outcome.COMPLETED) {
+                    monitor();
+                } else {
+                    finish(outcome == CalibrationSequenceRunner.Outcome.ABORTED ? Result.ABORTED : Result.FAILED);
+                }
+            });
+        }
+
+        private void monitor() {
+            SmsDeviceBase analyzer = devices.apply(id);
+            if (analyzer == null) {
+                finish(Result.FAILED);
+                return;
+            }
+            synchronized (this) {
+                if (done) {
+                    return;
+                }
+                execution = null;
+                long zeroStartNanos = System.nanoTime();
+                device = analyzer;
+                listener = () -> {
+                    long millis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - zeroStartNanos);
+                    if (readinessCheck.isReady(analyzer, millis)) {
+                        confirm(millis);
+                    }
+                };
+                analyzer.addPublishListener(listener);
+            }
+        }
+
+        private void confirm(long millis) {
+            CalibrationSequenceRunner.Execution confirming;
+            synchronized (this) {
+                if (done || listener == null) {
+                    return;
+                }
+                removeListener();
+                zeroMillis = millis;
+                confirming = runner.start(CalibrationSequence.analyzerCommand(id, "zero_calibration_confirm",
+                        CalibrationSequence.STATUS_MEASURE, "zero_calibration_cancel"));
+                execution = confirming;
+            }
+            confirming.getResult().thenAccept(outcome -> finish(
+                    outcome == CalibrationSequenceRunner.Outcome.COMPLETED ? Result.CONFIRMED
+                            : outcome == CalibrationSequenceRunner.Outcome.ABORTED ? Result.ABORTED : Result.FAILED));
+        }
+
+        /**
+         * 超时或中止：进行中的序列中止（其回滚取消零点校准），零点中的分析仪发送取消命令
+         */
+        private void stop(Result stopResult) {
+            CalibrationSequenceRunner.Execution running;
+            boolean zeroing;
+            synchronized (this) {
+                if (done) {
+                    return;
+                }
+                running = execution;
+                zeroing = listener != null;
+            }
+            finish(stopResult);
+            if (running != null) {
+                running.abort();
+            } else if (zeroing) {
+                runner.start(CalibrationSequence.analyzerCommand(id, "zero_calibration_cancel",
+                        CalibrationSequence.STATUS_MEASURE, null));
+            }
+        }
+
+        private void finish(Result analyzerResult) {
+            synchronized (this) {
+                if (done) {
+                    return;
+                }
+                done = true;
+                removeListener();
+                if (timeout != null) {
+                    timeout.cancel(false);
+                }
+            }
+            run.record(id, analyzerResult);
+        }
+
+        private void removeListener() {
+            if (listener != null) {
+                device.removePublishListener(listener);
+                listener = null;
+                readinessCheck.release(device);
+            }
+        }
+    }
+}
@@ -0,0 +1,83 @@
+package com.ecat.integration.SaimosenIntegration;
+
+import com.ecat.core.State.AttributeStatus;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * 热启动属性快照单元测试类
+ */
+public class AttributeSnapshotTest {
+
+    private Path directory;
+    private Path file;
+
+    @Before
+    public void setUp() throws Exception {
+        directory = Files.createTempDirectory("snapshot");
+        file = directory.resolve("NO2TestDevice.snapshot");
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        Files.deleteIfExists(file);
+        Files.deleteIfExists(directory);
+    }
+
+    @Test
+    public void testRoundTripAllSupportedTypes() throws Exception {
+        List<AttributeSnapshot.Entry> entries = Arrays.asList(
+            new AttributeSnapshot.Entry("no", 12.5, AttributeStatus.NORMAL),
+            new AttributeSnapshot.Entry("sample_flow", 0.75f, AttributeStatus.MALFUNCTION),
+            new AttributeSnapshot.Entry("device_status", (short) 3, AttributeStatus.ZERO_CALIBRATION),
+            new AttributeSnapshot.Entry("counter", 42, AttributeStatus.NORMAL),
+            new AttributeSnapshot.Entry("uptime", 1L << 40, AttributeStatus.NORMAL),
+            new AttributeSnapshot.Entry("gas_select", "零气", AttributeStatus.MAINTENANCE),
+            new AttributeSnapshot.Entry("pump_on", true, null));
+        new AttributeSnapshot(1700000000000L, entries).write(file);
+
+        AttributeSnapshot read = AttributeSnapshot.read(file);
+        assertEquals(1700000000000L, read.getSavedAt());
+        assertEquals(entries.size(), read.getEntries().size());
+        for (int i = 0; i < entries.size(); i++) {
+            AttributeSnapshot.Entry expected = entries.get(i);
+            AttributeSnapshot.Entry actual = read.getEntries().get(i);
+            assertEquals(expected.getAttributeId(), actual.getAttributeId());
+            assertEquals(expected.getValue(), actual.getValue());
+            assertEquals(expected.getStatus(), actual.getStatus());
+        }
+        assertFalse(Files.exists(directory.resolve("NO2TestDevice.snapshot.tmp")));
+    }
+
+    @Test
+    public void testUnsupportedValuesAreSkipped() throws Exception {
+        List<AttributeSnapshot.Entry> entries = new ArrayList<>();
+        entries.add(new AttributeSnapshot.Entry("empty", null, AttributeStatus.EMPTY));
+        entries.add(new AttributeSnapshot.Entry("raw", new byte[] {1, 2}, AttributeStatus.NORMAL));
+        entries.add(new AttributeSnapshot.Entry("so2", 3.25, AttributeStatus.NORMAL));
+        assertFalse(AttributeSnapshot.isSupported(null));
+        assertFalse(AttributeSnapshot.isSupported(new Object()));
+
+        new AttributeSnapshot(0, entries).write(file);
+        AttributeSnapshot read = AttributeSnapshot.read(file);
+        assertEquals(1, read.getEntries().size());
+        assertEquals("so2", read.getEntries().get(0).getAttributeId());
+    }
+
+    @Test(expected = IOException.class)
+    public void testRejectsForeignFile() throws Exception {
+        Files.write(file, new byte[] {'S', 'M', 'T', 'C', 0, 0, 0, 1});
+        AttributeSnapshot.read(file);
+    }
+}
@@ -0,0 +1,53 @@
+package com.ecat.integration.SaimosenIntegration;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+import static org.junit.Assert.*;
+
+/**
+ * 属性写入路径单元测试类
+ */
+public class AttributeWriteRouterTest {
+
+    private static final String ATTR = "ac1_mode";
+
+    private final List<String> routed = new ArrayList<>();
+
+    private CompletableFuture<Boolean> route(String attributeId,
+            java.util.function.Supplier<CompletableFuture<Boolean>> write) {
+        routed.add(attributeId);
+        return write.get();
+    }
+
+    @Test
+    public void testWriteWithoutRouterRunsDirectly() throws Exception {
+        AttributeWriteRouter.Binding binding = new AttributeWriteRouter.Binding();
+        assertTrue(binding.write(ATTR, () -> CompletableFuture.completedFuture(true)).get());
+        assertTrue(routed.isEmpty());
+    }
+
+    @Test
+    public void testWriteGoesThroughRouterOnce() throws Exception {
+        AttributeWriteRouter.Binding binding = new AttributeWriteRouter.Binding();
+        binding.setRouter(this::route);
+        List<String> wire = new ArrayList<>();
+
+        // 属性原有的写入逻辑在执行中再次调用 setDisplayValue（单参数转调带单位版本）
+        CompletableFuture<Boolean> result = binding.write(ATTR, () -> binding.write(ATTR, () -> {
+            wire.add("mode=2");
+            return CompletableFuture.completedFuture(true);
+        }));
+
+        assertTrue(result.get());
+        assertEquals(1, routed.size());
+        assertEquals(1, wire.size());
+
+        // 写入结束后的下一次调用重新经过写入路径
+        binding.write(ATTR, () -> CompletableFuture.completedFuture(true));
+        assertEquals(2, routed.size());
+    }
+}
@@ -0,0 +1,61 @@
+package com.ecat.integration.SaimosenIntegration;
+
+import org.junit.After;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * 串口总线统计单元测试类
+ */
+public class BusStatisticsTest {
+
+    @After
+    public void tearDown() {
+        BusStatistics.clearAll();
+    }
+
+    @Test
+    public void testSamePortSharesInstance() {
+        BusStatistics a = BusStatistics.forPort("/dev/ttyUSB0");
+        BusStatistics b = BusStatistics.forPort("/dev/ttyUSB0");
+        BusStatistics c = BusStatistics.forPort("/dev/ttyUSB1");
+        assertSame(a, b);
+        assertNotEquals(a, c);
+        assertEquals("/dev/ttyUSB0", a.getPort());
+    }
+
+    @Test
+    public void testCounters() {
+        BusStatistics stats = BusStatistics.forPort("COM3");
+        stats.recordTransaction(8, 113, 40_000_000L);
+        stats.recordTransaction(8, 61, 20_000_000L);
+        stats.recordTimeout(8);
+        stats.recordError(8, 5);
+
+        assertEquals(4, stats.getTransactions());
+        assertEquals(8 + 113 + 8 + 61 + 8 + 8 + 5, stats.getBytes());
+        assertEquals(1, stats.getTimeouts());
+        assertEquals(1, stats.getErrors());
+        assertEquals(2, stats.getCompletedTransactions());
+        assertEquals(60_000_000L, stats.getTurnaroundNanos());
+    }
+
+    @Test
+    public void testQueueDepth() {
+        BusStatistics stats = BusStatistics.forPort("COM4");
+        stats.onQueued();
+        stats.onQueued();
+        assertEquals(2, stats.getQueueDepth());
+        stats.onDequeued();
+        stats.onDequeued();
+        stats.onDequeued();
+        assertEquals(0, stats.getQueueDepth());
+    }
+
+    @Test
+    public void testBusDeviceId() {
+        assertEquals("bus_dev_ttyUSB0", SerialBusDevice.deviceIdForPort("/dev/ttyUSB0"));
+        assertEquals("bus_COM3", SerialBusDevice.deviceIdForPort("COM3"));
+    }
+}
@@ -229,7 +229,7 @@ public class CODeviceTest {
     
     @Test
     public void testStart_SchedulesReadTask() throws Exception {
-        when(mockExecutor.scheduleWithFixedDelay(any(Runnable.class), eq(0L), eq(5L), eq(TimeUnit.SECONDS)))
+        when(mockExecutor.scheduleWithFixedDelay(any(Runnable.class), eq(0L), eq(SmsDeviceBase.POLL_PERIOD_MILLIS), eq(TimeUnit.MILLISECONDS)))
                 .thenAnswer(v->mockScheduledFuture);
                 
         // 执行start方法
@@ -237,7 +237,7 @@ public class CODeviceTest {
         
         // 验证定时任务是否被调度
         verify(mockExecutor, times(1)).scheduleWithFixedDelay(
-                any(Runnable.class), eq(0L), eq(5L), eq(TimeUnit.SECONDS));
+                any(Runnable.class), eq(0L), eq(SmsDeviceBase.POLL_PERIOD_MILLIS), eq(TimeUnit.MILLISECONDS));
     }
     
     @Test
@@ -460,7 +460,7 @@ public class CODeviceTest {
     @Test
     public void testDeviceLifecycle() throws Exception {
         // 测试完整的设备生命周期
-        when(mockExecutor.scheduleWithFixedDelay(any(Runnable.class), eq(0L), eq(5L), eq(TimeUnit.SECONDS)))
+        when(mockExecutor.scheduleWithFixedDelay(any(Runnable.class), eq(0L), eq(SmsDeviceBase.POLL_PERIOD_MILLIS), eq(TimeUnit.MILLISECONDS)))
             .thenAnswer(v->mockScheduledFuture);
         when(mockModbusSource.isModbusOpen()).thenReturn(true);
         
@@ -471,7 +471,7 @@ public class CODeviceTest {
         // 2. 启动
         coDevice.start();
         verify(mockExecutor, times(1)).scheduleWithFixedDelay(
-                any(Runnable.class), eq(0L), eq(5L), eq(TimeUnit.SECONDS));
+                any(Runnable.class), eq(0L), eq(SmsDeviceBase.POLL_PERIOD_MILLIS), eq(TimeUnit.MILLISECONDS));
         
         // 3. 停止
         coDevice.stop();
@@ -0,0 +1,272 @@
+package com.ecat.integration.SaimosenIntegration;
+
+import com.ecat.core.EcatCore;
+import com.ecat.core.Bus.BusRegistry;
+import com.ecat.core.Integration.IntegrationRegistry;
+import com.ecat.core.State.AttributeBase;
+import com.ecat.core.State.StringCommandAttribute;
+import com.ecat.core.Task.TaskManager;
+import com.ecat.integration.ModbusIntegration.ModbusIntegration;
+import com.ecat.integration.ModbusIntegration.ModbusSource;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.lang.reflect.Field;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+/**
+ * 校准序列执行引擎单元测试类（校准仪和NO2分析仪接模拟从站）
+ */
+public class CalibrationSequenceRunnerTest {
+
+    private static final String CALIBRATOR = "calibrator-1";
+    private static final String ANALYZER = "no2-1";
+
+    private ScheduledExecutorService scheduler;
+    private ModbusSlaveSimulator calibratorSim;
+    private ModbusSlaveSimulator analyzerSim;
+    private final Map<String, SmsDeviceBase> devices = new HashMap<>();
+    private CalibrationSequenceRunner runner;
+
+    @Before
+    public void setUp() throws Exception {
+        scheduler = Executors.newSingleThreadScheduledExecutor();
+        calibratorSim = SaimosenSimulatorProfiles.calibrator();
+        analyzerSim = SaimosenSimulatorProfiles.no2();
+        devices.put(CALIBRATOR, createDevice(new CalibratorDevice(config(CALIBRATOR)), calibratorSim));
+        devices.put(ANALYZER, createDevice(new NO2Device(config(ANALYZER)), analyzerSim));
+        runner = new CalibrationSequenceRunner(devices::get, scheduler);
+    }
+
+    @After
+    public void tearDown() {
+        scheduler.shutdownNow();
+        calibratorSim.close();
+        analyzerSim.close();
+    }
+
+    @Test
+    public void testSequenceAdvancesOnObservedState() throws Exception {
+        CalibrationSequence sequence = CalibrationSequence.builder("no_check")
+                .write(CALIBRATOR, "calibrator_gas_select", "NO")
+                .await(CALIBRATOR, "system_state", 5000, CalibrationSequence.STATE_GAS_PREPARING)
+                .write(ANALYZER, "dispatch_command", "zero_calibration_start")
+                .await(ANALYZER, "calibration_status", 5000, CalibrationSequence.STATUS_ZERO_CALIBRATION)
+                .build();
+
+        CalibrationSequenceRunner.Execution execution = runner.start(sequence);
+        assertEquals(CalibrationSequenceRunner.Outcome.COMPLETED, execution.getResult().get(5, TimeUnit.SECONDS));
+        assertNull(execution.getFailureReason());
+        assertEquals(4, execution.getCurrentStep());
+        assertEquals(SaimosenSimulatorProfiles.CALIBRATOR_STATE_GAS_PREPARING,
+                calibratorSim.getRegister(SaimosenSimulatorProfiles.CALIBRATOR_SYSTEM_STATE));
+        assertEquals(SaimosenSimulatorProfiles.STATUS_ZERO_CALIBRATION,
+                analyzerSim.getRegister(SaimosenSimulatorProfiles.CALIBRATION_STATUS));
+        assertEquals(CalibrationSequence.STATE_GAS_PREPARING, devices.get(CALIBRATOR).getAttrs().get("system_state").getValue());
+    }
+
+    @Test
+    public void testAwaitTimeoutRunsRollback() throws Exception {
+        // 选择NO后校准仪进入标气配制，不会进入O3配置
+        CalibrationSequence sequence = CalibrationSequence.builder("wrong_state")
+                .write(CALIBRATOR, "calibrator_gas_select", "NO")
+                .await(CALIBRATOR, "system_state", 200, CalibrationSequence.STATE_O3_PREPARING)
+                .rollbackWrite(CALIBRATOR, "calibrator_gas_select", "Choose")
+                .build();
+
+        CalibrationSequenceRunner.Execution execution = runner.start(sequence);
+        assertEquals(CalibrationSequenceRunner.Outcome.TIMED_OUT, execution.getResult().get(5, TimeUnit.SECONDS));
+        assertEquals(1, execution.getCurrentStep());
+        assertTrue(execution.getFailureReason().contains("timed out"));
+        // 回滚后校准仪恢复待机
+        assertEquals(SaimosenSimulatorProfiles.CALIBRATOR_STATE_STANDBY,
+                calibratorSim.getRegister(SaimosenSimulatorProfiles.CALIBRATOR_SYSTEM_STATE));
+    }
+
+    @Test
+    public void testAbortRunsRollbackAndStopsSequence() throws Exception {
+        CalibrationSequence sequence = CalibrationSequence.builder("abort")
+                .write(ANALYZER, "dispatch_command", "span_calibration_cancel")
+                .await(ANALYZER, "calibration_status", 60_000, CalibrationSequence.STATUS_SPAN_CALIBRATION)
+                .write(CALIBRATOR, "calibrator_gas_select", "NO")
+                .rollbackWrite(ANALYZER, "dispatch_command", "zero_calibration_cancel")
+                .build();
+
+        CalibrationSequenceRunner.Execution execution = runner.start(sequence);
+        waitForStep(execution, 1);
+        long writes = calibratorSim.getWriteCount();
+        assertTrue(execution.abort());
+        assertFalse(execution.abort());
+        assertEquals(CalibrationSequenceRunner.Outcome.ABORTED, execution.getResult().get(5, TimeUnit.SECONDS));
+        // 中止后不再执行后续步骤
+        assertEquals(writes, calibratorSim.getWriteCount());
+        List<int[]> history = analyzerSim.getWriteHistory();
+        assertEquals(SaimosenSimulatorProfiles.ZERO_CALIBRATION_CANCEL, history.get(history.size() - 1)[0]);
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void testAwaitAfterWriteProbesObservedState() throws Exception {
+        StringCommandAttribute command = mock(StringCommandAttribute.class);
+        when(command.sendCommand("zero_calibration_confirm")).thenReturn(CompletableFuture.completedFuture(true));
+        Map<String, AttributeBase<?>> attrs = new HashMap<>();
+        attrs.put("dispatch_command", command);
+        attrs.put("calibration_status", mock(AttributeBase.class));
+        SmsDeviceBase analyzer = mock(SmsDeviceBase.class);
+        when(analyzer.getAttrs()).thenReturn(attrs);
+        when(analyzer.awaitObservedState(any(), anyLong())).thenReturn(CompletableFuture.completedFuture(true));
+        devices.put("mock-1", analyzer);
+
+        CalibrationSequenceRunner.Execution execution = runner.start(CalibrationSequence.analyzerCommand("mock-1",
+                "zero_calibration_confirm", CalibrationSequence.STATUS_MEASURE, null));
+        assertEquals(CalibrationSequenceRunner.Outcome.COMPLETED, execution.getResult().get(5, TimeUnit.SECONDS));
+        // 命令后的状态等待经探测确认，不只被动等发布
+        verify(analyzer).awaitObservedState(any(), eq(CalibrationSequence.DEFAULT_AWAIT_TIMEOUT_SECONDS * 1000L));
+        verify(analyzer, never()).addPublishListener(any());
+    }
+
+    @Test
+    public void testAwaitAfterWriteTimesOutWhenStateNotObserved() throws Exception {
+        // 分析仪应答命令但状态一直未确认
+        SmsDeviceBase analyzer = spy(devices.get(ANALYZER));
+        doReturn(CompletableFuture.completedFuture(false)).when(analyzer).awaitObservedState(any(), anyLong());
+        devices.put(ANALYZER, analyzer);
+
+        CalibrationSequenceRunner.Execution execution = runner.start(CalibrationSequence.analyzerCommand(ANALYZER,
+                "zero_calibration_start", CalibrationSequence.STATUS_ZERO_CALIBRATION, "zero_calibration_cancel"));
+        assertEquals(CalibrationSequenceRunner.Outcome.TIMED_OUT, execution.getResult().get(5, TimeUnit.SECONDS));
+        assertTrue(execution.getFailureReason().contains("timed out"));
+        List<int[]> history = analyzerSim.getWriteHistory();
+        assertEquals(SaimosenSimulatorProfiles.ZERO_CALIBRATION_CANCEL, history.get(history.size() - 1)[0]);
+    }
+
+    @Test
+    public void testMissingAttributeFails() throws Exception {
+        CalibrationSequence sequence = CalibrationSequence.builder("missing")
+                .write("unknown-device", "calibrator_gas_select", "NO")
+                .build();
+        CalibrationSequenceRunner.Execution execution = runner.start(sequence);
+        assertEquals(CalibrationSequenceRunner.Outcome.FAILED, execution.getResult().get(5, TimeUnit.SECONDS));
+        assertTrue(execution.getFailureReason().contains("not found"));
+    }
+
+    @Test
+    public void testFromConfigAndBuiltInSequences() {
+        List<Map<String, Object>> steps = new ArrayList<>();
+        steps.add(step("value", "0.4", "other_gas_concentration"));
+        steps.add(step("value", "NO", "calibrator_gas_select"));
+        Map<String, Object> await = step("await", Arrays.asList("标气配制中", "O₃配置中"), "system_state");
+        await.put("timeout_seconds", 30);
+        steps.add(await);
+        Map<String, Object> config = new HashMap<>();
+        config.put("name", "no_span");
+        config.put("steps", steps);
+        config.put("rollback", Arrays.asList(step("value", "Choose", "calibrator_gas_select")));
+
+        CalibrationSequence sequence = CalibrationSequence.fromConfig(config);
+        assertEquals("no_span", sequence.getName());
+        assertEquals(3, sequence.getSteps().size());
+        CalibrationSequence.Step last = sequence.getSteps().get(2);
+        assertEquals(CalibrationSequence.StepType.AWAIT, last.getType());
+        assertEquals(30_000, last.getTimeoutMillis());
+        assertEquals(2, last.getExpected().size());
+        assertEquals("Choose", sequence.getRollback().get(0).getValue());
+
+        CalibrationSequence o3 = CalibrationSequence.spanCheck(CALIBRATOR, "O3", "0.4", ANALYZER);
+        assertEquals("o3_gas_concentration", o3.getSteps().get(0).getAttributeId());
+        assertEquals(5, o3.getSteps().size());
+        assertEquals(2, o3.getRollback().size());
+
+        try {
+            CalibrationSequence.fromConfig(new HashMap<>());
+            fail("steps required");
+        } catch (IllegalArgumentException expected) {
+            // 缺少 steps
+        }
+        assertTrue(CalibrationSequenceRunner.matches(2.0, Arrays.asList("2")));
+        assertFalse(CalibrationSequenceRunner.matches(0.0, Arrays.asList("待机")));
+    }
+
+    private Map<String, Object> step(String key, Object value, String attribute) {
+        Map<String, Object> step = new HashMap<>();
+        step.put("device", CALIBRATOR);
+        step.put("attribute", attribute);
+        step.put(key, value);
+        return step;
+    }
+
+    private void waitForStep(CalibrationSequenceRunner.Execution execution, int step) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 5000;
+        while (execution.getCurrentStep() < step && System.currentTimeMillis() < deadline) {
+            Thread.sleep(5);
+        }
+        assertEquals(step, execution.getCurrentStep());
+    }
+
+    private Map<String, Object> config(String id) {
+        Map<String, Object> commSettings = new HashMap<>();
+        commSettings.put("port", "COM1");
+        commSettings.put("baudRate", 9600);
+        commSettings.put("numDataBit", 8);
+        commSettings.put("numStopBit", 1);
+        commSettings.put("parity", "N");
+        commSettings.put("timeout", 2000);
+        commSettings.put("slaveId", 1);
+        Map<String, Object> config = new HashMap<>();
+        config.put("id", id);
+        config.put("name", id);
+        config.put("comm_settings", commSettings);
+        return config;
+    }
+
+    private SmsDeviceBase createDevice(SmsDeviceBase device, ModbusSlaveSimulator simulator) throws Exception {
+        ModbusSource source = SimulatedModbusSource.create(simulator);
+        ModbusIntegration modbusIntegration = mock(ModbusIntegration.class);
+        when(modbusIntegration.register(any(), any())).thenReturn(source);
+        EcatCore core = mock(EcatCore.class);
+        TaskManager taskManager = mock(TaskManager.class);
+        when(core.getTaskManager()).thenReturn(taskManager);
+        when(taskManager.getExecutorService()).thenReturn(scheduler);
+        when(core.getBusRegistry()).thenReturn(mock(BusRegistry.class));
+        IntegrationRegistry integrationRegistry = mock(IntegrationRegistry.class);
+        when(core.getIntegrationRegistry()).thenReturn(integrationRegistry);
+        when(integrationRegistry.getIntegration("integration-modbus")).thenReturn(modbusIntegration);
+
+        device.load(core);
+        setPrivateField(device, "core", core);
+        // 属性在 init 时捕获 ModbusSource，需先设置
+        device.setModbusSource(source);
+        device.init();
+        return device;
+    }
+
+    private void setPrivateField(Object target, String fieldName, Object value) throws Exception {
+        for (Class<?> type = target.getClass(); type != null; type = type.getSuperclass()) {
+            try {
+                Field field = type.getDeclaredField(fieldName);
+                field.setAccessible(true);
+                field.set(target, value);
+                return;
+            } catch (NoSuchFieldException e) {
+                // 继续查找父类
+            }
+        }
+        throw new NoSuchFieldException(fieldName);
+    }
+}
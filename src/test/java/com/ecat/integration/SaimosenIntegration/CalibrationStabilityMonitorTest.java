@@ -0,0 +1,84 @@
+package com.ecat.integration.SaimosenIntegration;
+
+import com.ecat.core.State.AttributeBase;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+
+import static org.junit.Assert.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+/**
+ * 校准稳定监测单元测试类
+ */
+public class CalibrationStabilityMonitorTest {
+
+    private SmsDeviceBase analyzer;
+    private AttributeBase<Object> reading;
+    private StabilityDetector detector;
+    private Map<String, AttributeBase<?>> attrs;
+
+    @Before
+    @SuppressWarnings("unchecked")
+    public void setUp() {
+        reading = mock(AttributeBase.class);
+        when(reading.getValue()).thenReturn(10.0);
+        attrs = new HashMap<>();
+        attrs.put("no2", reading);
+        analyzer = mock(SmsDeviceBase.class);
+        when(analyzer.getStoredAttributeIds()).thenReturn(new String[] {"no2"});
+        when(analyzer.getAttrs()).thenReturn(attrs);
+        detector = spy(new StabilityDetector(2, 1.0, 1.0, 1));
+    }
+
+    @Test
+    public void testReadinessSamplesOncePerCallWithoutPublishListener() {
+        ZeroCheckOrchestrator.ReadinessCheck check = CalibrationStabilityMonitor.readiness(() -> detector, 0);
+
+        assertFalse(check.isReady(analyzer, 0));
+        check.isReady(analyzer, 1000);
+
+        // 就绪判断由编排器的发布监听驱动，监测器不再重复登记监听
+        verify(analyzer, never()).addPublishListener(any());
+        verify(detector, times(2)).add(anyLong(), anyDouble());
+
+        check.release(analyzer);
+        verify(analyzer, never()).removePublishListener(any());
+    }
+
+    @Test
+    public void testAttachRegistersPublishListener() {
+        CalibrationStabilityMonitor monitor = new CalibrationStabilityMonitor(analyzer, () -> detector);
+        monitor.attach();
+        verify(analyzer).addPublishListener(any());
+
+        monitor.detach();
+        verify(analyzer).removePublishListener(any());
+    }
+
+    @Test
+    public void testConfirmWaitsForMeasureStatus() throws Exception {
+        GasDeviceCommandAttribute command = mock(GasDeviceCommandAttribute.class);
+        when(command.sendCommandAndAwait(anyString(), anyLong())).thenReturn(CompletableFuture.completedFuture(true));
+        attrs.put("dispatch_command", command);
+        detector = mock(StabilityDetector.class);
+        when(detector.isStable()).thenReturn(true);
+        CalibrationStabilityMonitor monitor = new CalibrationStabilityMonitor(analyzer, () -> detector)
+                .setConfirmTimeoutMillis(3000);
+
+        CompletableFuture<Boolean> confirmed = monitor.confirmWhenStable("zero_calibration_confirm");
+        monitor.sample();
+
+        assertTrue(confirmed.get());
+        // 确认命令按校准状态确认，不只看写入应答
+        verify(command).sendCommandAndAwait(eq("zero_calibration_confirm"), eq(3000L));
+        verify(command, never()).sendCommand(anyString());
+    }
+}
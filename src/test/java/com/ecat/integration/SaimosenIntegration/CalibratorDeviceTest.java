@@ -0,0 +1,94 @@
+package com.ecat.integration.SaimosenIntegration;
+
+import com.ecat.core.EcatCore;
+import com.ecat.core.Bus.BusRegistry;
+import com.ecat.integration.ModbusIntegration.Attribute.ModbusFloatAttribute;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+
+import java.lang.reflect.Field;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+/**
+ * 测试 CalibratorDevice 属性写入路径
+ */
+public class CalibratorDeviceTest {
+
+    private static final int SO2_ADDRESS = 0x02;
+
+    private AutoCloseable mockitoCloseable;
+    private ModbusSlaveSimulator simulator;
+    private CalibratorDevice device;
+
+    @Mock private EcatCore mockEcatCore;
+    @Mock private BusRegistry mockBusRegistry;
+
+    @Before
+    public void setUp() throws Exception {
+        mockitoCloseable = MockitoAnnotations.openMocks(this);
+        doNothing().when(mockBusRegistry).publish(any(), any());
+        when(mockEcatCore.getBusRegistry()).thenReturn(mockBusRegistry);
+
+        simulator = SaimosenSimulatorProfiles.calibrator()
+                .defineWritable(SO2_ADDRESS)
+                .defineWritable(SO2_ADDRESS + 1);
+
+        Map<String, Object> config = new HashMap<>();
+        config.put("id", "test-calibrator");
+        device = new CalibratorDevice(config);
+        setPrivateField(device, "core", mockEcatCore);
+        device.setModbusSource(SimulatedModbusSource.create(simulator));
+        device.init();
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        simulator.close();
+        mockitoCloseable.close();
+    }
+
+    private void setPrivateField(Object target, String fieldName, Object value) throws Exception {
+        for (Class<?> type = target.getClass(); type != null; type = type.getSuperclass()) {
+            try {
+                Field field = type.getDeclaredField(fieldName);
+                field.setAccessible(true);
+                field.set(target, value);
+                return;
+            } catch (NoSuchFieldException e) {
+                // 继续在父类中查找
+            }
+        }
+        throw new NoSuchFieldException(fieldName);
+    }
+
+    private void waitForReads(long reads) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 2000;
+        while (simulator.getReadCount() < reads && System.currentTimeMillis() < deadline) {
+            Thread.sleep(5);
+        }
+    }
+
+    @Test
+    public void testSetDisplayValueReadsBackWrittenRegisters() throws Exception {
+        ModbusFloatAttribute so2 = (ModbusFloatAttribute) device.getAttrs().get("so2_std_gas_concentration");
+
+        // 平台直接调用属性的 setDisplayValue，写入成功后回读该属性的两个寄存器
+        assertTrue(so2.setDisplayValue("12.5").get(2, TimeUnit.SECONDS));
+        waitForReads(1);
+
+        assertEquals(1, simulator.getReadCount());
+        assertEquals(12.5f, so2.getValue(), 0.001f);
+        // 回读在提交之后发起，写入覆盖已对账
+        assertFalse(device.isWriteOverlaid("so2_std_gas_concentration"));
+    }
+}
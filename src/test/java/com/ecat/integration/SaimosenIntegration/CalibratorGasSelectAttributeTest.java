@@ -17,6 +17,7 @@ import org.mockito.MockitoAnnotations;
 import java.util.Arrays;
 import java.util.List;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
 
 import static org.junit.Assert.*;
 import static org.mockito.ArgumentMatchers.anyInt;
@@ -91,6 +92,46 @@ public class CalibratorGasSelectAttributeTest {
         assertTrue(future.get());
     }
 
+    @Test
+    public void testSelectOptionImp_RunsWriteCallbackOnSuccess() throws Exception {
+        Runnable callback = mock(Runnable.class);
+        attr.setWriteCallback(callback);
+
+        WriteRegisterResponse failedResp = mock(WriteRegisterResponse.class);
+        when(failedResp.isException()).thenReturn(true);
+        when(mockModbusSource.writeRegister(anyInt(), anyInt())).thenReturn(
+            CompletableFuture.completedFuture(failedResp)
+        );
+        try {
+            attr.selectOptionImp("NO").get();
+        } catch (Exception e) {
+            // 写入失败，不回读
+        }
+        verify(callback, never()).run();
+
+        WriteRegisterResponse okResp = mock(WriteRegisterResponse.class);
+        when(okResp.isException()).thenReturn(false);
+        when(mockModbusSource.writeRegister(anyInt(), anyInt())).thenReturn(
+            CompletableFuture.completedFuture(okResp)
+        );
+        assertTrue(attr.selectOptionImp("NO").get());
+        verify(callback).run();
+    }
+
+    @Test
+    public void testSelectOptionImp_NullResponseFails() throws Exception {
+        when(mockModbusSource.writeRegister(anyInt(), anyInt())).thenReturn(
+            CompletableFuture.completedFuture(null)
+        );
+        try {
+            attr.selectOptionImp("NO").get();
+            fail("expected write failure");
+        } catch (ExecutionException e) {
+            // 无应答时报告写入失败，而不是空指针
+            assertTrue(e.getCause().getMessage().contains("no response"));
+        }
+    }
+
     @Test
     public void testSelectOptionImp_InvalidOption() throws Exception {
         CompletableFuture<Boolean> future = attr.selectOptionImp("未知气体");
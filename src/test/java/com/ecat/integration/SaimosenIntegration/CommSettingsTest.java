@@ -0,0 +1,75 @@
+package com.ecat.integration.SaimosenIntegration;
+
+import com.ecat.integration.ModbusIntegration.ModbusSerialInfo;
+import com.ecat.integration.ModbusIntegration.ModbusTcpInfo;
+
+import org.junit.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.Assert.*;
+
+/**
+ * 通信参数解析单元测试类
+ */
+public class CommSettingsTest {
+
+    @Test
+    public void testSerialSettings() {
+        CommSettings settings = CommSettings.parse("no2-1", serial());
+
+        assertEquals(ModbusTransport.SERIAL, settings.getTransport());
+        assertTrue(settings.getModbusInfo() instanceof ModbusSerialInfo);
+        assertEquals("COM1", settings.getLineKey());
+        assertEquals(3, settings.getSlaveId());
+        // 8N1：每字符10位
+        assertEquals(ModbusTransport.SERIAL.readTransactionMicros(10, 9600, 10), settings.readTransactionMicros(10));
+    }
+
+    @Test
+    public void testEvenParityAddsBitPerChar() {
+        Map<String, Object> commSettings = serial();
+        commSettings.put("parity", "E");
+
+        assertEquals(ModbusTransport.SERIAL.readTransactionMicros(10, 9600, 11),
+                CommSettings.parse("no2-1", commSettings).readTransactionMicros(10));
+    }
+
+    @Test
+    public void testTcpSettings() {
+        Map<String, Object> commSettings = new HashMap<>();
+        commSettings.put("transport", "tcp");
+        commSettings.put("ip", "192.168.1.10");
+        commSettings.put("slaveId", 1);
+        CommSettings settings = CommSettings.parse("no2-1", commSettings);
+
+        assertEquals(ModbusTransport.TCP, settings.getTransport());
+        assertTrue(settings.getModbusInfo() instanceof ModbusTcpInfo);
+        assertEquals("tcp://192.168.1.10:502", settings.getLineKey());
+    }
+
+    @Test
+    public void testMissingSettingNamesDeviceAndKey() {
+        Map<String, Object> commSettings = serial();
+        commSettings.remove("baudRate");
+        try {
+            CommSettings.parse("no2-1", commSettings);
+            fail("expected missing baudRate");
+        } catch (IllegalArgumentException e) {
+            assertTrue(e.getMessage().contains("no2-1"));
+            assertTrue(e.getMessage().contains("baudRate"));
+        }
+    }
+
+    private static Map<String, Object> serial() {
+        Map<String, Object> commSettings = new HashMap<>();
+        commSettings.put("port", "COM1");
+        commSettings.put("baudRate", 9600);
+        commSettings.put("numDataBit", 8);
+        commSettings.put("numStopBit", 1);
+        commSettings.put("parity", "N");
+        commSettings.put("slaveId", 3);
+        return commSettings;
+    }
+}
@@ -0,0 +1,172 @@
+package com.ecat.integration.SaimosenIntegration;
+
+import com.ecat.core.Device.DeviceStatus;
+import com.ecat.core.State.AttributeStatus;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * 浓度均值增量计算单元测试类
+ */
+public class ConcentrationAveragerTest {
+
+    private static final long HOUR_START = 1700002800000L; // 整点
+
+    private final List<ConcentrationAverager.Average> closed = new ArrayList<>();
+    private final List<Integer> columns = new ArrayList<>();
+    private ConcentrationAverager averager;
+
+    @Before
+    public void setUp() {
+        averager = new ConcentrationAverager(2, ConcentrationAverager.DEFAULT_MIN_VALID_FRACTION, (column, average) -> {
+            columns.add(column);
+            closed.add(average);
+        });
+    }
+
+    @Test
+    public void testMinuteMeanEmittedOnWindowClose() {
+        // 一分钟12个5秒样本，值为0..11
+        for (int i = 0; i < 12; i++) {
+            add(HOUR_START + i * 5000L, i, AttributeStatus.NORMAL, DeviceStatus.MEASURE);
+        }
+        assertTrue(closed.isEmpty());
+
+        add(HOUR_START + 60_000L, 100, AttributeStatus.NORMAL, DeviceStatus.MEASURE);
+        List<ConcentrationAverager.Average> minute = closedFor(ConcentrationAverager.Window.ONE_MINUTE, 0);
+        assertEquals(1, minute.size());
+        assertEquals(5.5, minute.get(0).getMean(), 1e-9);
+        assertEquals(HOUR_START, minute.get(0).getWindowStart());
+        assertEquals(12, minute.get(0).getSamples());
+        assertTrue(minute.get(0).isValid());
+        // 5分钟和小时窗口尚未关闭
+        assertTrue(closedFor(ConcentrationAverager.Window.FIVE_MINUTES, 0).isEmpty());
+        assertTrue(closedFor(ConcentrationAverager.Window.ONE_HOUR, 0).isEmpty());
+    }
+
+    @Test
+    public void testHourlyMeanOverAllSamples() {
+        for (int i = 0; i < 720; i++) {
+            add(HOUR_START + i * 5000L, i % 2 == 0 ? 10 : 20, AttributeStatus.NORMAL, DeviceStatus.MEASURE);
+        }
+        add(HOUR_START + 3_600_000L, 0, AttributeStatus.NORMAL, DeviceStatus.MEASURE);
+
+        assertEquals(60, closedFor(ConcentrationAverager.Window.ONE_MINUTE, 0).size());
+        assertEquals(12, closedFor(ConcentrationAverager.Window.FIVE_MINUTES, 0).size());
+        List<ConcentrationAverager.Average> hour = closedFor(ConcentrationAverager.Window.ONE_HOUR, 0);
+        assertEquals(1, hour.size());
+        assertEquals(15.0, hour.get(0).getMean(), 1e-9);
+        assertEquals(720, hour.get(0).getValidSamples());
+    }
+
+    @Test
+    public void testCalibrationInvalidatesWindow() {
+        // 12个样本中4个处于零点校准：有效占比 8/12 < 75%
+        for (int i = 0; i < 12; i++) {
+            DeviceStatus deviceStatus = i < 4 ? DeviceStatus.ZERO_CALIBRATION : DeviceStatus.MEASURE;
+            add(HOUR_START + i * 5000L, i < 4 ? 0 : 30, AttributeStatus.NORMAL, deviceStatus);
+        }
+        add(HOUR_START + 60_000L, 0, AttributeStatus.NORMAL, DeviceStatus.MEASURE);
+
+        ConcentrationAverager.Average minute = closedFor(ConcentrationAverager.Window.ONE_MINUTE, 0).get(0);
+        assertFalse(minute.isValid());
+        assertEquals(AttributeStatus.ZERO_CALIBRATION, minute.getFlag());
+        // 均值只由有效样本计算
+        assertEquals(30.0, minute.getMean(), 1e-9);
+        assertEquals(8, minute.getValidSamples());
+    }
+
+    @Test
+    public void testMalfunctionAndMissingSamples() {
+        // 2个故障、1个缺测（EMPTY），9个正常：9/11 >= 75%
+        for (int i = 0; i < 12; i++) {
+            AttributeStatus status = i < 2 ? AttributeStatus.MALFUNCTION
+                    : (i == 2 ? AttributeStatus.EMPTY : AttributeStatus.NORMAL);
+            add(HOUR_START + i * 5000L, 8, status, DeviceStatus.MEASURE);
+        }
+        add(HOUR_START + 60_000L, 0, AttributeStatus.NORMAL, DeviceStatus.MEASURE);
+
+        ConcentrationAverager.Average minute = closedFor(ConcentrationAverager.Window.ONE_MINUTE, 0).get(0);
+        assertTrue(minute.isValid());
+        assertEquals(11, minute.getSamples());
+        assertEquals(9, minute.getValidSamples());
+
+        // 整个窗口故障：无有效样本，均值为NaN
+        for (int i = 1; i < 12; i++) {
+            add(HOUR_START + 60_000L + i * 5000L, 8, AttributeStatus.MALFUNCTION, DeviceStatus.MEASURE);
+        }
+        add(HOUR_START + 120_000L, 0, AttributeStatus.NORMAL, DeviceStatus.MEASURE);
+        minute = closedFor(ConcentrationAverager.Window.ONE_MINUTE, 0).get(1);
+        assertEquals(AttributeStatus.MALFUNCTION, minute.getFlag());
+        assertEquals(1, minute.getValidSamples());
+    }
+
+    @Test
+    public void testMissingPollsInvalidateWindow() {
+        // 通讯中断：一分钟只收到6个样本，全部正常，但应有12个：6/12 < 75%
+        for (int i = 0; i < 6; i++) {
+            add(HOUR_START + i * 5000L, 10, AttributeStatus.NORMAL, DeviceStatus.MEASURE);
+        }
+        add(HOUR_START + 60_000L, 0, AttributeStatus.NORMAL, DeviceStatus.MEASURE);
+
+        ConcentrationAverager.Average minute = closedFor(ConcentrationAverager.Window.ONE_MINUTE, 0).get(0);
+        assertFalse(minute.isValid());
+        assertEquals(AttributeStatus.MALFUNCTION, minute.getFlag());
+        assertEquals(6, minute.getValidSamples());
+        assertEquals(12, minute.getExpectedSamples());
+        assertEquals(10.0, minute.getMean(), 1e-9);
+    }
+
+    @Test
+    public void testExpectedSamplesFollowSamplePeriod() {
+        closed.clear();
+        columns.clear();
+        // 10秒采样周期：一分钟应有6个样本
+        averager = new ConcentrationAverager(2, 10_000L, ConcentrationAverager.DEFAULT_MIN_VALID_FRACTION,
+                (column, average) -> {
+                    columns.add(column);
+                    closed.add(average);
+                });
+        for (int i = 0; i < 6; i++) {
+            add(HOUR_START + i * 10_000L, 10, AttributeStatus.NORMAL, DeviceStatus.MEASURE);
+        }
+        add(HOUR_START + 60_000L, 0, AttributeStatus.NORMAL, DeviceStatus.MEASURE);
+
+        ConcentrationAverager.Average minute = closedFor(ConcentrationAverager.Window.ONE_MINUTE, 0).get(0);
+        assertTrue(minute.isValid());
+        assertEquals(6, minute.getExpectedSamples());
+    }
+
+    @Test
+    public void testColumnsAreIndependentAndFlushClosesOpenWindows() {
+        averager.add(HOUR_START, new double[] {1, 2},
+                new AttributeStatus[] {AttributeStatus.NORMAL, AttributeStatus.MAINTENANCE}, null);
+        averager.flush();
+
+        assertEquals(6, closed.size());
+        List<ConcentrationAverager.Average> second = closedFor(ConcentrationAverager.Window.ONE_HOUR, 1);
+        assertEquals(AttributeStatus.MAINTENANCE, second.get(0).getFlag());
+        assertTrue(Double.isNaN(second.get(0).getMean()));
+        assertEquals(1.0, closedFor(ConcentrationAverager.Window.ONE_HOUR, 0).get(0).getMean(), 1e-9);
+    }
+
+    private void add(long timestamp, double value, AttributeStatus status, DeviceStatus deviceStatus) {
+        averager.add(timestamp, new double[] {value, value}, new AttributeStatus[] {status, status}, deviceStatus);
+    }
+
+    private List<ConcentrationAverager.Average> closedFor(ConcentrationAverager.Window window, int column) {
+        List<ConcentrationAverager.Average> result = new ArrayList<>();
+        for (int i = 0; i < closed.size(); i++) {
+            if (closed.get(i).getWindow() == window && columns.get(i) == column) {
+                result.add(closed.get(i));
+            }
+        }
+        return result;
+    }
+}
@@ -0,0 +1,109 @@
+package com.ecat.integration.SaimosenIntegration;
+
+import org.junit.Test;
+
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * 帧跟踪环形缓冲区单元测试类
+ */
+public class FrameTraceBufferTest {
+
+    @Test
+    public void testReadRequestFrameCrc() {
+        byte[] frame = FrameTraceBuffer.readRequestFrame(1, 0, 10);
+        // 01 03 00 00 00 0A C5 CD
+        assertArrayEquals(new byte[] {0x01, 0x03, 0x00, 0x00, 0x00, 0x0A, (byte) 0xC5, (byte) 0xCD}, frame);
+    }
+
+    @Test
+    public void testReadResponseFrame() {
+        byte[] frame = FrameTraceBuffer.readResponseFrame(1, new short[] {0x1234, (short) 0xABCD});
+        assertEquals(9, frame.length);
+        assertEquals(0x03, frame[1]);
+        assertEquals(4, frame[2]);
+        assertEquals(0x12, frame[3]);
+        assertEquals((byte) 0xCD, frame[6]);
+        // 带CRC的完整帧再做CRC结果为0
+        assertEquals(0, FrameTraceBuffer.crc16(frame, frame.length));
+    }
+
+    @Test
+    public void testWriteMultipleRequestFrame() {
+        byte[] frame = FrameTraceBuffer.writeMultipleRequestFrame(1, 0x3E8, new short[] {1, 40, 1});
+        // 01 10 03 E8 00 03 06 00 01 00 28 00 01 + CRC
+        assertEquals(15, frame.length);
+        assertEquals(0x10, frame[1]);
+        assertEquals(3, frame[5]);
+        assertEquals(6, frame[6]);
+        assertEquals(40, frame[10]);
+        assertEquals(0, FrameTraceBuffer.crc16(frame, frame.length));
+    }
+
+    @Test
+    public void testMbapFrame() {
+        byte[] frame = FrameTraceBuffer.toMbap(FrameTraceBuffer.readRequestFrame(1, 0, 10), 7);
+        // 00 07 00 00 00 06 01 03 00 00 00 0A
+        assertArrayEquals(new byte[] {0x00, 0x07, 0x00, 0x00, 0x00, 0x06, 0x01, 0x03, 0x00, 0x00, 0x00, 0x0A},
+                frame);
+        assertEquals(0, FrameTraceBuffer.toMbap(new byte[0], 7).length);
+    }
+
+    @Test
+    public void testResponseSharesRequestTransactionId() {
+        FrameTraceBuffer buffer = new FrameTraceBuffer(4);
+        buffer.setEnabled(true);
+        buffer.recordRequest(FrameTraceBuffer.readRequestFrame(1, 0, 1), true, "seg");
+        int id = buffer.recordRequest(FrameTraceBuffer.writeSingleFrame(1, 0x3E8, 1), true, "cmd");
+        buffer.recordResponse(id, FrameTraceBuffer.writeSingleFrame(1, 0x3E8, 1), true, null);
+
+        List<FrameTraceBuffer.Frame> frames = buffer.snapshot();
+        byte[] request = frames.get(1).getData();
+        byte[] response = frames.get(2).getData();
+        assertEquals(2, id);
+        assertArrayEquals(request, response);
+        assertEquals(id, ((request[0] & 0xFF) << 8) | (request[1] & 0xFF));
+        assertEquals(0x06, request[7]);
+
+        // RTU方式不转换
+        buffer.recordRequest(FrameTraceBuffer.writeSingleFrame(1, 0x3E8, 1), false, "cmd");
+        assertArrayEquals(FrameTraceBuffer.writeSingleFrame(1, 0x3E8, 1), buffer.snapshot().get(3).getData());
+    }
+
+    @Test
+    public void testDisabledRecordsNothing() {
+        FrameTraceBuffer buffer = new FrameTraceBuffer(4);
+        buffer.record(FrameTraceBuffer.Direction.TX, new byte[] {1}, null);
+        assertTrue(buffer.snapshot().isEmpty());
+    }
+
+    @Test
+    public void testRingKeepsLatestFramesInOrder() {
+        FrameTraceBuffer buffer = new FrameTraceBuffer(3);
+        buffer.setEnabled(true);
+        for (int i = 1; i <= 5; i++) {
+            buffer.record(FrameTraceBuffer.Direction.TX, new byte[] {(byte) i}, null);
+        }
+        List<FrameTraceBuffer.Frame> frames = buffer.snapshot();
+        assertEquals(3, frames.size());
+        assertEquals("03", frames.get(0).toHex());
+        assertEquals("05", frames.get(2).toHex());
+
+        // 关闭时清空
+        buffer.setEnabled(false);
+        assertTrue(buffer.snapshot().isEmpty());
+    }
+
+    @Test
+    public void testTimeoutFrameNote() {
+        FrameTraceBuffer buffer = new FrameTraceBuffer(2);
+        buffer.setEnabled(true);
+        buffer.record(FrameTraceBuffer.Direction.RX, new byte[0], "timeout");
+        FrameTraceBuffer.Frame frame = buffer.snapshot().get(0);
+        assertEquals("", frame.toHex());
+        assertEquals("timeout", frame.getNote());
+        assertEquals(FrameTraceBuffer.Direction.RX, frame.getDirection());
+    }
+}
@@ -0,0 +1,213 @@
+package com.ecat.integration.SaimosenIntegration;
+
+import com.ecat.core.EcatCore;
+import com.ecat.core.Bus.BusRegistry;
+import com.ecat.core.Integration.IntegrationRegistry;
+import com.ecat.core.State.AttributeClass;
+import com.ecat.core.State.NumericAttribute;
+import com.ecat.core.State.StringCommandAttribute;
+import com.ecat.core.Task.TaskManager;
+import com.ecat.integration.ModbusIntegration.ModbusIntegration;
+import com.ecat.integration.ModbusIntegration.ModbusSource;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.lang.reflect.Field;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+/**
+ * 气体设备校准命令属性单元测试类（分析仪接模拟从站）
+ */
+public class GasDeviceCommandAttributeTest {
+
+    private static final int SPAN_CALIBRATION_START = 0x3EB;
+
+    private ScheduledExecutorService scheduler;
+    private ModbusSlaveSimulator simulator;
+
+    @Before
+    public void setUp() {
+        scheduler = Executors.newSingleThreadScheduledExecutor();
+    }
+
+    @After
+    public void tearDown() {
+        scheduler.shutdownNow();
+        if (simulator != null) {
+            simulator.close();
+        }
+    }
+
+    @Test
+    public void testSpanStartWritesBoundConcentration() throws Exception {
+        simulator = SaimosenSimulatorProfiles.no2();
+        NO2Device device = (NO2Device) createDevice(new NO2Device(config("no2-1")), simulator);
+        ((NumericAttribute) device.getAttrs().get("calibration_concentration")).updateValue(400.0);
+
+        StringCommandAttribute command = (StringCommandAttribute) device.getAttrs().get("dispatch_command");
+        assertTrue(command.sendCommand("span_calibration_start").get(5, TimeUnit.SECONDS));
+
+        assertEquals(400, simulator.getRegister(SPAN_CALIBRATION_START));
+        // 设备收到写入通知，写入值保持到提交后的读数对账
+        assertTrue(device.isWriteOverlaid("calibration_concentration"));
+    }
+
+    @Test
+    public void testCoDeviceReceivesWriteNotification() throws Exception {
+        simulator = SaimosenSimulatorProfiles.co();
+        CODevice device = (CODevice) createDevice(new CODevice(config("co-1")), simulator);
+        ((NumericAttribute) device.getAttrs().get("calibration_concentration")).updateValue(40.0);
+
+        StringCommandAttribute command = (StringCommandAttribute) device.getAttrs().get("gas_device_command");
+        assertTrue(command.sendCommand("span_calibration_start").get(5, TimeUnit.SECONDS));
+
+        assertEquals(40, simulator.getRegister(SPAN_CALIBRATION_START));
+        assertTrue(device.isWriteOverlaid("calibration_concentration"));
+    }
+
+    @Test
+    public void testListenerNotifiedOnlyForConcentrationWrites() throws Exception {
+        simulator = SaimosenSimulatorProfiles.so2();
+        GasDeviceCommandAttribute command = new GasDeviceCommandAttribute("dispatch_command",
+                AttributeClass.DISPATCH_COMMAND, new GasDeviceCommandAttribute.SO2CommandConfigFactory());
+        command.setModbusSource(SimulatedModbusSource.create(simulator));
+        NumericAttribute concentration = mock(NumericAttribute.class);
+        when(concentration.getValue()).thenReturn(250.0);
+        command.setConcentrationAttribute(concentration);
+        CalibrationWriteListener listener = mock(CalibrationWriteListener.class);
+        command.setCalibrationWriteListener(listener);
+
+        assertTrue(command.sendCommand("zero_calibration_start").get(5, TimeUnit.SECONDS));
+        verify(listener, never()).markCalibrationWrite(anyDouble());
+
+        assertTrue(command.sendCommand("span_calibration_start").get(5, TimeUnit.SECONDS));
+        assertEquals(250, simulator.getRegister(SPAN_CALIBRATION_START));
+        verify(listener).markCalibrationWrite(250.0);
+    }
+
+    @Test
+    public void testSpanStartWithoutConcentrationIsNotSent() throws Exception {
+        simulator = SaimosenSimulatorProfiles.o3();
+        GasDeviceCommandAttribute command = new GasDeviceCommandAttribute("dispatch_command",
+                AttributeClass.DISPATCH_COMMAND, new GasDeviceCommandAttribute.O3CommandConfigFactory());
+        command.setModbusSource(SimulatedModbusSource.create(simulator));
+        CalibrationWriteListener listener = mock(CalibrationWriteListener.class);
+        command.setCalibrationWriteListener(listener);
+
+        // 未绑定校准浓度属性时不写入0
+        assertFalse(command.sendCommand("span_calibration_start").get(5, TimeUnit.SECONDS));
+        assertEquals(0, simulator.getWriteCount());
+        verify(listener, never()).markCalibrationWrite(anyDouble());
+    }
+
+    @Test
+    public void testNullWriteResponseReportsFailure() throws Exception {
+        GasDeviceCommandAttribute command = new GasDeviceCommandAttribute("dispatch_command",
+                AttributeClass.DISPATCH_COMMAND, new GasDeviceCommandAttribute.SO2CommandConfigFactory());
+        ModbusSource source = mock(ModbusSource.class);
+        when(source.acquire()).thenReturn("testKey");
+        when(source.writeRegister(anyInt(), anyInt())).thenReturn(CompletableFuture.completedFuture(null));
+        command.setModbusSource(source);
+        CalibrationWriteListener listener = mock(CalibrationWriteListener.class);
+        command.setCalibrationWriteListener(listener);
+
+        // 无应答时命令失败，不通知写入
+        assertFalse(command.sendCommand("zero_calibration_start").get(5, TimeUnit.SECONDS));
+        verify(listener, never()).markCommandWrite(any());
+    }
+
+    @Test
+    public void testSendCommandAndAwaitCompletesWhenStatusChanges() throws Exception {
+        simulator = SaimosenSimulatorProfiles.no2();
+        // 分析仪收到命令后延迟切换到零点校准状态
+        simulator.defineWritable(SaimosenSimulatorProfiles.ZERO_CALIBRATION_START, (s, address, value) ->
+                scheduler.schedule(() -> s.setRegister(SaimosenSimulatorProfiles.CALIBRATION_STATUS,
+                        SaimosenSimulatorProfiles.STATUS_ZERO_CALIBRATION), 300, TimeUnit.MILLISECONDS));
+        Map<String, Object> config = config("no2-1");
+        config.put("ack_probe_millis", 100);
+        NO2Device device = (NO2Device) createDevice(new NO2Device(config), simulator);
+
+        GasDeviceCommandAttribute command = (GasDeviceCommandAttribute) device.getAttrs().get("dispatch_command");
+        assertTrue(command.sendCommandAndAwait("zero_calibration_start", 5000).get(5, TimeUnit.SECONDS));
+        assertEquals((double) SaimosenSimulatorProfiles.STATUS_ZERO_CALIBRATION,
+                ((NumericAttribute) device.getAttrs().get("calibration_status")).getValue(), 0.001);
+        // 写入应答后的回读看到的仍是测量状态，之后的探测回读确认状态迁移
+        assertTrue(simulator.getReadCount() >= 2);
+    }
+
+    @Test
+    public void testSendCommandAndAwaitTimesOutWithoutStatusChange() throws Exception {
+        simulator = SaimosenSimulatorProfiles.so2();
+        // 分析仪应答写入但没有进入零点校准
+        simulator.defineWritable(SaimosenSimulatorProfiles.ZERO_CALIBRATION_START);
+        Map<String, Object> config = config("so2-1");
+        config.put("ack_probe_millis", 100);
+        SO2Device device = (SO2Device) createDevice(new SO2Device(config), simulator);
+
+        GasDeviceCommandAttribute command = (GasDeviceCommandAttribute) device.getAttrs().get("dispatch_command");
+        assertFalse(command.sendCommandAndAwait("zero_calibration_start", 500).get(5, TimeUnit.SECONDS));
+        assertEquals(1, simulator.getWriteCount());
+    }
+
+    private Map<String, Object> config(String id) {
+        Map<String, Object> commSettings = new HashMap<>();
+        commSettings.put("port", "COM1");
+        commSettings.put("baudRate", 9600);
+        commSettings.put("numDataBit", 8);
+        commSettings.put("numStopBit", 1);
+        commSettings.put("parity", "N");
+        commSettings.put("timeout", 2000);
+        commSettings.put("slaveId", 1);
+        Map<String, Object> config = new HashMap<>();
+        config.put("id", id);
+        config.put("name", id);
+        config.put("comm_settings", commSettings);
+        return config;
+    }
+
+    private SmsDeviceBase createDevice(SmsDeviceBase device, ModbusSlaveSimulator simulator) throws Exception {
+        ModbusSource source = SimulatedModbusSource.create(simulator);
+        ModbusIntegration modbusIntegration = mock(ModbusIntegration.class);
+        when(modbusIntegration.register(any(), any())).thenReturn(source);
+        EcatCore core = mock(EcatCore.class);
+        TaskManager taskManager = mock(TaskManager.class);
+        when(core.getTaskManager()).thenReturn(taskManager);
+        when(taskManager.getExecutorService()).thenReturn(scheduler);
+        when(core.getBusRegistry()).thenReturn(mock(BusRegistry.class));
+        IntegrationRegistry integrationRegistry = mock(IntegrationRegistry.class);
+        when(core.getIntegrationRegistry()).thenReturn(integrationRegistry);
+        when(integrationRegistry.getIntegration("integration-modbus")).thenReturn(modbusIntegration);
+
+        device.load(core);
+        setPrivateField(device, "core", core);
+        // 属性在 init 时捕获 ModbusSource，需先设置
+        device.setModbusSource(source);
+        device.init();
+        return device;
+    }
+
+    private void setPrivateField(Object target, String fieldName, Object value) throws Exception {
+        for (Class<?> type = target.getClass(); type != null; type = type.getSuperclass()) {
+            try {
+                Field field = type.getDeclaredField(fieldName);
+                field.setAccessible(true);
+                field.set(target, value);
+                return;
+            } catch (NoSuchFieldException e) {
+                // 继续查找父类
+            }
+        }
+        throw new NoSuchFieldException(fieldName);
+    }
+}
@@ -0,0 +1,101 @@
+package com.ecat.integration.SaimosenIntegration;
+
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+/**
+ * 时序数据块编解码单元测试类
+ */
+public class GorillaCodecTest {
+
+    private static final long BASE = 1700000000000L;
+
+    @Test
+    public void testRoundTripWithIrregularTimestampsAndSpecialValues() {
+        int rows = 8;
+        long[] timestamps = {BASE, BASE + 5000, BASE + 10000, BASE + 15003, BASE + 20000,
+            BASE + 20000, BASE + 3_620_000, BASE + 3_625_000};
+        float[][] values = {
+            {12.3f, 12.3f, 12.4f, Float.NaN, Float.NaN, -0.5f, 1e6f, 12.3f},
+            {0, 0, 0, 0, 0, 0, 0, Float.MAX_VALUE}
+        };
+        byte[][] statuses = {
+            {0, 0, 1, 1, 5, 0, 0, 0x7F},
+            {3, 3, 3, 3, 3, 3, 3, 3}
+        };
+
+        byte[] encoded = GorillaCodec.encodeBlock(timestamps, values, statuses, rows);
+        long[] decodedTimestamps = new long[rows];
+        float[][] decodedValues = new float[2][rows];
+        byte[][] decodedStatuses = new byte[2][rows];
+        GorillaCodec.decodeBlock(encoded, rows, decodedTimestamps, decodedValues, decodedStatuses);
+
+        assertArrayEquals(timestamps, decodedTimestamps);
+        for (int c = 0; c < 2; c++) {
+            for (int i = 0; i < rows; i++) {
+                assertEquals(Float.floatToRawIntBits(values[c][i]), Float.floatToRawIntBits(decodedValues[c][i]));
+            }
+            assertArrayEquals(statuses[c], decodedStatuses[c]);
+        }
+    }
+
+    @Test
+    public void testSlowSignalBelowTwoBytesPerPoint() {
+        // 5秒周期、缓慢漂移并叠加噪声的浓度，量化到1位小数
+        int rows = 1024;
+        long[] timestamps = new long[rows];
+        float[][] values = new float[3][rows];
+        byte[][] statuses = new byte[3][rows];
+        Random random = new Random(7);
+        for (int i = 0; i < rows; i++) {
+            timestamps[i] = BASE + i * 5000L;
+            double level = 20 + 5 * Math.sin(i / 200.0);
+            for (int c = 0; c < 3; c++) {
+                values[c][i] = GorillaCodec.quantize((float) (level * (c + 1) + random.nextGaussian() * 0.1), 1);
+            }
+        }
+
+        byte[] encoded = GorillaCodec.encodeBlock(timestamps, values, statuses, rows, new int[] {1, 1, 1});
+        double bytesPerPoint = (double) encoded.length / (rows * 3);
+        assertTrue("bytes per point: " + bytesPerPoint, bytesPerPoint < 2.0);
+
+        float[][] decodedValues = new float[3][rows];
+        GorillaCodec.decodeBlock(encoded, rows, new long[rows], decodedValues, new byte[3][rows]);
+        for (int c = 0; c < 3; c++) {
+            assertArrayEquals(values[c], decodedValues[c], 0.0f);
+        }
+    }
+
+    @Test
+    public void testScaledColumnsRoundTripAndFallBackWhenNotQuantized() {
+        int rows = 4;
+        long[] timestamps = {BASE, BASE + 5000, BASE + 10000, BASE + 15000};
+        float[][] values = {
+            {GorillaCodec.quantize(1.23f, 2), Float.NaN, GorillaCodec.quantize(-7.5f, 2), 0},
+            {1.234567f, 2, 3, 4}
+        };
+        byte[] encoded = GorillaCodec.encodeBlock(timestamps, values, new byte[2][rows], rows, new int[] {2, 1});
+
+        float[][] decoded = new float[2][rows];
+        GorillaCodec.decodeBlock(encoded, rows, new long[rows], decoded, new byte[2][rows]);
+        for (int c = 0; c < 2; c++) {
+            for (int i = 0; i < rows; i++) {
+                assertEquals(Float.floatToRawIntBits(values[c][i]), Float.floatToRawIntBits(decoded[c][i]));
+            }
+        }
+    }
+
+    @Test
+    public void testQuantize() {
+        assertEquals(12.3f, GorillaCodec.quantize(12.34f, 1), 0.0f);
+        assertEquals(0.125f, GorillaCodec.quantize(0.12501f, 3), 0.0f);
+        assertEquals(12.34f, GorillaCodec.quantize(12.34f, -1), 0.0f);
+        assertTrue(Float.isNaN(GorillaCodec.quantize(Float.NaN, 1)));
+        // 量化后相同的读数位模式相同
+        assertEquals(Float.floatToRawIntBits(GorillaCodec.quantize(3.14f, 1)),
+                Float.floatToRawIntBits(GorillaCodec.quantize(3.1f, 1)));
+    }
+}
@@ -0,0 +1,110 @@
+package com.ecat.integration.SaimosenIntegration;
+
+import com.ecat.integration.ModbusIntegration.ModbusSource;
+import com.serotonin.modbus4j.ModbusFactory;
+import com.serotonin.modbus4j.ModbusMaster;
+import com.serotonin.modbus4j.exception.ModbusInitException;
+import com.serotonin.modbus4j.exception.ModbusTransportException;
+import com.serotonin.modbus4j.ip.IpParameters;
+import com.serotonin.modbus4j.msg.ModbusRequest;
+import com.serotonin.modbus4j.msg.ModbusResponse;
+import com.serotonin.modbus4j.msg.ReadHoldingRegistersRequest;
+import com.serotonin.modbus4j.msg.WriteRegisterRequest;
+import com.serotonin.modbus4j.msg.WriteRegistersRequest;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * 经真实的 modbus4j TCP 主站访问 {@link ModbusTcpSlaveServer} 的 {@link ModbusSource}
+ *
+ * <p>请求按真实帧格式在回环端口上收发：{@code encapsulated} 为 true 时以RTU帧透传（含CRC，无MBAP报文头），
+ * 否则使用Modbus TCP的MBAP报文头。请求在单个线程上依次发送，与一条真实线路一致。</p>
+ *
+ * @version V1.0
+ */
+public final class LoopbackModbusSource implements AutoCloseable {
+
+    private final ModbusMaster master;
+    private final int slaveId;
+    private final ExecutorService line = Executors.newSingleThreadExecutor();
+    private final ModbusSource source;
+
+    private LoopbackModbusSource(ModbusMaster master, int slaveId) {
+        this.master = master;
+        this.slaveId = slaveId;
+        this.source = mock(ModbusSource.class);
+        when(source.acquire()).thenReturn("loopback-" + slaveId);
+        when(source.isModbusOpen()).thenReturn(true);
+        when(source.readHoldingRegisters(anyInt(), anyInt())).thenAnswer(invocation ->
+                send(request(() -> new ReadHoldingRegistersRequest(slaveId,
+                        invocation.<Integer>getArgument(0), invocation.<Integer>getArgument(1)))));
+        when(source.writeRegister(anyInt(), anyInt())).thenAnswer(invocation ->
+                send(request(() -> new WriteRegisterRequest(slaveId,
+                        invocation.<Integer>getArgument(0), invocation.<Integer>getArgument(1)))));
+        when(source.writeRegisters(anyInt(), any(short[].class))).thenAnswer(invocation ->
+                send(request(() -> new WriteRegistersRequest(slaveId,
+                        invocation.<Integer>getArgument(0), invocation.<short[]>getArgument(1)))));
+    }
+
+    /**
+     * 连接回环从站
+     * @param encapsulated 是否以RTU帧透传（RTU over TCP）
+     */
+    public static LoopbackModbusSource connect(String host, int port, boolean encapsulated, int slaveId,
+            int timeoutMillis) throws ModbusInitException {
+        IpParameters parameters = new IpParameters();
+        parameters.setHost(host);
+        parameters.setPort(port);
+        parameters.setEncapsulated(encapsulated);
+        ModbusMaster master = new ModbusFactory().createTcpMaster(parameters, true);
+        master.setTimeout(timeoutMillis);
+        master.setRetries(0);
+        master.init();
+        return new LoopbackModbusSource(master, slaveId);
+    }
+
+    public ModbusSource getSource() {
+        return source;
+    }
+
+    public int getSlaveId() {
+        return slaveId;
+    }
+
+    @Override
+    public void close() {
+        line.shutdownNow();
+        master.destroy();
+    }
+
+    private interface RequestFactory {
+        ModbusRequest create() throws ModbusTransportException;
+    }
+
+    private static ModbusRequest request(RequestFactory factory) {
+        try {
+            return factory.create();
+        } catch (ModbusTransportException e) {
+            throw new CompletionException(e);
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private <R extends ModbusResponse> CompletableFuture<R> send(ModbusRequest request) {
+        return CompletableFuture.supplyAsync(() -> {
+            try {
+                return (R) master.send(request);
+            } catch (ModbusTransportException e) {
+                throw new CompletionException(e);
+            }
+        }, line);
+    }
+}
@@ -0,0 +1,426 @@
+package com.ecat.integration.SaimosenIntegration;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 进程内Modbus从站模拟器
+ *
+ * <p>按设备的寄存器空间建模：只有定义过的地址区间可读，只有登记过的地址可写，
+ * 写入时可触发副作用（例如校准状态迁移、标气选择改变系统状态）。
+ * 读写响应可配置延迟、抖动、超时和异常响应，用于在测试和基准中替代真实串口。</p>
+ *
+ * <p>本类只处理寄存器数据，不依赖Mockito；
+ * 通过 {@link SimulatedModbusSource#create(ModbusSlaveSimulator)} 接到 {@code ModbusSource} 后面，
+ * 真实的设备类无需修改即可运行。各设备的寄存器空间见 {@link SaimosenSimulatorProfiles}。</p>
+ *
+ * @version V1.0
+ */
+public class ModbusSlaveSimulator implements AutoCloseable {
+
+    /** 非法功能码 */
+    public static final int EXCEPTION_ILLEGAL_FUNCTION = 1;
+    /** 非法数据地址 */
+    public static final int EXCEPTION_ILLEGAL_DATA_ADDRESS = 2;
+    /** 从站设备故障 */
+    public static final int EXCEPTION_SLAVE_DEVICE_FAILURE = 4;
+    /** 从站设备忙 */
+    public static final int EXCEPTION_SLAVE_DEVICE_BUSY = 6;
+
+    private static final int REGISTER_SPACE = 0x10000;
+
+    /**
+     * 写寄存器副作用
+     */
+    public interface WriteHook {
+        /**
+         * 寄存器值已写入后调用，可继续修改其他寄存器
+         * @param simulator 模拟器
+         * @param address 写入地址
+         * @param value 写入值
+         */
+        void onWrite(ModbusSlaveSimulator simulator, int address, int value);
+    }
+
+    private final String name;
+    private final short[] registers = new short[REGISTER_SPACE];
+    private final boolean[] readable = new boolean[REGISTER_SPACE];
+    private final Map<Integer, WriteHook> writable = new HashMap<>();
+    private final List<int[]> writeHistory = new ArrayList<>();
+
+    private volatile boolean writeMultipleSupported = true;
+    private volatile long latencyMillis;
+    private volatile long jitterMillis;
+    private volatile double timeoutProbability;
+    private volatile long timeoutMillis = 2000;
+    private volatile double exceptionProbability;
+    private volatile int exceptionCode = EXCEPTION_SLAVE_DEVICE_BUSY;
+    private final AtomicInteger forcedTimeouts = new AtomicInteger();
+    private final AtomicInteger forcedExceptions = new AtomicInteger();
+    private Random random = new Random(0);
+
+    private final AtomicLong readCount = new AtomicLong();
+    private final AtomicLong writeCount = new AtomicLong();
+    private ScheduledExecutorService scheduler;
+
+    public ModbusSlaveSimulator(String name) {
+        this.name = name;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    // ========== 寄存器空间 ==========
+
+    /**
+     * 定义可读地址区间
+     */
+    public synchronized ModbusSlaveSimulator defineRange(int startAddress, int count) {
+        checkRange(startAddress, count);
+        for (int i = 0; i < count; i++) {
+            readable[startAddress + i] = true;
+        }
+        return this;
+    }
+
+    /**
+     * 登记可写地址（无副作用）
+     */
+    public ModbusSlaveSimulator defineWritable(int address) {
+        return defineWritable(address, null);
+    }
+
+    /**
+     * 登记可写地址及其副作用
+     */
+    public synchronized ModbusSlaveSimulator defineWritable(int address, WriteHook hook) {
+        checkRange(address, 1);
+        writable.put(address, hook);
+        return this;
+    }
+
+    public synchronized boolean isReadable(int startAddress, int count) {
+        if (count <= 0 || startAddress < 0 || startAddress + count > REGISTER_SPACE) {
+            return false;
+        }
+        for (int i = 0; i < count; i++) {
+            if (!readable[startAddress + i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    public synchronized boolean isWritable(int address) {
+        return writable.containsKey(address);
+    }
+
+    public synchronized short getRegister(int address) {
+        return registers[address];
+    }
+
+    public synchronized ModbusSlaveSimulator setRegister(int address, int value) {
+        registers[address] = (short) value;
+        return this;
+    }
+
+    /**
+     * 按分析仪格式（小端字节交换，低地址存高字）写入float，占两个寄存器
+     */
+    public synchronized ModbusSlaveSimulator setFloatLittleEndianByteSwap(int address, float value) {
+        int bits = Float.floatToIntBits(value);
+        registers[address] = Short.reverseBytes((short) (bits >>> 16));
+        registers[address + 1] = Short.reverseBytes((short) bits);
+        return this;
+    }
+
+    /**
+     * 按校准仪/质控仪格式（大端，低地址存高字）写入float，占两个寄存器
+     */
+    public synchronized ModbusSlaveSimulator setFloatBigEndian(int address, float value) {
+        int bits = Float.floatToIntBits(value);
+        registers[address] = (short) (bits >>> 16);
+        registers[address + 1] = (short) bits;
+        return this;
+    }
+
+    /**
+     * 已执行的写操作，元素为 {地址, 值}
+     */
+    public synchronized List<int[]> getWriteHistory() {
+        List<int[]> copy = new ArrayList<>(writeHistory.size());
+        for (int[] entry : writeHistory) {
+            copy.add(entry.clone());
+        }
+        return Collections.unmodifiableList(copy);
+    }
+
+    public long getReadCount() {
+        return readCount.get();
+    }
+
+    public long getWriteCount() {
+        return writeCount.get();
+    }
+
+    /**
+     * 设置是否支持写多个寄存器（功能码0x10），不支持时返回非法功能码异常
+     */
+    public ModbusSlaveSimulator setWriteMultipleSupported(boolean supported) {
+        this.writeMultipleSupported = supported;
+        return this;
+    }
+
+    // ========== 故障与时序 ==========
+
+    /**
+     * 设置响应延迟
+     * @param latencyMillis 基础延迟（毫秒）
+     * @param jitterMillis 在基础延迟上增加的 [0, jitter] 随机抖动（毫秒）
+     */
+    public ModbusSlaveSimulator setLatency(long latencyMillis, long jitterMillis) {
+        this.latencyMillis = Math.max(0, latencyMillis);
+        this.jitterMillis = Math.max(0, jitterMillis);
+        return this;
+    }
+
+    /**
+     * 设置随机超时
+     * @param probability 每个请求超时的概率
+     * @param timeoutMillis 超时请求在多长时间后以 {@link TimeoutException} 失败
+     */
+    public ModbusSlaveSimulator setTimeouts(double probability, long timeoutMillis) {
+        this.timeoutProbability = probability;
+        this.timeoutMillis = Math.max(0, timeoutMillis);
+        return this;
+    }
+
+    /**
+     * 设置随机异常响应
+     * @param probability 每个请求返回异常响应的概率
+     * @param exceptionCode Modbus异常码
+     */
+    public ModbusSlaveSimulator setExceptionResponses(double probability, int exceptionCode) {
+        this.exceptionProbability = probability;
+        this.exceptionCode = exceptionCode;
+        return this;
+    }
+
+    /**
+     * 接下来的 n 个请求超时
+     */
+    public ModbusSlaveSimulator failNextWithTimeout(int n) {
+        forcedTimeouts.addAndGet(n);
+        return this;
+    }
+
+    /**
+     * 接下来的 n 个请求返回异常响应
+     */
+    public ModbusSlaveSimulator failNextWithException(int n, int exceptionCode) {
+        this.exceptionCode = exceptionCode;
+        forcedExceptions.addAndGet(n);
+        return this;
+    }
+
+    /**
+     * 设置随机种子，使抖动和随机故障可复现
+     */
+    public synchronized ModbusSlaveSimulator setSeed(long seed) {
+        this.random = new Random(seed);
+        return this;
+    }
+
+    // ========== 请求处理 ==========
+
+    /**
+     * 读保持寄存器（功能码0x03）
+     */
+    public CompletableFuture<Reply> read(int startAddress, int count) {
+        readCount.incrementAndGet();
+        return respond(() -> {
+            synchronized (this) {
+                if (!isReadable(startAddress, count)) {
+                    return Reply.exception(EXCEPTION_ILLEGAL_DATA_ADDRESS);
+                }
+                short[] data = new short[count];
+                System.arraycopy(registers, startAddress, data, 0, count);
+                return Reply.data(data);
+            }
+        });
+    }
+
+    /**
+     * 写单个寄存器（功能码0x06），写入成功后执行该地址的副作用
+     */
+    public CompletableFuture<Reply> write(int address, int value) {
+        writeCount.incrementAndGet();
+        return respond(() -> {
+            synchronized (this) {
+                if (!isWritable(address)) {
+                    return Reply.exception(EXCEPTION_ILLEGAL_DATA_ADDRESS);
+                }
+                registers[address] = (short) value;
+                writeHistory.add(new int[] {address, value & 0xFFFF});
+                WriteHook hook = writable.get(address);
+                if (hook != null) {
+                    hook.onWrite(this, address, value & 0xFFFF);
+                }
+                return Reply.data(new short[] {(short) value});
+            }
+        });
+    }
+
+    /**
+     * 写多个寄存器（功能码0x10），所有地址可写时按地址顺序写入并执行各地址的副作用
+     */
+    public CompletableFuture<Reply> writeMultiple(int startAddress, short[] values) {
+        writeCount.incrementAndGet();
+        return respond(() -> {
+            synchronized (this) {
+                if (!writeMultipleSupported) {
+                    return Reply.exception(EXCEPTION_ILLEGAL_FUNCTION);
+                }
+                for (int i = 0; i < values.length; i++) {
+                    if (!isWritable(startAddress + i)) {
+                        return Reply.exception(EXCEPTION_ILLEGAL_DATA_ADDRESS);
+                    }
+                }
+                for (int i = 0; i < values.length; i++) {
+                    int address = startAddress + i;
+                    int value = values[i] & 0xFFFF;
+                    registers[address] = values[i];
+                    writeHistory.add(new int[] {address, value});
+                    WriteHook hook = writable.get(address);
+                    if (hook != null) {
+                        hook.onWrite(this, address, value);
+                    }
+                }
+                return Reply.data(new short[] {(short) startAddress, (short) values.length});
+            }
+        });
+    }
+
+    private CompletableFuture<Reply> respond(java.util.function.Supplier<Reply> handler) {
+        boolean timeout;
+        boolean exception;
+        long delay;
+        synchronized (this) {
+            timeout = consume(forcedTimeouts) || (timeoutProbability > 0 && random.nextDouble() < timeoutProbability);
+            exception = !timeout
+                    && (consume(forcedExceptions) || (exceptionProbability > 0 && random.nextDouble() < exceptionProbability));
+            delay = timeout ? timeoutMillis
+                    : latencyMillis + (jitterMillis > 0 ? (long) (random.nextDouble() * (jitterMillis + 1)) : 0);
+        }
+
+        CompletableFuture<Reply> future = new CompletableFuture<>();
+        Runnable complete = () -> {
+            if (timeout) {
+                future.completeExceptionally(new TimeoutException(name + " - no response within " + timeoutMillis + "ms"));
+            } else if (exception) {
+                future.complete(Reply.exception(exceptionCode));
+            } else {
+                try {
+                    future.complete(handler.get());
+                } catch (RuntimeException e) {
+                    future.completeExceptionally(e);
+                }
+            }
+        };
+        if (delay <= 0) {
+            complete.run();
+        } else {
+            scheduler().schedule(complete, delay, TimeUnit.MILLISECONDS);
+        }
+        return future;
+    }
+
+    private static boolean consume(AtomicInteger counter) {
+        return counter.getAndUpdate(n -> n > 0 ? n - 1 : 0) > 0;
+    }
+
+    private synchronized ScheduledExecutorService scheduler() {
+        if (scheduler == null) {
+            scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+                Thread thread = new Thread(r, "modbus-sim-" + name);
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+        return scheduler;
+    }
+
+    @Override
+    public synchronized void close() {
+        if (scheduler != null) {
+            scheduler.shutdownNow();
+            scheduler = null;
+        }
+    }
+
+    private static void checkRange(int startAddress, int count) {
+        if (startAddress < 0 || count <= 0 || startAddress + count > REGISTER_SPACE) {
+            throw new IllegalArgumentException("invalid register range " + startAddress + "+" + count);
+        }
+    }
+
+    /**
+     * 单次请求的应答：寄存器数据或异常码
+     */
+    public static class Reply {
+        private final short[] data;
+        private final int exceptionCode;
+
+        private Reply(short[] data, int exceptionCode) {
+            this.data = data;
+            this.exceptionCode = exceptionCode;
+        }
+
+        static Reply data(short[] data) {
+            return new Reply(data, 0);
+        }
+
+        static Reply exception(int exceptionCode) {
+            return new Reply(null, exceptionCode);
+        }
+
+        public boolean isException() {
+            return exceptionCode != 0;
+        }
+
+        public int getExceptionCode() {
+            return exceptionCode;
+        }
+
+        public short[] getData() {
+            return data;
+        }
+
+        public String getExceptionMessage() {
+            switch (exceptionCode) {
+                case EXCEPTION_ILLEGAL_FUNCTION:
+                    return "Illegal function";
+                case EXCEPTION_ILLEGAL_DATA_ADDRESS:
+                    return "Illegal data address";
+                case EXCEPTION_SLAVE_DEVICE_FAILURE:
+                    return "Slave device failure";
+                case EXCEPTION_SLAVE_DEVICE_BUSY:
+                    return "Slave device busy";
+                default:
+                    return exceptionCode == 0 ? null : "Exception code " + exceptionCode;
+            }
+        }
+    }
+}
@@ -0,0 +1,165 @@
+package com.ecat.integration.SaimosenIntegration;
+
+import org.junit.After;
+import org.junit.Test;
+
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import static org.junit.Assert.*;
+
+/**
+ * Modbus从站模拟器单元测试类
+ */
+public class ModbusSlaveSimulatorTest {
+
+    private ModbusSlaveSimulator simulator;
+
+    @After
+    public void tearDown() {
+        if (simulator != null) {
+            simulator.close();
+        }
+    }
+
+    @Test
+    public void testAllDeviceProfilesReadableAsPolled() throws Exception {
+        assertReadable(SaimosenSimulatorProfiles.no2(), 0, 54, 58, 28, 0x3EB, 1, 0x3EE, 1);
+        assertReadable(SaimosenSimulatorProfiles.so2(), 0, 32, 38, 26, 0x3EB, 1, 0x3EE, 1);
+        assertReadable(SaimosenSimulatorProfiles.o3(), 0, 40, 40, 18, 0x3EB, 1, 0x3EE, 1);
+        assertReadable(SaimosenSimulatorProfiles.co(), 0, 40, 60, 13, 0x3EB, 1, 0x3EE, 1);
+        assertReadable(SaimosenSimulatorProfiles.calibrator(), 0x00, 38, 0x46, 5);
+        assertReadable(SaimosenSimulatorProfiles.qc(), 0x00, 110, 0x6E, 123);
+        assertReadable(SaimosenSimulatorProfiles.sampleTube(), 0, 11);
+        assertReadable(SaimosenSimulatorProfiles.smartPowerStabilizer(), 0, 41);
+        assertTrue(SaimosenSimulatorProfiles.particulateZeroChecker().isWritable(0x04));
+    }
+
+    @Test
+    public void testReadOutsideRangeReturnsIllegalAddress() throws Exception {
+        simulator = SaimosenSimulatorProfiles.no2();
+        ModbusSlaveSimulator.Reply reply = simulator.read(54, 4).get(1, TimeUnit.SECONDS);
+        assertTrue(reply.isException());
+        assertEquals(ModbusSlaveSimulator.EXCEPTION_ILLEGAL_DATA_ADDRESS, reply.getExceptionCode());
+
+        // 只读地址不可写
+        assertTrue(simulator.write(0x3EE, 1).get(1, TimeUnit.SECONDS).isException());
+    }
+
+    @Test
+    public void testFloatEncodings() throws Exception {
+        simulator = new ModbusSlaveSimulator("float").defineRange(0, 4);
+        simulator.setFloatLittleEndianByteSwap(0, 0.374f).setFloatBigEndian(2, 1.5f);
+        short[] data = simulator.read(0, 4).get(1, TimeUnit.SECONDS).getData();
+
+        // 分析仪格式：高字在前且每个字内字节交换
+        int bits = (Short.reverseBytes(data[0]) & 0xFFFF) << 16 | (Short.reverseBytes(data[1]) & 0xFFFF);
+        assertEquals(0.374f, Float.intBitsToFloat(bits), 0.0f);
+        assertEquals((short) 0x3FC0, data[2]);
+        assertEquals((short) 0x0000, data[3]);
+    }
+
+    @Test
+    public void testAnalyzerCalibrationStateTransitions() throws Exception {
+        simulator = SaimosenSimulatorProfiles.no2();
+        assertEquals(SaimosenSimulatorProfiles.STATUS_MEASURE, readStatus());
+
+        simulator.write(SaimosenSimulatorProfiles.ZERO_CALIBRATION_START, 0).get(1, TimeUnit.SECONDS);
+        assertEquals(SaimosenSimulatorProfiles.STATUS_ZERO_CALIBRATION, readStatus());
+        simulator.write(SaimosenSimulatorProfiles.ZERO_CALIBRATION_CANCEL, 0).get(1, TimeUnit.SECONDS);
+        assertEquals(SaimosenSimulatorProfiles.STATUS_MEASURE, readStatus());
+
+        simulator.write(SaimosenSimulatorProfiles.SPAN_CALIBRATION_START, 400).get(1, TimeUnit.SECONDS);
+        assertEquals(SaimosenSimulatorProfiles.STATUS_SPAN_CALIBRATION, readStatus());
+        assertEquals(400, simulator.read(SaimosenSimulatorProfiles.SPAN_CALIBRATION_START, 1)
+                .get(1, TimeUnit.SECONDS).getData()[0]);
+        simulator.write(SaimosenSimulatorProfiles.SPAN_CALIBRATION_CONFIRM, 1).get(1, TimeUnit.SECONDS);
+        assertEquals(SaimosenSimulatorProfiles.STATUS_MEASURE, readStatus());
+
+        assertEquals(4, simulator.getWriteHistory().size());
+        assertArrayEquals(new int[] {0x3EB, 400}, simulator.getWriteHistory().get(2));
+    }
+
+    @Test
+    public void testCalibratorGasSelectChangesSystemState() throws Exception {
+        simulator = SaimosenSimulatorProfiles.calibrator();
+        assertEquals(SaimosenSimulatorProfiles.CALIBRATOR_STATE_STANDBY, systemState());
+
+        simulator.write(SaimosenSimulatorProfiles.CALIBRATOR_GAS_SELECT, 0x01).get(1, TimeUnit.SECONDS);
+        assertEquals(SaimosenSimulatorProfiles.CALIBRATOR_STATE_GAS_PREPARING, systemState());
+        simulator.write(SaimosenSimulatorProfiles.CALIBRATOR_GAS_SELECT, 0x66).get(1, TimeUnit.SECONDS);
+        assertEquals(SaimosenSimulatorProfiles.CALIBRATOR_STATE_O3_PREPARING, systemState());
+        simulator.write(SaimosenSimulatorProfiles.CALIBRATOR_GAS_SELECT, 0x00).get(1, TimeUnit.SECONDS);
+        assertEquals(SaimosenSimulatorProfiles.CALIBRATOR_STATE_STANDBY, systemState());
+    }
+
+    @Test
+    public void testLatencyAndJitter() throws Exception {
+        simulator = SaimosenSimulatorProfiles.sampleTube().setLatency(20, 10).setSeed(42);
+        long begin = System.nanoTime();
+        simulator.read(0, 11).get(1, TimeUnit.SECONDS);
+        long elapsedMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - begin);
+        assertTrue("elapsed " + elapsedMillis, elapsedMillis >= 20);
+    }
+
+    @Test
+    public void testInjectedTimeoutAndException() throws Exception {
+        simulator = SaimosenSimulatorProfiles.smartPowerStabilizer().setTimeouts(0, 10);
+        simulator.failNextWithTimeout(1);
+        try {
+            simulator.read(0, 41).get(1, TimeUnit.SECONDS);
+            fail("expected timeout");
+        } catch (ExecutionException e) {
+            assertTrue(e.getCause() instanceof TimeoutException);
+        }
+
+        simulator.failNextWithException(1, ModbusSlaveSimulator.EXCEPTION_SLAVE_DEVICE_BUSY);
+        ModbusSlaveSimulator.Reply reply = simulator.read(0, 41).get(1, TimeUnit.SECONDS);
+        assertTrue(reply.isException());
+        assertEquals(ModbusSlaveSimulator.EXCEPTION_SLAVE_DEVICE_BUSY, reply.getExceptionCode());
+
+        // 注入的故障用完后恢复正常
+        assertFalse(simulator.read(0, 41).get(1, TimeUnit.SECONDS).isException());
+        assertEquals(3, simulator.getReadCount());
+    }
+
+    @Test
+    public void testRandomFaultsAreReproducibleWithSeed() throws Exception {
+        assertEquals(countExceptions(7), countExceptions(7));
+    }
+
+    private int countExceptions(long seed) throws Exception {
+        try (ModbusSlaveSimulator sim = SaimosenSimulatorProfiles.qc()) {
+            sim.setSeed(seed).setExceptionResponses(0.3, ModbusSlaveSimulator.EXCEPTION_SLAVE_DEVICE_FAILURE);
+            int exceptions = 0;
+            for (int i = 0; i < 100; i++) {
+                if (sim.read(0x6E, 123).get(1, TimeUnit.SECONDS).isException()) {
+                    exceptions++;
+                }
+            }
+            assertTrue(exceptions > 0 && exceptions < 100);
+            return exceptions;
+        }
+    }
+
+    private int readStatus() throws Exception {
+        return simulator.read(SaimosenSimulatorProfiles.CALIBRATION_STATUS, 1).get(1, TimeUnit.SECONDS).getData()[0];
+    }
+
+    private int systemState() throws Exception {
+        return simulator.read(0x46, 5).get(1, TimeUnit.SECONDS).getData()[2];
+    }
+
+    private static void assertReadable(ModbusSlaveSimulator sim, int... ranges) throws Exception {
+        try {
+            for (int i = 0; i < ranges.length; i += 2) {
+                ModbusSlaveSimulator.Reply reply = sim.read(ranges[i], ranges[i + 1]).get(1, TimeUnit.SECONDS);
+                assertFalse(sim.getName() + " @" + ranges[i], reply.isException());
+                assertEquals(ranges[i + 1], reply.getData().length);
+            }
+        } finally {
+            sim.close();
+        }
+    }
+}
@@ -0,0 +1,183 @@
+package com.ecat.integration.SaimosenIntegration;
+
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * 本机回环的Modbus TCP从站
+ *
+ * <p>把 {@link ModbusSlaveSimulator} 暴露在 127.0.0.1 的随机端口上，用于测试网络方式的通信：
+ * MBAP模式对应 transport: tcp，RTU模式对应 transport: rtu_over_tcp（TCP上直接承载带CRC的RTU帧）。
+ * 支持读保持寄存器（0x03）和写单个寄存器（0x06），其他功能码返回非法功能异常；
+ * 模拟器超时的请求不回任何数据。</p>
+ *
+ * @version V1.0
+ */
+public class ModbusTcpSlaveServer implements AutoCloseable {
+
+    private static final int FC_READ_HOLDING_REGISTERS = 0x03;
+    private static final int FC_WRITE_SINGLE_REGISTER = 0x06;
+
+    private final ModbusSlaveSimulator simulator;
+    private final boolean rtuFraming;
+    private final ServerSocket serverSocket;
+    private final List<Socket> connections = new CopyOnWriteArrayList<>();
+    private volatile boolean running = true;
+
+    /**
+     * 创建并开始监听
+     * @param simulator 寄存器空间
+     * @param rtuFraming true 为RTU over TCP，false 为Modbus TCP（MBAP）
+     */
+    public ModbusTcpSlaveServer(ModbusSlaveSimulator simulator, boolean rtuFraming) throws IOException {
+        this.simulator = simulator;
+        this.rtuFraming = rtuFraming;
+        this.serverSocket = new ServerSocket(0, 50, InetAddress.getLoopbackAddress());
+        Thread acceptor = new Thread(this::acceptLoop, "modbus-tcp-slave-" + simulator.getName());
+        acceptor.setDaemon(true);
+        acceptor.start();
+    }
+
+    public String getHost() {
+        return serverSocket.getInetAddress().getHostAddress();
+    }
+
+    public int getPort() {
+        return serverSocket.getLocalPort();
+    }
+
+    public int getConnectionCount() {
+        return connections.size();
+    }
+
+    private void acceptLoop() {
+        while (running) {
+            try {
+                Socket socket = serverSocket.accept();
+                connections.add(socket);
+                Thread handler = new Thread(() -> serve(socket), "modbus-tcp-conn-" + socket.getPort());
+                handler.setDaemon(true);
+                handler.start();
+            } catch (IOException e) {
+                // close() 关闭了监听socket
+                return;
+            }
+        }
+    }
+
+    private void serve(Socket socket) {
+        try (Socket s = socket) {
+            DataInputStream in = new DataInputStream(s.getInputStream());
+            OutputStream out = s.getOutputStream();
+            while (running) {
+                byte[] response = rtuFraming ? handleRtu(in) : handleMbap(in);
+                if (response != null) {
+                    out.write(response);
+                    out.flush();
+                }
+            }
+        } catch (IOException e) {
+            // 客户端断开或连接异常，丢弃该连接
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            connections.remove(socket);
+        }
+    }
+
+    private byte[] handleMbap(DataInputStream in) throws IOException, InterruptedException {
+        int transactionId = in.readUnsignedShort();
+        in.readUnsignedShort(); // 协议标识
+        int length = in.readUnsignedShort();
+        int unitId = in.readUnsignedByte();
+        byte[] pdu = new byte[length - 1];
+        in.readFully(pdu);
+
+        byte[] responsePdu = process(pdu);
+        if (responsePdu == null) {
+            return null;
+        }
+        byte[] frame = new byte[7 + responsePdu.length];
+        frame[0] = (byte) (transactionId >> 8);
+        frame[1] = (byte) transactionId;
+        frame[4] = (byte) ((responsePdu.length + 1) >> 8);
+        frame[5] = (byte) (responsePdu.length + 1);
+        frame[6] = (byte) unitId;
+        System.arraycopy(responsePdu, 0, frame, 7, responsePdu.length);
+        return frame;
+    }
+
+    private byte[] handleRtu(DataInputStream in) throws IOException, InterruptedException {
+        // 0x03 / 0x06 请求帧长度固定：地址 + 功能码 + 4字节数据 + CRC
+        byte[] frame = new byte[8];
+        in.readFully(frame);
+        if (FrameTraceBuffer.crc16(frame, frame.length) != 0) {
+            return null; // CRC错误的帧从站不应答
+        }
+        byte[] pdu = new byte[5];
+        System.arraycopy(frame, 1, pdu, 0, pdu.length);
+        byte[] responsePdu = process(pdu);
+        if (responsePdu == null) {
+            return null;
+        }
+        byte[] response = new byte[responsePdu.length + 1];
+        response[0] = frame[0];
+        System.arraycopy(responsePdu, 0, response, 1, responsePdu.length);
+        return FrameTraceBuffer.withCrc(response);
+    }
+
+    /**
+     * 处理PDU（功能码 + 数据），返回应答PDU；模拟器超时时返回null
+     */
+    private byte[] process(byte[] pdu) throws InterruptedException {
+        int functionCode = pdu[0] & 0xFF;
+        int address = ((pdu[1] & 0xFF) << 8) | (pdu[2] & 0xFF);
+        int value = ((pdu[3] & 0xFF) << 8) | (pdu[4] & 0xFF);
+        ModbusSlaveSimulator.Reply reply;
+        try {
+            if (functionCode == FC_READ_HOLDING_REGISTERS) {
+                reply = simulator.read(address, value).get(30, TimeUnit.SECONDS);
+            } else if (functionCode == FC_WRITE_SINGLE_REGISTER) {
+                reply = simulator.write(address, value).get(30, TimeUnit.SECONDS);
+            } else {
+                return new byte[] {(byte) (functionCode | 0x80), (byte) ModbusSlaveSimulator.EXCEPTION_ILLEGAL_FUNCTION};
+            }
+        } catch (ExecutionException | TimeoutException e) {
+            return null;
+        }
+
+        if (reply.isException()) {
+            return new byte[] {(byte) (functionCode | 0x80), (byte) reply.getExceptionCode()};
+        }
+        if (functionCode == FC_WRITE_SINGLE_REGISTER) {
+            return pdu.clone();
+        }
+        short[] data = reply.getData();
+        byte[] response = new byte[2 + data.length * 2];
+        response[0] = (byte) functionCode;
+        response[1] = (byte) (data.length * 2);
+        for (int i = 0; i < data.length; i++) {
+            response[2 + i * 2] = (byte) (data[i] >> 8);
+            response[3 + i * 2] = (byte) data[i];
+        }
+        return response;
+    }
+
+    @Override
+    public void close() throws IOException {
+        running = false;
+        serverSocket.close();
+        for (Socket socket : connections) {
+            socket.close();
+        }
+    }
+}
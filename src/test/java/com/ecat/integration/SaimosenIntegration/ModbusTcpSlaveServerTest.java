@@ -0,0 +1,97 @@
+package com.ecat.integration.SaimosenIntegration;
+
+import org.junit.After;
+import org.junit.Test;
+
+import java.io.DataInputStream;
+import java.net.Socket;
+import java.net.SocketTimeoutException;
+
+import static org.junit.Assert.*;
+
+/**
+ * 回环Modbus TCP从站单元测试类
+ */
+public class ModbusTcpSlaveServerTest {
+
+    private ModbusSlaveSimulator simulator;
+    private ModbusTcpSlaveServer server;
+
+    @After
+    public void tearDown() throws Exception {
+        if (server != null) {
+            server.close();
+        }
+        if (simulator != null) {
+            simulator.close();
+        }
+    }
+
+    @Test
+    public void testMbapReadHoldingRegisters() throws Exception {
+        simulator = SaimosenSimulatorProfiles.sampleTube();
+        server = new ModbusTcpSlaveServer(simulator, false);
+        try (Socket socket = new Socket(server.getHost(), server.getPort())) {
+            // MBAP: 事务号0x0102，协议0，长度6，单元1；PDU: 03 0000 000B
+            socket.getOutputStream().write(new byte[] {0x01, 0x02, 0, 0, 0, 6, 1, 0x03, 0, 0, 0, 11});
+            DataInputStream in = new DataInputStream(socket.getInputStream());
+            byte[] response = new byte[9 + 22];
+            in.readFully(response);
+
+            assertEquals(0x01, response[0]);
+            assertEquals(0x02, response[1]);
+            assertEquals(3 + 22, response[5]);
+            assertEquals(0x03, response[7]);
+            assertEquals(22, response[8]);
+            // 样气湿度初值450
+            assertEquals(450, ((response[9] & 0xFF) << 8) | (response[10] & 0xFF));
+        }
+    }
+
+    @Test
+    public void testRtuOverTcpWriteDrivesCalibrationStatus() throws Exception {
+        simulator = SaimosenSimulatorProfiles.no2();
+        server = new ModbusTcpSlaveServer(simulator, true);
+        try (Socket socket = new Socket(server.getHost(), server.getPort())) {
+            DataInputStream in = new DataInputStream(socket.getInputStream());
+
+            byte[] write = FrameTraceBuffer.writeSingleFrame(1, 0x3E8, 0);
+            socket.getOutputStream().write(write);
+            byte[] echo = new byte[8];
+            in.readFully(echo);
+            assertArrayEquals(write, echo);
+
+            socket.getOutputStream().write(FrameTraceBuffer.readRequestFrame(1, 0x3EE, 1));
+            byte[] response = new byte[7];
+            in.readFully(response);
+            assertEquals(0, FrameTraceBuffer.crc16(response, response.length));
+            assertEquals(SaimosenSimulatorProfiles.STATUS_ZERO_CALIBRATION, response[4]);
+        }
+    }
+
+    @Test
+    public void testExceptionAndTimeout() throws Exception {
+        simulator = SaimosenSimulatorProfiles.smartPowerStabilizer().setTimeouts(0, 10);
+        server = new ModbusTcpSlaveServer(simulator, true);
+        try (Socket socket = new Socket(server.getHost(), server.getPort())) {
+            DataInputStream in = new DataInputStream(socket.getInputStream());
+
+            // 越界读取返回异常码2
+            socket.getOutputStream().write(FrameTraceBuffer.readRequestFrame(1, 41, 1));
+            byte[] response = new byte[5];
+            in.readFully(response);
+            assertArrayEquals(FrameTraceBuffer.exceptionFrame(1, 0x03, 2), response);
+
+            // 超时的请求没有应答
+            simulator.failNextWithTimeout(1);
+            socket.setSoTimeout(300);
+            socket.getOutputStream().write(FrameTraceBuffer.readRequestFrame(1, 0, 41));
+            try {
+                in.readByte();
+                fail("expected no response");
+            } catch (SocketTimeoutException expected) {
+                // 从站未应答
+            }
+        }
+    }
+}
@@ -0,0 +1,268 @@
+package com.ecat.integration.SaimosenIntegration;
+
+import com.ecat.core.EcatCore;
+import com.ecat.core.Bus.BusRegistry;
+import com.ecat.core.Integration.IntegrationRegistry;
+import com.ecat.core.State.NumericAttribute;
+import com.ecat.core.Task.TaskManager;
+import com.ecat.integration.ModbusIntegration.ModbusIntegration;
+import com.ecat.integration.ModbusIntegration.ModbusSerialInfo;
+import com.ecat.integration.ModbusIntegration.ModbusSource;
+import com.ecat.integration.ModbusIntegration.ModbusTcpInfo;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mock;
+import org.mockito.MockedConstruction;
+import org.mockito.MockitoAnnotations;
+
+import java.lang.reflect.Field;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.isA;
+import static org.mockito.Mockito.*;
+
+/**
+ * 通信方式（串口 / Modbus TCP / RTU over TCP）配置单元测试类
+ */
+public class ModbusTransportTest {
+
+    private AutoCloseable mockitoCloseable;
+    private ModbusSlaveSimulator simulator;
+    private ModbusTcpSlaveServer server;
+
+    @Mock private ScheduledExecutorService mockExecutor;
+    @Mock private ModbusSource mockModbusSource;
+    @Mock private ModbusIntegration mockModbusIntegration;
+    @Mock private EcatCore mockEcatCore;
+
+    @Before
+    public void setUp() throws Exception {
+        mockitoCloseable = MockitoAnnotations.openMocks(this);
+
+        when(mockModbusIntegration.register(any(), any())).thenReturn(mockModbusSource);
+        TaskManager mockTaskManager = mock(TaskManager.class);
+        when(mockEcatCore.getTaskManager()).thenReturn(mockTaskManager);
+        when(mockTaskManager.getExecutorService()).thenReturn(mockExecutor);
+        when(mockEcatCore.getBusRegistry()).thenReturn(mock(BusRegistry.class));
+        IntegrationRegistry mockIntegrationRegistry = mock(IntegrationRegistry.class);
+        when(mockEcatCore.getIntegrationRegistry()).thenReturn(mockIntegrationRegistry);
+        when(mockIntegrationRegistry.getIntegration("integration-modbus")).thenReturn(mockModbusIntegration);
+
+        simulator = SaimosenSimulatorProfiles.no2();
+        server = new ModbusTcpSlaveServer(simulator, false);
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        server.close();
+        simulator.close();
+        BusStatistics.clearAll();
+        mockitoCloseable.close();
+    }
+
+    @Test
+    public void testFromConfig() {
+        assertEquals(ModbusTransport.SERIAL, ModbusTransport.fromConfig(null));
+        assertEquals(ModbusTransport.TCP, ModbusTransport.fromConfig("tcp"));
+        assertEquals(ModbusTransport.RTU_OVER_TCP, ModbusTransport.fromConfig("RTU_OVER_TCP"));
+        try {
+            ModbusTransport.fromConfig("udp");
+            fail("expected IllegalArgumentException");
+        } catch (IllegalArgumentException expected) {
+            // 不支持的通信方式
+        }
+    }
+
+    @Test
+    public void testTcpDeviceUsesTcpInfoAndOwnLine() throws Exception {
+        Map<String, Object> commSettings = tcpSettings("tcp");
+        NO2Device device = loadDevice("NO2TcpDevice", commSettings);
+
+        assertEquals(ModbusTransport.TCP, device.getTransport());
+        verify(mockModbusIntegration).register(isA(ModbusTcpInfo.class), anyString());
+        assertEquals("tcp://" + server.getHost() + ":" + server.getPort(), device.getBusStatistics().getPort());
+        assertEquals("bus_tcp_127_0_0_1_" + server.getPort(),
+                SerialBusDevice.deviceIdForPort(device.getBusStatistics().getPort()));
+
+        // 同一 ip:port 上的设备共享线路统计，不同线路互不影响
+        NO2Device sameLine = loadDevice("NO2TcpDevice2", tcpSettings("rtu_over_tcp"));
+        assertSame(device.getBusStatistics(), sameLine.getBusStatistics());
+        Map<String, Object> otherLine = tcpSettings("tcp");
+        otherLine.put("tcpPort", server.getPort() + 1);
+        assertNotSame(device.getBusStatistics(), loadDevice("NO2TcpDevice3", otherLine).getBusStatistics());
+    }
+
+    @Test
+    public void testTcpPortDefaultsTo502() throws Exception {
+        Map<String, Object> commSettings = tcpSettings("tcp");
+        commSettings.remove("tcpPort");
+        NO2Device device = loadDevice("NO2DefaultPort", commSettings);
+        assertEquals("tcp://" + server.getHost() + ":502", device.getBusStatistics().getPort());
+    }
+
+    @Test
+    public void testSerialRemainsDefault() throws Exception {
+        Map<String, Object> commSettings = new HashMap<>();
+        commSettings.put("port", "COM1");
+        commSettings.put("baudRate", 9600);
+        commSettings.put("numDataBit", 8);
+        commSettings.put("numStopBit", 1);
+        commSettings.put("parity", "N");
+        commSettings.put("slaveId", 1);
+        NO2Device device = loadDevice("NO2SerialDevice", commSettings);
+
+        assertEquals(ModbusTransport.SERIAL, device.getTransport());
+        verify(mockModbusIntegration).register(isA(ModbusSerialInfo.class), anyString());
+        assertEquals("COM1", device.getBusStatistics().getPort());
+    }
+
+    @Test
+    public void testReadTransactionEstimate() {
+        // 9600 8N1：每字符10位；读54个寄存器 = 请求8 + 响应5+108 + 两次3.5字符静默 = 128字符
+        assertEquals(133_334 + 5_000, ModbusTransport.SERIAL.readTransactionMicros(54, 9600, 10));
+        // 校验位多一位
+        assertEquals(146_667 + 5_000, ModbusTransport.SERIAL.readTransactionMicros(54, 9600, 11));
+        // 网络方式按固定往返时间估算
+        assertEquals(25_000, ModbusTransport.TCP.readTransactionMicros(54, 0, 0));
+    }
+
+    @Test
+    public void testWriteFrameSizes() {
+        // 写单个寄存器：请求与应答等长
+        assertEquals(8, ModbusTransport.SERIAL.writeRequestBytes(1));
+        assertEquals(8, ModbusTransport.SERIAL.writeResponseBytes());
+        assertEquals(12, ModbusTransport.TCP.writeRequestBytes(1));
+        // 写多个寄存器：请求含字节数和数据，应答只回送起始地址和数量
+        assertEquals(9 + 4, ModbusTransport.RTU_OVER_TCP.writeRequestBytes(2));
+        assertEquals(13 + 6, ModbusTransport.TCP.writeRequestBytes(3));
+        assertEquals(12, ModbusTransport.TCP.writeResponseBytes());
+    }
+
+    @Test
+    public void testSerialPollEstimate() throws Exception {
+        Map<String, Object> commSettings = new HashMap<>();
+        commSettings.put("port", "COM1");
+        commSettings.put("baudRate", 9600);
+        commSettings.put("numDataBit", 8);
+        commSettings.put("numStopBit", 1);
+        commSettings.put("parity", "N");
+        commSettings.put("slaveId", 1);
+        NO2Device device = loadDevice("NO2PollEstimate", commSettings);
+        // 4个数据段：54、28、1、1个寄存器
+        assertEquals(279, device.estimatePollMillis());
+
+        NO2Device tcpDevice = loadDevice("NO2TcpPollEstimate", tcpSettings("tcp"));
+        assertEquals(100, tcpDevice.estimatePollMillis());
+    }
+
+    @Test
+    public void testPollOverModbusTcpLoopback() throws Exception {
+        assertPollsOverLoopback("tcp", false);
+    }
+
+    @Test
+    public void testPollOverRtuOverTcpLoopback() throws Exception {
+        assertPollsOverLoopback("rtu_over_tcp", true);
+    }
+
+    /**
+     * 设备按 comm_settings 构造 ModbusTcpInfo 注册，注册得到的源按设备对 ModbusTcpInfo 的设置（setEncapsulated）
+     * 选择帧格式，经真实的 modbus4j 主站连接回环从站完成一个轮询周期；帧格式与从站不一致时轮询失败
+     */
+    private void assertPollsOverLoopback(String transport, boolean rtuFraming) throws Exception {
+        simulator.setFloatLittleEndianByteSwap(0, 12.5f);
+        List<LoopbackModbusSource> sources = new ArrayList<>();
+        try (ModbusTcpSlaveServer loopback = new ModbusTcpSlaveServer(simulator, rtuFraming);
+                MockedConstruction<ModbusTcpInfo> infos = mockConstruction(ModbusTcpInfo.class)) {
+            when(mockModbusIntegration.register(isA(ModbusTcpInfo.class), anyString())).thenAnswer(invocation -> {
+                boolean encapsulated = mockingDetails(invocation.getArgument(0)).getInvocations().stream()
+                        .anyMatch(call -> "setEncapsulated".equals(call.getMethod().getName())
+                                && Boolean.TRUE.equals(call.getArgument(0)));
+                LoopbackModbusSource source = LoopbackModbusSource.connect(loopback.getHost(), loopback.getPort(),
+                        encapsulated, 1, 1000);
+                sources.add(source);
+                return source.getSource();
+            });
+            Map<String, Object> commSettings = tcpSettings(transport);
+            commSettings.put("tcpPort", loopback.getPort());
+            NO2Device device = loadDevice("NO2Loopback_" + transport, commSettings);
+            long completedBefore = device.getBusStatistics().getCompletedTransactions();
+
+            assertTrue(device.pollOnce().get(5, TimeUnit.SECONDS));
+
+            assertEquals(1, infos.constructed().size());
+            verify(infos.constructed().get(0)).setEncapsulated(rtuFraming);
+            assertEquals(1, loopback.getConnectionCount());
+            assertEquals(12.5, ((NumericAttribute) device.getAttrs().get("no")).getValue(), 0.001);
+            // float_params、u16_params、校准状态和跨度浓度四个数据段均经回环端口读取
+            assertEquals(completedBefore + 4, device.getBusStatistics().getCompletedTransactions());
+            assertEquals(0, device.getBusStatistics().getTimeouts());
+        } finally {
+            sources.forEach(LoopbackModbusSource::close);
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testTcpWithoutIpRejected() throws Exception {
+        Map<String, Object> commSettings = tcpSettings("tcp");
+        commSettings.remove("ip");
+        loadDevice("NO2NoIp", commSettings);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testSerialWithoutPortRejected() throws Exception {
+        Map<String, Object> commSettings = new HashMap<>();
+        commSettings.put("slaveId", 1);
+        loadDevice("NO2NoPort", commSettings);
+    }
+
+    private Map<String, Object> tcpSettings(String transport) {
+        Map<String, Object> commSettings = new HashMap<>();
+        commSettings.put("transport", transport);
+        commSettings.put("ip", server.getHost());
+        commSettings.put("tcpPort", server.getPort());
+        commSettings.put("timeout", 1000);
+        commSettings.put("slaveId", 1);
+        return commSettings;
+    }
+
+    private NO2Device loadDevice(String id, Map<String, Object> commSettings) throws Exception {
+        Map<String, Object> config = new HashMap<>();
+        config.put("id", id);
+        config.put("name", id);
+        config.put("comm_settings", commSettings);
+
+        NO2Device device = new NO2Device(config);
+        device.load(mockEcatCore);
+        Field coreField = findField(device.getClass(), "core");
+        coreField.setAccessible(true);
+        coreField.set(device, mockEcatCore);
+        Field integrationField = SmsDeviceBase.class.getDeclaredField("modbusIntegration");
+        integrationField.setAccessible(true);
+        integrationField.set(null, mockModbusIntegration);
+        device.init();
+        return device;
+    }
+
+    private Field findField(Class<?> clazz, String fieldName) throws NoSuchFieldException {
+        try {
+            return clazz.getDeclaredField(fieldName);
+        } catch (NoSuchFieldException e) {
+            Class<?> superClass = clazz.getSuperclass();
+            if (superClass == null) {
+                throw e;
+            }
+            return findField(superClass, fieldName);
+        }
+    }
+}
@@ -7,6 +7,7 @@ import com.ecat.core.I18n.I18nProxy;
 import com.ecat.core.I18n.ResourceLoader;
 import com.ecat.core.State.AttributeStatus;
 import com.ecat.core.State.NumericAttribute;
+import com.ecat.core.State.StringCommandAttribute;
 import com.ecat.core.Task.TaskManager;
 import com.ecat.core.Integration.IntegrationRegistry;
 import com.ecat.core.Utils.TestTools;
@@ -17,14 +18,25 @@ import com.serotonin.modbus4j.msg.ReadHoldingRegistersResponse;
 import org.junit.After;
 import org.junit.Before;
 import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InOrder;
 import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
 import java.lang.reflect.Field;
 import java.lang.reflect.Method;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.ScheduledFuture;
 import java.util.concurrent.TimeUnit;
@@ -208,7 +220,7 @@ public class NO2DeviceTest {
     
     @Test
     public void testStart_SchedulesReadTask() throws Exception {
-        when(mockExecutor.scheduleWithFixedDelay(any(Runnable.class), eq(0L), eq(5L), eq(TimeUnit.SECONDS)))
+        when(mockExecutor.scheduleWithFixedDelay(any(Runnable.class), eq(0L), eq(SmsDeviceBase.POLL_PERIOD_MILLIS), eq(TimeUnit.MILLISECONDS)))
                 .thenAnswer(v->mockScheduledFuture);
                 
         // 执行start方法
@@ -216,9 +228,35 @@ public class NO2DeviceTest {
         
         // 验证定时任务是否被调度
         verify(mockExecutor, times(1)).scheduleWithFixedDelay(
-                any(Runnable.class), eq(0L), eq(5L), eq(TimeUnit.SECONDS));
+                any(Runnable.class), eq(0L), eq(SmsDeviceBase.POLL_PERIOD_MILLIS), eq(TimeUnit.MILLISECONDS));
     }
     
+    @Test
+    public void testStart_UsesStaggeredStartDelay() throws Exception {
+        when(mockExecutor.scheduleWithFixedDelay(any(Runnable.class), anyLong(), anyLong(), any(TimeUnit.class)))
+                .thenAnswer(v -> mockScheduledFuture);
+        no2Device.setStartDelayMillis(280);
+
+        no2Device.start();
+
+        verify(mockExecutor, times(1)).scheduleWithFixedDelay(
+                any(Runnable.class), eq(280L), eq(SmsDeviceBase.POLL_PERIOD_MILLIS), eq(TimeUnit.MILLISECONDS));
+    }
+
+    @Test
+    public void testFastPollingSchedulesAndCancels() throws Exception {
+        when(mockExecutor.schedule(any(Runnable.class), anyLong(), any(TimeUnit.class)))
+                .thenAnswer(v -> mockScheduledFuture);
+
+        no2Device.setFastPolling(500);
+        assertTrue(no2Device.isFastPolling());
+        verify(mockExecutor, times(1)).schedule(any(Runnable.class), eq(500L), eq(TimeUnit.MILLISECONDS));
+
+        no2Device.setFastPolling(0);
+        assertFalse(no2Device.isFastPolling());
+        verify(mockScheduledFuture, times(1)).cancel(false);
+    }
+
     @Test
     public void testStop_CancelsScheduledTasks() throws Exception {
         when(mockExecutor.scheduleWithFixedDelay(any(Runnable.class), anyLong(), anyLong(), any(TimeUnit.class)))
@@ -699,6 +737,471 @@ public class NO2DeviceTest {
         }
     }
 
+    @Test
+    public void testSegmentReadsDispatchedOneAtATime() throws Exception {
+        CompletableFuture<ReadHoldingRegistersResponse> first = new CompletableFuture<>();
+        CompletableFuture<ReadHoldingRegistersResponse> second = new CompletableFuture<>();
+        ModbusSource source = mock(ModbusSource.class);
+        when(source.readHoldingRegisters(anyInt(), anyInt())).thenReturn(first, second);
+        ReadHoldingRegistersResponse response = mock(ReadHoldingRegistersResponse.class);
+        when(response.isException()).thenReturn(false);
+        long completedBefore = no2Device.getBusStatistics().getCompletedTransactions();
+
+        CompletableFuture<ReadHoldingRegistersResponse> a = no2Device.readSegmentRegisters(source, "float_params", 0, 34);
+        CompletableFuture<ReadHoldingRegistersResponse> b = no2Device.readSegmentRegisters(source, "u16_params", 48, 10);
+
+        // 第一段未结束前第二段不下发，总线往返时间不含排队
+        verify(source, times(1)).readHoldingRegisters(anyInt(), anyInt());
+        verify(source).readHoldingRegisters(0, 34);
+
+        first.complete(response);
+        assertTrue(a.isDone());
+        verify(source).readHoldingRegisters(48, 10);
+        assertFalse(b.isDone());
+
+        second.complete(response);
+        assertSame(response, b.get(1, TimeUnit.SECONDS));
+        assertEquals(completedBefore + 2, no2Device.getBusStatistics().getCompletedTransactions());
+    }
+
+    @Test
+    public void testFailedSegmentReadDoesNotBlockNextSegment() throws Exception {
+        CompletableFuture<ReadHoldingRegistersResponse> failed = new CompletableFuture<>();
+        ModbusSource source = mock(ModbusSource.class);
+        when(source.readHoldingRegisters(anyInt(), anyInt()))
+                .thenReturn(failed, CompletableFuture.completedFuture(mock(ReadHoldingRegistersResponse.class)));
+
+        CompletableFuture<ReadHoldingRegistersResponse> a = no2Device.readSegmentRegisters(source, "float_params", 0, 34);
+        CompletableFuture<ReadHoldingRegistersResponse> b = no2Device.readSegmentRegisters(source, "u16_params", 48, 10);
+        failed.completeExceptionally(new RuntimeException("crc error"));
+
+        assertTrue(a.isCompletedExceptionally());
+        assertNotNull(b.get(1, TimeUnit.SECONDS));
+        verify(source, times(2)).readHoldingRegisters(anyInt(), anyInt());
+    }
+
+    @Test
+    public void testReadAndUpdate_WithSlaveSimulator() throws Exception {
+        ModbusSlaveSimulator simulator = SaimosenSimulatorProfiles.no2().setLatency(5, 5).setSeed(1);
+        try {
+            no2Device.setModbusSource(SimulatedModbusSource.create(simulator));
+
+            CompletableFuture<Boolean> future = (CompletableFuture<Boolean>) invokePrivateMethod(no2Device, "readAndUpdate");
+            future.get(5, TimeUnit.SECONDS);
+            assertEquals(4, simulator.getReadCount());
+            assertEquals(AttributeStatus.NORMAL, no2Device.getAttrs().get("no").getStatus());
+            assertEquals(AttributeStatus.NORMAL, no2Device.getAttrs().get("sample_flow").getStatus());
+
+            // 写跨度校准浓度后，0x3EB可读回，0x3EE进入跨度校准状态
+            assertTrue(no2Device.cancelSpanCalibration().get(5, TimeUnit.SECONDS));
+            simulator.write(SaimosenSimulatorProfiles.SPAN_CALIBRATION_START, 400).get(5, TimeUnit.SECONDS);
+            assertEquals(400.0, no2Device.readSpanCalibrationConcentration().get(5, TimeUnit.SECONDS), 0.001);
+            assertEquals(SaimosenSimulatorProfiles.STATUS_SPAN_CALIBRATION,
+                    (int) no2Device.readCalibrationStatus().get(5, TimeUnit.SECONDS));
+
+            // 单段超时不影响整个周期完成
+            long timeoutsBefore = no2Device.getBusStatistics().getTimeouts();
+            simulator.setTimeouts(0, 10).failNextWithTimeout(1);
+            future = (CompletableFuture<Boolean>) invokePrivateMethod(no2Device, "readAndUpdate");
+            future.get(5, TimeUnit.SECONDS);
+            assertEquals(timeoutsBefore + 1, no2Device.getBusStatistics().getTimeouts());
+        } finally {
+            simulator.close();
+        }
+    }
+
+    @Test
+    public void testTrafficRecordAndReplay() throws Exception {
+        ModbusSlaveSimulator simulator = SaimosenSimulatorProfiles.no2().setFloatLittleEndianByteSwap(0, 12.5f);
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        RegisterTrafficLog.Writer writer = new RegisterTrafficLog.Writer(bytes);
+        try {
+            // 记录两个轮询周期
+            no2Device.setModbusSource(SimulatedModbusSource.create(simulator));
+            setPrivateField(no2Device, "trafficLog", writer);
+            assertTrue(no2Device.pollOnce().get(5, TimeUnit.SECONDS));
+            simulator.setFloatLittleEndianByteSwap(0, 20.0f);
+            assertTrue(no2Device.pollOnce().get(5, TimeUnit.SECONDS));
+            setPrivateField(no2Device, "trafficLog", null);
+            writer.close();
+
+            RegisterTrafficLog.Reader reader = new RegisterTrafficLog.Reader(new ByteArrayInputStream(bytes.toByteArray()));
+            List<RegisterTrafficLog.Record> records = new ArrayList<>();
+            RegisterTrafficLog.Record record;
+            while ((record = reader.next()) != null) {
+                records.add(record);
+            }
+            reader.close();
+            assertEquals(8, records.size());
+            assertEquals("NO2Device", records.get(0).getDeviceClass());
+            assertEquals("NO2TestDevice", records.get(0).getDeviceId());
+
+            // 现场数据变化后，回放第一个周期能还原当时的解析结果
+            simulator.setFloatLittleEndianByteSwap(0, 99.0f);
+            assertTrue(no2Device.pollOnce().get(5, TimeUnit.SECONDS));
+            assertEquals(99.0, ((NumericAttribute) no2Device.getAttrs().get("no")).getValue(), 0.001);
+
+            try (TrafficReplayDriver driver = new TrafficReplayDriver(no2Device)) {
+                TrafficReplayDriver.Result result = driver.replay(records.subList(0, 4));
+                assertEquals(1, result.getCycles());
+                assertEquals(1, result.getSucceeded());
+                assertEquals(12.5, ((NumericAttribute) no2Device.getAttrs().get("no")).getValue(), 0.001);
+
+                result = driver.replay(records);
+                assertEquals(2, result.getCycles());
+                assertEquals(8, result.getFrames());
+                assertEquals(20.0, ((NumericAttribute) no2Device.getAttrs().get("no")).getValue(), 0.001);
+            }
+        } finally {
+            simulator.close();
+        }
+    }
+
+    @Test
+    public void testStoredPrecisionsFollowAttributeDisplayPrecision() throws Exception {
+        no2Device.init();
+
+        assertArrayEquals(new int[] {1, 1, 1}, no2Device.getStoredAttributePrecisions());
+    }
+
+    @Test
+    public void testAverageAttributesCreatedWhenEnabled() throws Exception {
+        Map<String, Object> averages = new HashMap<>();
+        averages.put("enabled", true);
+        no2Device.getConfig().put("averages", averages);
+        no2Device.init();
+
+        assertEquals(57 + 9, no2Device.getAttrs().size());
+        String hourly = SmsDeviceBase.averageAttributeId("nox", ConcentrationAverager.Window.ONE_HOUR);
+        assertEquals("nox_avg_1h", hourly);
+        assertNotNull(no2Device.getAttrs().get(hourly));
+
+        // 窗口未结束前均值属性保持EMPTY，不受设备统一设置的状态影响
+        ModbusSlaveSimulator simulator = SaimosenSimulatorProfiles.no2();
+        try {
+            no2Device.setModbusSource(SimulatedModbusSource.create(simulator));
+            assertTrue(no2Device.pollOnce().get(5, TimeUnit.SECONDS));
+            assertEquals(AttributeStatus.NORMAL, no2Device.getAttrs().get("no").getStatus());
+            assertEquals(AttributeStatus.EMPTY, no2Device.getAttrs().get(hourly).getStatus());
+        } finally {
+            simulator.close();
+        }
+    }
+
+    @Test
+    public void testDeviceWideStatusLeavesAverageFlags() throws Exception {
+        Map<String, Object> averages = new HashMap<>();
+        averages.put("enabled", true);
+        no2Device.getConfig().put("averages", averages);
+        no2Device.init();
+        String minute = SmsDeviceBase.averageAttributeId("no", ConcentrationAverager.Window.ONE_MINUTE);
+
+        // 通讯失败时统一设置的故障状态不覆盖均值属性的有效性标记
+        invokePrivateMethod(no2Device, "setAllAttributesStatus", AttributeStatus.MALFUNCTION);
+
+        assertEquals(AttributeStatus.MALFUNCTION, no2Device.getAttrs().get("no").getStatus());
+        assertEquals(AttributeStatus.EMPTY, no2Device.getAttrs().get(minute).getStatus());
+    }
+
+    @Test
+    public void testOutboundRecordsPublishedOnBus() throws Exception {
+        Path dir = Files.createTempDirectory("outbound");
+        Map<String, Object> outbound = new HashMap<>();
+        outbound.put("dir", dir.toString());
+        no2Device.getConfig().put("outbound", outbound);
+        no2Device.init();
+
+        ModbusSlaveSimulator simulator = SaimosenSimulatorProfiles.no2().setFloatLittleEndianByteSwap(0, 12.5f);
+        try {
+            no2Device.setModbusSource(SimulatedModbusSource.create(simulator));
+            assertTrue(no2Device.pollOnce().get(5, TimeUnit.SECONDS));
+
+            // 未注册上行消费方时，记录发布到平台总线
+            ArgumentCaptor<Object> message = ArgumentCaptor.forClass(Object.class);
+            verify(mockBusRegistry).publish(eq(OutboundBusSink.DEFAULT_TOPIC), message.capture());
+            OutboundBusSink.Delivery delivery = (OutboundBusSink.Delivery) message.getValue();
+            assertEquals("NO2TestDevice", delivery.getRecord().getDeviceId());
+            assertEquals(12.5f, delivery.getRecord().getValue(0), 0.0f);
+            // 上行方确认之前记录留在缓冲中
+            assertEquals(1, no2Device.getOutboundBuffer().getMemoryRecords());
+
+            delivery.acknowledge();
+            no2Device.getOutboundBuffer().pump();
+            assertEquals(0, no2Device.getOutboundBuffer().getMemoryRecords());
+            assertEquals(0, no2Device.getOutboundBuffer().getBacklogRecords());
+            assertEquals(1, no2Device.getOutboundBuffer().getDeliveredRecords());
+        } finally {
+            simulator.close();
+            OutboundBuffer.closeAll();
+            File[] files = dir.toFile().listFiles();
+            if (files != null) {
+                for (File file : files) {
+                    file.delete();
+                }
+            }
+            Files.deleteIfExists(dir);
+        }
+    }
+
+    @Test
+    public void testWarmStartRestoresSnapshotAndDefersConfigRead() throws Exception {
+        Path dir = Files.createTempDirectory("warm-start");
+        Map<String, Object> warmStart = new HashMap<>();
+        warmStart.put("dir", dir.toString());
+        no2Device.getConfig().put("warm_start", warmStart);
+        no2Device.init();
+        assertFalse(no2Device.isConfigReadDeferred());
+
+        ModbusSlaveSimulator simulator = SaimosenSimulatorProfiles.no2().setFloatLittleEndianByteSwap(0, 12.5f);
+        Path snapshot = dir.resolve("NO2TestDevice.snapshot");
+        try {
+            no2Device.setModbusSource(SimulatedModbusSource.create(simulator));
+            assertTrue(no2Device.pollOnce().get(5, TimeUnit.SECONDS));
+            Object calibration = no2Device.getAttrs().get("calibration_concentration").getValue();
+            no2Device.saveSnapshot();
+            assertTrue(Files.exists(snapshot));
+
+            // 重新初始化（模拟重启）：属性从快照恢复并标记为过期
+            no2Device.init();
+            assertEquals(12.5, ((NumericAttribute) no2Device.getAttrs().get("no")).getValue(), 0.001);
+            assertEquals(AttributeStatus.NORMAL, no2Device.getAttrs().get("no").getStatus());
+            assertTrue(no2Device.isStale("no"));
+            assertTrue(no2Device.isConfigReadDeferred());
+
+            // 推迟期间不读取跨度校准浓度寄存器，测量值刷新后不再过期
+            long readsBefore = simulator.getReadCount();
+            simulator.setFloatLittleEndianByteSwap(0, 20.0f);
+            assertTrue(no2Device.pollOnce().get(5, TimeUnit.SECONDS));
+            assertEquals(3, simulator.getReadCount() - readsBefore);
+            assertEquals(20.0, ((NumericAttribute) no2Device.getAttrs().get("no")).getValue(), 0.001);
+            assertFalse(no2Device.isStale("no"));
+            assertTrue(no2Device.isStale("calibration_concentration"));
+            assertEquals(calibration, no2Device.getAttrs().get("calibration_concentration").getValue());
+        } finally {
+            simulator.close();
+            Files.deleteIfExists(snapshot);
+            Files.deleteIfExists(dir);
+        }
+    }
+
+    @Test
+    public void testExpiredSnapshotNotRestored() throws Exception {
+        Path dir = Files.createTempDirectory("warm-start");
+        Map<String, Object> warmStart = new HashMap<>();
+        warmStart.put("dir", dir.toString());
+        warmStart.put("max_age_seconds", 60);
+        no2Device.getConfig().put("warm_start", warmStart);
+        Path snapshot = dir.resolve("NO2TestDevice.snapshot");
+        try {
+            new AttributeSnapshot(System.currentTimeMillis() - 120_000L, Arrays.asList(
+                    new AttributeSnapshot.Entry("no", 12.5, AttributeStatus.NORMAL))).write(snapshot);
+
+            no2Device.init();
+            assertFalse(no2Device.isStale("no"));
+            assertFalse(no2Device.isConfigReadDeferred());
+        } finally {
+            Files.deleteIfExists(snapshot);
+            Files.deleteIfExists(dir);
+        }
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void testApplyCommSettingsReRegistersSourceAndKeepsAttributes() throws Exception {
+        ModbusSource newSource = mock(ModbusSource.class);
+        when(mockModbusIntegration.register(any(), any())).thenReturn(newSource);
+        when(mockModbusSource.isModbusOpen()).thenReturn(true);
+        Object noAttribute = no2Device.getAttrs().get("no");
+
+        Map<String, Object> commSettings = new HashMap<>((Map<String, Object>) no2Device.getConfig().get("comm_settings"));
+        commSettings.put("port", "COM7");
+        no2Device.applyCommSettings(commSettings, 1000);
+
+        // 新的 ModbusSource 登记成功后才关闭原来的
+        InOrder order = inOrder(mockModbusIntegration, mockModbusSource);
+        order.verify(mockModbusIntegration).register(any(), any());
+        order.verify(mockModbusSource).closeModbus();
+        assertSame(newSource, getPrivateField(no2Device, "modbusSource"));
+        assertEquals("COM7", no2Device.getBusStatistics().getPort());
+        assertSame(noAttribute, no2Device.getAttrs().get("no"));
+        assertEquals(commSettings, no2Device.getConfig().get("comm_settings"));
+        // 可写属性改用新的 ModbusSource
+        assertSame(newSource, getPrivateField(no2Device.getAttrs().get("dispatch_command"), "modbusSource"));
+    }
+
+    @Test
+    public void testAwaitIdleWaitsForInFlightPoll() throws Exception {
+        ModbusSlaveSimulator simulator = SaimosenSimulatorProfiles.no2().setLatency(50, 0);
+        try {
+            no2Device.setModbusSource(SimulatedModbusSource.create(simulator));
+            CompletableFuture<Boolean> poll = no2Device.pollOnce();
+            assertFalse(no2Device.awaitIdle(0, TimeUnit.MILLISECONDS));
+            assertTrue(no2Device.awaitIdle(5, TimeUnit.SECONDS));
+            assertTrue(poll.get(1, TimeUnit.SECONDS));
+        } finally {
+            simulator.close();
+        }
+    }
+
+    @Test
+    public void testAwaitIdleWaitsForAttributeWrite() throws Exception {
+        ModbusSlaveSimulator simulator = SaimosenSimulatorProfiles.no2().setLatency(50, 0);
+        try {
+            no2Device.setModbusSource(SimulatedModbusSource.create(simulator));
+            CompletableFuture<Boolean> write = no2Device.writeAttribute("no_slope", "1.02");
+            assertFalse(no2Device.awaitIdle(0, TimeUnit.MILLISECONDS));
+            assertTrue(no2Device.awaitIdle(5, TimeUnit.SECONDS));
+            assertTrue(write.isDone());
+        } finally {
+            simulator.close();
+        }
+    }
+
+    @Test
+    public void testAwaitIdleWaitsForCommandAttributeWrite() throws Exception {
+        ModbusSlaveSimulator simulator = SaimosenSimulatorProfiles.no2().setLatency(50, 0);
+        try {
+            no2Device.setModbusSource(SimulatedModbusSource.create(simulator));
+            StringCommandAttribute command = (StringCommandAttribute) no2Device.getAttrs().get("dispatch_command");
+            CompletableFuture<Boolean> sent = command.sendCommand("zero_calibration_start");
+            assertFalse(no2Device.awaitIdle(0, TimeUnit.MILLISECONDS));
+            assertTrue(no2Device.awaitIdle(5, TimeUnit.SECONDS));
+            assertTrue(sent.get(1, TimeUnit.SECONDS));
+        } finally {
+            simulator.close();
+        }
+    }
+
+    @Test
+    public void testZeroCalibrationWritesRegisterBlockInOneRequest() throws Exception {
+        ModbusSlaveSimulator simulator = SaimosenSimulatorProfiles.no2();
+        try {
+            no2Device.setModbusSource(SimulatedModbusSource.create(simulator));
+            assertTrue(no2Device.isMultipleRegisterWriteEnabled());
+            assertTrue(no2Device.startZeroCalibration(0).get(5, TimeUnit.SECONDS));
+
+            // 0x3E8~0x3EA 用一次写多个寄存器下发
+            assertEquals(1, simulator.getWriteCount());
+            List<int[]> history = simulator.getWriteHistory();
+            assertEquals(3, history.size());
+            assertArrayEquals(new int[] {0x3E8, 0}, history.get(0));
+            assertArrayEquals(new int[] {0x3E9, 0}, history.get(1));
+            assertArrayEquals(new int[] {0x3EA, 0}, history.get(2));
+        } finally {
+            simulator.close();
+        }
+    }
+
+    @Test
+    public void testRejectedMultipleWriteFallsBackToSingleWrites() throws Exception {
+        ModbusSlaveSimulator simulator = SaimosenSimulatorProfiles.no2().setWriteMultipleSupported(false);
+        try {
+            no2Device.setModbusSource(SimulatedModbusSource.create(simulator));
+            assertTrue(no2Device.startSpanCalibration(400).get(5, TimeUnit.SECONDS));
+
+            // 模式寄存器 + 被拒绝的块写入 + 两次单寄存器写入
+            assertEquals(4, simulator.getWriteCount());
+            assertEquals(400, simulator.getRegister(SaimosenSimulatorProfiles.SPAN_CALIBRATION_START));
+            assertEquals(1, simulator.getRegister(SaimosenSimulatorProfiles.SPAN_CALIBRATION_CONFIRM));
+            assertFalse(no2Device.isMultipleRegisterWriteEnabled());
+
+            // 之后的命令直接逐个写入
+            assertTrue(no2Device.startZeroCalibration(0).get(5, TimeUnit.SECONDS));
+            assertEquals(7, simulator.getWriteCount());
+        } finally {
+            simulator.close();
+        }
+    }
+
+    @Test
+    public void testCommandReadsBackCalibrationStatus() throws Exception {
+        ModbusSlaveSimulator simulator = SaimosenSimulatorProfiles.no2();
+        try {
+            no2Device.setModbusSource(SimulatedModbusSource.create(simulator));
+            assertTrue(no2Device.startSpanCalibration(400).get(5, TimeUnit.SECONDS));
+            // 回读在命令事务之后立即执行，只读校准状态寄存器，不等下一个轮询周期
+            assertTrue(no2Device.awaitIdle(5, TimeUnit.SECONDS));
+            assertTrue(simulator.getReadCount() >= 1);
+            assertTrue(simulator.getReadCount() <= 2);
+            assertEquals((double) SaimosenSimulatorProfiles.STATUS_SPAN_CALIBRATION,
+                    ((NumericAttribute) no2Device.getAttrs().get("calibration_status")).getValue(), 0.001);
+            assertEquals(AttributeStatus.SPAN_CALIBRATION, no2Device.getAttrs().get("calibration_status").getStatus());
+        } finally {
+            simulator.close();
+        }
+    }
+
+    @Test
+    public void testMultipleWriteCanBeDisabledByConfig() throws Exception {
+        ModbusSlaveSimulator simulator = SaimosenSimulatorProfiles.no2();
+        try {
+            no2Device.getConfig().put("write_multiple_registers", false);
+            no2Device.setModbusSource(SimulatedModbusSource.create(simulator));
+            assertFalse(no2Device.isMultipleRegisterWriteEnabled());
+            assertTrue(no2Device.startZeroCalibration(0).get(5, TimeUnit.SECONDS));
+            assertEquals(3, simulator.getWriteCount());
+        } finally {
+            simulator.close();
+        }
+    }
+
+    @Test
+    public void testParameterBackupAndRestoreTakeOneTransactionPerRange() throws Exception {
+        ModbusSlaveSimulator simulator = SaimosenSimulatorProfiles.no2()
+                .setFloatLittleEndianByteSwap(22, 1.25f)
+                .setFloatLittleEndianByteSwap(46, 3.5f)
+                .setRegister(60, 650);
+        // 斜率~臭氧流量修正值（22~47）和PMT高压设定值（60）可写
+        for (int address = 22; address < 48; address++) {
+            simulator.defineWritable(address);
+        }
+        simulator.defineWritable(60);
+        Path file = Files.createTempDirectory("parameter-backup").resolve("no2.params");
+        try {
+            no2Device.setModbusSource(SimulatedModbusSource.create(simulator));
+            ParameterBackup backup = no2Device.backupParameters(file).get(5, TimeUnit.SECONDS);
+            assertEquals(2, simulator.getReadCount());
+            assertEquals(2, backup.getBlocks().size());
+            assertEquals(no2Device.getClass().getSimpleName(), ParameterBackup.read(file).getDeviceClass());
+
+            // 更换仪器：新仪器为出厂参数
+            simulator.setFloatLittleEndianByteSwap(22, 1.0f)
+                    .setFloatLittleEndianByteSwap(46, 0.0f)
+                    .setRegister(60, 500);
+            long readsBefore = simulator.getReadCount();
+            assertTrue(no2Device.restoreParameters(file).get(5, TimeUnit.SECONDS));
+
+            // 26个寄存器一次写多个寄存器 + PMT高压单寄存器写入，各回读一次
+            assertEquals(2, simulator.getWriteCount());
+            assertEquals(2, simulator.getReadCount() - readsBefore);
+            assertEquals(650, simulator.getRegister(60));
+            short[] saved = backup.getBlocks().get(0).getValues();
+            for (int i = 0; i < saved.length; i++) {
+                assertEquals(saved[i], simulator.getRegister(22 + i));
+            }
+        } finally {
+            simulator.close();
+            Files.deleteIfExists(file);
+            Files.deleteIfExists(file.getParent());
+        }
+    }
+
+    @Test
+    public void testRestoreRejectsBackupOfOtherModel() throws Exception {
+        Path file = Files.createTempFile("so2", ".params");
+        try {
+            new ParameterBackup("SO2Device", 0L, new ArrayList<>()).write(file);
+            try {
+                no2Device.restoreParameters(file).get(5, TimeUnit.SECONDS);
+                fail("expected model mismatch");
+            } catch (ExecutionException e) {
+                assertTrue(e.getCause() instanceof IllegalArgumentException);
+            }
+        } finally {
+            Files.deleteIfExists(file);
+        }
+    }
+
     /**
      * 自定义断言方法
      */
@@ -226,7 +226,7 @@ public class O3DeviceTest {
     
     @Test
     public void testStart_SchedulesReadTask() throws Exception {
-        when(mockExecutor.scheduleWithFixedDelay(any(Runnable.class), eq(0L), eq(5L), eq(TimeUnit.SECONDS)))
+        when(mockExecutor.scheduleWithFixedDelay(any(Runnable.class), eq(0L), eq(SmsDeviceBase.POLL_PERIOD_MILLIS), eq(TimeUnit.MILLISECONDS)))
                 .thenAnswer(v->mockScheduledFuture);
                 
         // 执行start方法
@@ -234,7 +234,7 @@ public class O3DeviceTest {
         
         // 验证定时任务是否被调度
         verify(mockExecutor, times(1)).scheduleWithFixedDelay(
-                any(Runnable.class), eq(0L), eq(5L), eq(TimeUnit.SECONDS));
+                any(Runnable.class), eq(0L), eq(SmsDeviceBase.POLL_PERIOD_MILLIS), eq(TimeUnit.MILLISECONDS));
 
         // 注意：O3Device使用SmsDeviceBase的getScheduledExecutor()方法，不直接存储scheduledFuture
         // 所以这里只验证调度方法被调用即可
@@ -469,7 +469,7 @@ public class O3DeviceTest {
     @Test
     public void testDeviceLifecycle() throws Exception {
         // 测试完整的设备生命周期
-        when(mockExecutor.scheduleWithFixedDelay(any(Runnable.class), eq(0L), eq(5L), eq(TimeUnit.SECONDS)))
+        when(mockExecutor.scheduleWithFixedDelay(any(Runnable.class), eq(0L), eq(SmsDeviceBase.POLL_PERIOD_MILLIS), eq(TimeUnit.MILLISECONDS)))
             .thenAnswer(v->mockScheduledFuture);
         when(mockModbusSource.isModbusOpen()).thenReturn(true);
         
@@ -480,7 +480,7 @@ public class O3DeviceTest {
         // 2. 启动
         o3Device.start();
         verify(mockExecutor, times(1)).scheduleWithFixedDelay(
-                any(Runnable.class), eq(0L), eq(5L), eq(TimeUnit.SECONDS));
+                any(Runnable.class), eq(0L), eq(SmsDeviceBase.POLL_PERIOD_MILLIS), eq(TimeUnit.MILLISECONDS));
         
         // 3. 停止 - O3Device的stop方法没有实际实现，所以不会调用cancel
         o3Device.stop();
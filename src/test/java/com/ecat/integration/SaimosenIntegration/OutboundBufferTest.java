@@ -0,0 +1,210 @@
+package com.ecat.integration.SaimosenIntegration;
+
+import com.ecat.core.State.AttributeStatus;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * 上行存储转发缓冲单元测试类
+ */
+public class OutboundBufferTest {
+
+    private static final long BASE = 1700000000000L;
+    private static final long SECOND = 1_000_000_000L;
+    private static final String[] COLUMNS = {"no", "no2"};
+
+    private Path directory;
+    private OutboundBuffer buffer;
+    private final List<OutboundBuffer.Record> received = new ArrayList<>();
+    private boolean uplinkUp = true;
+
+    @Before
+    public void setUp() throws Exception {
+        directory = Files.createTempDirectory("outbound");
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        if (buffer != null) {
+            buffer.close();
+        }
+        File[] files = directory.toFile().listFiles();
+        if (files != null) {
+            for (File file : files) {
+                file.delete();
+            }
+        }
+        Files.deleteIfExists(directory);
+    }
+
+    @Test
+    public void testLiveRecordsDeliveredImmediately() throws Exception {
+        buffer = open(4096, 0);
+        offer(0, 0);
+        offer(1, 0);
+
+        assertEquals(2, received.size());
+        OutboundBuffer.Record record = received.get(1);
+        assertEquals("no2-1", record.getDeviceId());
+        assertEquals(BASE + 5000L, record.getTimestamp());
+        assertEquals(2, record.getColumnCount());
+        assertEquals("no2", record.getColumn(1));
+        assertEquals(2, record.getValue(1), 0.0f);
+        assertEquals(AttributeStatus.NORMAL, record.getStatus(0));
+        assertEquals(0, buffer.getMemoryRecords());
+    }
+
+    @Test
+    public void testOutageSpillsToDiskAndCatchesUpInOrder() throws Exception {
+        buffer = open(256, 0);
+        uplinkUp = false;
+        for (int i = 0; i < 100; i++) {
+            offer(i, 0);
+        }
+        // 内存环只保留最新的几条，其余在磁盘
+        assertTrue(buffer.getMemoryRecords() < 10);
+        assertEquals(100, buffer.getMemoryRecords() + buffer.getBacklogRecords());
+        assertTrue(received.isEmpty());
+
+        uplinkUp = true;
+        buffer.pump(0);
+        assertEquals(100, received.size());
+        // 实时记录（内存环）先交付，之后按顺序补传
+        int live = 100 - (int) buffer.getCaughtUpRecords();
+        for (int i = 0; i < live; i++) {
+            assertEquals(BASE + (100 - live + i) * 5000L, received.get(i).getTimestamp());
+        }
+        for (int i = live; i < 100; i++) {
+            assertEquals(BASE + (i - live) * 5000L, received.get(i).getTimestamp());
+        }
+        assertEquals(0, buffer.getBacklogRecords());
+    }
+
+    @Test
+    public void testCatchupIsRateLimitedWhileLiveFlows() throws Exception {
+        buffer = open(256, 10);
+        uplinkUp = false;
+        for (int i = 0; i < 200; i++) {
+            offer(i, 0);
+        }
+        long backlog = buffer.getBacklogRecords();
+        assertTrue(backlog > 150);
+
+        uplinkUp = true;
+        received.clear();
+        // 5秒后到达一条实时记录：实时全部交付，补传最多 10条/秒 × 5秒
+        offer(200, 5 * SECOND);
+        assertEquals(50, buffer.getCaughtUpRecords());
+        // 新记录写入满的内存环时最早的一条先溢出到磁盘
+        assertEquals(backlog + 1 - 50, buffer.getBacklogRecords());
+        assertTrue(received.stream().anyMatch(r -> r.getTimestamp() == BASE + 200 * 5000L));
+
+        // 令牌桶最多累积10秒
+        buffer.pump(1000 * SECOND);
+        assertEquals(150, buffer.getCaughtUpRecords());
+    }
+
+    @Test
+    public void testFailedDeliveryKeepsRecord() throws Exception {
+        buffer = open(4096, 0);
+        buffer.setSink(record -> {
+            throw new IllegalStateException("uplink down");
+        });
+        offer(0, 0);
+        assertEquals(1, buffer.getMemoryRecords());
+        assertEquals(1, buffer.getFailedDeliveries());
+
+        buffer.setSink(this::deliver);
+        assertEquals(1, buffer.pump(0));
+        assertEquals(BASE, received.get(0).getTimestamp());
+    }
+
+    @Test
+    public void testCloseSpillsMemoryAndReopenResumesFromCursor() throws Exception {
+        buffer = open(256, 0);
+        uplinkUp = false;
+        for (int i = 0; i < 30; i++) {
+            offer(i, 0);
+        }
+        buffer.close();
+
+        buffer = OutboundBuffer.open(directory, 256, 1024, 0);
+        assertEquals(30, buffer.getBacklogRecords());
+        uplinkUp = true;
+        buffer.setSink(new OutboundBuffer.Sink() {
+            private int count;
+
+            @Override
+            public boolean deliver(OutboundBuffer.Record record) {
+                // 交付10条后上行再次中断
+                return ++count <= 10 && OutboundBufferTest.this.deliver(record);
+            }
+        });
+        buffer.pump(0);
+        assertEquals(10, received.size());
+        buffer.close();
+
+        // 重启后从保存的读取位置继续
+        buffer = OutboundBuffer.open(directory, 256, 1024, 0);
+        assertEquals(20, buffer.getBacklogRecords());
+        buffer.setSink(this::deliver);
+        buffer.pump(0);
+        assertEquals(30, received.size());
+        for (int i = 0; i < 30; i++) {
+            assertEquals(BASE + i * 5000L, received.get(i).getTimestamp());
+        }
+    }
+
+    @Test
+    public void testDiskCapDropsOldestSegments() throws Exception {
+        // 每段1024字节，磁盘日志最多2048字节
+        buffer = OutboundBuffer.open(directory, 256, 1024, 2048, 0);
+        buffer.setSink(this::deliver);
+        uplinkUp = false;
+        for (int i = 0; i < 200; i++) {
+            offer(i, 0);
+        }
+        long dropped = buffer.getDroppedRecords();
+        assertTrue(dropped > 0);
+        assertTrue(buffer.getDiskBytes() <= 2048);
+        assertEquals(200, buffer.getMemoryRecords() + buffer.getBacklogRecords() + dropped);
+
+        // 保留的是最新的记录，补传从最早未丢弃的一条开始连续交付
+        uplinkUp = true;
+        buffer.pump(0);
+        assertEquals(200 - dropped, received.size());
+        int live = (int) (received.size() - buffer.getCaughtUpRecords());
+        for (int i = live; i < received.size(); i++) {
+            assertEquals(BASE + (dropped + i - live) * 5000L, received.get(i).getTimestamp());
+        }
+        assertEquals(0, buffer.getBacklogRecords());
+    }
+
+    private OutboundBuffer open(int memoryBytes, double catchupRate) throws Exception {
+        OutboundBuffer opened = OutboundBuffer.open(directory, memoryBytes, 1024, catchupRate);
+        opened.setSink(this::deliver);
+        return opened;
+    }
+
+    private boolean deliver(OutboundBuffer.Record record) {
+        if (!uplinkUp) {
+            return false;
+        }
+        received.add(record);
+        return true;
+    }
+
+    private void offer(int i, long nowNanos) throws Exception {
+        buffer.offer("no2-1", BASE + i * 5000L, COLUMNS, new float[] {i, 2}, new byte[2], nowNanos);
+    }
+}
@@ -0,0 +1,136 @@
+package com.ecat.integration.SaimosenIntegration;
+
+import com.ecat.core.EcatCore;
+import com.ecat.core.Bus.BusRegistry;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+/**
+ * 经总线交付并等待确认的上行消费方单元测试类
+ */
+public class OutboundBusSinkTest {
+
+    private static final long BASE = 1700000000000L;
+    private static final long SECOND = 1_000_000_000L;
+    private static final String[] COLUMNS = {"no"};
+
+    private Path directory;
+    private OutboundBuffer buffer;
+    private BusRegistry bus;
+    private OutboundBusSink sink;
+    private final List<OutboundBusSink.Delivery> published = new ArrayList<>();
+
+    @Before
+    public void setUp() throws Exception {
+        directory = Files.createTempDirectory("outbound-bus");
+        buffer = OutboundBuffer.open(directory, 4096, 1024, 0);
+        bus = mock(BusRegistry.class);
+        doAnswer(invocation -> {
+            published.add(invocation.getArgument(1));
+            return null;
+        }).when(bus).publish(eq(OutboundBusSink.DEFAULT_TOPIC), any());
+        EcatCore core = mock(EcatCore.class);
+        when(core.getBusRegistry()).thenReturn(bus);
+        sink = new OutboundBusSink(core, OutboundBusSink.DEFAULT_TOPIC, 10_000);
+        buffer.setSink(sink);
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        buffer.close();
+        File[] files = directory.toFile().listFiles();
+        if (files != null) {
+            for (File file : files) {
+                file.delete();
+            }
+        }
+        Files.deleteIfExists(directory);
+    }
+
+    @Test
+    public void testRecordKeptUntilAcknowledged() throws Exception {
+        offer(0);
+        assertEquals(1, published.size());
+        assertEquals(1, buffer.getMemoryRecords());
+
+        // 未确认时再次交付不重复发布
+        buffer.pump();
+        assertEquals(1, published.size());
+        assertEquals(1, buffer.getMemoryRecords());
+
+        published.get(0).acknowledge();
+        buffer.pump();
+        assertEquals(0, buffer.getMemoryRecords());
+        assertEquals(1, buffer.getDeliveredRecords());
+    }
+
+    @Test
+    public void testSynchronousAcknowledgeDeliversInOrder() throws Exception {
+        doAnswer(invocation -> {
+            OutboundBusSink.Delivery delivery = invocation.getArgument(1);
+            published.add(delivery);
+            delivery.acknowledge();
+            return null;
+        }).when(bus).publish(eq(OutboundBusSink.DEFAULT_TOPIC), any());
+        offer(0);
+        offer(1);
+
+        assertEquals(2, published.size());
+        assertEquals(BASE + 5000L, published.get(1).getRecord().getTimestamp());
+        assertEquals(0, buffer.getMemoryRecords());
+        assertEquals(2, buffer.getDeliveredRecords());
+    }
+
+    @Test
+    public void testAcknowledgeRunsCallback() throws Exception {
+        AtomicInteger acknowledged = new AtomicInteger();
+        sink.setOnAcknowledged(acknowledged::incrementAndGet);
+        offer(0);
+        assertEquals(0, acknowledged.get());
+
+        published.get(0).acknowledge();
+        assertEquals(1, acknowledged.get());
+    }
+
+    @Test
+    public void testUnacknowledgedRecordRepublishedAfterTimeout() throws Exception {
+        OutboundBuffer.Record record = new OutboundBuffer.Record("no2", BASE, COLUMNS, new float[] {1}, new byte[1]);
+        assertFalse(sink.deliver(record, 0));
+        assertEquals(1, published.size());
+
+        assertFalse(sink.deliver(record, 5 * SECOND));
+        assertEquals(1, published.size());
+        // 超时未确认时重新发布，等待新的确认
+        assertFalse(sink.deliver(record, 60 * SECOND));
+        assertEquals(2, published.size());
+        published.get(1).acknowledge();
+        assertTrue(sink.deliver(record, 61 * SECOND));
+    }
+
+    @Test
+    public void testBusFailureKeepsRecord() throws Exception {
+        doThrow(new IllegalStateException("bus down")).when(bus).publish(any(), any());
+        offer(0);
+
+        assertEquals(1, buffer.getMemoryRecords());
+        assertEquals(1, buffer.getFailedDeliveries());
+    }
+
+    private void offer(int i) throws Exception {
+        buffer.offer("no2", BASE + i * 5000L, COLUMNS, new float[] {i}, new byte[1]);
+    }
+}
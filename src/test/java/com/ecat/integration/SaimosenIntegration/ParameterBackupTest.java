@@ -0,0 +1,77 @@
+package com.ecat.integration.SaimosenIntegration;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * 参数备份文件单元测试类
+ */
+public class ParameterBackupTest {
+
+    private Path directory;
+    private Path file;
+
+    @Before
+    public void setUp() throws Exception {
+        directory = Files.createTempDirectory("parameter-backup");
+        file = directory.resolve("NO2Device.params");
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        Files.deleteIfExists(file);
+        Files.deleteIfExists(directory);
+    }
+
+    @Test
+    public void testRoundTripKeepsRegistersVerbatim() throws Exception {
+        List<ParameterBackup.Block> blocks = Arrays.asList(
+            new ParameterBackup.Block(new ParameterBackup.Range("slope_corr_params", 22, 4),
+                    new short[] {0x3FA0, 0x0000, (short) 0xC120, 0x7FFF}),
+            new ParameterBackup.Block(new ParameterBackup.Range("pmt_high_volt_setting", 60, 1),
+                    new short[] {650}));
+        new ParameterBackup("NO2Device", 1700000000000L, blocks).write(file);
+
+        ParameterBackup read = ParameterBackup.read(file);
+        assertEquals("NO2Device", read.getDeviceClass());
+        assertEquals(1700000000000L, read.getSavedAt());
+        assertEquals(2, read.getBlocks().size());
+        ParameterBackup.Block first = read.getBlocks().get(0);
+        assertEquals("slope_corr_params", first.getRange().getName());
+        assertEquals(22, first.getRange().getStartAddress());
+        assertArrayEquals(new short[] {0x3FA0, 0x0000, (short) 0xC120, 0x7FFF}, first.getValues());
+        // 写回时按无符号寄存器值下发
+        assertArrayEquals(new int[] {0x3FA0, 0, 0xC120, 0x7FFF}, first.toRegisterValues());
+        assertTrue(read.getBlocks().get(1).getRange().matches(new ParameterBackup.Range("pmt", 60, 1)));
+        assertFalse(Files.exists(directory.resolve("NO2Device.params.tmp")));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testBlockMustMatchRangeSize() {
+        new ParameterBackup.Block(new ParameterBackup.Range("slope_corr_params", 22, 26), new short[2]);
+    }
+
+    @Test
+    public void testRejectsOtherFiles() throws Exception {
+        try (DataOutputStream out = new DataOutputStream(Files.newOutputStream(file))) {
+            out.writeInt(0x534D534E); // 属性快照的魔数
+            out.writeInt(1);
+        }
+        try {
+            ParameterBackup.read(file);
+            fail("expected IOException");
+        } catch (IOException e) {
+            assertTrue(e.getMessage().startsWith("not a parameter backup"));
+        }
+    }
+}
@@ -6,6 +6,7 @@ import com.ecat.core.Device.DeviceBase;
 import com.ecat.core.I18n.I18nHelper;
 import com.ecat.core.I18n.I18nProxy;
 import com.ecat.core.I18n.ResourceLoader;
+import com.ecat.core.State.AttributeClass;
 import com.ecat.core.Task.TaskManager;
 import com.ecat.core.Utils.TestTools;
 import com.ecat.integration.ModbusIntegration.ModbusIntegration;
@@ -16,6 +17,8 @@ import com.serotonin.modbus4j.msg.WriteRegisterResponse;
 import org.junit.After;
 import org.junit.Before;
 import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InOrder;
 import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
 
@@ -25,6 +28,7 @@ import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.Callable;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.ScheduledFuture;
@@ -268,6 +272,59 @@ public class ParticulateZeroCheckerTest {
         verify(mockSaimosenIntegration, times(1)).getAllDevices();
     }
 
+    @Test
+    @SuppressWarnings("unchecked")
+    public void testStart_ClosesChannelsInSequence() throws Exception {
+        ArgumentCaptor<Callable<Object>> closeTask = ArgumentCaptor.forClass(Callable.class);
+        checker.start();
+        verify(mockExecutor, times(1)).schedule(closeTask.capture(), eq(8L), eq(TimeUnit.SECONDS));
+
+        // PM2.5通道应答后立即关闭PM10通道，不再另外延迟
+        ((CompletableFuture<?>) closeTask.getValue().call()).get(5, TimeUnit.SECONDS);
+        InOrder inOrder = inOrder(mockModbusSource);
+        inOrder.verify(mockModbusSource).writeRegister(eq(0x04), anyInt());
+        inOrder.verify(mockModbusSource).writeRegister(eq(0x02), anyInt());
+        verify(mockExecutor, never()).schedule(any(Runnable.class), eq(10L), eq(TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void testCommandRejectedWhileRunning() throws Exception {
+        ModbusSlaveSimulator simulator = SaimosenSimulatorProfiles.particulateZeroChecker().setLatency(300, 0);
+        try {
+            ParticulateZeroCheckerCommandAttribute command = new ParticulateZeroCheckerCommandAttribute(
+                    "pm10_zero_check_command", AttributeClass.DISPATCH_COMMAND,
+                    SimulatedModbusSource.create(simulator), (short) 0x01, (short) 0x02);
+            CompletableFuture<Boolean> first = command.sendCommandImpl("开启");
+            assertTrue(command.isRunning());
+
+            // 前一个开关操作未应答时拒绝新的操作
+            CompletableFuture<Boolean> second = command.sendCommandImpl("关闭");
+            assertTrue(second.isCompletedExceptionally());
+
+            assertTrue(first.get(5, TimeUnit.SECONDS));
+            assertFalse(command.isRunning());
+            assertEquals(1, simulator.getWriteCount());
+            assertTrue(command.sendCommandImpl("关闭").get(5, TimeUnit.SECONDS));
+        } finally {
+            simulator.close();
+        }
+    }
+
+    @Test
+    public void testCommandWriteCountedInBusStatistics() throws Exception {
+        checker.init();
+        ParticulateZeroCheckerCommandAttribute command =
+                (ParticulateZeroCheckerCommandAttribute) checker.getAttrs().get("pm10_zero_check_command");
+        long completedBefore = checker.getBusStatistics().getCompletedTransactions();
+        long bytesBefore = checker.getBusStatistics().getBytes();
+
+        assertTrue(command.sendCommandImpl("开启").get(5, TimeUnit.SECONDS));
+
+        // 写单个寄存器：请求与应答各8字节（RTU）
+        assertEquals(completedBefore + 1, checker.getBusStatistics().getCompletedTransactions());
+        assertEquals(bytesBefore + 16, checker.getBusStatistics().getBytes());
+    }
+
     // ========== I18n测试方法 ==========
 
     @Test
@@ -0,0 +1,69 @@
+package com.ecat.integration.SaimosenIntegration;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * 轮询周期计数单元测试类
+ */
+public class PollCycleStatsTest {
+
+    private static final long SECOND = 1_000_000_000L;
+
+    @Test
+    public void testRecordReturnsPreviousResult() {
+        PollCycleStats stats = new PollCycleStats(600, 0L);
+        assertNull(stats.record(PollCycleStats.Result.OK));
+        assertEquals(PollCycleStats.Result.OK, stats.record(PollCycleStats.Result.OK));
+        assertEquals(PollCycleStats.Result.OK, stats.record(PollCycleStats.Result.PARTIAL));
+        assertEquals(PollCycleStats.Result.PARTIAL, stats.record(PollCycleStats.Result.FAILED));
+
+        assertEquals(2, stats.getOkCount());
+        assertEquals(1, stats.getPartialCount());
+        assertEquals(1, stats.getFailedCount());
+        assertEquals(PollCycleStats.Result.FAILED, stats.getLastResult());
+    }
+
+    @Test
+    public void testSegmentFailureReportedOnce() {
+        PollCycleStats stats = new PollCycleStats(600, 0L);
+        assertFalse(stats.markSegmentOk("float_params"));
+        assertTrue(stats.markSegmentFailed("float_params"));
+        assertFalse(stats.markSegmentFailed("float_params"));
+        assertTrue(stats.markSegmentOk("float_params"));
+        assertFalse(stats.markSegmentOk("float_params"));
+    }
+
+    @Test
+    public void testSummaryPerWindow() {
+        PollCycleStats stats = new PollCycleStats(60, 0L);
+        for (int i = 0; i < 10; i++) {
+            stats.record(PollCycleStats.Result.OK);
+        }
+        stats.record(PollCycleStats.Result.FAILED);
+        assertNull(stats.pollSummary(59 * SECOND));
+
+        PollCycleStats.Summary first = stats.pollSummary(60 * SECOND);
+        assertNotNull(first);
+        assertEquals(60, first.getSeconds());
+        assertEquals(10, first.getOk());
+        assertEquals(1, first.getFailed());
+        assertEquals(11, first.getTotal());
+
+        // 同一窗口只能取一次
+        assertNull(stats.pollSummary(61 * SECOND));
+
+        stats.record(PollCycleStats.Result.PARTIAL);
+        PollCycleStats.Summary second = stats.pollSummary(120 * SECOND);
+        assertEquals(0, second.getOk());
+        assertEquals(1, second.getPartial());
+    }
+
+    @Test
+    public void testSummaryDisabled() {
+        PollCycleStats stats = new PollCycleStats(0, 0L);
+        stats.record(PollCycleStats.Result.OK);
+        assertNull(stats.pollSummary(3600 * SECOND));
+    }
+}
@@ -0,0 +1,111 @@
+package com.ecat.integration.SaimosenIntegration;
+
+import org.junit.Test;
+
+import java.util.Map;
+
+import static org.junit.Assert.*;
+
+/**
+ * 轮询延迟直方图与记录器单元测试类
+ */
+public class PollLatencyRecorderTest {
+
+    private static final long MS = 1_000_000L;
+
+    @Test
+    public void testEmptyHistogramSnapshot() {
+        LatencyHistogram histogram = new LatencyHistogram(60_000L, 5);
+        LatencyHistogram.Snapshot snapshot = histogram.snapshot(0L);
+        assertEquals(0, snapshot.getCount());
+        assertEquals(0.0, snapshot.getP99Millis(), 0.0);
+    }
+
+    @Test
+    public void testPercentilesWithinBucketPrecision() {
+        LatencyHistogram histogram = new LatencyHistogram(60_000L, 5);
+        long now = 1_000_000L;
+        // 1ms..100ms 各一次
+        for (int i = 1; i <= 100; i++) {
+            histogram.recordNanos(i * MS, now);
+        }
+        LatencyHistogram.Snapshot snapshot = histogram.snapshot(now);
+        assertEquals(100, snapshot.getCount());
+        // 子桶相对误差约3%
+        assertEquals(50.0, snapshot.getP50Millis(), 50.0 * 0.04);
+        assertEquals(99.0, snapshot.getP99Millis(), 99.0 * 0.04);
+        assertEquals(100.0, snapshot.getMaxMillis(), 0.001);
+    }
+
+    @Test
+    public void testSmallValuesAreExact() {
+        for (long micros = 0; micros < 64; micros++) {
+            int index = LatencyHistogram.bucketIndex(micros);
+            assertTrue(LatencyHistogram.highestEquivalentValue(index) >= micros);
+        }
+        assertEquals(31, LatencyHistogram.bucketIndex(31));
+        assertEquals(31, LatencyHistogram.highestEquivalentValue(31));
+    }
+
+    @Test
+    public void testRollingWindowExpiresOldSlots() {
+        LatencyHistogram histogram = new LatencyHistogram(1_000L, 3);
+        histogram.recordNanos(500 * MS, 0L);
+        histogram.recordNanos(10 * MS, 2_500L);
+
+        assertEquals(2, histogram.snapshot(2_500L).getCount());
+        assertEquals(500.0, histogram.snapshot(2_500L).getMaxMillis(), 0.001);
+
+        // 第0个槽滑出窗口后，只剩下10ms的样本
+        LatencyHistogram.Snapshot later = histogram.snapshot(3_500L);
+        assertEquals(1, later.getCount());
+        assertEquals(10.0, later.getMaxMillis(), 0.001);
+
+        // 槽被复用时旧数据清零
+        histogram.recordNanos(20 * MS, 3_100L);
+        LatencyHistogram.Snapshot reused = histogram.snapshot(3_100L);
+        assertEquals(2, reused.getCount());
+        assertEquals(20.0, reused.getMaxMillis(), 0.001);
+    }
+
+    @Test
+    public void testRecorderKeepsSegmentsAndTotals() {
+        PollLatencyRecorder recorder = new PollLatencyRecorder();
+        recorder.record("float_params", PollLatencyRecorder.Stage.BUS, 40 * MS);
+        recorder.record("u16_params", PollLatencyRecorder.Stage.BUS, 20 * MS);
+        recorder.record("float_params", PollLatencyRecorder.Stage.DECODE, MS / 10);
+        recorder.record(PollLatencyRecorder.CYCLE, PollLatencyRecorder.Stage.QUEUE_WAIT, 5 * MS);
+
+        Map<String, Map<PollLatencyRecorder.Stage, LatencyHistogram.Snapshot>> snapshot = recorder.getSnapshot();
+        assertEquals(3, snapshot.size());
+        assertEquals(2, snapshot.get("float_params").size());
+        assertEquals(1, snapshot.get("u16_params").size());
+        assertFalse(snapshot.get(PollLatencyRecorder.CYCLE).containsKey(PollLatencyRecorder.Stage.PUBLISH));
+
+        LatencyHistogram.Snapshot bus = recorder.getStageSnapshot(PollLatencyRecorder.Stage.BUS);
+        assertEquals(2, bus.getCount());
+        assertEquals(40.0, bus.getMaxMillis(), 0.001);
+    }
+
+    @Test
+    public void testUnrecordedStageIsEmpty() {
+        PollLatencyRecorder recorder = new PollLatencyRecorder();
+        assertTrue(recorder.getSnapshot().isEmpty());
+        assertSame(LatencyHistogram.Snapshot.EMPTY, recorder.getStageSnapshot(PollLatencyRecorder.Stage.BUS));
+
+        recorder.record("float_params", PollLatencyRecorder.Stage.BUS, 40 * MS);
+        assertSame(LatencyHistogram.Snapshot.EMPTY, recorder.getStageSnapshot(PollLatencyRecorder.Stage.PUBLISH));
+        assertEquals(1, recorder.getSnapshot().get("float_params").size());
+    }
+
+    @Test
+    public void testValuesBeyondRangeAreClamped() {
+        LatencyHistogram histogram = new LatencyHistogram(60_000L, 3);
+        histogram.recordNanos(3_600_000L * MS, 0L);
+        LatencyHistogram.Snapshot snapshot = histogram.snapshot(0L);
+        assertEquals(1, snapshot.getCount());
+        // 上限约67秒
+        assertTrue(snapshot.getMaxMillis() > 60_000.0);
+        assertTrue(snapshot.getMaxMillis() < 70_000.0);
+    }
+}
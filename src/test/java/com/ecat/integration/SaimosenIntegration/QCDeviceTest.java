@@ -24,6 +24,7 @@ import org.mockito.MockitoAnnotations;
 import java.lang.reflect.Field;
 import java.lang.reflect.Method;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ScheduledExecutorService;
@@ -269,13 +270,13 @@ public class QCDeviceTest {
     @Test
     @SuppressWarnings("unchecked")
     public void testStart_SchedulesReadTask() throws Exception {
-        when((ScheduledFuture<Object>) mockExecutor.scheduleWithFixedDelay(any(Runnable.class), eq(0L), eq(5L), eq(TimeUnit.SECONDS)))
+        when((ScheduledFuture<Object>) mockExecutor.scheduleWithFixedDelay(any(Runnable.class), eq(0L), eq(SmsDeviceBase.POLL_PERIOD_MILLIS), eq(TimeUnit.MILLISECONDS)))
                 .thenReturn((ScheduledFuture<Object>) mockScheduledFuture);
 
         device.start();
 
         verify(mockExecutor, times(1)).scheduleWithFixedDelay(
-                any(Runnable.class), eq(0L), eq(5L), eq(TimeUnit.SECONDS));
+                any(Runnable.class), eq(0L), eq(SmsDeviceBase.POLL_PERIOD_MILLIS), eq(TimeUnit.MILLISECONDS));
 
         ScheduledFuture<?> actualFuture = (ScheduledFuture<?>) getPrivateField(device, "readFuture");
         assertEquals(mockScheduledFuture, actualFuture);
@@ -550,4 +551,100 @@ public class QCDeviceTest {
             ResourceLoader.setLoadI18nResources(true);
         }
     }
+
+    /**
+     * 创建接到模拟从站的质控仪，属性在 init 时绑定模拟器的 ModbusSource
+     */
+    private QCDevice initSimulatedDevice(ModbusSlaveSimulator simulator) throws Exception {
+        Map<String, Object> config = new HashMap<>();
+        Map<String, Object> deviceSettings = new HashMap<>();
+        deviceSettings.put("sampling_tube_length", 4.5);
+        config.put("device_settings", deviceSettings);
+        QCDevice simulated = new QCDevice(config);
+        setPrivateField(simulated, "core", mockEcatCore);
+        simulated.setModbusSource(SimulatedModbusSource.create(simulator));
+        simulated.init();
+        return simulated;
+    }
+
+    @Test
+    public void testSetDisplayValueGoesThroughWriteOverlay() throws Exception {
+        try (ModbusSlaveSimulator simulator = SaimosenSimulatorProfiles.qc().defineWritable(49)) {
+            QCDevice qc = initSimulatedDevice(simulator);
+            ModbusShortAttribute mode = (ModbusShortAttribute) qc.getAttrs().get("ac1_mode");
+
+            // 平台直接调用属性的 setDisplayValue，不经过设备方法
+            assertTrue(mode.setDisplayValue("2").get(2, TimeUnit.SECONDS));
+            assertEquals(2, simulator.getRegister(49));
+            assertTrue(qc.isWriteOverlaid("ac1_mode"));
+
+            // 提交后发起的轮询读数对账
+            assertTrue(qc.pollOnce().get(2, TimeUnit.SECONDS));
+            assertFalse(qc.isWriteOverlaid("ac1_mode"));
+        }
+    }
+
+    @Test
+    public void testSetDisplayValueCountedInBusStatistics() throws Exception {
+        try (ModbusSlaveSimulator simulator = SaimosenSimulatorProfiles.qc().defineWritable(49)) {
+            QCDevice qc = initSimulatedDevice(simulator);
+            ModbusShortAttribute mode = (ModbusShortAttribute) qc.getAttrs().get("ac1_mode");
+            long completedBefore = qc.getBusStatistics().getCompletedTransactions();
+
+            assertTrue(mode.setDisplayValue("2").get(2, TimeUnit.SECONDS));
+
+            assertEquals(completedBefore + 1, qc.getBusStatistics().getCompletedTransactions());
+            assertTrue(qc.getBusStatistics().getTurnaroundNanos() > 0);
+        }
+    }
+
+    @Test
+    public void testSetDisplayValueRecordedInFrameTrace() throws Exception {
+        try (ModbusSlaveSimulator simulator = SaimosenSimulatorProfiles.qc().defineWritable(49)) {
+            QCDevice qc = initSimulatedDevice(simulator);
+            qc.setFrameTraceEnabled(true);
+            ModbusShortAttribute mode = (ModbusShortAttribute) qc.getAttrs().get("ac1_mode");
+
+            assertTrue(mode.setDisplayValue("2").get(2, TimeUnit.SECONDS));
+
+            List<FrameTraceBuffer.Frame> frames = qc.getFrameTrace();
+            int request = -1;
+            for (int i = 0; i < frames.size(); i++) {
+                if ("ac1_mode".equals(frames.get(i).getNote())) {
+                    request = i;
+                }
+            }
+            assertTrue(request >= 0);
+            assertEquals(FrameTraceBuffer.Direction.TX, frames.get(request).getDirection());
+            assertArrayEquals(FrameTraceBuffer.writeSingleFrame(1, 49, 2), frames.get(request).getData());
+            assertEquals(FrameTraceBuffer.Direction.RX, frames.get(request + 1).getDirection());
+            assertArrayEquals(FrameTraceBuffer.writeSingleFrame(1, 49, 2), frames.get(request + 1).getData());
+        }
+    }
+
+    @Test
+    public void testSetDisplayValueBurstWritesFinalValueOnce() throws Exception {
+        try (ModbusSlaveSimulator simulator = SaimosenSimulatorProfiles.qc().defineWritable(46).defineWritable(49)) {
+            QCDevice qc = initSimulatedDevice(simulator);
+            simulator.setLatency(50, 0);
+            ModbusShortAttribute power = (ModbusShortAttribute) qc.getAttrs().get("ac1_power");
+            ModbusShortAttribute mode = (ModbusShortAttribute) qc.getAttrs().get("ac1_mode");
+
+            // 空调开机写入占用总线期间连续调整运行模式
+            CompletableFuture<Boolean> powerOn = power.setDisplayValue("1");
+            CompletableFuture<Boolean> first = mode.setDisplayValue("1");
+            CompletableFuture<Boolean> second = mode.setDisplayValue("2");
+            CompletableFuture<Boolean> last = mode.setDisplayValue("3");
+
+            assertTrue(powerOn.get(2, TimeUnit.SECONDS));
+            assertTrue(last.get(2, TimeUnit.SECONDS));
+            assertSame(first, second);
+            assertSame(first, last);
+
+            long modeWrites = simulator.getWriteHistory().stream().filter(write -> write[0] == 49).count();
+            assertEquals(1, modeWrites);
+            assertEquals(3, simulator.getRegister(49));
+            assertEquals(2, qc.getWriteCoalescer().getCoalescedCount());
+        }
+    }
 }
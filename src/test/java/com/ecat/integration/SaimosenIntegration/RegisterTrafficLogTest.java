@@ -0,0 +1,110 @@
+package com.ecat.integration.SaimosenIntegration;
+
+import org.junit.After;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * 寄存器报文记录文件单元测试类
+ */
+public class RegisterTrafficLogTest {
+
+    private Path tempFile;
+
+    @After
+    public void tearDown() throws Exception {
+        RegisterTrafficLog.closeAll();
+        if (tempFile != null) {
+            Files.deleteIfExists(tempFile);
+        }
+    }
+
+    @Test
+    public void testRoundTrip() throws Exception {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (RegisterTrafficLog.Writer writer = new RegisterTrafficLog.Writer(bytes)) {
+            writer.append(1700000000000L, "NO2Device", "no2-1", 1, "float_params", 0, new short[] {1, -2, 0x7FFF});
+            writer.append(1700000000100L, "NO2Device", "no2-1", 1, "u16_params", 58, new short[] {(short) 0xFFFF});
+            // 时间回退（对时）也要能还原
+            writer.append(1699999999000L, "SampleTube", "tube", 7, "registers", 0, new short[0]);
+        }
+
+        RegisterTrafficLog.Reader reader = new RegisterTrafficLog.Reader(new ByteArrayInputStream(bytes.toByteArray()));
+        RegisterTrafficLog.Record first = reader.next();
+        assertEquals(1700000000000L, first.getTimestamp());
+        assertEquals("NO2Device", first.getDeviceClass());
+        assertEquals("no2-1", first.getDeviceId());
+        assertEquals(1, first.getSlaveId());
+        assertEquals("float_params", first.getSegment());
+        assertEquals(0, first.getStartAddress());
+        assertArrayEquals(new short[] {1, -2, 0x7FFF}, first.getRegisters());
+
+        RegisterTrafficLog.Record second = reader.next();
+        assertEquals(1700000000100L, second.getTimestamp());
+        assertEquals(58, second.getStartAddress());
+        assertArrayEquals(new short[] {(short) 0xFFFF}, second.getRegisters());
+
+        RegisterTrafficLog.Record third = reader.next();
+        assertEquals(1699999999000L, third.getTimestamp());
+        assertEquals("SampleTube", third.getDeviceClass());
+        assertEquals(7, third.getSlaveId());
+        assertEquals(0, third.getRegisterCount());
+
+        assertNull(reader.next());
+        reader.close();
+    }
+
+    @Test
+    public void testFramesAreCompact() throws Exception {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        RegisterTrafficLog.Writer writer = new RegisterTrafficLog.Writer(bytes);
+        writer.append(1700000000000L, "NO2Device", "no2-1", 1, "float_params", 0, new short[54]);
+        writer.flush();
+        int afterFirst = bytes.size();
+        for (int i = 1; i <= 100; i++) {
+            writer.append(1700000000000L + i * 5000L, "NO2Device", "no2-1", 1, "float_params", 0, new short[54]);
+        }
+        writer.close();
+
+        // 字典只写一次，之后每帧只有寄存器数据加少量头部
+        int perFrame = (bytes.size() - afterFirst) / 100;
+        assertTrue("frame overhead too large: " + perFrame, perFrame <= 54 * 2 + 10);
+    }
+
+    @Test
+    public void testSharedWriterAppendsToExistingFile() throws Exception {
+        tempFile = Files.createTempFile("traffic", ".smrt");
+        Files.delete(tempFile);
+
+        RegisterTrafficLog.Writer writer = RegisterTrafficLog.writerFor(tempFile.toString());
+        assertSame(writer, RegisterTrafficLog.writerFor(tempFile.toString()));
+        writer.append(1000L, "CODevice", "co", 2, "float_params", 0, new short[] {10});
+        RegisterTrafficLog.closeAll();
+
+        // 重启后追加：新的文件头重置字典和时间基准
+        writer = RegisterTrafficLog.writerFor(tempFile.toString());
+        writer.append(2000L, "O3Device", "o3", 3, "u16_params", 40, new short[] {20});
+        RegisterTrafficLog.closeAll();
+
+        List<RegisterTrafficLog.Record> records = RegisterTrafficLog.readAll(tempFile);
+        assertEquals(2, records.size());
+        assertEquals("CODevice", records.get(0).getDeviceClass());
+        assertEquals(1000L, records.get(0).getTimestamp());
+        assertEquals("O3Device", records.get(1).getDeviceClass());
+        assertEquals("u16_params", records.get(1).getSegment());
+        assertEquals(2000L, records.get(1).getTimestamp());
+    }
+
+    @Test(expected = IOException.class)
+    public void testRejectsForeignFile() throws Exception {
+        new RegisterTrafficLog.Reader(new ByteArrayInputStream("not a log".getBytes("UTF-8")));
+    }
+}
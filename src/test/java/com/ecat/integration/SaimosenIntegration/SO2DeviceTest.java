@@ -238,7 +238,7 @@ public class SO2DeviceTest {
     
     @Test
     public void testStart_SchedulesReadTask() throws Exception {
-        when(mockExecutor.scheduleWithFixedDelay(any(Runnable.class), eq(0L), eq(5L), eq(TimeUnit.SECONDS)))
+        when(mockExecutor.scheduleWithFixedDelay(any(Runnable.class), eq(0L), eq(SmsDeviceBase.POLL_PERIOD_MILLIS), eq(TimeUnit.MILLISECONDS)))
                 .thenAnswer(v->mockScheduledFuture);
                 
         // 执行start方法
@@ -246,7 +246,7 @@ public class SO2DeviceTest {
         
         // 验证定时任务是否被调度
         verify(mockExecutor, times(1)).scheduleWithFixedDelay(
-                any(Runnable.class), eq(0L), eq(5L), eq(TimeUnit.SECONDS));
+                any(Runnable.class), eq(0L), eq(SmsDeviceBase.POLL_PERIOD_MILLIS), eq(TimeUnit.MILLISECONDS));
     }
     
     @Test
@@ -516,7 +516,7 @@ public class SO2DeviceTest {
     @Test
     public void testDeviceLifecycle() throws Exception {
         // 测试完整的设备生命周期
-        when(mockExecutor.scheduleWithFixedDelay(any(Runnable.class), eq(0L), eq(5L), eq(TimeUnit.SECONDS)))
+        when(mockExecutor.scheduleWithFixedDelay(any(Runnable.class), eq(0L), eq(SmsDeviceBase.POLL_PERIOD_MILLIS), eq(TimeUnit.MILLISECONDS)))
             .thenAnswer(v->mockScheduledFuture);
         when(mockModbusSource.isModbusOpen()).thenReturn(true);
 
@@ -527,7 +527,7 @@ public class SO2DeviceTest {
         // 2. 启动
         so2Device.start();
         verify(mockExecutor, times(1)).scheduleWithFixedDelay(
-                any(Runnable.class), eq(0L), eq(5L), eq(TimeUnit.SECONDS));
+                any(Runnable.class), eq(0L), eq(SmsDeviceBase.POLL_PERIOD_MILLIS), eq(TimeUnit.MILLISECONDS));
 
         // 3. 停止
         so2Device.stop();
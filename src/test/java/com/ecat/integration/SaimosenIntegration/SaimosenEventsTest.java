@@ -0,0 +1,62 @@
+package com.ecat.integration.SaimosenIntegration;
+
+import org.junit.Test;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeoutException;
+import java.util.stream.Collectors;
+
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+
+import static org.junit.Assert.*;
+
+/**
+ * JFR自定义事件单元测试类
+ */
+public class SaimosenEventsTest {
+
+    @Test
+    public void testOutcomeOf() {
+        assertEquals(SaimosenEvents.OUTCOME_OK, SaimosenEvents.outcomeOf(true, null));
+        assertEquals(SaimosenEvents.OUTCOME_FAILED, SaimosenEvents.outcomeOf(false, null));
+        assertEquals(SaimosenEvents.OUTCOME_TIMEOUT,
+                SaimosenEvents.outcomeOf(null, new RuntimeException(new TimeoutException("no response"))));
+        assertEquals(SaimosenEvents.OUTCOME_ERROR,
+                SaimosenEvents.outcomeOf(null, new RuntimeException("CRC mismatch")));
+    }
+
+    @Test
+    public void testCommandWriteEventRecorded() throws Exception {
+        Path file = Files.createTempFile("saimosen-events", ".jfr");
+        try (Recording recording = new Recording()) {
+            recording.enable("saimosen.CommandWrite");
+            recording.start();
+
+            CompletableFuture<Boolean> result = SaimosenEvents.traceCommandWrite("no2-1", "NO2Device",
+                    "span_calibration_start", 0x3EB, 400, () -> CompletableFuture.completedFuture(true));
+            assertTrue(result.get());
+
+            recording.stop();
+            recording.dump(file);
+
+            List<RecordedEvent> events = RecordingFile.readAllEvents(file).stream()
+                    .filter(e -> "saimosen.CommandWrite".equals(e.getEventType().getName()))
+                    .collect(Collectors.toList());
+            assertEquals(1, events.size());
+            RecordedEvent event = events.get(0);
+            assertEquals("no2-1", event.getString("deviceId"));
+            assertEquals("NO2Device", event.getString("deviceClass"));
+            assertEquals("span_calibration_start", event.getString("command"));
+            assertEquals(0x3EB, event.getInt("address"));
+            assertEquals(400, event.getInt("value"));
+            assertEquals(SaimosenEvents.OUTCOME_OK, event.getString("outcome"));
+        } finally {
+            Files.deleteIfExists(file);
+        }
+    }
+}
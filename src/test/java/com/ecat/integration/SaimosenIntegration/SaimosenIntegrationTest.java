@@ -0,0 +1,261 @@
+package com.ecat.integration.SaimosenIntegration;
+
+import com.ecat.core.EcatCore;
+import com.ecat.core.Bus.BusRegistry;
+import com.ecat.core.Device.DeviceBase;
+import com.ecat.core.Device.DeviceClasses;
+import com.ecat.core.Integration.IntegrationManager;
+import com.ecat.core.Integration.IntegrationRegistry;
+import com.ecat.core.Task.TaskManager;
+import com.ecat.core.Utils.Log;
+import com.ecat.integration.ModbusIntegration.ModbusIntegration;
+import com.ecat.integration.ModbusIntegration.ModbusSource;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.lang.reflect.Field;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+/**
+ * SaimosenIntegration 启动与热更新单元测试类
+ */
+public class SaimosenIntegrationTest {
+
+    private SaimosenIntegration integration;
+    private ScheduledExecutorService executor;
+    private ModbusIntegration modbusIntegration;
+    private final List<Map<String, Object>> deviceConfigs = new ArrayList<>();
+
+    @Before
+    public void setUp() throws Exception {
+        executor = mock(ScheduledExecutorService.class);
+        doAnswer(invocation -> mock(ScheduledFuture.class)).when(executor)
+                .scheduleWithFixedDelay(any(Runnable.class), anyLong(), anyLong(), any(TimeUnit.class));
+        TaskManager taskManager = mock(TaskManager.class);
+        when(taskManager.getExecutorService()).thenReturn(executor);
+
+        ModbusSource source = mock(ModbusSource.class);
+        when(source.acquire()).thenReturn("testKey");
+        modbusIntegration = mock(ModbusIntegration.class);
+        when(modbusIntegration.register(any(), any())).thenReturn(source);
+        IntegrationRegistry integrationRegistry = mock(IntegrationRegistry.class);
+        when(integrationRegistry.getIntegration("integration-modbus")).thenReturn(modbusIntegration);
+
+        EcatCore core = mock(EcatCore.class);
+        when(core.getTaskManager()).thenReturn(taskManager);
+        when(core.getBusRegistry()).thenReturn(mock(BusRegistry.class));
+        when(core.getIntegrationRegistry()).thenReturn(integrationRegistry);
+
+        Map<String, Object> integrationConfig = new HashMap<>();
+        integrationConfig.put("devices", deviceConfigs);
+        IntegrationManager integrationManager = mock(IntegrationManager.class);
+        when(integrationManager.loadConfig(any())).thenReturn(integrationConfig);
+
+        integration = new SaimosenIntegration();
+        setField(integration, "core", core);
+        setField(integration, "integrationManager", integrationManager);
+        if (getField(integration, "log") == null) {
+            setField(integration, "log", mock(Log.class));
+        }
+        integration.getDeviceConfigDefinition();
+    }
+
+    @After
+    public void tearDown() {
+        integration.onRelease();
+    }
+
+    @Test
+    public void testDevicesCreatedPerLineWithOneBusDeviceEach() {
+        deviceConfigs.add(no2Config("NO2-A", "COM1", 1));
+        deviceConfigs.add(no2Config("NO2-B", "COM1", 2));
+        deviceConfigs.add(no2Config("NO2-C", "COM2", 1));
+
+        integration.onInit();
+
+        assertNotNull(device("NO2-A"));
+        assertNotNull(device("NO2-B"));
+        assertNotNull(device("NO2-C"));
+        int busDevices = 0;
+        for (DeviceBase device : integration.getAllDevices()) {
+            if (device instanceof SerialBusDevice) {
+                busDevices++;
+            }
+        }
+        assertEquals(2, busDevices);
+        verify(modbusIntegration, times(3)).register(any(), any());
+    }
+
+    @Test
+    public void testFirstPollsStaggeredWithinLine() {
+        deviceConfigs.add(no2Config("NO2-A", "COM1", 1));
+        deviceConfigs.add(no2Config("NO2-B", "COM1", 2));
+        deviceConfigs.add(no2Config("NO2-C", "COM1", 3));
+        deviceConfigs.add(no2Config("NO2-D", "COM2", 1));
+
+        integration.onInit();
+
+        long pollMillis = device("NO2-A").estimatePollMillis();
+        assertTrue(pollMillis > 0);
+        assertEquals(0, device("NO2-A").getStartDelayMillis());
+        assertEquals(pollMillis, device("NO2-B").getStartDelayMillis());
+        assertEquals(2 * pollMillis, device("NO2-C").getStartDelayMillis());
+        // 不同线路互不影响
+        assertEquals(0, device("NO2-D").getStartDelayMillis());
+
+        integration.onStart();
+        verify(executor).scheduleWithFixedDelay(any(Runnable.class), eq(pollMillis),
+                eq(SmsDeviceBase.POLL_PERIOD_MILLIS), eq(TimeUnit.MILLISECONDS));
+        verify(executor).scheduleWithFixedDelay(any(Runnable.class), eq(2 * pollMillis),
+                eq(SmsDeviceBase.POLL_PERIOD_MILLIS), eq(TimeUnit.MILLISECONDS));
+    }
+
+    @Test
+    public void testDeviceAddedWhileRunningOffsetBehindLine() {
+        deviceConfigs.add(no2Config("NO2-A", "COM1", 1));
+        deviceConfigs.add(no2Config("NO2-B", "COM1", 2));
+        integration.onInit();
+        integration.onStart();
+        long pollMillis = device("NO2-A").estimatePollMillis();
+
+        List<Map<String, Object>> configs = new ArrayList<>(deviceConfigs);
+        configs.add(no2Config("NO2-C", "COM1", 3));
+        integration.reconfigure(configs);
+
+        // 新设备排在线路上已有设备的轮询之后
+        assertEquals((2 * pollMillis) % SmsDeviceBase.POLL_PERIOD_MILLIS, device("NO2-C").getStartDelayMillis());
+    }
+
+    @Test
+    public void testStartupMillisRecordedWhenAllDevicesReported() {
+        deviceConfigs.add(no2Config("NO2-A", "COM1", 1));
+        deviceConfigs.add(no2Config("NO2-B", "COM2", 1));
+        integration.onInit();
+        integration.onStart();
+        assertEquals(-1, integration.getStartupMillis());
+
+        device("NO2-A").getFirstReport().complete(null);
+        assertEquals(-1, integration.getStartupMillis());
+
+        device("NO2-B").getFirstReport().complete(null);
+        assertTrue(integration.getStartupMillis() >= 0);
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void testReconfigureAppliesOnlyChangedDevices() {
+        deviceConfigs.add(no2Config("NO2-A", "COM1", 1));
+        deviceConfigs.add(no2Config("NO2-B", "COM1", 2));
+        deviceConfigs.add(no2Config("NO2-C", "COM2", 1));
+        deviceConfigs.add(no2Config("NO2-E", "COM2", 2));
+        integration.onInit();
+        integration.onStart();
+        SmsDeviceBase a = device("NO2-A");
+        SmsDeviceBase b = device("NO2-B");
+        SmsDeviceBase c = device("NO2-C");
+
+        Map<String, Object> reconnected = new HashMap<>(b.getConfig());
+        Map<String, Object> commSettings = new HashMap<>((Map<String, Object>) reconnected.get("comm_settings"));
+        commSettings.put("port", "COM3");
+        reconnected.put("comm_settings", commSettings);
+        Map<String, Object> replaced = new HashMap<>(c.getConfig());
+        replaced.put("name", "NO2-C2");
+        SaimosenIntegration.ReloadResult result = integration.reconfigure(Arrays.asList(
+                a.getConfig(), reconnected, replaced, no2Config("NO2-D", "COM2", 3)));
+
+        assertEquals(Arrays.asList("NO2-A"), result.getUnchanged());
+        assertEquals(Arrays.asList("NO2-B"), result.getReconnected());
+        assertEquals(Arrays.asList("NO2-C"), result.getReplaced());
+        assertEquals(Arrays.asList("NO2-E"), result.getRemoved());
+        assertEquals(Arrays.asList("NO2-D"), result.getAdded());
+
+        // 未变化和仅换线路的设备保留原实例，重建和删除的设备被替换或移除
+        assertSame(a, device("NO2-A"));
+        assertSame(b, device("NO2-B"));
+        assertEquals("COM3", b.getBusStatistics().getPort());
+        assertNotSame(c, device("NO2-C"));
+        assertEquals("NO2-C2", device("NO2-C").getConfig().get("name"));
+        assertNull(device("NO2-E"));
+        assertNotNull(device("NO2-D"));
+    }
+
+    @Test
+    public void testReconfigureKeepsDeviceWithInvalidConfig() {
+        deviceConfigs.add(no2Config("NO2-A", "COM1", 1));
+        integration.onInit();
+        SmsDeviceBase a = device("NO2-A");
+
+        Map<String, Object> invalid = no2Config("NO2-A", "COM1", 1);
+        invalid.remove("comm_settings");
+        SaimosenIntegration.ReloadResult result = integration.reconfigure(Arrays.asList(invalid));
+
+        assertEquals(Arrays.asList("NO2-A"), result.getInvalid());
+        assertTrue(result.getRemoved().isEmpty());
+        assertSame(a, device("NO2-A"));
+    }
+
+    private SmsDeviceBase device(String id) {
+        for (DeviceBase device : integration.getAllDevices()) {
+            if (device instanceof SmsDeviceBase && id.equals(device.getId())) {
+                return (SmsDeviceBase) device;
+            }
+        }
+        return null;
+    }
+
+    private static Map<String, Object> no2Config(String id, String port, int slaveId) {
+        Map<String, Object> commSettings = new HashMap<>();
+        commSettings.put("port", port);
+        commSettings.put("baudRate", 9600);
+        commSettings.put("numDataBit", 8);
+        commSettings.put("numStopBit", 1);
+        commSettings.put("parity", "N");
+        commSettings.put("timeout", 2000);
+        commSettings.put("slaveId", slaveId);
+        Map<String, Object> config = new HashMap<>();
+        config.put("id", id);
+        config.put("name", id);
+        config.put("class", DeviceClasses.AIR_MONITOR_NO2.getClassName());
+        config.put("comm_settings", commSettings);
+        return config;
+    }
+
+    private static void setField(Object target, String fieldName, Object value) throws Exception {
+        Field field = findField(target.getClass(), fieldName);
+        field.setAccessible(true);
+        field.set(target, value);
+    }
+
+    private static Object getField(Object target, String fieldName) throws Exception {
+        Field field = findField(target.getClass(), fieldName);
+        field.setAccessible(true);
+        return field.get(target);
+    }
+
+    private static Field findField(Class<?> clazz, String fieldName) throws NoSuchFieldException {
+        try {
+            return clazz.getDeclaredField(fieldName);
+        } catch (NoSuchFieldException e) {
+            Class<?> superClass = clazz.getSuperclass();
+            if (superClass == null) {
+                throw e;
+            }
+            return findField(superClass, fieldName);
+        }
+    }
+}
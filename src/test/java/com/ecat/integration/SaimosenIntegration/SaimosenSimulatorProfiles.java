@@ -0,0 +1,198 @@
+package com.ecat.integration.SaimosenIntegration;
+
+/**
+ * 赛默森各设备的模拟寄存器空间
+ *
+ * <p>地址区间与各设备类中的 SEGMENT_CONFIG / BLOCK_CONFIG / 块常量保持一致，
+ * 设备类中的配置调整时需要同步修改这里。寄存器初值只保证能被正常解析，不代表真实读数。</p>
+ *
+ * @version V1.0
+ */
+public final class SaimosenSimulatorProfiles {
+
+    /** 分析仪校准寄存器（0x3E8-0x3EE） */
+    public static final int ZERO_CALIBRATION_START = 0x3E8;
+    public static final int ZERO_CALIBRATION_CONFIRM = 0x3E9;
+    public static final int ZERO_CALIBRATION_CANCEL = 0x3EA;
+    public static final int SPAN_CALIBRATION_START = 0x3EB;
+    public static final int SPAN_CALIBRATION_CONFIRM = 0x3EC;
+    public static final int SPAN_CALIBRATION_CANCEL = 0x3ED;
+    public static final int CALIBRATION_STATUS = 0x3EE;
+
+    /** 校准状态寄存器取值 */
+    public static final int STATUS_MEASURE = 0;
+    public static final int STATUS_ZERO_CALIBRATION = 1;
+    public static final int STATUS_SPAN_CALIBRATION = 2;
+
+    /** 校准仪标气选择和系统状态寄存器 */
+    public static final int CALIBRATOR_GAS_SELECT = 0x46;
+    public static final int CALIBRATOR_SYSTEM_STATE = 0x48;
+    public static final int CALIBRATOR_STATE_STANDBY = 0x01;
+    public static final int CALIBRATOR_STATE_GAS_PREPARING = 0x02;
+    public static final int CALIBRATOR_STATE_O3_PREPARING = 0x0C;
+
+    private SaimosenSimulatorProfiles() {
+    }
+
+    public static ModbusSlaveSimulator no2() {
+        // float_params(0, 54)、u16_params(58, 28)
+        return analyzer("NO2Device", 0, 54, 58, 28);
+    }
+
+    public static ModbusSlaveSimulator so2() {
+        // float_params(0, 32)、u16_params(38, 26)
+        return analyzer("SO2Device", 0, 32, 38, 26);
+    }
+
+    public static ModbusSlaveSimulator o3() {
+        // float_params(0, 40)、u16_params(40, 18)
+        return analyzer("O3Device", 0, 40, 40, 18);
+    }
+
+    public static ModbusSlaveSimulator co() {
+        // float_params(0, 40)、u16_params(60, 13)
+        return analyzer("CODevice", 0, 40, 60, 13);
+    }
+
+    /**
+     * 校准仪：0x00起38个寄存器，0x46起5个寄存器；写标气选择会改变系统状态
+     */
+    public static ModbusSlaveSimulator calibrator() {
+        ModbusSlaveSimulator sim = new ModbusSlaveSimulator("CalibratorDevice")
+                .defineRange(0x00, 38)
+                .defineRange(CALIBRATOR_GAS_SELECT, 5);
+        for (int address = 0; address + 1 < 38; address += 2) {
+            sim.setFloatBigEndian(address, 100.0f + address);
+        }
+        sim.setRegister(CALIBRATOR_GAS_SELECT, 0x00)
+                .setRegister(CALIBRATOR_SYSTEM_STATE, CALIBRATOR_STATE_STANDBY)
+                .setFloatBigEndian(0x49, 0.0f);
+
+        sim.defineWritable(CALIBRATOR_GAS_SELECT, (s, address, value) -> {
+            if (value == 0x00) {
+                s.setRegister(CALIBRATOR_SYSTEM_STATE, CALIBRATOR_STATE_STANDBY);
+            } else if (value == 0x66) {
+                s.setRegister(CALIBRATOR_SYSTEM_STATE, CALIBRATOR_STATE_O3_PREPARING);
+            } else {
+                s.setRegister(CALIBRATOR_SYSTEM_STATE, CALIBRATOR_STATE_GAS_PREPARING);
+            }
+        });
+        return sim;
+    }
+
+    /**
+     * 质控仪：0x00起110个寄存器，0x6E起123个寄存器，共233个
+     */
+    public static ModbusSlaveSimulator qc() {
+        ModbusSlaveSimulator sim = new ModbusSlaveSimulator("QCDevice")
+                .defineRange(0x00, 110)
+                .defineRange(0x6E, 123);
+        for (int address = 0; address + 1 < 110; address += 2) {
+            sim.setFloatBigEndian(address, 1.0f + address / 2);
+        }
+        for (int address = 0x6E; address < 0x6E + 123; address++) {
+            sim.setRegister(address, 250);
+        }
+        return sim;
+    }
+
+    /**
+     * 采样管：0起11个寄存器，校准状态、设备地址、加热管温度可写
+     */
+    public static ModbusSlaveSimulator sampleTube() {
+        ModbusSlaveSimulator sim = new ModbusSlaveSimulator("SampleTube")
+                .defineRange(0, 11);
+        short[] initial = {450, 250, 0, 0, 1, 300, 1200, 50, 80, 0, 1200};
+        for (int i = 0; i < initial.length; i++) {
+            sim.setRegister(i, initial[i]);
+        }
+        return sim.defineWritable(2)
+                .defineWritable(4)
+                .defineWritable(6)
+                .defineWritable(10);
+    }
+
+    /**
+     * 智能电源稳压器：0起41个寄存器
+     */
+    public static ModbusSlaveSimulator smartPowerStabilizer() {
+        ModbusSlaveSimulator sim = new ModbusSlaveSimulator("SmartPowerStabilizer")
+                .defineRange(0, 41);
+        for (int i = 0; i < 4; i++) {
+            sim.setRegister(i, 15);          // 电流
+            sim.setRegister(4 + i, 2200);    // 电压
+            sim.setRegister(8 + i, 330);     // 功率
+        }
+        sim.setRegister(12, 250).setRegister(13, 450).setRegister(40, 1);
+        return sim;
+    }
+
+    /**
+     * 颗粒物零点检查器：只写，0x01/0x02 为PM10开/关，0x03/0x04 为PM2.5开/关
+     */
+    public static ModbusSlaveSimulator particulateZeroChecker() {
+        return new ModbusSlaveSimulator("ParticulateZeroChecker")
+                .defineWritable(0x01)
+                .defineWritable(0x02)
+                .defineWritable(0x03)
+                .defineWritable(0x04);
+    }
+
+    /**
+     * 按设备类取对应的模拟器
+     */
+    public static ModbusSlaveSimulator forDeviceClass(Class<? extends SmsDeviceBase> deviceClass) {
+        switch (deviceClass.getSimpleName()) {
+            case "NO2Device":
+                return no2();
+            case "SO2Device":
+                return so2();
+            case "O3Device":
+                return o3();
+            case "CODevice":
+                return co();
+            case "CalibratorDevice":
+                return calibrator();
+            case "QCDevice":
+                return qc();
+            case "SampleTube":
+                return sampleTube();
+            case "SmartPowerStabilizer":
+                return smartPowerStabilizer();
+            case "ParticulateZeroChecker":
+                return particulateZeroChecker();
+            default:
+                throw new IllegalArgumentException("No simulator profile for " + deviceClass.getName());
+        }
+    }
+
+    /**
+     * 气体分析仪：float段 + U16段 + 校准寄存器，校准命令驱动0x3EE状态迁移
+     */
+    private static ModbusSlaveSimulator analyzer(String name, int floatStart, int floatCount,
+            int u16Start, int u16Count) {
+        ModbusSlaveSimulator sim = new ModbusSlaveSimulator(name)
+                .defineRange(floatStart, floatCount)
+                .defineRange(u16Start, u16Count)
+                .defineRange(SPAN_CALIBRATION_START, 1)
+                .defineRange(CALIBRATION_STATUS, 1);
+        for (int i = 0; i + 1 < floatCount; i += 2) {
+            sim.setFloatLittleEndianByteSwap(floatStart + i, 10.0f + i / 2);
+        }
+        for (int i = 0; i < u16Count; i++) {
+            sim.setRegister(u16Start + i, 1);
+        }
+        sim.setRegister(CALIBRATION_STATUS, STATUS_MEASURE);
+
+        ModbusSlaveSimulator.WriteHook toMeasure = (s, address, value) -> s.setRegister(CALIBRATION_STATUS, STATUS_MEASURE);
+        return sim
+                .defineWritable(ZERO_CALIBRATION_START,
+                        (s, address, value) -> s.setRegister(CALIBRATION_STATUS, STATUS_ZERO_CALIBRATION))
+                .defineWritable(ZERO_CALIBRATION_CONFIRM, toMeasure)
+                .defineWritable(ZERO_CALIBRATION_CANCEL, toMeasure)
+                .defineWritable(SPAN_CALIBRATION_START,
+                        (s, address, value) -> s.setRegister(CALIBRATION_STATUS, STATUS_SPAN_CALIBRATION))
+                .defineWritable(SPAN_CALIBRATION_CONFIRM, toMeasure)
+                .defineWritable(SPAN_CALIBRATION_CANCEL, toMeasure);
+    }
+}
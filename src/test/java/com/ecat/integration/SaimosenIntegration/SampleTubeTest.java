@@ -166,7 +166,7 @@ public class SampleTubeTest {
         
         // 测试启动
         sampleTube.start();
-        verify(mockExecutor, times(1)).scheduleWithFixedDelay(any(Runnable.class), eq(0L), eq(5L), eq(TimeUnit.SECONDS));
+        verify(mockExecutor, times(1)).scheduleWithFixedDelay(any(Runnable.class), eq(0L), eq(SmsDeviceBase.POLL_PERIOD_MILLIS), eq(TimeUnit.MILLISECONDS));
         
         // 测试停止
         sampleTube.stop();
@@ -0,0 +1,53 @@
+package com.ecat.integration.SaimosenIntegration;
+
+import com.ecat.integration.ModbusIntegration.ModbusSource;
+import com.serotonin.modbus4j.msg.ModbusResponse;
+import com.serotonin.modbus4j.msg.ReadHoldingRegistersResponse;
+import com.serotonin.modbus4j.msg.WriteRegisterResponse;
+import com.serotonin.modbus4j.msg.WriteRegistersResponse;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * 把 {@link ModbusSlaveSimulator} 接到 {@link ModbusSource} 后面
+ *
+ * <p>返回的 ModbusSource 把读保持寄存器、写单个寄存器和写多个寄存器转发给模拟器，
+ * 并把应答包装成 modbus4j 响应对象，设备类通过 {@code setModbusSource} 注入后无需任何修改。</p>
+ *
+ * @version V1.0
+ */
+public final class SimulatedModbusSource {
+
+    private SimulatedModbusSource() {
+    }
+
+    public static ModbusSource create(ModbusSlaveSimulator simulator) {
+        ModbusSource source = mock(ModbusSource.class);
+        when(source.acquire()).thenReturn("simulator-" + simulator.getName());
+        when(source.isModbusOpen()).thenReturn(true);
+        when(source.readHoldingRegisters(anyInt(), anyInt())).thenAnswer(invocation ->
+                simulator.read(invocation.getArgument(0), invocation.getArgument(1))
+                        .thenApply(reply -> toResponse(reply, mock(ReadHoldingRegistersResponse.class))));
+        when(source.writeRegister(anyInt(), anyInt())).thenAnswer(invocation ->
+                simulator.write(invocation.getArgument(0), invocation.getArgument(1))
+                        .thenApply(reply -> toResponse(reply, mock(WriteRegisterResponse.class))));
+        when(source.writeRegisters(anyInt(), any(short[].class))).thenAnswer(invocation ->
+                simulator.writeMultiple(invocation.getArgument(0), invocation.<short[]>getArgument(1))
+                        .thenApply(reply -> toResponse(reply, mock(WriteRegistersResponse.class))));
+        return source;
+    }
+
+    private static <R extends ModbusResponse> R toResponse(ModbusSlaveSimulator.Reply reply, R response) {
+        when(response.isException()).thenReturn(reply.isException());
+        if (reply.isException()) {
+            when(response.getExceptionCode()).thenReturn((byte) reply.getExceptionCode());
+            when(response.getExceptionMessage()).thenReturn(reply.getExceptionMessage());
+        } else if (response instanceof ReadHoldingRegistersResponse) {
+            when(((ReadHoldingRegistersResponse) response).getShortData()).thenReturn(reply.getData());
+        }
+        return response;
+    }
+}
@@ -171,7 +171,7 @@ public class SmartPowerStabilizerTest {
     
     @Test
     public void testStart_SchedulesReadTask() throws Exception {
-        when(mockExecutor.scheduleWithFixedDelay(any(Runnable.class), eq(0L), eq(5L), eq(TimeUnit.SECONDS)))
+        when(mockExecutor.scheduleWithFixedDelay(any(Runnable.class), eq(0L), eq(SmsDeviceBase.POLL_PERIOD_MILLIS), eq(TimeUnit.MILLISECONDS)))
                 .thenAnswer(v->mockScheduledFuture);
                 
         // 执行start方法
@@ -179,7 +179,7 @@ public class SmartPowerStabilizerTest {
         
         // 验证定时任务是否被调度
         verify(mockExecutor, times(1)).scheduleWithFixedDelay(
-                any(Runnable.class), eq(0L), eq(5L), eq(TimeUnit.SECONDS));
+                any(Runnable.class), eq(0L), eq(SmsDeviceBase.POLL_PERIOD_MILLIS), eq(TimeUnit.MILLISECONDS));
 
         ScheduledFuture<?> actualFuture = (ScheduledFuture<?>) getPrivateField(stabilizer, "readFuture");
         assertEquals(mockScheduledFuture, actualFuture);
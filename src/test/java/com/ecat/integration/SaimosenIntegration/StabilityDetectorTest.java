@@ -0,0 +1,124 @@
+package com.ecat.integration.SaimosenIntegration;
+
+import org.junit.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+/**
+ * 流式读数稳定判断单元测试类
+ */
+public class StabilityDetectorTest {
+
+    private static final long BASE = 1700000000000L;
+
+    @Test
+    public void testSettlesAfterWindowAndRequiredSamples() {
+        StabilityDetector detector = new StabilityDetector(10, 0.5, 1.0, 3);
+        Random random = new Random(3);
+        int settledAt = -1;
+        for (int i = 0; i < 40 && settledAt < 0; i++) {
+            // 前10个样本从20下降到0，之后在0附近小幅波动
+            double value = i < 10 ? 20 - 2 * i : random.nextGaussian() * 0.05;
+            if (detector.add(BASE + i * 1000L, value)) {
+                settledAt = i;
+            }
+        }
+        // 下降段移出窗口后（第19个样本）开始计数，再连续3个样本满足条件
+        assertEquals(21, settledAt);
+        assertTrue(detector.isStable());
+        assertEquals(0, detector.getMean(), 0.1);
+    }
+
+    @Test
+    public void testDriftIsNotStable() {
+        StabilityDetector detector = new StabilityDetector(12, 1.0, 1.0, 1);
+        for (int i = 0; i < 60; i++) {
+            // 每5秒上升0.2，即每分钟2.4
+            assertFalse(detector.add(BASE + i * 5000L, 10 + i * 0.2));
+        }
+        assertEquals(2.4, detector.getSlopePerMinute(), 1e-6);
+        assertTrue(detector.getStdDev() < 1.0);
+    }
+
+    @Test
+    public void testIncrementalStatisticsMatchWindow() {
+        int window = 16;
+        StabilityDetector detector = new StabilityDetector(window, 1, 1, 1);
+        Random random = new Random(5);
+        double[] values = new double[1000];
+        long[] times = new long[values.length];
+        long time = BASE;
+        for (int i = 0; i < values.length; i++) {
+            // 不规则的采样间隔
+            time += 500 + random.nextInt(5000);
+            times[i] = time;
+            values[i] = 100 + random.nextGaussian() * 3 + i * 0.01;
+            detector.add(times[i], values[i]);
+        }
+
+        int from = values.length - window;
+        double mean = 0;
+        double meanX = 0;
+        for (int i = from; i < values.length; i++) {
+            mean += values[i];
+            meanX += (times[i] - times[from]) / 1000.0;
+        }
+        mean /= window;
+        meanX /= window;
+        double squares = 0;
+        double covariance = 0;
+        double varianceX = 0;
+        for (int i = from; i < values.length; i++) {
+            double x = (times[i] - times[from]) / 1000.0;
+            squares += (values[i] - mean) * (values[i] - mean);
+            covariance += (x - meanX) * (values[i] - mean);
+            varianceX += (x - meanX) * (x - meanX);
+        }
+        assertEquals(window, detector.getCount());
+        assertEquals(mean, detector.getMean(), 1e-9);
+        assertEquals(Math.sqrt(squares / (window - 1)), detector.getStdDev(), 1e-6);
+        assertEquals(covariance / varianceX * 60, detector.getSlopePerMinute(), 1e-6);
+    }
+
+    @Test
+    public void testTargetAndInvalidSamples() {
+        StabilityDetector detector = new StabilityDetector(4, 0.5, 1.0, 1).setTarget(0, 1.0);
+        for (int i = 0; i < 10; i++) {
+            // 读数平稳但偏离零点
+            assertFalse(detector.add(BASE + i * 1000L, 5.0));
+        }
+        for (int i = 10; i < 14; i++) {
+            detector.add(BASE + i * 1000L, 0.2);
+        }
+        assertTrue(detector.isStable());
+
+        // 无效读数清空窗口
+        assertFalse(detector.add(BASE + 15000L, Double.NaN));
+        assertEquals(0, detector.getCount());
+        assertFalse(detector.isStable());
+    }
+
+    @Test
+    public void testFactoryFromConfig() {
+        Map<String, Object> config = new HashMap<>();
+        config.put("window_samples", 3);
+        config.put("required_samples", 2);
+        StabilityDetector detector = StabilityDetector.factory(config).get();
+        assertFalse(detector.add(BASE, 1));
+        assertFalse(detector.add(BASE + 1000, 1));
+        assertFalse(detector.add(BASE + 2000, 1));
+        assertTrue(detector.add(BASE + 3000, 1));
+
+        config.put("window_samples", 1);
+        try {
+            StabilityDetector.factory(config);
+            fail("window_samples must be at least 2");
+        } catch (IllegalArgumentException expected) {
+            // 参数校验
+        }
+    }
+}
@@ -0,0 +1,245 @@
+package com.ecat.integration.SaimosenIntegration;
+
+import com.ecat.core.State.AttributeStatus;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.Assert.*;
+
+/**
+ * 本地时序存储单元测试类
+ */
+public class TimeSeriesStoreTest {
+
+    private static final long HOUR = 3600_000L;
+    private static final long BASE = 1700000000000L;
+
+    private Path directory;
+    private TimeSeriesStore store;
+
+    @Before
+    public void setUp() throws Exception {
+        directory = Files.createTempDirectory("tsstore");
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        if (store != null) {
+            store.close();
+        }
+        File[] files = directory.toFile().listFiles();
+        if (files != null) {
+            for (File file : files) {
+                file.delete();
+            }
+        }
+        Files.deleteIfExists(directory);
+    }
+
+    @Test
+    public void testAppendAndRangeQuery() throws Exception {
+        store = TimeSeriesStore.open(directory, new String[] {"no", "no2", "nox"}, HOUR, 0);
+        float[] values = new float[3];
+        byte[] statuses = new byte[3];
+        for (int i = 0; i < 100; i++) {
+            values[0] = i;
+            values[1] = i * 2;
+            values[2] = Float.NaN;
+            statuses[0] = TimeSeriesStore.statusCode(i < 50 ? AttributeStatus.NORMAL : AttributeStatus.ZERO_CALIBRATION);
+            assertTrue(store.append(BASE + i * 5000L, values, statuses));
+        }
+
+        TimeSeriesStore.Cursor cursor = store.query(BASE + 10 * 5000L, BASE + 19 * 5000L);
+        int rows = 0;
+        while (cursor.next()) {
+            int i = 10 + rows;
+            assertEquals(BASE + i * 5000L, cursor.getTimestamp());
+            assertEquals(i, cursor.getValue(0), 0.0f);
+            assertEquals(i * 2, cursor.getValue(1), 0.0f);
+            assertTrue(Float.isNaN(cursor.getValue(2)));
+            assertEquals(AttributeStatus.NORMAL, cursor.getStatus(0));
+            rows++;
+        }
+        assertEquals(10, rows);
+
+        cursor = store.query(BASE + 60 * 5000L, BASE + 60 * 5000L);
+        assertTrue(cursor.next());
+        assertEquals(AttributeStatus.ZERO_CALIBRATION, cursor.getStatus(0));
+        assertFalse(cursor.next());
+
+        assertFalse(store.query(BASE + 100 * 5000L, Long.MAX_VALUE).next());
+        assertEquals(1, store.columnIndex("no2"));
+    }
+
+    @Test
+    public void testRejectsOutOfOrderSamples() throws Exception {
+        store = TimeSeriesStore.open(directory, new String[] {"co"}, HOUR, 0);
+        assertTrue(store.append(BASE, new float[] {1}, new byte[1]));
+        assertTrue(store.append(BASE, new float[] {2}, new byte[1]));
+        assertFalse(store.append(BASE - 1, new float[] {3}, new byte[1]));
+        assertEquals(1, store.getSegmentCount());
+    }
+
+    @Test
+    public void testRolloverByCapacityAndDuration() throws Exception {
+        store = TimeSeriesStore.open(directory, new String[] {"so2"}, HOUR, 10, 0);
+        for (int i = 0; i < 25; i++) {
+            store.append(BASE + i * 1000L, new float[] {i}, new byte[1]);
+        }
+        assertEquals(3, store.getSegmentCount());
+        store.append(BASE + 2 * HOUR, new float[] {99}, new byte[1]);
+        assertEquals(4, store.getSegmentCount());
+
+        // 跨段查询按时间顺序返回
+        TimeSeriesStore.Cursor cursor = store.query(BASE + 5000L, BASE + 2 * HOUR);
+        float expected = 5;
+        while (cursor.next() && cursor.getTimestamp() < BASE + 2 * HOUR) {
+            assertEquals(expected++, cursor.getValue(0), 0.0f);
+        }
+        assertEquals(25, expected, 0.0f);
+        assertEquals(99, cursor.getValue(0), 0.0f);
+        assertFalse(cursor.next());
+    }
+
+    @Test
+    public void testRetentionDeletesOldSegments() throws Exception {
+        store = TimeSeriesStore.open(directory, new String[] {"o3"}, HOUR, 3 * HOUR);
+        for (int hour = 0; hour < 6; hour++) {
+            store.append(BASE + hour * HOUR, new float[] {hour}, new byte[1]);
+        }
+        // 末时间戳早于最新时间3小时的段被删除
+        assertEquals(4, store.getSegmentCount());
+        TimeSeriesStore.Cursor cursor = store.query(0, Long.MAX_VALUE);
+        assertTrue(cursor.next());
+        assertEquals(2, cursor.getValue(0), 0.0f);
+    }
+
+    @Test
+    public void testReopenContinuesLastSegment() throws Exception {
+        store = TimeSeriesStore.open(directory, new String[] {"no", "no2"}, HOUR, 0);
+        store.append(BASE, new float[] {1, 2}, new byte[2]);
+        store.close();
+
+        store = TimeSeriesStore.open(directory, new String[] {"no", "no2"}, HOUR, 0);
+        assertFalse(store.append(BASE - 1000L, new float[] {0, 0}, new byte[2]));
+        store.append(BASE + 5000L, new float[] {3, 4}, new byte[2]);
+        assertEquals(1, store.getSegmentCount());
+        store.close();
+
+        // 列变化后开始新段，旧段中没有的列返回NaN
+        store = TimeSeriesStore.open(directory, new String[] {"no", "no2", "nox"}, HOUR, 0);
+        store.append(BASE + 10000L, new float[] {5, 6, 7}, new byte[3]);
+        assertEquals(2, store.getSegmentCount());
+
+        TimeSeriesStore.Cursor cursor = store.query(BASE, BASE + 10000L);
+        assertTrue(cursor.next());
+        assertEquals(1, cursor.getValue(0), 0.0f);
+        assertTrue(Float.isNaN(cursor.getValue(2)));
+        assertNull(cursor.getStatus(2));
+        assertTrue(cursor.next());
+        assertEquals(4, cursor.getValue(1), 0.0f);
+        assertTrue(cursor.next());
+        assertEquals(7, cursor.getValue(2), 0.0f);
+        assertFalse(cursor.next());
+    }
+
+    @Test
+    public void testSealedSegmentsAreCompressedAndQueriedByBlock() throws Exception {
+        int rows = TimeSeriesStore.BLOCK_ROWS * 3 + 100;
+        store = TimeSeriesStore.open(directory, new String[] {"no", "no2"}, new int[] {1, 1}, 24 * HOUR, rows, 0);
+        float[] values = new float[2];
+        byte[] statuses = new byte[2];
+        for (int i = 0; i <= rows; i++) {
+            values[0] = 20 + (i % 50) * 0.1f + 0.04f;
+            values[1] = i == 500 ? Float.NaN : 40;
+            statuses[0] = TimeSeriesStore.statusCode(i < 2000 ? AttributeStatus.NORMAL : AttributeStatus.SPAN_CALIBRATION);
+            assertTrue(store.append(BASE + i * 5000L, values, statuses));
+        }
+        // 第一个段写满后在后台压缩，原始段被删除
+        store.awaitSealed();
+        assertEquals(2, store.getSegmentCount());
+        assertTrue(Files.exists(directory.resolve(BASE + TimeSeriesStore.COMPRESSED_SUFFIX)));
+        assertFalse(Files.exists(directory.resolve(BASE + TimeSeriesStore.SEGMENT_SUFFIX)));
+        assertTrue(store.getCompressedBytes() < rows * 2 * 2);
+
+        // 只跨越第二、三块的查询；数值按精度量化
+        long from = BASE + 1500 * 5000L;
+        long to = BASE + 2500 * 5000L;
+        TimeSeriesStore.Cursor cursor = store.query(from, to);
+        int count = 0;
+        while (cursor.next()) {
+            int i = 1500 + count;
+            assertEquals(BASE + i * 5000L, cursor.getTimestamp());
+            assertEquals(GorillaCodec.quantize(20 + (i % 50) * 0.1f + 0.04f, 1), cursor.getValue(0), 0.0f);
+            assertEquals(i < 2000 ? AttributeStatus.NORMAL : AttributeStatus.SPAN_CALIBRATION, cursor.getStatus(0));
+            count++;
+        }
+        assertEquals(1001, count);
+
+        cursor = store.query(BASE + 500 * 5000L, BASE + 500 * 5000L);
+        assertTrue(cursor.next());
+        assertTrue(Float.isNaN(cursor.getValue(1)));
+        assertFalse(cursor.next());
+
+        // 压缩段之后接着当前段
+        cursor = store.query(BASE + (rows - 1) * 5000L, Long.MAX_VALUE);
+        assertTrue(cursor.next());
+        assertEquals(BASE + (rows - 1) * 5000L, cursor.getTimestamp());
+        assertTrue(cursor.next());
+        assertEquals(BASE + rows * 5000L, cursor.getTimestamp());
+        assertFalse(cursor.next());
+    }
+
+    @Test
+    public void testCursorKeepsSealedSegmentUntilReleased() throws Exception {
+        store = TimeSeriesStore.open(directory, new String[] {"pm10"}, HOUR, 10, 0);
+        for (int i = 0; i < 10; i++) {
+            store.append(BASE + i * 1000L, new float[] {i}, new byte[1]);
+        }
+        TimeSeriesStore.Cursor cursor = store.query(BASE, BASE + 9000L);
+        assertTrue(cursor.next());
+        assertEquals(0, cursor.getValue(0), 0.0f);
+
+        // 滚动后压缩完成、原始段被删除，游标仍读取查询开始时的映射
+        store.append(BASE + 10_000L, new float[] {10}, new byte[1]);
+        store.awaitSealed();
+        assertFalse(Files.exists(directory.resolve(BASE + TimeSeriesStore.SEGMENT_SUFFIX)));
+        float expected = 1;
+        while (cursor.next()) {
+            assertEquals(expected++, cursor.getValue(0), 0.0f);
+        }
+        assertEquals(10, expected, 0.0f);
+
+        // 提前关闭的游标释放尚未读取的段
+        TimeSeriesStore.Cursor partial = store.query(BASE, Long.MAX_VALUE);
+        assertTrue(partial.next());
+        partial.close();
+        assertFalse(partial.next());
+    }
+
+    @Test
+    public void testReopenCompressesLeftoverRawSegments() throws Exception {
+        store = TimeSeriesStore.open(directory, new String[] {"co"}, HOUR, 0);
+        store.append(BASE, new float[] {1}, new byte[1]);
+        store.close();
+        Files.createFile(directory.resolve("123" + TimeSeriesStore.COMPRESSED_SUFFIX + ".tmp"));
+
+        // 列变化：旧的原始段不能继续写入，打开时压缩；残留的临时文件被删除
+        store = TimeSeriesStore.open(directory, new String[] {"co", "co2"}, HOUR, 0);
+        assertTrue(Files.exists(directory.resolve(BASE + TimeSeriesStore.COMPRESSED_SUFFIX)));
+        assertFalse(Files.exists(directory.resolve(BASE + TimeSeriesStore.SEGMENT_SUFFIX)));
+        assertFalse(Files.exists(directory.resolve("123" + TimeSeriesStore.COMPRESSED_SUFFIX + ".tmp")));
+
+        TimeSeriesStore.Cursor cursor = store.query(0, Long.MAX_VALUE);
+        assertTrue(cursor.next());
+        assertEquals(1, cursor.getValue(0), 0.0f);
+        assertTrue(Float.isNaN(cursor.getValue(1)));
+        assertFalse(cursor.next());
+    }
+}
@@ -0,0 +1,124 @@
+package com.ecat.integration.SaimosenIntegration;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 报文回放驱动
+ *
+ * <p>把 {@link RegisterTrafficLog} 中记录的寄存器原始值按轮询周期回放到真实的设备类：
+ * 记录按设备过滤后切分为周期（同一数据段再次出现即开始新周期），
+ * 每个周期先把各数据段的值写入模拟从站，再调用设备的 {@link SmsDeviceBase#pollOnce()}。
+ * 可以尽快回放（吞吐基准），也可以按记录时的节奏回放。</p>
+ *
+ * @version V1.0
+ */
+public class TrafficReplayDriver implements AutoCloseable {
+
+    private final SmsDeviceBase device;
+    private final ModbusSlaveSimulator simulator;
+
+    public TrafficReplayDriver(SmsDeviceBase device) {
+        this.device = device;
+        this.simulator = new ModbusSlaveSimulator("replay-" + device.getClass().getSimpleName());
+        device.setModbusSource(SimulatedModbusSource.create(simulator));
+    }
+
+    /**
+     * 尽快回放
+     */
+    public Result replay(List<RegisterTrafficLog.Record> records) throws Exception {
+        return replay(records, 0);
+    }
+
+    /**
+     * 回放记录
+     * @param records 记录（可包含其他设备的记录，按设备类和设备ID过滤）
+     * @param speed 相对记录节奏的倍速，小于等于0表示不等待、尽快回放
+     */
+    public Result replay(List<RegisterTrafficLog.Record> records, double speed) throws Exception {
+        List<List<RegisterTrafficLog.Record>> cycles = splitCycles(records);
+        Result result = new Result();
+        long begin = System.nanoTime();
+        long previousTimestamp = -1;
+        for (List<RegisterTrafficLog.Record> cycle : cycles) {
+            long timestamp = cycle.get(0).getTimestamp();
+            if (speed > 0 && previousTimestamp >= 0 && timestamp > previousTimestamp) {
+                TimeUnit.MICROSECONDS.sleep((long) ((timestamp - previousTimestamp) * 1000 / speed));
+            }
+            previousTimestamp = timestamp;
+
+            for (RegisterTrafficLog.Record record : cycle) {
+                short[] registers = record.getRegisters();
+                simulator.defineRange(record.getStartAddress(), registers.length);
+                for (int i = 0; i < registers.length; i++) {
+                    simulator.setRegister(record.getStartAddress() + i, registers[i]);
+                }
+            }
+            if (Boolean.TRUE.equals(device.pollOnce().get(30, TimeUnit.SECONDS))) {
+                result.succeeded++;
+            }
+            result.cycles++;
+            result.frames += cycle.size();
+        }
+        result.elapsedNanos = System.nanoTime() - begin;
+        return result;
+    }
+
+    private List<List<RegisterTrafficLog.Record>> splitCycles(List<RegisterTrafficLog.Record> records) {
+        String deviceClass = device.getClass().getSimpleName();
+        List<List<RegisterTrafficLog.Record>> cycles = new ArrayList<>();
+        List<RegisterTrafficLog.Record> current = new ArrayList<>();
+        Set<String> segments = new HashSet<>();
+        for (RegisterTrafficLog.Record record : records) {
+            if (!deviceClass.equals(record.getDeviceClass()) || !device.getId().equals(record.getDeviceId())) {
+                continue;
+            }
+            if (!segments.add(record.getSegment())) {
+                cycles.add(current);
+                current = new ArrayList<>();
+                segments.clear();
+                segments.add(record.getSegment());
+            }
+            current.add(record);
+        }
+        if (!current.isEmpty()) {
+            cycles.add(current);
+        }
+        return cycles;
+    }
+
+    @Override
+    public void close() {
+        simulator.close();
+    }
+
+    /**
+     * 回放结果
+     */
+    public static class Result {
+        private int cycles;
+        private int succeeded;
+        private int frames;
+        private long elapsedNanos;
+
+        public int getCycles() {
+            return cycles;
+        }
+
+        public int getSucceeded() {
+            return succeeded;
+        }
+
+        public int getFrames() {
+            return frames;
+        }
+
+        public long getElapsedNanos() {
+            return elapsedNanos;
+        }
+    }
+}
@@ -0,0 +1,108 @@
+package com.ecat.integration.SaimosenIntegration;
+
+import com.ecat.core.State.AttributeBase;
+import com.ecat.core.State.AttributeStatus;
+import com.ecat.core.State.NumericAttribute;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.Assert.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * 热启动状态单元测试类
+ */
+public class WarmStartTest {
+
+    private NumericAttribute no;
+    private NumericAttribute slope;
+    private Map<String, AttributeBase<?>> attrs;
+    private WarmStart warmStart;
+
+    @Before
+    public void setUp() {
+        no = mock(NumericAttribute.class);
+        slope = mock(NumericAttribute.class);
+        attrs = new HashMap<>();
+        attrs.put("no", no);
+        attrs.put("no_slope", slope);
+        warmStart = new WarmStart(Paths.get("NO2TestDevice.snapshot"), 300000, 60000, 1000);
+    }
+
+    @Test
+    public void testApplyRestoresAndMarksStale() {
+        AttributeSnapshot snapshot = new AttributeSnapshot(500, Arrays.asList(
+            new AttributeSnapshot.Entry("no", 12.5, AttributeStatus.NORMAL),
+            new AttributeSnapshot.Entry("no_slope", 1.02, null),
+            new AttributeSnapshot.Entry("removed", 3.0, AttributeStatus.NORMAL)));
+
+        assertEquals(2, warmStart.apply(snapshot, attrs, 1000));
+
+        verify(no).updateValue(Double.valueOf(12.5), AttributeStatus.NORMAL);
+        verify(slope).updateValue(Double.valueOf(1.02), AttributeStatus.EMPTY);
+        assertTrue(warmStart.isStale("no"));
+        assertTrue(warmStart.isStale("no_slope"));
+        assertFalse(warmStart.isStale("removed"));
+        assertTrue(warmStart.isConfigReadDeferred(1000));
+    }
+
+    @Test
+    public void testNothingRestoredDoesNotDeferConfig() {
+        AttributeSnapshot snapshot = new AttributeSnapshot(500, Arrays.asList(
+            new AttributeSnapshot.Entry("removed", 3.0, AttributeStatus.NORMAL)));
+
+        assertEquals(0, warmStart.apply(snapshot, attrs, 1000));
+        assertFalse(warmStart.isConfigReadDeferred(1000));
+    }
+
+    @Test
+    public void testRefreshKeepsDeferredConfigStaleUntilWindowEnds() {
+        warmStart.apply(new AttributeSnapshot(500, Arrays.asList(
+            new AttributeSnapshot.Entry("no", 12.5, AttributeStatus.NORMAL),
+            new AttributeSnapshot.Entry("no_slope", 1.02, AttributeStatus.NORMAL))), attrs, 1000);
+
+        warmStart.refreshStale(new String[] {"no_slope"}, 6000);
+        assertFalse(warmStart.isStale("no"));
+        assertTrue(warmStart.isStale("no_slope"));
+
+        warmStart.refreshStale(new String[] {"no_slope"}, 61000);
+        assertFalse(warmStart.isStale("no_slope"));
+        assertFalse(warmStart.isConfigReadDeferred(61000));
+    }
+
+    @Test
+    public void testSnapshotOlderThanMaxAgeIsExpired() {
+        WarmStart limited = new WarmStart(Paths.get("NO2TestDevice.snapshot"), 300000, 60000, 600000, 1000);
+        AttributeSnapshot snapshot = new AttributeSnapshot(1000, Arrays.asList(
+            new AttributeSnapshot.Entry("no", 12.5, AttributeStatus.NORMAL)));
+
+        assertFalse(limited.isExpired(snapshot, 601000));
+        assertTrue(limited.isExpired(snapshot, 601001));
+        // 0 表示不限制
+        assertFalse(new WarmStart(Paths.get("NO2TestDevice.snapshot"), 300000, 60000, 0, 1000)
+                .isExpired(snapshot, Long.MAX_VALUE));
+    }
+
+    @Test
+    public void testCaptureStartsNextCheckpointInterval() {
+        when(no.getValue()).thenReturn(12.5);
+        when(no.getAttributeID()).thenReturn("no");
+        when(no.getStatus()).thenReturn(AttributeStatus.NORMAL);
+
+        assertFalse(warmStart.isCheckpointDue(300999));
+        assertTrue(warmStart.isCheckpointDue(301000));
+
+        AttributeSnapshot snapshot = warmStart.capture(attrs, 301000);
+        assertEquals(301000, snapshot.getSavedAt());
+        assertEquals(1, snapshot.getEntries().size());
+        assertEquals("no", snapshot.getEntries().get(0).getAttributeId());
+        assertFalse(warmStart.isCheckpointDue(601000 - 1));
+        assertTrue(warmStart.isCheckpointDue(601000));
+    }
+}
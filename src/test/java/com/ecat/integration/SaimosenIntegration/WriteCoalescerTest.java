@@ -0,0 +1,100 @@
+package com.ecat.integration.SaimosenIntegration;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+
+import static org.junit.Assert.*;
+
+/**
+ * 设定值写入队列单元测试类
+ */
+public class WriteCoalescerTest {
+
+    private final List<String> wire = new ArrayList<>();
+    private final List<CompletableFuture<Boolean>> inFlight = new ArrayList<>();
+
+    /**
+     * 记录下发的写入，由测试控制何时完成
+     */
+    private CompletableFuture<Boolean> send(String write) {
+        wire.add(write);
+        CompletableFuture<Boolean> future = new CompletableFuture<>();
+        inFlight.add(future);
+        return future;
+    }
+
+    @Test
+    public void testBurstWritesOnlyFinalValue() throws Exception {
+        WriteCoalescer coalescer = new WriteCoalescer();
+        CompletableFuture<Boolean> first = coalescer.submit("o3_gas_concentration", () -> send("o3=0.1"));
+        CompletableFuture<Boolean> second = coalescer.submit("o3_gas_concentration", () -> send("o3=0.2"));
+        CompletableFuture<Boolean> third = coalescer.submit("o3_gas_concentration", () -> send("o3=0.3"));
+        CompletableFuture<Boolean> fourth = coalescer.submit("o3_gas_concentration", () -> send("o3=0.4"));
+
+        // 第一个写入正在执行，其余合并为一个待执行写入
+        assertEquals(1, wire.size());
+        assertEquals(1, coalescer.getPendingCount());
+        assertSame(second, third);
+        assertSame(second, fourth);
+
+        inFlight.get(0).complete(true);
+        assertTrue(first.get());
+        assertEquals(2, wire.size());
+        assertEquals("o3=0.4", wire.get(1));
+        assertFalse(fourth.isDone());
+
+        inFlight.get(1).complete(true);
+        assertTrue(second.get());
+        assertEquals(4, coalescer.getSubmittedCount());
+        assertEquals(2, coalescer.getCoalescedCount());
+        assertEquals(2, coalescer.getWrittenCount());
+        assertEquals(0, coalescer.getPendingCount());
+    }
+
+    @Test
+    public void testOrderingAcrossRegistersIsKept() {
+        WriteCoalescer coalescer = new WriteCoalescer();
+        coalescer.submit("so2_std_gas_concentration", () -> send("so2=10"));
+        coalescer.submit("zero_gas_relay", () -> send("relay=1"));
+        coalescer.submit("heating_tube_target_temp", () -> send("temp=120"));
+        // 替换后保留原来的排队位置
+        coalescer.submit("zero_gas_relay", () -> send("relay=0"));
+        coalescer.submit("so2_std_gas_concentration", () -> send("so2=20"));
+
+        for (int i = 0; i < 4; i++) {
+            inFlight.get(i).complete(true);
+        }
+        assertEquals(4, wire.size());
+        assertEquals("so2=10", wire.get(0));
+        assertEquals("relay=0", wire.get(1));
+        assertEquals("temp=120", wire.get(2));
+        assertEquals("so2=20", wire.get(3));
+    }
+
+    @Test
+    public void testFailedWriteDoesNotBlockQueue() throws Exception {
+        WriteCoalescer coalescer = new WriteCoalescer();
+        CompletableFuture<Boolean> failed = coalescer.submit("calibration_valve_so2", () -> {
+            throw new IllegalStateException("bus closed");
+        });
+        CompletableFuture<Boolean> rejected = coalescer.submit("zero_gas_relay", () -> null);
+        CompletableFuture<Boolean> next = coalescer.submit("zero_gas_relay", () -> send("relay=1"));
+
+        try {
+            failed.get();
+            fail("expected failure");
+        } catch (ExecutionException e) {
+            assertTrue(e.getCause() instanceof IllegalStateException);
+        }
+        assertFalse(rejected.get());
+        // 前一个写入已结束，同键写入重新排队并执行
+        assertFalse(next.isDone());
+        assertEquals(1, wire.size());
+        inFlight.get(0).complete(true);
+        assertTrue(next.get());
+    }
+}
@@ -0,0 +1,108 @@
+package com.ecat.integration.SaimosenIntegration;
+
+import org.junit.Test;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+
+/**
+ * 属性写入覆盖层单元测试类
+ */
+public class WriteOverlayTest {
+
+    private static final String ATTR = "calibration_concentration";
+
+    @Test
+    public void testReadIssuedBeforeCommitIsSuppressed() {
+        WriteOverlay overlay = new WriteOverlay();
+        // 轮询周期在写入前获得总线
+        long staleRead = overlay.beginRead();
+        overlay.begin(ATTR);
+        assertFalse(overlay.accept(ATTR));
+        overlay.commit(ATTR);
+        // 写入前发起的读取即使在提交后才解析也不能覆盖写入值
+        assertFalse(overlay.accept(ATTR));
+        overlay.endRead(staleRead);
+        assertTrue(overlay.contains(ATTR));
+
+        // 提交后发起的读取对账并删除记录
+        long freshRead = overlay.beginRead();
+        assertTrue(overlay.accept(ATTR));
+        assertFalse(overlay.contains(ATTR));
+        assertTrue(overlay.accept(ATTR));
+        overlay.endRead(freshRead);
+    }
+
+    @Test
+    public void testOverlappingReadsUseOldest() {
+        WriteOverlay overlay = new WriteOverlay();
+        long older = overlay.beginRead();
+        overlay.commit(ATTR);
+        long newer = overlay.beginRead();
+        // 两个周期重叠时按最早发起的读取判断
+        assertFalse(overlay.accept(ATTR));
+        overlay.endRead(older);
+        assertTrue(overlay.accept(ATTR));
+        overlay.endRead(newer);
+    }
+
+    @Test
+    public void testUpdatesOutsidePollAreSuppressed() {
+        WriteOverlay overlay = new WriteOverlay();
+        overlay.commit(ATTR);
+        assertFalse(overlay.accept(ATTR));
+        // 其它属性不受影响
+        assertTrue(overlay.accept("no_slope"));
+    }
+
+    @Test
+    public void testCancelRestoresReads() {
+        WriteOverlay overlay = new WriteOverlay();
+        overlay.begin(ATTR);
+        overlay.begin(ATTR);
+        overlay.cancel(ATTR);
+        // 另一个写入仍在进行
+        long read = overlay.beginRead();
+        assertFalse(overlay.accept(ATTR));
+        overlay.cancel(ATTR);
+        assertFalse(overlay.contains(ATTR));
+        assertTrue(overlay.accept(ATTR));
+        overlay.endRead(read);
+
+        // 已提交的记录在后续写入失败后仍等待对账
+        overlay.commit(ATTR);
+        overlay.begin(ATTR);
+        overlay.cancel(ATTR);
+        assertTrue(overlay.contains(ATTR));
+    }
+
+    @Test
+    public void testTrackCommitsOnSuccessAndCancelsOnFailure() throws Exception {
+        WriteOverlay overlay = new WriteOverlay();
+        AtomicInteger committed = new AtomicInteger();
+
+        CompletableFuture<Boolean> pending = new CompletableFuture<>();
+        CompletableFuture<Boolean> written = overlay.track(ATTR, () -> pending, committed::incrementAndGet);
+        // 写入期间的读数一律忽略
+        long read = overlay.beginRead();
+        assertFalse(overlay.accept(ATTR));
+        overlay.endRead(read);
+        pending.complete(true);
+        assertTrue(written.get());
+        assertEquals(1, committed.get());
+        assertTrue(overlay.contains(ATTR));
+
+        read = overlay.beginRead();
+        assertTrue(overlay.accept(ATTR));
+        overlay.endRead(read);
+
+        // 失败和没有结果的写入取消记录，不运行提交回调
+        assertFalse(overlay.track(ATTR, () -> CompletableFuture.completedFuture(false),
+                committed::incrementAndGet).get());
+        assertFalse(overlay.track(ATTR, () -> null, committed::incrementAndGet).get());
+        assertEquals(1, committed.get());
+        assertFalse(overlay.contains(ATTR));
+    }
+}
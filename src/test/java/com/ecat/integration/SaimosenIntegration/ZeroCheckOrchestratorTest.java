@@ -0,0 +1,206 @@
+package com.ecat.integration.SaimosenIntegration;
+
+import com.ecat.core.EcatCore;
+import com.ecat.core.Bus.BusRegistry;
+import com.ecat.core.Integration.IntegrationRegistry;
+import com.ecat.core.Task.TaskManager;
+import com.ecat.integration.ModbusIntegration.ModbusIntegration;
+import com.ecat.integration.ModbusIntegration.ModbusSource;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.lang.reflect.Field;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+
+import static org.junit.Assert.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+/**
+ * 共用零气阶段的多分析仪零点检查单元测试类（校准仪、NO2和SO2分析仪接模拟从站）
+ */
+public class ZeroCheckOrchestratorTest {
+
+    private static final String CALIBRATOR = "calibrator-1";
+    private static final String NO2 = "no2-1";
+    private static final String SO2 = "so2-1";
+
+    private ScheduledExecutorService scheduler;
+    private ModbusSlaveSimulator calibratorSim;
+    private ModbusSlaveSimulator no2Sim;
+    private ModbusSlaveSimulator so2Sim;
+    private final Map<String, SmsDeviceBase> devices = new HashMap<>();
+    private final Set<String> ready = ConcurrentHashMap.newKeySet();
+    private ZeroCheckOrchestrator orchestrator;
+
+    @Before
+    public void setUp() throws Exception {
+        scheduler = Executors.newSingleThreadScheduledExecutor();
+        calibratorSim = SaimosenSimulatorProfiles.calibrator();
+        no2Sim = SaimosenSimulatorProfiles.no2();
+        so2Sim = SaimosenSimulatorProfiles.so2();
+        devices.put(CALIBRATOR, createDevice(new CalibratorDevice(config(CALIBRATOR)), calibratorSim));
+        devices.put(NO2, createDevice(new NO2Device(config(NO2)), no2Sim));
+        devices.put(SO2, createDevice(new SO2Device(config(SO2)), so2Sim));
+
+        orchestrator = new ZeroCheckOrchestrator(devices::get, scheduler);
+        // 模拟从站不支持写多个寄存器，零气阶段只选择标气
+        orchestrator.setZeroPhase(calibratorId -> CalibrationSequence.builder("zero_air")
+                .write(calibratorId, "calibrator_gas_select", "NO")
+                .await(calibratorId, "system_state", 5000, CalibrationSequence.STATE_GAS_PREPARING)
+                .rollbackWrite(calibratorId, "calibrator_gas_select", "Choose")
+                .build());
+        orchestrator.setReadinessCheck((analyzer, zeroMillis) -> ready.contains(analyzer.getId()));
+    }
+
+    @After
+    public void tearDown() {
+        scheduler.shutdownNow();
+        calibratorSim.close();
+        no2Sim.close();
+        so2Sim.close();
+    }
+
+    @Test
+    public void testAnalyzersShareZeroPhaseAndConfirmIndependently() throws Exception {
+        ready.add(NO2);
+        ZeroCheckOrchestrator.Run run = orchestrator.start(CALIBRATOR, Arrays.asList(NO2, SO2));
+
+        // 两台分析仪同时进入零点校准，NO2就绪后先确认，SO2仍在零点状态
+        pollUntil(() -> so2Sim.getRegister(SaimosenSimulatorProfiles.CALIBRATION_STATUS)
+                == SaimosenSimulatorProfiles.STATUS_ZERO_CALIBRATION && confirmed(no2Sim));
+        assertFalse(run.getResult().isDone());
+        assertEquals(SaimosenSimulatorProfiles.STATUS_MEASURE,
+                no2Sim.getRegister(SaimosenSimulatorProfiles.CALIBRATION_STATUS));
+        assertEquals(SaimosenSimulatorProfiles.CALIBRATOR_STATE_GAS_PREPARING,
+                calibratorSim.getRegister(SaimosenSimulatorProfiles.CALIBRATOR_SYSTEM_STATE));
+        assertTrue(run.getZeroMillis(NO2) >= 0);
+        assertEquals(-1, run.getZeroMillis(SO2));
+
+        ready.add(SO2);
+        pollUntil(() -> run.getResult().isDone());
+        Map<String, ZeroCheckOrchestrator.Result> results = run.getResult().get(5, TimeUnit.SECONDS);
+        assertEquals(ZeroCheckOrchestrator.Result.CONFIRMED, results.get(NO2));
+        assertEquals(ZeroCheckOrchestrator.Result.CONFIRMED, results.get(SO2));
+        assertTrue(confirmed(so2Sim));
+        assertTrue(run.getElapsedMillis() >= 0);
+        // 零气阶段只执行一次，结束后校准仪恢复待机
+        assertEquals(2, calibratorSim.getWriteHistory().size());
+        assertEquals(SaimosenSimulatorProfiles.CALIBRATOR_STATE_STANDBY,
+                calibratorSim.getRegister(SaimosenSimulatorProfiles.CALIBRATOR_SYSTEM_STATE));
+    }
+
+    @Test
+    public void testAnalyzerTimeoutCancelsZeroCalibration() throws Exception {
+        orchestrator.setAnalyzerTimeoutMillis(300);
+        ZeroCheckOrchestrator.Run run = orchestrator.start(CALIBRATOR, Arrays.asList(NO2, SO2));
+
+        pollUntil(() -> run.getResult().isDone());
+        Map<String, ZeroCheckOrchestrator.Result> results = run.getResult().get(5, TimeUnit.SECONDS);
+        assertEquals(ZeroCheckOrchestrator.Result.TIMED_OUT, results.get(NO2));
+        assertEquals(ZeroCheckOrchestrator.Result.TIMED_OUT, results.get(SO2));
+        pollUntil(() -> no2Sim.getRegister(SaimosenSimulatorProfiles.CALIBRATION_STATUS)
+                == SaimosenSimulatorProfiles.STATUS_MEASURE);
+        assertTrue(written(no2Sim, SaimosenSimulatorProfiles.ZERO_CALIBRATION_CANCEL));
+        assertFalse(written(no2Sim, SaimosenSimulatorProfiles.ZERO_CALIBRATION_CONFIRM));
+        assertEquals(SaimosenSimulatorProfiles.CALIBRATOR_STATE_STANDBY,
+                calibratorSim.getRegister(SaimosenSimulatorProfiles.CALIBRATOR_SYSTEM_STATE));
+    }
+
+    @Test
+    public void testAbortStopsAllAnalyzers() throws Exception {
+        ZeroCheckOrchestrator.Run run = orchestrator.start(CALIBRATOR, Arrays.asList(NO2, SO2));
+        pollUntil(() -> so2Sim.getRegister(SaimosenSimulatorProfiles.CALIBRATION_STATUS)
+                == SaimosenSimulatorProfiles.STATUS_ZERO_CALIBRATION);
+        run.abort();
+
+        Map<String, ZeroCheckOrchestrator.Result> results = run.getResult().get(5, TimeUnit.SECONDS);
+        assertEquals(ZeroCheckOrchestrator.Result.ABORTED, results.get(NO2));
+        assertEquals(ZeroCheckOrchestrator.Result.ABORTED, results.get(SO2));
+        pollUntil(() -> written(so2Sim, SaimosenSimulatorProfiles.ZERO_CALIBRATION_CANCEL));
+    }
+
+    private boolean confirmed(ModbusSlaveSimulator simulator) {
+        return written(simulator, SaimosenSimulatorProfiles.ZERO_CALIBRATION_CONFIRM)
+                && simulator.getRegister(SaimosenSimulatorProfiles.CALIBRATION_STATUS)
+                        == SaimosenSimulatorProfiles.STATUS_MEASURE;
+    }
+
+    private boolean written(ModbusSlaveSimulator simulator, int address) {
+        return simulator.getWriteHistory().stream().anyMatch(write -> write[0] == address);
+    }
+
+    /**
+     * 设备未启动定时轮询，由测试触发发布直到条件满足
+     */
+    private void pollUntil(BooleanSupplier condition) throws Exception {
+        long deadline = System.currentTimeMillis() + 5000;
+        while (!condition.getAsBoolean()) {
+            assertTrue("condition not met in time", System.currentTimeMillis() < deadline);
+            devices.get(NO2).pollOnce().get(5, TimeUnit.SECONDS);
+            devices.get(SO2).pollOnce().get(5, TimeUnit.SECONDS);
+            Thread.sleep(10);
+        }
+    }
+
+    private Map<String, Object> config(String id) {
+        Map<String, Object> commSettings = new HashMap<>();
+        commSettings.put("port", "COM1");
+        commSettings.put("baudRate", 9600);
+        commSettings.put("numDataBit", 8);
+        commSettings.put("numStopBit", 1);
+        commSettings.put("parity", "N");
+        commSettings.put("timeout", 2000);
+        commSettings.put("slaveId", 1);
+        Map<String, Object> config = new HashMap<>();
+        config.put("id", id);
+        config.put("name", id);
+        config.put("comm_settings", commSettings);
+        return config;
+    }
+
+    private SmsDeviceBase createDevice(SmsDeviceBase device, ModbusSlaveSimulator simulator) throws Exception {
+        ModbusSource source = SimulatedModbusSource.create(simulator);
+        ModbusIntegration modbusIntegration = mock(ModbusIntegration.class);
+        when(modbusIntegration.register(any(), any())).thenReturn(source);
+        EcatCore core = mock(EcatCore.class);
+        TaskManager taskManager = mock(TaskManager.class);
+        when(core.getTaskManager()).thenReturn(taskManager);
+        when(taskManager.getExecutorService()).thenReturn(scheduler);
+        when(core.getBusRegistry()).thenReturn(mock(BusRegistry.class));
+        IntegrationRegistry integrationRegistry = mock(IntegrationRegistry.class);
+        when(core.getIntegrationRegistry()).thenReturn(integrationRegistry);
+        when(integrationRegistry.getIntegration("integration-modbus")).thenReturn(modbusIntegration);
+
+        device.load(core);
+        setPrivateField(device, "core", core);
+        // 属性在 init 时捕获 ModbusSource，需先设置
+        device.setModbusSource(source);
+        device.init();
+        return device;
+    }
+
+    private void setPrivateField(Object target, String fieldName, Object value) throws Exception {
+        for (Class<?> type = target.getClass(); type != null; type = type.getSuperclass()) {
+            try {
+                Field field = type.getDeclaredField(fieldName);
+                field.setAccessible(true);
+                field.set(target, value);
+                return;
+            } catch (NoSuchFieldException e) {
+                // 继续查找父类
+            }
+        }
+        throw new NoSuchFieldException(fieldName);
+    }
+}